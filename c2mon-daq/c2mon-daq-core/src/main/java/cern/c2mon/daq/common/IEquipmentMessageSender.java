@@ -17,10 +17,13 @@
 package cern.c2mon.daq.common;
 
 import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.Map;
 
 import cern.c2mon.shared.common.datatag.ISourceDataTag;
 import cern.c2mon.shared.common.datatag.SourceDataTagQuality;
 import cern.c2mon.shared.common.datatag.SourceDataTagQualityCode;
+import cern.c2mon.shared.common.datatag.TagValueUpdate;
 import cern.c2mon.shared.common.datatag.ValueUpdate;
 
 /**
@@ -56,6 +59,41 @@ public interface IEquipmentMessageSender {
    */
   boolean update(String tagName, ValueUpdate update);
 
+  /**
+   * Sends the value updates for the given tags to the server, if not filtered out by the DAQ core
+   *
+   * @param updates The tag value updates to send, by the unique name of the tag
+   * @return The number of tag values sent successfully to the server
+   * @throws IllegalArgumentException if one of the tag names is not attached to the equipment
+   */
+  default int update(Map<String, ValueUpdate> updates) {
+    int sent = 0;
+    for (Map.Entry<String, ValueUpdate> entry : updates.entrySet()) {
+      if (update(entry.getKey(), entry.getValue())) {
+        sent++;
+      }
+    }
+    return sent;
+  }
+
+  /**
+   * Sends the value updates of several tags to the server, if not filtered out by the DAQ core.
+   * Should be preferred to single updates when a whole poll cycle is published at once, as
+   * the values passing the filters are handed over to the sending buffers together.
+   *
+   * @param updates The tag value updates to send, in sending order
+   * @return The number of tag values sent successfully to the server
+   */
+  default int update(Collection<TagValueUpdate> updates) {
+    int sent = 0;
+    for (TagValueUpdate update : updates) {
+      if (update(update.getTagId(), update)) {
+        sent++;
+      }
+    }
+    return sent;
+  }
+
   /**
    * Invalidates the given tag and sends a quality update to the server, if not yet done.
    * The value remains the same.
@@ -182,6 +182,7 @@ public class EquipmentConfigurationFactory extends XMLTagValueExtractor implemen
         }
       }
       equipmentConfiguration.getDataTags().put(sourceDataTag.getId(), sourceDataTag);
+      equipmentConfiguration.indexSourceDataTagName(sourceDataTag);
 
 //      // register tag in the ValueChangeMonitorEngine if needed
 //      if (sourceDataTag.hasValueCheckMonitor()) {
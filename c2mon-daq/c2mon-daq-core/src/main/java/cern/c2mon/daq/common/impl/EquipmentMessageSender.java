@@ -18,6 +18,9 @@ package cern.c2mon.daq.common.impl;
 
 import java.security.InvalidParameterException;
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -31,6 +34,7 @@ import org.springframework.stereotype.Component;
 
 import cern.c2mon.daq.common.IDynamicTimeDeadbandFilterer;
 import cern.c2mon.daq.common.IEquipmentMessageSender;
+import cern.c2mon.daq.common.conf.equipment.DataTagChangerHelper;
 import cern.c2mon.daq.common.conf.equipment.ICoreDataTagChanger;
 import cern.c2mon.daq.common.messaging.IProcessMessageSender;
 import cern.c2mon.daq.filter.IFilterMessageSender;
@@ -242,6 +246,59 @@ public class EquipmentMessageSender implements ICoreDataTagChanger, IEquipmentMe
     return update(equipmentConfiguration.getSourceDataTagIdByName(tagName), update);
   }
 
+  @Override
+  public int update(Map<String, ValueUpdate> updates) {
+    // resolve all names first, so that nothing is sent if a name is unknown
+    List<SourceDataTag> tags = new ArrayList<>(updates.size());
+    for (String tagName : updates.keySet()) {
+      tags.add(getTag(equipmentConfiguration.getSourceDataTagIdByName(tagName)));
+    }
+    return sendBatch(tags, new ArrayList<>(updates.values()));
+  }
+
+  @Override
+  public int update(Collection<TagValueUpdate> updates) {
+    // resolve all tags first, so that nothing is sent if a tag is unknown
+    List<SourceDataTag> tags = new ArrayList<>(updates.size());
+    for (TagValueUpdate update : updates) {
+      tags.add(getTag(update.getTagId()));
+    }
+    return sendBatch(tags, new ArrayList<>(updates));
+  }
+
+  /**
+   * Sends the updates of a batch. The alive tag updates are sent one by one,
+   * the values of all other tags are passed together to the valid sender.
+   *
+   * @param tags    the tags to update, in the order of the updates
+   * @param updates the value updates
+   * @return the number of tag values sent successfully to the server
+   */
+  private int sendBatch(final List<SourceDataTag> tags, final List<? extends ValueUpdate> updates) {
+    List<SourceDataTag> validTags = new ArrayList<>(tags.size());
+    List<ValueUpdate> validUpdates = new ArrayList<>(updates.size());
+    int sent = 0;
+
+    for (int i = 0; i < tags.size(); i++) {
+      SourceDataTag sdt = tags.get(i);
+      freshnessMonitor.reset(sdt);
+
+      if (isAliveTag(sdt.getId())) {
+        if (this.equipmentAliveSender.sendEquipmentAlive(sdt, updates.get(i))) {
+          sent++;
+        }
+      } else {
+        validTags.add(sdt);
+        validUpdates.add(updates.get(i));
+      }
+    }
+
+    if (!validTags.isEmpty()) {
+      sent += this.equipmentSenderValid.update(validTags, validUpdates);
+    }
+    return sent;
+  }
+
   @Override
   public boolean update(Long tagId, ValueUpdate update) {
     SourceDataTag sdt = getTag(tagId);
@@ -484,6 +541,7 @@ public class EquipmentMessageSender implements ICoreDataTagChanger, IEquipmentMe
    */
   @Override
   public void onAddDataTag(final SourceDataTag sourceDataTag, final ChangeReport changeReport) {
+    this.equipmentConfiguration.indexSourceDataTagName(sourceDataTag);
     DataTagAddress address = sourceDataTag.getAddress();
     if (!address.isStaticTimedeadband() && this.equipmentConfiguration.isDynamicTimeDeadbandEnabled()) {
       switch (address.getPriority()) {
@@ -510,6 +568,7 @@ public class EquipmentMessageSender implements ICoreDataTagChanger, IEquipmentMe
    */
   @Override
   public void onRemoveDataTag(final SourceDataTag sourceDataTag, final ChangeReport changeReport) {
+    this.equipmentConfiguration.removeSourceDataTagName(sourceDataTag);
     this.medDynamicTimeDeadbandFilterActivator.removeDataTag(sourceDataTag);
     this.lowDynamicTimeDeadbandFilterActivator.removeDataTag(sourceDataTag);
     changeReport.appendInfo("Data tag " + sourceDataTag.getId() + " removed from any filters.");
@@ -525,6 +584,10 @@ public class EquipmentMessageSender implements ICoreDataTagChanger, IEquipmentMe
    */
   @Override
   public void onUpdateDataTag(final SourceDataTag sourceDataTag, final SourceDataTag oldSourceDataTag, final ChangeReport changeReport) {
+    if (DataTagChangerHelper.hasNameChanged(sourceDataTag, oldSourceDataTag)) {
+      this.equipmentConfiguration.removeSourceDataTagName(oldSourceDataTag);
+      this.equipmentConfiguration.indexSourceDataTagName(sourceDataTag);
+    }
     if (!sourceDataTag.getAddress().isStaticTimedeadband() && sourceDataTag.getAddress().getPriority() != oldSourceDataTag.getAddress().getPriority()) {
       onRemoveDataTag(sourceDataTag, changeReport);
       onAddDataTag(sourceDataTag, changeReport);
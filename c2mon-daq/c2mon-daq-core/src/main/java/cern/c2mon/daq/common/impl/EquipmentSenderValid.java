@@ -24,11 +24,16 @@ import cern.c2mon.daq.tools.DataTagValueValidator;
 import cern.c2mon.shared.common.datatag.*;
 import cern.c2mon.shared.common.filter.FilteredDataTagValue.FilterType;
 import cern.c2mon.shared.common.type.TypeConverter;
+import cern.c2mon.shared.common.type.ValueConverter;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import static cern.c2mon.shared.common.type.TypeConverter.*;
 import static java.lang.String.format;
@@ -124,7 +129,7 @@ class EquipmentSenderValid {
 
     try {
 
-      successfullySent = doUpdate(currentSourceDataTag, update);
+      successfullySent = doUpdate(currentSourceDataTag, update, null);
 
     } catch (Exception ex) {
       log.error("update - Unexpected exception caught for tag " + currentSourceDataTag.getId() + ", " + ex.getStackTrace(), ex);
@@ -137,23 +142,78 @@ class EquipmentSenderValid {
     return successfullySent;
   }
 
+  /**
+   * Same as {@link #update(SourceDataTag, ValueUpdate)} for a batch of updates,
+   * e.g. one poll cycle of an equipment. The values passing all checks are
+   * handed over to the process message sender together instead of one by one.
+   *
+   * @param sourceDataTags The tags to which the values belong, in the order of the updates.
+   * @param updates        The tag value updates to send.
+   * @return The number of tag values sent successfully to the server.
+   */
+  public int update(final List<SourceDataTag> sourceDataTags, final List<? extends ValueUpdate> updates) {
+    log.trace("update - entering update() for {} values", updates.size());
+
+    List<SourceDataTagValue> tagValues = new ArrayList<>(updates.size());
+    Set<Long> batchTagIds = new HashSet<>();
+    int sentCounter = 0;
+
+    for (int i = 0; i < updates.size(); i++) {
+      SourceDataTag currentSourceDataTag = sourceDataTags.get(i);
+      ValueUpdate update = updates.get(i);
+
+      // a tag updated twice in one batch may be invalidated in between, which
+      // is sent directly: keep the order by sending the pending values first
+      if (!batchTagIds.add(currentSourceDataTag.getId())) {
+        sendValues(tagValues);
+        batchTagIds.clear();
+        batchTagIds.add(currentSourceDataTag.getId());
+      }
+
+      try {
+        if (doUpdate(currentSourceDataTag, update, tagValues)) {
+          sentCounter++;
+        }
+      } catch (Exception ex) {
+        log.error("update - Unexpected exception caught for tag " + currentSourceDataTag.getId(), ex);
+
+        SourceDataTagQuality quality = new SourceDataTagQuality(SourceDataTagQualityCode.UNKNOWN, "Could not send incoming valid source update to server: " + ex.getMessage());
+        this.equipmentSender.update(currentSourceDataTag.getId(), quality, update.getSourceTimestamp());
+      }
+    }
+    sendValues(tagValues);
+
+    log.trace("update - leaving update()");
+    return sentCounter;
+  }
+
+  private void sendValues(final List<SourceDataTagValue> tagValues) {
+    if (!tagValues.isEmpty()) {
+      this.processMessageSender.addValues(new ArrayList<>(tagValues));
+      tagValues.clear();
+    }
+  }
+
 
   /**
    * Internal method to send only Tags with primitive Types to the server.
    * This method is called by every other sendTag method of this class.
    *
+   * @param tagValues If not null, the value to send is added to this list
+   *                  instead of being passed directly to the process message sender.
    * @return True if the tag has been send successfully to the server.
    * False if the tag has been invalidated or filtered out.
    */
-  private boolean doUpdate(final SourceDataTag currentSourceDataTag, final ValueUpdate update) {
+  private boolean doUpdate(final SourceDataTag currentSourceDataTag, final ValueUpdate update, final List<SourceDataTagValue> tagValues) {
     // do a validation check on the new value:
     if (!checkValidation(currentSourceDataTag, update)) {
       return false; //TODO Check, if that case is correctly treated by upper logic
     }
 
     // cast the value to the defined dataType if the type is not 'ArbitraryObject':
-    if (isKnownClass(currentSourceDataTag.getDataType())) {
-      Object newValueCasted = cast(update.getValue(), currentSourceDataTag.getDataType());
+    ValueConverter converter = getConverter(currentSourceDataTag.getDataType());
+    if (converter.getType() != null) {
+      Object newValueCasted = converter.convert(update.getValue());
       if (newValueCasted != null) {
         update.setValue(newValueCasted);
       }
@@ -171,7 +231,11 @@ class EquipmentSenderValid {
 
     // All checks and filters are successful, send the tag to the server:
     SourceDataTagValue tagValue = currentSourceDataTag.update(update);
-    this.processMessageSender.addValue(tagValue);
+    if (tagValues == null) {
+      this.processMessageSender.addValue(tagValue);
+    } else {
+      tagValues.add(tagValue);
+    }
 
     // Checks if the dynamic TimeDeadband filter is enabled, Static disable and record it depending on the priority
     this.dynamicTimeDeadbandFilterer.recordTag(currentSourceDataTag);
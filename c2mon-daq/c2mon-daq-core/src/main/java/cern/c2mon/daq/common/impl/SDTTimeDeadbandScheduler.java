@@ -27,15 +27,15 @@ import cern.c2mon.shared.common.filter.FilteredDataTagValue.FilterType;
 import cern.c2mon.shared.common.type.TypeConverter;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * The SourceDataTagTimeDeadbandScheduler class models threads responsible for
- * handling source time deadband filtering. It will work with the Static TimeDeadband
+ * The SourceDataTagTimeDeadbandScheduler class holds the time deadband state of
+ * one tag and sends its latest value at most once per time deadband. The values
+ * are flushed by the {@link TimeDeadbandEngine}. It will work with the Static TimeDeadband
  */
 @Slf4j
-public class SDTTimeDeadbandScheduler extends TimerTask {
+public class SDTTimeDeadbandScheduler implements Runnable {
 
   /**
    * The process message sender takes the messages actually send to the server.
@@ -68,9 +68,24 @@ public class SDTTimeDeadbandScheduler extends TimerTask {
   private DataTagValueFilter dataTagValueFilter;
 
   /**
-   * The timer to schedule this task on
+   * The engine flushing this scheduler
    */
-  private Timer timeDeadbandTimer;
+  private TimeDeadbandEngine timeDeadbandEngine;
+
+  /**
+   * True once the scheduler has been started and until it is cancelled.
+   */
+  private volatile boolean started = false;
+
+  /**
+   * True while a flush of this scheduler is pending on the engine.
+   */
+  private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+
+  /**
+   * Time in ms of the last run which sent or filtered a value.
+   */
+  private volatile long lastRunTime = 0L;
 
   /**
    * The dynamic time dead band filterer for recording the current source data tag
@@ -93,14 +108,14 @@ public class SDTTimeDeadbandScheduler extends TimerTask {
    * @param sourceDataTag               The source data tag controlled by this object.
    * @param processMessageSender        Takes the messages sent to the server
    * @param equipmentSenderValid        Used to send messages to the server.
-   * @param timeDeadbandTimer           The timer to schedule this task on.
+   * @param timeDeadbandEngine          The engine flushing the scheduled values.
    * @param valueChecker                Value checker object to avoid repeated values.
    * @param dynamicTimeDeadbandFilterer The dynamic time dead band filterer for recording the current source data tag
    */
   public SDTTimeDeadbandScheduler(final SourceDataTag sourceDataTag,
                                   final IProcessMessageSender processMessageSender,
                                   final EquipmentSenderFilterModule equipmentSenderFilterModule,
-                                  final Timer timeDeadbandTimer,
+                                  final TimeDeadbandEngine timeDeadbandEngine,
                                   final DataTagValueFilter dataTagValueFilter,
                                   final IDynamicTimeDeadbandFilterer dynamicTimeDeadbandFilterer) {
     this.dataTagValueFilter = dataTagValueFilter;
@@ -108,7 +123,7 @@ public class SDTTimeDeadbandScheduler extends TimerTask {
     this.equipmentSenderFilterModule = equipmentSenderFilterModule;
     this.dynamicTimeDeadbandFilterer = dynamicTimeDeadbandFilterer;
 
-    this.timeDeadbandTimer = timeDeadbandTimer;
+    this.timeDeadbandEngine = timeDeadbandEngine;
 
     log.debug("creating time-deadband scheduler for tag : " + sourceDataTag.getId());
 
@@ -116,22 +131,43 @@ public class SDTTimeDeadbandScheduler extends TimerTask {
   }
 
   /**
-   * Starts the timer task with the scheduled fixed rate defined for the given {@link SourceDataTag}
+   * @return the id of the source data tag controlled by this object
+   */
+  public long getTagId() {
+    return this.sourceDataTag.getId();
+  }
+
+  /**
+   * Registers the scheduler on the engine. From now on, every scheduled value
+   * is sent at most once per time deadband defined for the given {@link SourceDataTag}
    */
   public void start() {
-    // create timers
     if (sourceDataTag.getAddress().isTimeDeadbandEnabled()) {
       if (sourceDataTag.getAddress().getTimeDeadband() > 0) {
         log.debug("\tscheduler[" + this.sourceDataTag.getId() + "] : setting scheduling interval to : "
               + this.sourceDataTag.getAddress().getTimeDeadband() + " miliseconds");
       }
 
-      this.timeDeadbandTimer.scheduleAtFixedRate(this, 0, this.sourceDataTag.getAddress().getTimeDeadband());
+      this.timeDeadbandEngine.register(this);
+      this.started = true;
+      if (isScheduledForSending()) {
+        scheduleFlush();
+      }
 
       log.debug("\tscheduler[" + this.sourceDataTag.getId() + "] : setting scheduled");
     }
   }
 
+  /**
+   * Stops the scheduler. A value scheduled for sending is not flushed anymore
+   * by the engine. A later {@link #start()} schedules a new flush if needed.
+   */
+  public void cancel() {
+    this.started = false;
+    this.timeDeadbandEngine.unregister(this);
+    this.flushScheduled.set(false);
+  }
+
   /**
    * flushes and resets the scheduler
    */
@@ -152,10 +188,41 @@ public class SDTTimeDeadbandScheduler extends TimerTask {
    */
   public void scheduleValueForSending() {
     this.sendValue = true;
+    if (this.started) {
+      scheduleFlush();
+    }
+  }
+
+  /**
+   * Asks the engine to flush this scheduler one time deadband after the last
+   * sent value, unless a flush is already pending. Synchronized on the tag like
+   * {@link #flush()}, so that the last run time is never read during a run.
+   */
+  private void scheduleFlush() {
+    synchronized (this.sourceDataTag) {
+      if (this.flushScheduled.compareAndSet(false, true)) {
+        long delay = this.lastRunTime + this.sourceDataTag.getAddress().getTimeDeadband() - System.currentTimeMillis();
+        this.timeDeadbandEngine.scheduleFlush(this.sourceDataTag.getId(), Math.max(0L, delay));
+      }
+    }
+  }
+
+  /**
+   * Called by the engine when the time deadband of the tag is over.
+   */
+  void flush() {
+    synchronized (this.sourceDataTag) {
+      // reset before running, so that a value scheduled after the run gets its own flush
+      this.flushScheduled.set(false);
+      if (this.started) {
+        run();
+      }
+    }
   }
 
   /**
-   * The run method called from the timer.
+   * Sends the scheduled value, if any. Called by the engine, or directly to
+   * flush the scheduler.
    */
   @Override
   public void run() {
@@ -164,6 +231,7 @@ public class SDTTimeDeadbandScheduler extends TimerTask {
     try {
       synchronized (this.sourceDataTag) {
         if (isScheduledForSending()) {
+          this.lastRunTime = System.currentTimeMillis();
 
           SourceDataTagValue currentSDValue = this.sourceDataTag.getCurrentValue();
 
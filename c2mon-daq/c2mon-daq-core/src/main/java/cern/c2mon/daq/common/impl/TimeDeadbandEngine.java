@@ -0,0 +1,122 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.daq.common.impl;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.extern.slf4j.Slf4j;
+
+import cern.c2mon.daq.common.timer.HashedTimingWheel;
+
+/**
+ * Flushes the values held back by the time deadband of the tags.
+ *
+ * <p>A tag is only put on the timing wheel when its {@link SDTTimeDeadbandScheduler}
+ * holds a value to send, so idle tags cost nothing. The tags due in one tick
+ * are flushed in batches by a small pool of worker threads.
+ */
+@Slf4j
+class TimeDeadbandEngine {
+
+  /** Maximum number of tags flushed by one worker task */
+  private static final int BATCH_SIZE = 256;
+
+  /**
+   * The registered schedulers by tag id.
+   */
+  private final ConcurrentHashMap<Long, SDTTimeDeadbandScheduler> schedulers = new ConcurrentHashMap<>();
+
+  private final HashedTimingWheel flushWheel;
+
+  private final ExecutorService workers;
+
+  /**
+   * Creates a new TimeDeadbandEngine. No thread is started before the first
+   * flush is scheduled.
+   *
+   * @param tickMillis    precision of the time deadband
+   * @param wheelSize     number of buckets of the timing wheel
+   * @param workerThreads number of threads flushing the tag values
+   */
+  TimeDeadbandEngine(final long tickMillis, final int wheelSize, final int workerThreads) {
+    this.flushWheel = new HashedTimingWheel(tickMillis, wheelSize, System::nanoTime, this::flush, "Time deadband timer");
+
+    AtomicInteger threadCount = new AtomicInteger();
+    this.workers = Executors.newFixedThreadPool(workerThreads, r -> {
+      Thread thread = new Thread(r, "Time deadband worker-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * @param scheduler the scheduler to flush when its tag is due
+   */
+  void register(final SDTTimeDeadbandScheduler scheduler) {
+    this.schedulers.put(scheduler.getTagId(), scheduler);
+  }
+
+  /**
+   * Removes the scheduler, unless another scheduler has been registered for
+   * the same tag in the meantime.
+   *
+   * @param scheduler the scheduler to remove
+   */
+  void unregister(final SDTTimeDeadbandScheduler scheduler) {
+    if (this.schedulers.remove(scheduler.getTagId(), scheduler)) {
+      this.flushWheel.cancel(scheduler.getTagId());
+    }
+  }
+
+  /**
+   * Flushes the registered scheduler of the given tag after the given delay.
+   *
+   * @param tagId       the id of the tag
+   * @param delayMillis the delay in ms
+   */
+  void scheduleFlush(final long tagId, final long delayMillis) {
+    this.flushWheel.schedule(tagId, delayMillis);
+  }
+
+  /**
+   * @return the number of registered schedulers
+   */
+  int size() {
+    return this.schedulers.size();
+  }
+
+  /**
+   * Called by the timing wheel with the ids of the due tags.
+   */
+  private void flush(final long[] tagIds) {
+    for (int from = 0; from < tagIds.length; from += BATCH_SIZE) {
+      final int start = from;
+      final int end = Math.min(from + BATCH_SIZE, tagIds.length);
+      this.workers.execute(() -> {
+        for (int i = start; i < end; i++) {
+          SDTTimeDeadbandScheduler scheduler = this.schedulers.get(tagIds[i]);
+          if (scheduler != null) {
+            scheduler.flush();
+          }
+        }
+      });
+    }
+  }
+}
@@ -16,6 +16,8 @@
  *****************************************************************************/
 package cern.c2mon.daq.common.messaging;
 
+import java.util.Collection;
+
 import cern.c2mon.shared.common.datatag.SourceDataTagValue;
 
 /**
@@ -39,6 +41,19 @@ public interface IProcessMessageSender {
      */
     void addValue(SourceDataTagValue dataTagValue);
 
+    /**
+     * Same as {@link #addValue(SourceDataTagValue)} for all values of one
+     * batch, e.g. all values of one poll cycle of an equipment.
+     *
+     * @param dataTagValues
+     *            the SourceDataTagValue objects, in sending order
+     */
+    default void addValues(Collection<SourceDataTagValue> dataTagValues) {
+        for (SourceDataTagValue dataTagValue : dataTagValues) {
+            addValue(dataTagValue);
+        }
+    }
+
     /**
      * Sends a communication fault tag message.
      * @param tagId The tag ID to use.
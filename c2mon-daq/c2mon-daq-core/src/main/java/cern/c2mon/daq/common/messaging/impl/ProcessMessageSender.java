@@ -16,8 +16,12 @@
  *****************************************************************************/
 package cern.c2mon.daq.common.messaging.impl;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import javax.jms.JMSException;
 
@@ -32,9 +36,9 @@ import cern.c2mon.shared.common.datatag.DataTagValueUpdate;
 import cern.c2mon.shared.common.datatag.SourceDataTagQuality;
 import cern.c2mon.shared.common.datatag.SourceDataTagValue;
 import cern.c2mon.shared.common.process.ProcessConfiguration;
+import cern.c2mon.shared.util.buffer.ConcurrentSynchroBuffer;
 import cern.c2mon.shared.util.buffer.PullEvent;
 import cern.c2mon.shared.util.buffer.PullException;
-import cern.c2mon.shared.util.buffer.SynchroBuffer;
 import cern.c2mon.shared.util.buffer.SynchroBufferListener;
 
 /**
@@ -56,12 +60,12 @@ public class ProcessMessageSender implements IProcessMessageSender {
   /**
    * The buffer for non-persistent SourceDataTags objects
    */
-  private SynchroBuffer dataTagsBuffer;
+  private ConcurrentSynchroBuffer dataTagsBuffer;
 
   /**
    * The buffer for persistent SourceDataTags objects
    */
-  private SynchroBuffer persistentTagsBuffer;
+  private ConcurrentSynchroBuffer persistentTagsBuffer;
 
   /**
    * The reference for the AliveTimer object
@@ -85,9 +89,11 @@ public class ProcessMessageSender implements IProcessMessageSender {
     ProcessConfiguration processConfiguration = ProcessConfigurationHolder.getInstance();
     // TODO move the min window size to properties or database
     // create and initialize dataTagsBuffer for non-persistent tags
-    dataTagsBuffer = new SynchroBuffer(200, processConfiguration.getMaxMessageDelay(), 100, SynchroBuffer.DUPLICATE_OK);
+    dataTagsBuffer = new ConcurrentSynchroBuffer("DataTagsBuffer", 200, processConfiguration.getMaxMessageDelay(), 100,
+        ConcurrentSynchroBuffer.INFINITE_CAPACITY);
     // create and initialize dataTagsBuffer for persistent tags
-    persistentTagsBuffer = new SynchroBuffer(200, processConfiguration.getMaxMessageDelay(), 100, SynchroBuffer.DUPLICATE_OK);
+    persistentTagsBuffer = new ConcurrentSynchroBuffer("PersistentTagsBuffer", 200, processConfiguration.getMaxMessageDelay(), 100,
+        ConcurrentSynchroBuffer.INFINITE_CAPACITY);
 
     dataTagsBuffer.setSynchroBufferListener(new SynchroBufferEventsListener());
     persistentTagsBuffer.setSynchroBufferListener(new SynchroBufferEventsListener());
@@ -224,6 +230,80 @@ public class ProcessMessageSender implements IProcessMessageSender {
     LOGGER.debug("leaving addValue()");
   }
 
+  /**
+   * Sends the high priority values of the batch grouped into as few messages as
+   * possible, one per delivery mode and time-to-live, and pushes the low
+   * priority values into the sending buffers with one call per buffer.
+   */
+  @Override
+  public final void addValues(final Collection<SourceDataTagValue> dataTagValues) {
+    LOGGER.debug("adding " + dataTagValues.size() + " data tag values to the sending buffers");
+    Map<String, List<SourceDataTagValue>> highPriorityValues = new LinkedHashMap<>();
+    List<SourceDataTagValue> persistentValues = new ArrayList<>();
+    List<SourceDataTagValue> nonPersistentValues = new ArrayList<>();
+
+    for (SourceDataTagValue dataTagValue : dataTagValues) {
+      if (dataTagValue.getPriority() == DataTagAddress.PRIORITY_HIGH) {
+        // values of one message share the delivery mode and the time-to-live
+        String messageKey = dataTagValue.isGuaranteedDelivery() + ":" + dataTagValue.getTimeToLive();
+        highPriorityValues.computeIfAbsent(messageKey, key -> new ArrayList<>()).add(dataTagValue);
+      }
+      else if (dataTagValue.isGuaranteedDelivery()) {
+        persistentValues.add(dataTagValue);
+      }
+      else {
+        nonPersistentValues.add(dataTagValue);
+      }
+    }
+
+    for (List<SourceDataTagValue> values : highPriorityValues.values()) {
+      try {
+        if (values.size() == 1) {
+          this.distributeValue(values.get(0));
+        }
+        else {
+          this.distributeHighPriorityValues(values);
+        }
+      }
+      catch (JMSException ex) {
+        LOGGER.error("addValues : JMSException caught :" + ex.getMessage());
+      }
+    }
+
+    if (!persistentValues.isEmpty()) {
+      this.persistentTagsBuffer.push(persistentValues);
+    }
+    if (!nonPersistentValues.isEmpty()) {
+      this.dataTagsBuffer.push(nonPersistentValues);
+    }
+  }
+
+  /**
+   * Sends the values in messages of at most the maximum message size.
+   *
+   * @param values high priority values with the same delivery mode and time-to-live
+   * @throws JMSException if one of the senders throws one
+   */
+  private void distributeHighPriorityValues(final List<SourceDataTagValue> values) throws JMSException {
+    ProcessConfiguration processConfiguration = ProcessConfigurationHolder.getInstance();
+    DataTagValueUpdate dataTagValueUpdate = null;
+
+    for (SourceDataTagValue sdtValue : values) {
+      if (dataTagValueUpdate == null) {
+        dataTagValueUpdate = new DataTagValueUpdate(processConfiguration.getProcessID(), processConfiguration.getprocessPIK());
+      }
+      dataTagValueUpdate.addValue(sdtValue);
+
+      if (dataTagValueUpdate.getValues().size() >= processConfiguration.getMaxMessageSize()) {
+        distributeValues(dataTagValueUpdate);
+        dataTagValueUpdate = null;
+      }
+    }
+    if (dataTagValueUpdate != null) {
+      distributeValues(dataTagValueUpdate);
+    }
+  }
+
   /**
    * Connects to all the registered brokers (individual JMSSenders should
    * implement this on separate threads if the connection is unessential).
@@ -1,9 +1,6 @@
 package cern.c2mon.daq.common.timer;
 
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import lombok.extern.slf4j.Slf4j;
@@ -17,20 +14,33 @@ import cern.c2mon.shared.common.datatag.SourceDataTagQuality;
 import cern.c2mon.shared.common.datatag.SourceDataTagQualityCode;
 
 /**
+ * Sends a STALE quality for every tag with a freshness interval that has not
+ * been updated within freshnessInterval * freshnessTolerance seconds.
+ *
+ * <p>{@link #reset(SourceDataTag)} is called for every tag update, so the
+ * deadlines are kept in a {@link HashedTimingWheel} on which a reset is a
+ * constant time operation.
+ *
  * @author Franz Ritter
  */
 @Component
 @Slf4j
 public class FreshnessMonitor {
 
+  /** Precision of the freshness check */
+  private static final long TICK_MILLIS = 100L;
+
+  /** Number of buckets, one round of the wheel lasts about 51 seconds */
+  private static final int WHEEL_SIZE = 512;
+
   private final DaqProperties properties;
-  private final Map<Long, Runnable> freshnessTasks = new HashMap<>();
+  private final HashedTimingWheel freshnessWheel;
   private IEquipmentMessageSender equipmentMessageSender;
-  private final ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(2);
 
   @Autowired
   public FreshnessMonitor(DaqProperties properties) {
     this.properties = properties;
+    this.freshnessWheel = new HashedTimingWheel(TICK_MILLIS, WHEEL_SIZE, System::nanoTime, this::sendStale, "FreshnessMonitor");
   }
 
   public void setIEquipmentMessageSender(IEquipmentMessageSender equipmentMessageSender) {
@@ -44,21 +54,9 @@ public class FreshnessMonitor {
         && sourceDataTag.getAddress().getFreshnessInterval() != 0L) {
 
       log.trace("Checking freshness for tag {}", sourceDataTag.getName());
-      Long tagId = sourceDataTag.getId();
-      Runnable task;
-
-      if (freshnessTasks.containsKey(tagId)) {
-        task = freshnessTasks.get(tagId);
-        timer.remove(task);
-        timer.purge();
-
-      } else {
-        task = new FreshnessTask(tagId);
-        freshnessTasks.put(tagId, task);
-      }
-
       Double freshnessTolerance = properties.getFreshnessTolerance();
-      timer.schedule(task, (long) (sourceDataTag.getAddress().getFreshnessInterval() * freshnessTolerance), TimeUnit.SECONDS);
+      long delaySeconds = (long) (sourceDataTag.getAddress().getFreshnessInterval() * freshnessTolerance);
+      freshnessWheel.schedule(sourceDataTag.getId(), TimeUnit.SECONDS.toMillis(delaySeconds));
     }
   }
 
@@ -67,28 +65,20 @@ public class FreshnessMonitor {
         && sourceDataTag.getAddress().getFreshnessInterval() != null
         && sourceDataTag.getAddress().getFreshnessInterval() != 0L) {
 
-      Long tagId = sourceDataTag.getId();
-      if (freshnessTasks.containsKey(tagId)) {
+      if (freshnessWheel.cancel(sourceDataTag.getId())) {
         log.trace("Removing freshness check for tag {}", sourceDataTag.getName());
-        timer.remove(freshnessTasks.get(tagId));
-        freshnessTasks.remove(tagId);
       }
     }
   }
 
-  class FreshnessTask implements Runnable {
-
-    private Long id;
-
-    public FreshnessTask(Long id) {
-      this.id = id;
-    }
-
-    @Override
-    public void run() {
-      SourceDataTagQuality tagQuality = new SourceDataTagQuality(SourceDataTagQualityCode.STALE);
-      equipmentMessageSender.update(id, tagQuality);
+  private void sendStale(long[] tagIds) {
+    for (long tagId : tagIds) {
+      try {
+        SourceDataTagQuality tagQuality = new SourceDataTagQuality(SourceDataTagQualityCode.STALE);
+        equipmentMessageSender.update(tagId, tagQuality);
+      } catch (RuntimeException e) {
+        log.error("Error sending STALE quality for tag {}", tagId, e);
+      }
     }
   }
-
 }
@@ -0,0 +1,270 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.daq.common.timer;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Hashed timing wheel keeping one restartable deadline per id.
+ *
+ * <p>Re-arming the deadline of an id ({@link #schedule(long, long)}) only
+ * writes the new deadline and, if the id is not already in the wheel, queues
+ * it for insertion. It does not search or reorder any structure, so it can be
+ * called for every incoming value. The single ticker thread owns the buckets:
+ * when the bucket of an entry comes up and its deadline has been pushed back
+ * in the meantime, the entry is moved to the bucket of its new deadline;
+ * otherwise its id is handed to the expiry handler, together with all other
+ * ids expired in the same run of the ticker.
+ *
+ * <p>Deadlines are checked with a precision of one tick.
+ */
+@Slf4j
+public class HashedTimingWheel {
+
+  private final long tickNanos;
+
+  private final int mask;
+
+  private final LongSupplier nanoClock;
+
+  private final Consumer<long[]> expiryHandler;
+
+  private final String threadName;
+
+  /** Buckets, only accessed by the ticker thread */
+  private final Queue<Timeout>[] wheel;
+
+  /** Timeouts waiting to be put into a bucket by the ticker thread */
+  private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+
+  private final ConcurrentHashMap<Long, Timeout> timeouts = new ConcurrentHashMap<>();
+
+  private final AtomicBoolean started = new AtomicBoolean(false);
+
+  private final long startNanos;
+
+  /** Last tick processed by the ticker */
+  private long currentTick;
+
+  /** Ids expired during the current run of the ticker */
+  private long[] expiredIds = new long[64];
+
+  private int expiredCount;
+
+  private ScheduledExecutorService ticker;
+
+  /**
+   * @param tickMillis    duration of one tick
+   * @param wheelSize     number of buckets, rounded up to a power of two
+   * @param nanoClock     time source, {@code System::nanoTime} outside of tests
+   * @param expiryHandler called on the ticker thread with the ids of the deadlines
+   *                      expired since the previous call
+   * @param threadName    name of the ticker thread
+   */
+  @SuppressWarnings("unchecked")
+  public HashedTimingWheel(long tickMillis, int wheelSize, LongSupplier nanoClock, Consumer<long[]> expiryHandler, String threadName) {
+    if (tickMillis <= 0 || wheelSize <= 0) {
+      throw new IllegalArgumentException("Tick duration and wheel size must be positive");
+    }
+    int size = Integer.highestOneBit(wheelSize);
+    if (size < wheelSize) {
+      size <<= 1;
+    }
+    this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+    this.mask = size - 1;
+    this.nanoClock = nanoClock;
+    this.expiryHandler = expiryHandler;
+    this.threadName = threadName;
+    this.wheel = new Queue[size];
+    for (int i = 0; i < size; i++) {
+      wheel[i] = new ArrayDeque<>();
+    }
+    this.startNanos = nanoClock.getAsLong();
+  }
+
+  /**
+   * (Re-)arms the deadline of the given id to now + delay. Thread-safe; the
+   * ticker thread is started on the first call.
+   *
+   * @param id          the id to be passed to the expiry handler
+   * @param delayMillis delay after which the deadline expires
+   */
+  public void schedule(long id, long delayMillis) {
+    Timeout timeout = timeouts.computeIfAbsent(id, Timeout::new);
+    timeout.deadline = nanoClock.getAsLong() + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+
+    if (!timeout.scheduled.get() && timeout.scheduled.compareAndSet(false, true)) {
+      pending.add(timeout);
+    }
+    if (!started.get() && started.compareAndSet(false, true)) {
+      start();
+    }
+  }
+
+  /**
+   * Removes the deadline of the given id. The expiry handler will not be
+   * called for it unless it is scheduled again.
+   *
+   * @param id the id of the deadline to remove
+   * @return true if a deadline was registered for the id
+   */
+  public boolean cancel(long id) {
+    Timeout timeout = timeouts.remove(id);
+    if (timeout != null) {
+      timeout.cancelled = true;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * @return the number of ids with a registered deadline, whether expired or not
+   */
+  public int size() {
+    return timeouts.size();
+  }
+
+  /**
+   * Stops the ticker thread. Registered deadlines are not fired anymore.
+   */
+  public synchronized void stop() {
+    if (ticker != null) {
+      ticker.shutdownNow();
+    }
+  }
+
+  /**
+   * Starts the ticker thread, package-private so that tests can drive the
+   * wheel with {@link #advance()} instead.
+   */
+  synchronized void start() {
+    ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, threadName);
+      thread.setDaemon(true);
+      return thread;
+    });
+    ticker.scheduleAtFixedRate(this::advance, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Processes all ticks up to the current time. Called by the ticker thread,
+   * package-private for tests.
+   */
+  void advance() {
+    try {
+      long now = nanoClock.getAsLong();
+      long targetTick = (now - startNanos) / tickNanos;
+      while (currentTick < targetTick) {
+        currentTick++;
+        transferPending();
+        expireBucket(wheel[(int) (currentTick & mask)], now);
+      }
+    } catch (RuntimeException e) {
+      log.error("Unexpected exception while processing the timing wheel", e);
+    }
+    fireExpired();
+  }
+
+  private void transferPending() {
+    Timeout timeout;
+    while ((timeout = pending.poll()) != null) {
+      if (timeout.cancelled) {
+        timeout.scheduled.set(false);
+      } else {
+        wheel[bucketIndex(timeout.deadline, currentTick)].add(timeout);
+      }
+    }
+  }
+
+  private void expireBucket(Queue<Timeout> bucket, long now) {
+    // entries moved to a later round of this same bucket are added at the tail
+    // and must not be looked at again in this pass
+    for (int remaining = bucket.size(); remaining > 0; remaining--) {
+      Timeout timeout = bucket.poll();
+
+      if (timeout.cancelled) {
+        timeout.scheduled.set(false);
+      } else if (timeout.deadline - now > 0) {
+        wheel[bucketIndex(timeout.deadline, currentTick + 1)].add(timeout);
+      } else {
+        timeout.scheduled.set(false);
+        // a reset racing with the expiry either sees scheduled == false and
+        // queues the timeout again, or has already moved the deadline
+        if (timeout.deadline - now > 0) {
+          if (timeout.scheduled.compareAndSet(false, true)) {
+            wheel[bucketIndex(timeout.deadline, currentTick + 1)].add(timeout);
+          }
+        } else if (!timeout.cancelled) {
+          if (expiredCount == expiredIds.length) {
+            expiredIds = Arrays.copyOf(expiredIds, expiredCount * 2);
+          }
+          expiredIds[expiredCount++] = timeout.id;
+        }
+      }
+    }
+  }
+
+  private void fireExpired() {
+    if (expiredCount == 0) {
+      return;
+    }
+    long[] ids = Arrays.copyOf(expiredIds, expiredCount);
+    expiredCount = 0;
+    try {
+      expiryHandler.accept(ids);
+    } catch (RuntimeException e) {
+      log.error("Exception caught while handling the expiry of {} ids", ids.length, e);
+    }
+  }
+
+  /**
+   * @return the bucket of the tick in which the deadline expires, but not
+   *         earlier than the given tick
+   */
+  private int bucketIndex(long deadline, long earliestTick) {
+    long deadlineTick = (deadline - startNanos + tickNanos - 1) / tickNanos;
+    return (int) (Math.max(deadlineTick, earliestTick) & mask);
+  }
+
+  private static final class Timeout {
+
+    private final long id;
+
+    private volatile long deadline;
+
+    private volatile boolean cancelled;
+
+    /** true while the timeout is in the pending queue or in a bucket */
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+    private Timeout(long id) {
+      this.id = id;
+    }
+  }
+}
@@ -63,6 +63,14 @@ public class DaqProperties {
      * running in double publication mode)
      */
     private String secondaryUrl = "tcp://0.0.0.0:61617";
+
+    /**
+     * Encoding of the tag updates sent to the server. Possible values are:
+     *
+     * json:   JSON text messages (default, supported by all servers)
+     * binary: compact binary messages (requires a server supporting them)
+     */
+    private String updateEncoding = "json";
   }
 
   /**
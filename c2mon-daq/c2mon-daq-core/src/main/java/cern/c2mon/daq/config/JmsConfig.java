@@ -34,10 +34,14 @@ public class JmsConfig {
   public JmsTemplate sourceUpdateJmsTemplate() {
     JmsTemplate template = new JmsTemplate(singleConnectionFactory());
     template.setDefaultDestination(new ActiveMQQueue(properties.getJms().getQueuePrefix() + ".update." + properties.getName()));
-    template.setMessageConverter(new DataTagValueUpdateConverter());
+    template.setMessageConverter(dataTagValueUpdateConverter());
     return template;
   }
 
+  private DataTagValueUpdateConverter dataTagValueUpdateConverter() {
+    return new DataTagValueUpdateConverter("binary".equalsIgnoreCase(properties.getJms().getUpdateEncoding()));
+  }
+
   @Bean
   public JmsTemplate processRequestJmsTemplate() {
     String queueTrunk = properties.getJms().getQueuePrefix();
@@ -100,7 +104,7 @@ public class JmsConfig {
   public JmsTemplate secondSourceUpdateJmsTemplate() {
     JmsTemplate template = new JmsTemplate(secondSingleConnectionFactory());
     template.setDefaultDestination(new ActiveMQQueue(properties.getJms().getQueuePrefix() + ".update." + properties.getName()));
-    template.setMessageConverter(new DataTagValueUpdateConverter());
+    template.setMessageConverter(dataTagValueUpdateConverter());
     return template;
   }
 
@@ -18,12 +18,20 @@ package cern.c2mon.daq.common.impl;
 
 import java.io.File;
 import java.io.IOException;
+import java.security.InvalidParameterException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import cern.c2mon.daq.common.timer.FreshnessMonitor;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.Builder;
 import lombok.Data;
+import org.easymock.Capture;
+import org.easymock.CaptureType;
 import org.easymock.EasyMock;
 import org.junit.Before;
 import org.junit.Test;
@@ -790,6 +798,92 @@ public class EquipmentMessageSenderTest {
     verify(lowDynamicTimeDeadbandFilterActivatorMock, processMessageSenderMock);
   }
 
+  @Test
+  public void testUpdateByNames() {
+    lowDynamicTimeDeadbandFilterActivatorMock.newTagValueSent(sdt1.getId());
+    lowDynamicTimeDeadbandFilterActivatorMock.newTagValueSent(sdt4.getId());
+    Capture<Collection<SourceDataTagValue>> sentValues = newCapture();
+    processMessageSenderMock.addValues(capture(sentValues));
+
+    replay(lowDynamicTimeDeadbandFilterActivatorMock, processMessageSenderMock);
+    sdt1.getAddress().setTimeDeadband(0);
+    sdt4.getAddress().setTimeDeadband(0);
+
+    Map<String, ValueUpdate> updates = new LinkedHashMap<>();
+    updates.put("SDT1", new ValueUpdate(false, System.currentTimeMillis() + 1L));
+    updates.put("sdt4", new ValueUpdate(new Integer[] { 1, 2, 3 }, System.currentTimeMillis() + 1L));
+    assertEquals(2, equipmentMessageSender.update(updates));
+
+    assertEquals(false, sdt1.getCurrentValue().getValue());
+    assertEquals(SourceDataTagQualityCode.OK, sdt4.getCurrentValue().getQuality().getQualityCode());
+    assertEquals(2, sentValues.getValue().size());
+
+    verify(lowDynamicTimeDeadbandFilterActivatorMock, processMessageSenderMock);
+  }
+
+  @Test
+  public void testUpdateBatch() {
+    lowDynamicTimeDeadbandFilterActivatorMock.newTagValueSent(sdt1.getId());
+    lowDynamicTimeDeadbandFilterActivatorMock.newTagValueSent(sdt4.getId());
+    lowDynamicTimeDeadbandFilterActivatorMock.newTagValueSent(sdt1.getId());
+    Capture<Collection<SourceDataTagValue>> sentValues = newCapture(CaptureType.ALL);
+    processMessageSenderMock.addValues(capture(sentValues));
+    expectLastCall().times(2);
+
+    replay(lowDynamicTimeDeadbandFilterActivatorMock, processMessageSenderMock);
+    sdt1.getAddress().setTimeDeadband(0);
+    sdt4.getAddress().setTimeDeadband(0);
+
+    long timestamp = System.currentTimeMillis();
+    List<TagValueUpdate> updates = Arrays.asList(
+        new TagValueUpdate(sdt1.getId(), false, timestamp + 1L),
+        new TagValueUpdate(sdt4.getId(), new Integer[] { 1, 2, 3 }, timestamp + 1L),
+        new TagValueUpdate(sdt1.getId(), true, timestamp + 2L));
+    assertEquals(3, equipmentMessageSender.update(updates));
+
+    // the second update of sdt1 is sent after the values collected before it
+    assertEquals(2, sentValues.getValues().size());
+    assertEquals(2, sentValues.getValues().get(0).size());
+    assertEquals(1, sentValues.getValues().get(1).size());
+    assertEquals(true, sdt1.getCurrentValue().getValue());
+
+    verify(lowDynamicTimeDeadbandFilterActivatorMock, processMessageSenderMock);
+  }
+
+  @Test
+  public void testUpdateBatchUnknownTag() {
+    replay(lowDynamicTimeDeadbandFilterActivatorMock, processMessageSenderMock);
+
+    List<TagValueUpdate> updates = Arrays.asList(
+        new TagValueUpdate(sdt1.getId(), false, System.currentTimeMillis() + 1L),
+        new TagValueUpdate(12345L, 7, System.currentTimeMillis() + 1L));
+    try {
+      equipmentMessageSender.update(updates);
+      fail("InvalidParameterException expected");
+    } catch (InvalidParameterException e) {
+      // nothing sent
+    }
+
+    verify(lowDynamicTimeDeadbandFilterActivatorMock, processMessageSenderMock);
+  }
+
+  @Test
+  public void testUpdateByNamesUnknownName() {
+    replay(lowDynamicTimeDeadbandFilterActivatorMock, processMessageSenderMock);
+
+    Map<String, ValueUpdate> updates = new LinkedHashMap<>();
+    updates.put("sdt1", new ValueUpdate(false, System.currentTimeMillis() + 1L));
+    updates.put("unknown", new ValueUpdate(7, System.currentTimeMillis() + 1L));
+    try {
+      equipmentMessageSender.update(updates);
+      fail("IllegalArgumentException expected");
+    } catch (IllegalArgumentException e) {
+      // nothing sent
+    }
+
+    verify(lowDynamicTimeDeadbandFilterActivatorMock, processMessageSenderMock);
+  }
+
   @Test
   public void testSendTagFilteredWithIntegerArray() {
     processMessageSenderMock.addValue(isA(SourceDataTagValue.class));
@@ -17,7 +17,8 @@
 package cern.c2mon.daq.common.impl;
 
 import java.lang.Thread.UncaughtExceptionHandler;
-import java.util.Timer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import cern.c2mon.daq.common.timer.FreshnessMonitor;
 import org.easymock.EasyMock;
@@ -37,6 +38,7 @@ import cern.c2mon.shared.common.process.ProcessConfiguration;
 
 //import static org.junit.Assert.*;
 import static org.easymock.EasyMock.*;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @author vilches
@@ -46,6 +48,7 @@ public class SDTTimeDeadbandSchedulerTest {
   private static final float VALUE_DEADBAND = 25.0f;
 
   private SDTTimeDeadbandScheduler scheduler;
+  private TimeDeadbandEngine timeDeadbandEngine;
   private SourceDataTag tag;
   private EquipmentMessageSender equipmentMessageSender;
   private Throwable exception = null;
@@ -83,6 +86,8 @@ public class SDTTimeDeadbandSchedulerTest {
         addMockedMethod("getProcessName").
         createMock();
 
+    this.timeDeadbandEngine = new TimeDeadbandEngine(10L, 64, 1);
+
     IDynamicTimeDeadbandFilterActivator activatorMock = createMock(IDynamicTimeDeadbandFilterActivator.class);
     freshnessMonitorMock = createMock(FreshnessMonitor.class);
     this.equipmentMessageSender = new EquipmentMessageSender(this.filterMessageSenderMock,
@@ -137,7 +142,7 @@ public class SDTTimeDeadbandSchedulerTest {
     this.equipmentSenderFilterModule = new EquipmentSenderFilterModule(this.filterMessageSenderMock);
 
     //        EquipmentLogger equipmentLogger = new EquipmentLogger("asd", "asd", "asd");
-    this.scheduler = new SDTTimeDeadbandScheduler(tag, this.processMessageSenderMock, this.equipmentSenderFilterModule, new Timer(true), this
+    this.scheduler = new SDTTimeDeadbandScheduler(tag, this.processMessageSenderMock, this.equipmentSenderFilterModule, this.timeDeadbandEngine, this
         .dataTagValueFilter, this.dynamicTimeDeadbandFiltererMock);
 
     this.scheduler.scheduleValueForSending();
@@ -179,7 +184,7 @@ public class SDTTimeDeadbandSchedulerTest {
     this.equipmentSenderFilterModule = new EquipmentSenderFilterModule(this.filterMessageSenderMock);
 
     //        EquipmentLogger equipmentLogger = new EquipmentLogger("asd", "asd", "asd");
-    this.scheduler = new SDTTimeDeadbandScheduler(tag, this.processMessageSenderMock, this.equipmentSenderFilterModule, new Timer(true), this
+    this.scheduler = new SDTTimeDeadbandScheduler(tag, this.processMessageSenderMock, this.equipmentSenderFilterModule, this.timeDeadbandEngine, this
         .dataTagValueFilter, this.dynamicTimeDeadbandFiltererMock);
 
     this.scheduler.scheduleValueForSending();
@@ -228,7 +233,7 @@ public class SDTTimeDeadbandSchedulerTest {
     this.equipmentSenderFilterModule = new EquipmentSenderFilterModule(this.filterMessageSenderMock);
 
 //     EquipmentLogger equipmentLogger = new EquipmentLogger("asd", "asd", "asd");
-    this.scheduler = new SDTTimeDeadbandScheduler(tag, this.processMessageSenderMock, this.equipmentSenderFilterModule, new Timer(true), this
+    this.scheduler = new SDTTimeDeadbandScheduler(tag, this.processMessageSenderMock, this.equipmentSenderFilterModule, this.timeDeadbandEngine, this
         .dataTagValueFilter, this.dynamicTimeDeadbandFiltererMock);
 
     this.scheduler.scheduleValueForSending();
@@ -275,7 +280,7 @@ public class SDTTimeDeadbandSchedulerTest {
     this.equipmentSenderFilterModule = new EquipmentSenderFilterModule(this.filterMessageSenderMock);
 
 //     EquipmentLogger equipmentLogger = new EquipmentLogger("asd", "asd", "asd");
-    this.scheduler = new SDTTimeDeadbandScheduler(tag, this.processMessageSenderMock, this.equipmentSenderFilterModule, new Timer(true), this
+    this.scheduler = new SDTTimeDeadbandScheduler(tag, this.processMessageSenderMock, this.equipmentSenderFilterModule, this.timeDeadbandEngine, this
         .dataTagValueFilter, this.dynamicTimeDeadbandFiltererMock);
 
     this.scheduler.scheduleValueForSending();
@@ -284,7 +289,7 @@ public class SDTTimeDeadbandSchedulerTest {
     // FlushAndReset
     this.scheduler.flushAndCancel();
     // Start the new task
-    this.scheduler = new SDTTimeDeadbandScheduler(tag, this.processMessageSenderMock, this.equipmentSenderFilterModule, new Timer(true), this
+    this.scheduler = new SDTTimeDeadbandScheduler(tag, this.processMessageSenderMock, this.equipmentSenderFilterModule, this.timeDeadbandEngine, this
         .dataTagValueFilter, this.dynamicTimeDeadbandFiltererMock);
 
     // Repeated value (should pass cause it was flush and reset)
@@ -296,6 +301,83 @@ public class SDTTimeDeadbandSchedulerTest {
     if (this.exception != null) throw new Exception(this.exception);
   }
 
+  /**
+   * Once started, the scheduled value is flushed by the engine
+   *
+   * @throws Exception
+   */
+  @Test
+  public void testScheduleFlushedByEngine() throws Exception {
+    this.tag.update(new ValueUpdate(true, "test", System.currentTimeMillis()));
+
+    final CountDownLatch sent = new CountDownLatch(1);
+    this.processMessageSenderMock.addValue(isA(SourceDataTagValue.class));
+    expectLastCall().andAnswer(() -> {
+      sent.countDown();
+      return null;
+    });
+
+    replay(this.processMessageSenderMock, this.filterMessageSenderMock, this.dynamicTimeDeadbandFiltererMock);
+
+    this.dataTagValueFilter = new DataTagValueFilter();
+    this.equipmentSenderFilterModule = new EquipmentSenderFilterModule(this.filterMessageSenderMock);
+    this.scheduler = new SDTTimeDeadbandScheduler(tag, this.processMessageSenderMock, this.equipmentSenderFilterModule, this.timeDeadbandEngine,
+        this.dataTagValueFilter, this.dynamicTimeDeadbandFiltererMock);
+
+    this.scheduler.start();
+    this.scheduler.scheduleValueForSending();
+
+    assertTrue(sent.await(5, TimeUnit.SECONDS));
+    this.scheduler.cancel();
+
+    verify(this.processMessageSenderMock, this.filterMessageSenderMock);
+
+    if (this.exception != null) throw new Exception(this.exception);
+  }
+
+  /**
+   * A scheduler cancelled while a flush is pending is flushed again once
+   * restarted
+   *
+   * @throws Exception
+   */
+  @Test
+  public void testRestartAfterCancelWithPendingFlush() throws Exception {
+    this.tag.getAddress().setTimeDeadband(500);
+    this.tag.update(new ValueUpdate(true, "test", System.currentTimeMillis()));
+
+    final CountDownLatch sent = new CountDownLatch(2);
+    this.processMessageSenderMock.addValue(isA(SourceDataTagValue.class));
+    expectLastCall().andAnswer(() -> {
+      sent.countDown();
+      return null;
+    }).times(2);
+
+    replay(this.processMessageSenderMock, this.filterMessageSenderMock, this.dynamicTimeDeadbandFiltererMock);
+
+    this.dataTagValueFilter = new DataTagValueFilter();
+    this.equipmentSenderFilterModule = new EquipmentSenderFilterModule(this.filterMessageSenderMock);
+    this.scheduler = new SDTTimeDeadbandScheduler(tag, this.processMessageSenderMock, this.equipmentSenderFilterModule, this.timeDeadbandEngine,
+        this.dataTagValueFilter, this.dynamicTimeDeadbandFiltererMock);
+
+    // first value sent right away, the next flush is one time deadband later
+    this.scheduler.scheduleValueForSending();
+    this.scheduler.run();
+
+    this.tag.update(new ValueUpdate(false, "test", System.currentTimeMillis()));
+    this.scheduler.start();
+    this.scheduler.scheduleValueForSending();
+    this.scheduler.cancel();
+    this.scheduler.start();
+
+    assertTrue(sent.await(5, TimeUnit.SECONDS));
+    this.scheduler.cancel();
+
+    verify(this.processMessageSenderMock, this.filterMessageSenderMock);
+
+    if (this.exception != null) throw new Exception(this.exception);
+  }
+
   /**
    * @param id
    * @param name
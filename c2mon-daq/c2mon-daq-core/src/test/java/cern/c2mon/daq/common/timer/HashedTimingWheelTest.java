@@ -0,0 +1,142 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.daq.common.timer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The wheel is driven with a manual clock and explicit calls to
+ * {@link HashedTimingWheel#advance()}, no ticker thread is started.
+ */
+public class HashedTimingWheelTest {
+
+  private static final long TICK_MILLIS = 100L;
+
+  private static final int WHEEL_SIZE = 8;
+
+  private AtomicLong clock;
+
+  private List<Long> expired;
+
+  private HashedTimingWheel wheel;
+
+  @Before
+  public void setUp() {
+    clock = new AtomicLong(1_000_000L);
+    expired = new ArrayList<>();
+    wheel = new HashedTimingWheel(TICK_MILLIS, WHEEL_SIZE, clock::get, ids -> {
+      for (long id : ids) {
+        expired.add(id);
+      }
+    }, "TestWheel") {
+      @Override
+      void start() {
+      }
+    };
+  }
+
+  @Test
+  public void testExpiry() {
+    wheel.schedule(1L, 500);
+    advanceMillis(400);
+    assertTrue(expired.isEmpty());
+
+    advanceMillis(100);
+    assertEquals(Collections.singletonList(1L), expired);
+
+    advanceMillis(1000);
+    assertEquals("Deadline must only expire once", 1, expired.size());
+  }
+
+  @Test
+  public void testResetPostponesExpiry() {
+    wheel.schedule(1L, 500);
+    for (int i = 0; i < 20; i++) {
+      advanceMillis(300);
+      wheel.schedule(1L, 500);
+    }
+    assertTrue(expired.isEmpty());
+
+    advanceMillis(500);
+    assertEquals(Collections.singletonList(1L), expired);
+  }
+
+  @Test
+  public void testDeadlineLongerThanOneRound() {
+    long round = TICK_MILLIS * WHEEL_SIZE;
+    wheel.schedule(1L, 3 * round + 200);
+
+    for (int i = 0; i < 3; i++) {
+      advanceMillis(round);
+    }
+    advanceMillis(100);
+    assertTrue(expired.isEmpty());
+
+    advanceMillis(100);
+    assertEquals(Collections.singletonList(1L), expired);
+  }
+
+  @Test
+  public void testRescheduleAfterExpiry() {
+    wheel.schedule(1L, 200);
+    advanceMillis(200);
+    assertEquals(1, expired.size());
+
+    wheel.schedule(1L, 200);
+    advanceMillis(200);
+    assertEquals(Arrays.asList(1L, 1L), expired);
+  }
+
+  @Test
+  public void testCancel() {
+    wheel.schedule(1L, 200);
+    wheel.schedule(2L, 200);
+    assertTrue(wheel.cancel(1L));
+    assertFalse(wheel.cancel(3L));
+
+    advanceMillis(1000);
+    assertEquals(Collections.singletonList(2L), expired);
+    assertEquals(1, wheel.size());
+  }
+
+  @Test
+  public void testMissedTicksAreCaughtUp() {
+    wheel.schedule(1L, 100);
+    wheel.schedule(2L, 300);
+    wheel.schedule(3L, 5000);
+
+    advanceMillis(2000);
+    assertEquals(Arrays.asList(1L, 2L), expired);
+  }
+
+  private void advanceMillis(long millis) {
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    wheel.advance();
+  }
+}
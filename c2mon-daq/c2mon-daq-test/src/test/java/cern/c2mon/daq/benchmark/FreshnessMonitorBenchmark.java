@@ -0,0 +1,149 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.daq.benchmark;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import cern.c2mon.daq.common.timer.FreshnessMonitor;
+import cern.c2mon.daq.config.DaqProperties;
+import cern.c2mon.shared.common.datatag.DataTagAddress;
+import cern.c2mon.shared.common.datatag.SourceDataTag;
+
+/**
+ * Cost of resetting the freshness deadline of a tag, which is done for every
+ * tag update sent by the DAQ. The "executor" mode cancels and reschedules a
+ * task on a {@link ScheduledThreadPoolExecutor} followed by a purge, as the
+ * freshness monitor did before the deadlines were kept in a timing wheel.
+ *
+ * <p>The freshness interval is one hour, so no deadline expires during the run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class FreshnessMonitorBenchmark {
+
+  private static final int FRESHNESS_INTERVAL = 3600;
+
+  @Param({"wheel", "executor"})
+  private String mode;
+
+  @Param({"1000", "50000"})
+  private int tagCount;
+
+  private SourceDataTag[] tags;
+
+  private FreshnessMonitor freshnessMonitor;
+
+  private ExecutorFreshnessMonitor executorFreshnessMonitor;
+
+  @Setup
+  public void setUp() {
+    tags = new SourceDataTag[tagCount];
+    for (int i = 0; i < tagCount; i++) {
+      DataTagAddress address = new DataTagAddress();
+      address.setFreshnessInterval(FRESHNESS_INTERVAL);
+      tags[i] = new SourceDataTag((long) i, "tag" + i, false);
+      tags[i].setAddress(address);
+    }
+
+    DaqProperties properties = new DaqProperties();
+    freshnessMonitor = new FreshnessMonitor(properties);
+    executorFreshnessMonitor = new ExecutorFreshnessMonitor(properties.getFreshnessTolerance());
+    for (SourceDataTag tag : tags) {
+      reset(tag);
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    executorFreshnessMonitor.timer.shutdownNow();
+  }
+
+  @Benchmark
+  public void reset() {
+    reset(tags[ThreadLocalRandom.current().nextInt(tagCount)]);
+  }
+
+  private void reset(SourceDataTag tag) {
+    if ("wheel".equals(mode)) {
+      freshnessMonitor.reset(tag);
+    } else {
+      executorFreshnessMonitor.reset(tag);
+    }
+  }
+
+  /**
+   * Former freshness check: one task per tag on a scheduled executor, removed
+   * and rescheduled on every reset. The scheduled future is removed, since
+   * only the wrapped task is held in the executor queue.
+   */
+  private static final class ExecutorFreshnessMonitor {
+
+    private final ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(2);
+
+    private final ConcurrentHashMap<Long, ScheduledFuture<?>> freshnessTasks = new ConcurrentHashMap<>();
+
+    private final double freshnessTolerance;
+
+    private ExecutorFreshnessMonitor(double freshnessTolerance) {
+      this.freshnessTolerance = freshnessTolerance;
+    }
+
+    private void reset(SourceDataTag tag) {
+      ScheduledFuture<?> task = freshnessTasks.get(tag.getId());
+      if (task != null) {
+        timer.remove((Runnable) task);
+        timer.purge();
+      }
+      long delay = (long) (tag.getAddress().getFreshnessInterval() * freshnessTolerance);
+      freshnessTasks.put(tag.getId(), timer.schedule(() -> { }, delay, TimeUnit.SECONDS));
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options options = new OptionsBuilder()
+        .include(FreshnessMonitorBenchmark.class.getSimpleName())
+        .build();
+    new Runner(options).run();
+  }
+}
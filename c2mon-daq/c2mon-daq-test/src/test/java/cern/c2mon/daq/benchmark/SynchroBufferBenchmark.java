@@ -0,0 +1,116 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.daq.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import cern.c2mon.shared.util.buffer.ConcurrentSynchroBuffer;
+import cern.c2mon.shared.util.buffer.SynchroBuffer;
+
+/**
+ * Push throughput of the low priority sending buffers of the DAQ with many
+ * driver threads pushing values at the same time, comparing
+ * {@link SynchroBuffer} with {@link ConcurrentSynchroBuffer}. Both buffers use
+ * the window sizes of the DAQ and a listener which drops the pulled values.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class SynchroBufferBenchmark {
+
+  @Param({"synchro", "concurrent", "coalescing"})
+  private String mode;
+
+  private SynchroBuffer synchroBuffer;
+
+  private ConcurrentSynchroBuffer concurrentBuffer;
+
+  @Setup
+  public void setUp() {
+    if (mode.equals("synchro")) {
+      synchroBuffer = new SynchroBuffer(200, 1000, 100, SynchroBuffer.DUPLICATE_OK);
+      synchroBuffer.setSynchroBufferListener(event -> { });
+      synchroBuffer.enable();
+    } else {
+      concurrentBuffer = new ConcurrentSynchroBuffer("benchmark", 200, 1000, 100, ConcurrentSynchroBuffer.INFINITE_CAPACITY,
+          mode.equals("coalescing") ? value -> value : null, true);
+      concurrentBuffer.setSynchroBufferListener(event -> { });
+      concurrentBuffer.enable();
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    if (synchroBuffer != null) {
+      synchroBuffer.close();
+    } else {
+      concurrentBuffer.close();
+    }
+  }
+
+  /**
+   * Pushes the values of 10000 tags in turn.
+   */
+  @State(Scope.Thread)
+  public static class Values {
+    private long next;
+
+    Long nextValue() {
+      next = (next + 1) % 10000;
+      return next;
+    }
+  }
+
+  @Benchmark
+  public void push(Values values) {
+    if (synchroBuffer != null) {
+      synchroBuffer.push(values.nextValue());
+    } else {
+      concurrentBuffer.push(values.nextValue());
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+        .include(SynchroBufferBenchmark.class.getSimpleName())
+        .build();
+
+    new Runner(opt).run();
+  }
+}
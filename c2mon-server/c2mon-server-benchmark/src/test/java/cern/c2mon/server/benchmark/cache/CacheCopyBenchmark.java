@@ -0,0 +1,101 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.benchmark.cache;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import cern.c2mon.server.cache.common.CopyStrategy;
+import cern.c2mon.server.common.alarm.AlarmCacheObject;
+import cern.c2mon.server.common.datatag.DataTagCacheObject;
+import cern.c2mon.server.common.rule.RuleTagCacheObject;
+import cern.c2mon.server.test.CacheObjectCreation;
+
+/**
+ * Compares the cost of the {@link CopyStrategy} implementations used by
+ * {@code AbstractCache.getCopy()}. Run with the "-prof gc" option to compare
+ * the allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheCopyBenchmark {
+
+  @Param({CopyStrategy.SERIALIZATION, CopyStrategy.CLONE})
+  private String strategy;
+
+  private CopyStrategy<DataTagCacheObject> dataTagStrategy;
+  private CopyStrategy<RuleTagCacheObject> ruleTagStrategy;
+  private CopyStrategy<AlarmCacheObject> alarmStrategy;
+
+  private DataTagCacheObject dataTag;
+  private RuleTagCacheObject ruleTag;
+  private AlarmCacheObject alarm;
+
+  @Setup
+  public void setUp() {
+    dataTagStrategy = CopyStrategy.forName(strategy);
+    ruleTagStrategy = CopyStrategy.forName(strategy);
+    alarmStrategy = CopyStrategy.forName(strategy);
+
+    dataTag = CacheObjectCreation.createTestDataTag();
+    dataTag.getMetadata().addMetadata("responsible", "operator");
+    dataTag.addAlarmId(1L);
+    ruleTag = CacheObjectCreation.createTestRuleTag();
+    alarm = CacheObjectCreation.createTestAlarm1();
+  }
+
+  @Benchmark
+  public DataTagCacheObject copyDataTag() {
+    return dataTagStrategy.copy(dataTag);
+  }
+
+  @Benchmark
+  public RuleTagCacheObject copyRuleTag() {
+    return ruleTagStrategy.copy(ruleTag);
+  }
+
+  @Benchmark
+  public AlarmCacheObject copyAlarm() {
+    return alarmStrategy.copy(alarm);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options options = new OptionsBuilder()
+        .include(CacheCopyBenchmark.class.getSimpleName())
+        .build();
+    new Runner(options).run();
+  }
+}
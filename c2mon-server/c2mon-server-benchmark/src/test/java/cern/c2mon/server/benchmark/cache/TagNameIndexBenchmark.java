@@ -0,0 +1,108 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.benchmark.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import cern.c2mon.server.cache.common.NameIndex;
+import cern.c2mon.server.common.datatag.DataTag;
+import cern.c2mon.server.common.datatag.DataTagCacheObject;
+
+/**
+ * Compares the tag name lookups of the {@link NameIndex} with a scan of all
+ * tag names, which is what the Ehcache search does for an ilike criteria.
+ * The synthetic names follow the SYSTEM.EQUIPMENT.TAG naming of most
+ * configurations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TagNameIndexBenchmark {
+
+  private static final int MAX_RESULTS = 100000;
+
+  @Param({"100000", "1000000"})
+  private int tagCount;
+
+  @Param({"CP.SYS7.EQ457.*", "cp.sys7.eq457.tag?457", "*.TAG4242", "CP.SYS7.EQ457.TAG4457"})
+  private String wildcard;
+
+  private NameIndex<DataTag> index;
+
+  private List<DataTag> tags;
+
+  @Setup
+  public void setUp() {
+    index = new NameIndex<>("tagName", DataTag::getName);
+    tags = new ArrayList<>(tagCount);
+    for (int i = 0; i < tagCount; i++) {
+      DataTagCacheObject tag = new DataTagCacheObject((long) i);
+      tag.setName("CP.SYS" + (i % 50) + ".EQ" + (i % 1000) + ".TAG" + i);
+      tags.add(tag);
+      index.update(tag);
+    }
+  }
+
+  @Benchmark
+  public List<Long> findWithIndex() {
+    return index.find(wildcard, MAX_RESULTS);
+  }
+
+  @Benchmark
+  public List<Long> findWithScan() {
+    Pattern pattern = NameIndex.compileWildcard(wildcard);
+    List<Long> result = new ArrayList<>();
+    for (DataTag tag : tags) {
+      if (pattern.matcher(tag.getName()).matches()) {
+        result.add(tag.getId());
+        if (result.size() >= MAX_RESULTS) {
+          break;
+        }
+      }
+    }
+    return result;
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options options = new OptionsBuilder()
+        .include(TagNameIndexBenchmark.class.getSimpleName())
+        .build();
+    new Runner(options).run();
+  }
+}
@@ -0,0 +1,177 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.benchmark.cachepersistence;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import cern.c2mon.shared.util.collections.LongHashSet;
+
+/**
+ * Compares the dirty key bookkeeping of one cache persistence cycle
+ * ({@code BatchPersistenceManagerImpl.persistList}), without the database
+ * access: merging the incoming keys with the keys left over from the previous
+ * cycle, removing duplicates, splitting them into batches of 500 and
+ * iterating over each batch as {@code CachePersistenceDAOImpl.persistBatch}
+ * does.
+ *
+ * <p>"boxed" is the previous implementation (HashSet, LinkedList batches and
+ * a HashMap of the submitted batches), "primitive" the current one based on
+ * {@link LongHashSet} and long arrays. The GC profiler is enabled in
+ * {@link #main(String[])} to compare the allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PersistenceBatchingBenchmark {
+
+  private static final int RECORDS_PER_BATCH = 500;
+
+  @Param({"10000", "300000"})
+  private int dirtyKeys;
+
+  /**
+   * Keys passed by the buffered cache listener.
+   */
+  private Collection<Long> keyCollection;
+
+  /**
+   * Keys which failed to persist in the previous cycle (10%).
+   */
+  private long[] leftOver;
+
+  @Setup
+  public void setUp() {
+    keyCollection = new ArrayList<>(dirtyKeys);
+    for (long id = 0; id < dirtyKeys; id++) {
+      keyCollection.add(100000L + id * 3);
+    }
+    leftOver = new long[dirtyKeys / 10];
+    for (int i = 0; i < leftOver.length; i++) {
+      leftOver[i] = 100000L + i * 7;
+    }
+  }
+
+  @Benchmark
+  public void boxed(final Blackhole blackhole) {
+    Set<Long> toBePersisted = new HashSet<>();
+    for (long key : leftOver) {
+      toBePersisted.add(key);
+    }
+
+    Set<Long> localToBePersisted = new HashSet<>(keyCollection);
+    localToBePersisted.addAll(toBePersisted);
+    toBePersisted.clear();
+
+    Map<Object, Collection<Long>> submittedSets = new HashMap<>();
+    Iterator<Long> it = localToBePersisted.iterator();
+    while (it.hasNext()) {
+      ArrayList<Long> task = new ArrayList<>(RECORDS_PER_BATCH);
+      LinkedList<Long> persistedIds = new LinkedList<>();
+      int counter = 0;
+      while (it.hasNext() && counter < RECORDS_PER_BATCH) {
+        Long currentId = it.next();
+        task.add(currentId);
+        counter++;
+        persistedIds.push(currentId);
+      }
+      Object result = new Object();
+      submittedSets.put(result, persistedIds);
+      persistBatch(task, blackhole);
+    }
+    blackhole.consume(submittedSets);
+  }
+
+  @Benchmark
+  public void primitive(final Blackhole blackhole) {
+    LongHashSet toBePersisted = new LongHashSet();
+    toBePersisted.addAll(leftOver);
+
+    LongHashSet localToBePersisted = new LongHashSet(keyCollection.size());
+    for (Long key : keyCollection) {
+      localToBePersisted.add(key);
+    }
+    localToBePersisted.addAll(toBePersisted);
+    toBePersisted.clear();
+
+    long[] keys = localToBePersisted.toArray();
+    int size = keys.length;
+    List<long[]> submittedTasks = new ArrayList<>((size + RECORDS_PER_BATCH - 1) / RECORDS_PER_BATCH);
+    for (int from = 0; from < size; from += RECORDS_PER_BATCH) {
+      long[] task = Arrays.copyOfRange(keys, from, Math.min(size, from + RECORDS_PER_BATCH));
+      submittedTasks.add(task);
+      persistBatch(task, blackhole);
+    }
+    blackhole.consume(submittedTasks);
+  }
+
+  /**
+   * The loop of the previous DAO, over the boxed keys of a batch.
+   */
+  private static void persistBatch(final List<Long> keyList, final Blackhole blackhole) {
+    for (Long key : keyList) {
+      blackhole.consume(key);
+    }
+  }
+
+  /**
+   * The loop of the current DAO, over the primitive keys of a batch.
+   */
+  private static void persistBatch(final long[] keys, final Blackhole blackhole) {
+    for (long key : keys) {
+      blackhole.consume(key);
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options options = new OptionsBuilder()
+        .include(PersistenceBatchingBenchmark.class.getSimpleName())
+        .addProfiler(GCProfiler.class)
+        .build();
+    new Runner(options).run();
+  }
+}
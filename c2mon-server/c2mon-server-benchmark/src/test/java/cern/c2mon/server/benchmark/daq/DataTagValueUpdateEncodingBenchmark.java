@@ -0,0 +1,129 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.benchmark.daq;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import cern.c2mon.shared.common.datatag.DataTagValueUpdate;
+import cern.c2mon.shared.common.datatag.SourceDataTagValue;
+import cern.c2mon.shared.daq.datatag.DataTagValueUpdateBinaryCodec;
+
+/**
+ * Compares the encoding and decoding cost of the JSON and binary formats of
+ * the {@link DataTagValueUpdate} messages sent from the DAQs to the server.
+ * The message sizes of both formats are printed at set up.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataTagValueUpdateEncodingBenchmark {
+
+  /**
+   * Number of tag values in a message
+   */
+  @Param({"1", "100"})
+  private int size;
+
+  private ObjectMapper mapper;
+
+  private DataTagValueUpdateBinaryCodec codec;
+
+  private DataTagValueUpdate update;
+
+  private String json;
+
+  private byte[] binary;
+
+  @Setup
+  public void setUp() throws IOException {
+    // same set up as DataTagValueUpdateConverter
+    mapper = new ObjectMapper();
+    mapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    mapper.enable(DeserializationFeature.USE_JAVA_ARRAY_FOR_JSON_ARRAY);
+    codec = new DataTagValueUpdateBinaryCodec(mapper);
+
+    update = new DataTagValueUpdate(1000L, 12345L);
+    long now = System.currentTimeMillis();
+    for (long i = 0; i < size; i++) {
+      Object value;
+      switch ((int) (i % 4)) {
+        case 0: value = 1.5 * i; break;
+        case 1: value = (int) i; break;
+        case 2: value = i % 8 == 2; break;
+        default: value = "value " + i;
+      }
+      update.addValue(new SourceDataTagValue(100000 + i, "DAQ.TAG.NAME." + i, false, value, null,
+          new Timestamp(now - i), 2, false, "", 3600000));
+    }
+
+    json = mapper.writeValueAsString(update);
+    binary = codec.encode(update);
+    System.out.println("Message size for " + size + " value(s): JSON " + json.getBytes("UTF-8").length
+        + " bytes, binary " + binary.length + " bytes");
+  }
+
+  @Benchmark
+  public String encodeJson() throws IOException {
+    return mapper.writeValueAsString(update);
+  }
+
+  @Benchmark
+  public byte[] encodeBinary() throws IOException {
+    return codec.encode(update);
+  }
+
+  @Benchmark
+  public DataTagValueUpdate decodeJson() throws IOException {
+    return mapper.readValue(json, DataTagValueUpdate.class);
+  }
+
+  @Benchmark
+  public DataTagValueUpdate decodeBinary() throws IOException {
+    return codec.decode(binary);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+        .include(DataTagValueUpdateEncodingBenchmark.class.getSimpleName())
+        .build();
+
+    new Runner(opt).run();
+  }
+}
@@ -0,0 +1,144 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.benchmark.daq;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.config.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import cern.c2mon.server.cache.ProcessCache;
+import cern.c2mon.server.common.config.ServerProperties;
+import cern.c2mon.server.common.process.ProcessCacheObject;
+import cern.c2mon.server.daq.update.ProcessPIKChecker;
+import cern.c2mon.server.test.CacheObjectCreation;
+import cern.c2mon.shared.common.datatag.DataTagValueUpdate;
+
+/**
+ * Throughput of the PIK check done for every incoming DAQ update, with many
+ * JMS consumer threads receiving updates for the same process. The "writeLock"
+ * mode holds the write lock on the process cache key during the check, as was
+ * done for every update before the PIK was read without locking.
+ *
+ * <p>The process cache is backed by an in-memory Ehcache, so the same key
+ * locks are used as in the server.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(16)
+@Fork(1)
+public class ProcessPIKCheckBenchmark {
+
+  @Param({"lockFree", "writeLock"})
+  private String mode;
+
+  private CacheManager cacheManager;
+
+  private ProcessCache processCache;
+
+  private ProcessPIKChecker checker;
+
+  private DataTagValueUpdate update;
+
+  private Long processId;
+
+  @Setup
+  public void setUp() {
+    cacheManager = CacheManager.newInstance(new Configuration().name("ProcessPIKCheckBenchmark"));
+    Cache ehcache = new Cache(new CacheConfiguration("processCache", 100));
+    cacheManager.addCache(ehcache);
+
+    ProcessCacheObject process = CacheObjectCreation.createTestProcess1();
+    processId = process.getId();
+    ehcache.put(new Element(processId, process));
+
+    processCache = ehcacheProcessCache(ehcache);
+    checker = new ProcessPIKChecker(processCache, null, new ServerProperties());
+    update = new DataTagValueUpdate(processId, process.getProcessPIK());
+  }
+
+  @TearDown
+  public void tearDown() {
+    cacheManager.shutdown();
+  }
+
+  @Benchmark
+  public boolean checkProcessPIK() {
+    if (mode.equals("writeLock")) {
+      processCache.acquireWriteLockOnKey(processId);
+      try {
+        return checker.checkProcessPIK(update);
+      } finally {
+        processCache.releaseWriteLockOnKey(processId);
+      }
+    }
+    return checker.checkProcessPIK(update);
+  }
+
+  /**
+   * Only the methods used by the PIK check are delegated to the Ehcache.
+   */
+  private static ProcessCache ehcacheProcessCache(final Cache ehcache) {
+    return (ProcessCache) Proxy.newProxyInstance(ProcessCache.class.getClassLoader(), new Class<?>[] {ProcessCache.class},
+        (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "get":
+              return ehcache.get(args[0]).getObjectValue();
+            case "acquireWriteLockOnKey":
+              ehcache.acquireWriteLockOnKey(args[0]);
+              return null;
+            case "releaseWriteLockOnKey":
+              ehcache.releaseWriteLockOnKey(args[0]);
+              return null;
+            default:
+              throw new UnsupportedOperationException(method.getName());
+          }
+        });
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+        .include(ProcessPIKCheckBenchmark.class.getSimpleName())
+        .build();
+
+    new Runner(opt).run();
+  }
+}
@@ -0,0 +1,130 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.benchmark.rule;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.core.io.ClassPathResource;
+
+import cern.c2mon.shared.rule.RuleEvaluationException;
+import cern.c2mon.shared.rule.RuleExpression;
+import cern.c2mon.shared.rule.SimpleRuleExpression;
+
+/**
+ * Compares the compiled rule evaluation with the token parser over the rules
+ * in the rules.xml corpus of c2mon-shared-rule (an extract of the production
+ * rule table), which the pom adds to the test resources.
+ *
+ * <p>Each rule is given random numeric or boolean inputs. Rules that fail with
+ * every input set tried are left out, so that exception handling does not
+ * dominate the measurement. One operation evaluates every remaining rule once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RuleEvaluationBenchmark {
+
+  private static final Object[] VALUES = {
+      Double.valueOf(0), Double.valueOf(1), Double.valueOf(2), Double.valueOf(3), Float.valueOf(1.5f),
+      Integer.valueOf(4), Boolean.TRUE, Boolean.FALSE
+  };
+
+  @Param({"compiled", "interpreted"})
+  private String mode;
+
+  private List<RuleExpression> rules;
+
+  private List<Map<Long, Object>> inputs;
+
+  @Setup
+  public void setUp() throws Exception {
+    SimpleRuleExpression.setCompilationEnabled("compiled".equals(mode));
+
+    rules = new ArrayList<>();
+    inputs = new ArrayList<>();
+    Random random = new Random(42);
+    for (RuleExpression rule : RuleExpression.createExpressionFromDatabaseXML(
+        new ClassPathResource("rules.xml").getFile().getAbsolutePath())) {
+      for (int attempt = 0; attempt < 50; attempt++) {
+        Map<Long, Object> values = new HashMap<>();
+        for (Long id : rule.getInputTagIds()) {
+          values.put(id, VALUES[random.nextInt(VALUES.length)]);
+        }
+        if (evaluates(rule, values)) {
+          rules.add(rule);
+          inputs.add(values);
+          break;
+        }
+      }
+    }
+    System.out.println("Evaluating " + rules.size() + " rules per operation");
+  }
+
+  @TearDown
+  public void tearDown() {
+    SimpleRuleExpression.setCompilationEnabled(true);
+  }
+
+  @Benchmark
+  public void evaluateRules(Blackhole blackhole) throws RuleEvaluationException {
+    for (int i = 0; i < rules.size(); i++) {
+      blackhole.consume(rules.get(i).evaluate(inputs.get(i)));
+    }
+  }
+
+  private static boolean evaluates(final RuleExpression rule, final Map<Long, Object> values) {
+    try {
+      rule.evaluate(values);
+      return true;
+    } catch (Exception e) {
+      return false;
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+        .include(RuleEvaluationBenchmark.class.getSimpleName())
+        .build();
+
+    new Runner(opt).run();
+  }
+}
@@ -0,0 +1,111 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.benchmark.type;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import cern.c2mon.shared.common.type.TypeConverter;
+import cern.c2mon.shared.common.type.ValueConverter;
+
+/**
+ * Cost of converting an incoming value into the data type of its tag, as done
+ * for every update on the DAQ and on the server. The "forName" mode resolves
+ * the type name with {@link Class#forName(String)} for every value, as was done
+ * before the converters were cached; "cast" goes through
+ * {@link TypeConverter#cast(Object, String)} and "converter" reuses the
+ * converter of the tag.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TypeConverterBenchmark {
+
+  @Param({"forName", "cast", "converter"})
+  private String mode;
+
+  /** Tag data type and raw value type, as sent by most DAQs */
+  @Param({"Integer:Long", "Double:Float", "Float:Double", "Boolean:Integer", "Boolean:Boolean"})
+  private String conversion;
+
+  private String dataType;
+
+  private Object value;
+
+  private ValueConverter converter;
+
+  @Setup
+  public void setUp() {
+    String[] types = conversion.split(":");
+    dataType = types[0];
+    switch (types[1]) {
+      case "Long":
+        value = 42L;
+        break;
+      case "Float":
+        value = 42.5f;
+        break;
+      case "Double":
+        value = 42.5d;
+        break;
+      case "Integer":
+        value = 1;
+        break;
+      default:
+        value = Boolean.TRUE;
+    }
+    converter = TypeConverter.getConverter(dataType);
+  }
+
+  @Benchmark
+  public Object convert() throws ClassNotFoundException {
+    switch (mode) {
+      case "forName":
+        return TypeConverter.castToType(value, Class.forName("java.lang." + dataType));
+      case "cast":
+        return TypeConverter.cast(value, dataType);
+      default:
+        return converter.convert(value);
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    Options opt = new OptionsBuilder()
+        .include(TypeConverterBenchmark.class.getSimpleName())
+        .build();
+
+    new Runner(opt).run();
+  }
+}
@@ -39,5 +39,15 @@ public interface AlarmCache extends C2monCacheWithListeners<Long, Alarm> {
   String cacheInitializedKey = "c2mon.cache.alarm.initialized";
   
   Collection<Long> findAlarm(AlarmQuery query);
+
+  /**
+   * Updates the search indexes of the active and oscillating flags of the
+   * alarm, after they have been changed on the cache object without putting
+   * it back into the cache. Must be called while holding the write lock on
+   * the alarm.
+   *
+   * @param alarm the alarm cache object
+   */
+  void updateFlagIndexes(Alarm alarm);
   
 }
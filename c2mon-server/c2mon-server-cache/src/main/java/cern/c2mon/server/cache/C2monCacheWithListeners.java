@@ -17,6 +17,7 @@
 package cern.c2mon.server.cache;
 
 import cern.c2mon.server.cache.exception.CacheElementNotFoundException;
+import cern.c2mon.server.cache.listener.WaitStrategy;
 import cern.c2mon.server.common.component.Lifecycle;
 import cern.c2mon.shared.common.Cacheable;
 
@@ -90,6 +91,42 @@ public interface C2monCacheWithListeners<K, T extends Cacheable> extends C2monCa
    */
   Lifecycle registerThreadedListener(C2monCacheListener< ? super T> timCacheListener, int queueCapacity, int threadPoolSize);
 
+  /**
+   * Registers a listener to be notified of updates on multiple threads, passing
+   * the notifications to the threads through a pre-allocated ring buffer
+   * (see {@link cern.c2mon.server.cache.listener.RingBufferCacheListener}).
+   *
+   * <p><b>Note</b> the listener is assumed to be thread-safe!
+   *
+   * @param timCacheListener the listener to register
+   * @param queueCapacity the capacity of the ring buffer, rounded up to the next
+   *        power of 2 (once full the server thread will be forced to wait)
+   * @param threadPoolSize the number of threads on which the listener
+   *        will be invoked (should be > 0)
+   * @param waitStrategy how the threads wait on an empty or full ring buffer
+   * @return a Lifecycle object to start and stop the listener thread
+   */
+  Lifecycle registerThreadedListener(C2monCacheListener< ? super T> timCacheListener, int queueCapacity, int threadPoolSize,
+                                     WaitStrategy waitStrategy);
+
+  /**
+   * Registers a listener to be notified of updates on multiple threads, while
+   * preserving the order of the notifications for a given cache key (see
+   * {@link cern.c2mon.server.cache.listener.KeyAffinityCacheListener}).
+   * A notification still waiting when a new one is made for the same key is
+   * replaced by the new one.
+   *
+   * <p><b>Note</b> the listener is assumed to be thread-safe!
+   *
+   * @param timCacheListener the listener to register
+   * @param queueCapacity the number of keys that can wait for the listener
+   *        (once full the server thread will be forced to wait)
+   * @param threadPoolSize the number of threads on which the listener
+   *        will be invoked (should be > 0)
+   * @return a Lifecycle object to start and stop the listener threads
+   */
+  Lifecycle registerKeyAffinityListener(C2monCacheListener< ? super T> timCacheListener, int queueCapacity, int threadPoolSize);
+
   /**
    * Identical to the {@link #notifyListenersOfUpdate(Cacheable)} method but fetches first for you
    * the Cacheable object and makes a copy.
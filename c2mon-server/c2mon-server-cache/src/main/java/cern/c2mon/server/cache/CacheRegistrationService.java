@@ -76,6 +76,19 @@ public interface CacheRegistrationService {
    *          and the stop() at the beginning of its own stop method
    */
   Lifecycle registerToAllTags(C2monCacheListener<Tag> tagCacheListener, int nbThreads);
+
+  /**
+   * Register for all updates to data tags, control tags and rules on several
+   * threads, with all updates of a given tag passed to the listener in order
+   * (on the same thread). An update still waiting for the listener is replaced
+   * by a more recent update of the same tag.
+   * @param tagCacheListener the listener to notify of the updates
+   * @param nbThreads the number of threads used to call the listener
+   * @return a Lifecycle object to allow the registered listener to stop/start its thread as required;
+   *          in general, the start() method should be called at the end of its own lifecycle start method,
+   *          and the stop() at the beginning of its own stop method
+   */
+  Lifecycle registerOrderedToAllTags(C2monCacheListener<Tag> tagCacheListener, int nbThreads);
   
   /**
    * Register to be notified of updates to the DataTag cache only.
@@ -17,6 +17,8 @@
 package cern.c2mon.server.cache;
 
 import java.sql.Timestamp;
+import java.util.Collection;
+
 import cern.c2mon.server.common.rule.RuleTag;
 
 /**
@@ -45,6 +47,15 @@ public interface RuleTagFacade extends CommonTagFacade<RuleTag> {
    * @param timestamp new timestamp
    */
   void updateAndValidate(Long id, Object value, String valueDescription, Timestamp timestamp);
+
+  /**
+   * Applies {@link #updateAndValidate(Long, Object, String, Timestamp)} to a
+   * batch of rule results. A rule that cannot be updated is logged and does
+   * not prevent the update of the other rules of the batch.
+   *
+   * @param updates the rule results to apply
+   */
+  void updateAndValidate(Collection<RuleTagUpdate> updates);
   
   /**
    * Creates a cache object from the provided properties.
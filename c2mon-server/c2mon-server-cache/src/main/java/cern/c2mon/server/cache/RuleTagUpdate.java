@@ -0,0 +1,41 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cache;
+
+import java.sql.Timestamp;
+
+import lombok.Data;
+
+/**
+ * A rule evaluation result, passed in batches to
+ * {@link RuleTagFacade#updateAndValidate(java.util.Collection)}.
+ */
+@Data
+public final class RuleTagUpdate {
+
+  /** Id of the rule to update */
+  private final Long id;
+
+  /** New rule value */
+  private final Object value;
+
+  /** New value description */
+  private final String valueDescription;
+
+  /** Rule evaluation timestamp */
+  private final Timestamp timestamp;
+}
@@ -18,11 +18,15 @@ package cern.c2mon.server.cache.alarm.impl;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
 
 import javax.annotation.PostConstruct;
 
 import lombok.extern.slf4j.Slf4j;
 import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Element;
 import net.sf.ehcache.loader.CacheLoader;
 import net.sf.ehcache.search.Attribute;
 import net.sf.ehcache.search.Query;
@@ -35,6 +39,9 @@ import org.springframework.stereotype.Service;
 import cern.c2mon.server.cache.AlarmCache;
 import cern.c2mon.server.cache.ClusterCache;
 import cern.c2mon.server.cache.common.AbstractCache;
+import cern.c2mon.server.cache.common.CacheIndex;
+import cern.c2mon.server.cache.common.NameIndex;
+import cern.c2mon.server.cache.common.CopyStrategy;
 import cern.c2mon.server.cache.config.CacheProperties;
 import cern.c2mon.server.cache.loading.AlarmLoaderDAO;
 import cern.c2mon.server.cache.loading.common.C2monCacheLoader;
@@ -56,6 +63,18 @@ public class AlarmCacheImpl extends AbstractCache<Long, Alarm> implements AlarmC
   final int timeRange = 60;
   final int oscNumbers = 6;
 
+  /**
+   * Indexes of the alarms on the search attributes of {@link AlarmQuery};
+   * fault family and member are indexed in lower case. The active and
+   * oscillating flags are also changed on the cache objects without a later
+   * put, their indexes are then updated by {@link #updateFlagIndexes(Alarm)}.
+   */
+  private final CacheIndex<Alarm> faultFamilyIndex;
+  private final CacheIndex<Alarm> faultMemberIndex;
+  private final CacheIndex<Alarm> faultCodeIndex;
+  private final CacheIndex<Alarm> activeIndex;
+  private final CacheIndex<Alarm> oscillatingIndex;
+
   @Autowired
   public AlarmCacheImpl(@Qualifier("clusterCache") final ClusterCache clusterCache,
                         @Qualifier("alarmEhcache") final Ehcache ehcache,
@@ -64,6 +83,12 @@ public class AlarmCacheImpl extends AbstractCache<Long, Alarm> implements AlarmC
                         @Qualifier("alarmLoaderDAO") final AlarmLoaderDAO cacheLoaderDAO,
                         final CacheProperties properties) {
     super(clusterCache, ehcache, cacheLoader, c2monCacheLoader, cacheLoaderDAO, properties);
+    setCopyStrategy(CopyStrategy.forName(properties.getCopyStrategy()));
+    this.faultFamilyIndex = createIndex("faultFamily", alarm -> toLowerCase(alarm.getFaultFamily()));
+    this.faultMemberIndex = createIndex("faultMember", alarm -> toLowerCase(alarm.getFaultMember()));
+    this.faultCodeIndex = createIndex("faultCode", Alarm::getFaultCode);
+    this.activeIndex = createIndex("active", Alarm::isActive);
+    this.oscillatingIndex = createIndex("oscillating", Alarm::isOscillating);
   }
 
   /**
@@ -96,6 +121,78 @@ public class AlarmCacheImpl extends AbstractCache<Long, Alarm> implements AlarmC
 
   @Override
   public Collection<Long> findAlarm(AlarmQuery query) {
+    // the priority is not an attribute of the server alarms and is left to the Ehcache search
+    if (!isIndexed() || query.getPriority() != 0) {
+      return findAlarmWithEhcacheQuery(query);
+    }
+    checkIndexes();
+
+    String faultFamily = isSet(query.getFaultFamily()) ? query.getFaultFamily() : null;
+    String faultMember = isSet(query.getFaultMember()) ? query.getFaultMember() : null;
+    Set<Long> candidates = getCandidates(query);
+
+    Pattern faultFamilyPattern = faultFamily != null ? NameIndex.compileWildcard(faultFamily) : null;
+    Pattern faultMemberPattern = faultMember != null ? NameIndex.compileWildcard(faultMember) : null;
+
+    ArrayList<Long> result = new ArrayList<>();
+    for (Long id : candidates) {
+      if (result.size() >= query.getMaxResultSize()) {
+        break;
+      }
+      Element element = getCache().getQuiet(id);
+      if (element == null) {
+        continue;
+      }
+      Alarm alarm = (Alarm) element.getObjectValue();
+      if ((query.getFaultCode() == 0 || alarm.getFaultCode() == query.getFaultCode())
+          && matches(faultFamilyPattern, alarm.getFaultFamily())
+          && matches(faultMemberPattern, alarm.getFaultMember())
+          && (query.getActive() == null || alarm.isActive() == query.getActive())
+          && (query.getOscillating() == null || alarm.isOscillating() == query.getOscillating())) {
+        result.add(id);
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * @return the ids of the smallest exact match of the indexed criteria of
+   *         the query, the other criteria are checked on each candidate
+   */
+  Set<Long> getCandidates(AlarmQuery query) {
+    Set<Long> candidates = faultFamilyIndex.getIds();
+    if (isSet(query.getFaultFamily()) && !isPattern(query.getFaultFamily())) {
+      candidates = smallest(candidates, faultFamilyIndex.get(toLowerCase(query.getFaultFamily())));
+    }
+    if (isSet(query.getFaultMember()) && !isPattern(query.getFaultMember())) {
+      candidates = smallest(candidates, faultMemberIndex.get(toLowerCase(query.getFaultMember())));
+    }
+    if (query.getFaultCode() != 0) {
+      candidates = smallest(candidates, faultCodeIndex.get(query.getFaultCode()));
+    }
+    if (query.getActive() != null) {
+      candidates = smallest(candidates, activeIndex.get(query.getActive()));
+    }
+    if (query.getOscillating() != null) {
+      candidates = smallest(candidates, oscillatingIndex.get(query.getOscillating()));
+    }
+    return candidates;
+  }
+
+  @Override
+  public void updateFlagIndexes(Alarm alarm) {
+    if (isIndexed()) {
+      activeIndex.update(alarm);
+      oscillatingIndex.update(alarm);
+    }
+  }
+
+  /**
+   * Runs the alarm query as Ehcache search, used when the cache is not
+   * indexed locally.
+   */
+  private Collection<Long> findAlarmWithEhcacheQuery(AlarmQuery query) {
 
     Ehcache ehcache = getCache();
     ArrayList<Long> result = new ArrayList<>();
@@ -106,11 +203,11 @@ public class AlarmCacheImpl extends AbstractCache<Long, Alarm> implements AlarmC
         Attribute<Integer> fc = ehcache.getSearchAttribute("faultCode");
         cacheQuery.addCriteria(fc.eq(query.getFaultCode()));
     }
-    if (query.getFaultFamily() != null && !"".equals(query.getFaultFamily())) {
+    if (isSet(query.getFaultFamily())) {
         Attribute<String> ff = ehcache.getSearchAttribute("faultFamily");
         cacheQuery.addCriteria(ff.ilike(query.getFaultFamily()));
     }
-    if (query.getFaultMember() != null && !"".equals(query.getFaultMember())) {
+    if (isSet(query.getFaultMember())) {
         Attribute<String> fm = ehcache.getSearchAttribute("faultMember");
         cacheQuery.addCriteria(fm.ilike(query.getFaultMember()));
     }
@@ -134,4 +231,28 @@ public class AlarmCacheImpl extends AbstractCache<Long, Alarm> implements AlarmC
     return result;
   }
 
+  private static boolean isSet(String criterion) {
+    return criterion != null && !"".equals(criterion);
+  }
+
+  /**
+   * @return true if the ilike criterion is not a plain value, i.e. contains
+   *         wildcard or escape characters
+   */
+  private static boolean isPattern(String criterion) {
+    return criterion.indexOf('*') >= 0 || criterion.indexOf('?') >= 0 || criterion.indexOf('\\') >= 0;
+  }
+
+  private static String toLowerCase(String value) {
+    return value == null ? null : value.toLowerCase(Locale.ROOT);
+  }
+
+  private static Set<Long> smallest(Set<Long> candidates, Set<Long> ids) {
+    return ids.size() < candidates.size() ? ids : candidates;
+  }
+
+  private static boolean matches(Pattern pattern, String value) {
+    return pattern == null || (value != null && pattern.matcher(value).matches());
+  }
+
 }
@@ -104,6 +104,7 @@ public final class AlarmCacheUpdaterImpl implements AlarmCacheUpdater {
     // Check the oscillating status
     boolean wasAlreadyOscillating = alarmCacheObject.isOscillating();
     oscillationUpdater.update(alarmCacheObject, tag);
+    alarmCache.updateFlagIndexes(alarmCacheObject);
 
     // Build up a prefix according to the tag value's validity and mode
     String additionalInfo = AlarmCacheUpdater.evaluateAdditionalInfo(alarmCacheObject, tag);
@@ -16,19 +16,18 @@
  *****************************************************************************/
 package cern.c2mon.server.cache.common;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.LinkedBlockingDeque;
+import java.util.function.Function;
 
 import cern.c2mon.server.cache.config.CacheProperties;
 import cern.c2mon.server.cache.loading.common.C2monCacheLoader;
 import lombok.extern.slf4j.Slf4j;
 import net.sf.ehcache.Ehcache;
 import net.sf.ehcache.Element;
+import net.sf.ehcache.event.CacheEventListener;
 import net.sf.ehcache.event.RegisteredEventListeners;
 import net.sf.ehcache.loader.CacheLoader;
 import org.slf4j.Logger;
@@ -39,13 +38,19 @@ import cern.c2mon.server.cache.C2monBufferedCacheListener;
 import cern.c2mon.server.cache.C2monCacheListener;
 import cern.c2mon.server.cache.ClusterCache;
 import cern.c2mon.server.cache.exception.CacheElementNotFoundException;
+import cern.c2mon.server.cache.listener.AbstractBufferedCacheListener;
 import cern.c2mon.server.cache.listener.BufferedKeyCacheListener;
 import cern.c2mon.server.cache.listener.CacheListener;
 import cern.c2mon.server.cache.listener.DefaultBufferedCacheListener;
+import cern.c2mon.server.cache.listener.KeyAffinityCacheListener;
 import cern.c2mon.server.cache.listener.MultiThreadedCacheListener;
+import cern.c2mon.server.cache.listener.OverflowPolicy;
+import cern.c2mon.server.cache.listener.RingBufferCacheListener;
+import cern.c2mon.server.cache.listener.WaitStrategy;
 import cern.c2mon.server.cache.loading.SimpleCacheLoaderDAO;
 import cern.c2mon.server.common.component.Lifecycle;
 import cern.c2mon.server.common.config.C2monCacheName;
+import cern.c2mon.server.common.listener.Snapshotable;
 import cern.c2mon.shared.common.Cacheable;
 
 /**
@@ -103,6 +108,21 @@ private final CacheProperties properties;
    */
   private RegisteredEventListeners registeredEventListeners; //only for monitoring
 
+  /**
+   * Strategy used to create the deep copies returned by {@link #getCopy(Object)}.
+   */
+  private volatile CopyStrategy<T> copyStrategy = new SerializationCopyStrategy<>();
+
+  /**
+   * Secondary indexes of the cache, see {@link #createIndex(String, Function)}.
+   */
+  private final List<CacheIndex<T>> indexes = new CopyOnWriteArrayList<>();
+
+  /**
+   * Set once the indexes have been built and are kept up to date.
+   */
+  private volatile boolean indexed = false;
+
   public AbstractCache(final ClusterCache clusterCache,
                        final Ehcache cache,
                        final CacheLoader cacheLoader,
@@ -182,44 +202,127 @@ private final CacheProperties properties;
     } else {
       log.info("No preloading necessary: " + getCacheName());
     }
+
+    initIndexes();
+  }
+
+  /**
+   * Creates a secondary index on an attribute of the cache objects. Must be
+   * called before {@link #commonInit()}, which builds the indexes once the
+   * cache is loaded. From then on they are updated on every put and remove,
+   * so only attributes that are never changed on the cache object without a
+   * later put should be indexed.
+   *
+   * <p>The indexes are local to this server, so they are not used in the
+   * clustered "multi" mode, where {@link #isIndexed()} stays false and the
+   * Ehcache search should be used instead.
+   *
+   * @param name the name of the index
+   * @param attribute extracts the indexed value from a cache object
+   * @return the index
+   */
+  protected final CacheIndex<T> createIndex(final String name, final Function<? super T, ?> attribute) {
+    return addIndex(new CacheIndex<>(name, attribute));
+  }
+
+  /**
+   * Registers an index of a specialised type, with the same restrictions as
+   * {@link #createIndex(String, Function)}.
+   *
+   * @param index the empty index
+   * @return the index
+   */
+  protected final <I extends CacheIndex<T>> I addIndex(final I index) {
+    indexes.add(index);
+    return index;
+  }
+
+  /**
+   * @return true if the indexes created with {@link #createIndex(String, Function)}
+   *         can be used for lookups
+   */
+  protected final boolean isIndexed() {
+    return indexed;
+  }
+
+  /**
+   * Rebuilds the indexes if they do not hold as many objects as the cache.
+   * This is the case when objects have been put into the Ehcache directly
+   * (by the cache loaders, bypassing {@link #putQuiet(Cacheable)}). Should
+   * be called before using the indexes.
+   */
+  protected final void checkIndexes() {
+    if (indexed && !indexesMatchCacheSize()) {
+      synchronized (indexes) {
+        if (!indexesMatchCacheSize()) {
+          log.debug("Rebuilding the indexes of the {} cache", getCacheName());
+          rebuildIndexes();
+        }
+      }
+    }
+  }
+
+  private boolean indexesMatchCacheSize() {
+    int size = cache.getSize();
+    for (CacheIndex<T> index : indexes) {
+      if (index.size() != size) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void initIndexes() {
+    if (indexes.isEmpty() || "multi".equalsIgnoreCase(properties.getMode())) {
+      return;
+    }
+    registeredEventListeners.registerListener(new IndexUpdater());
+    synchronized (indexes) {
+      rebuildIndexes();
+    }
+    indexed = true;
+    log.info("Built {} indexes on {} objects of the {} cache", indexes.size(), indexes.get(0).size(), getCacheName());
+  }
+
+  @SuppressWarnings("unchecked")
+  private void rebuildIndexes() {
+    for (CacheIndex<T> index : indexes) {
+      index.clear();
+    }
+    for (Object key : cache.getKeys()) {
+      Element element = cache.getQuiet(key);
+      if (element != null && element.getObjectValue() != null) {
+        updateIndexes((T) element.getObjectValue());
+      }
+    }
+  }
+
+  private void updateIndexes(final T cacheable) {
+    for (CacheIndex<T> index : indexes) {
+      index.update(cacheable);
+    }
   }
 
   /**
    * Find an object in the cache given the object id and create a deep copy.
-   * The copy is relealized through serialization and NOT by cloning.
+   * The copy is realized through the configured {@link CopyStrategy}, which
+   * by default serializes the object.
    *
    * @param id the unique id of the cache object (should not be NULL)
    * @return Copy to the {@link Cacheable} object
    * @throws CacheElementNotFoundException if the element if not found in the cache
    * @throws IllegalArgumentException if the cache is accessed with a null key
-   * @throws UnsupportedOperationException If something goes wrong whilst creating a deep clone
-   *         through serialization
+   * @throws UnsupportedOperationException If something goes wrong whilst creating a deep copy
+   * @see #setCopyStrategy(CopyStrategy)
    */
-  @SuppressWarnings("unchecked")
   public final T getCopy(final K id) {
     if (id != null) {
-        cache.acquireReadLockOnKey(id);
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                ObjectOutputStream oos = new ObjectOutputStream(baos);) {
-            T reference = get(id);
-    
-            oos.writeObject(reference);
-    
-            ByteArrayInputStream bais = new ByteArrayInputStream(baos.toByteArray());
-            ObjectInputStream ois = new ObjectInputStream(bais);
-            return (T) ois.readObject();
-        } catch (CacheElementNotFoundException cenfe) {
-            throw cenfe;
-        } catch (Exception ex) {
-            log.error(
-                    "Unable to get a serialized copy of the cache element as serialization is not supported for this object.",
-                    ex);
-            throw new UnsupportedOperationException(
-                    "The getCopy() method is not supported for this cache element since the cache object is not entirely serializable. Please revisit your object.",
-                    ex);
-        } finally {
-            cache.releaseReadLockOnKey(id);
-        }
+      cache.acquireReadLockOnKey(id);
+      try {
+        return copyStrategy.copy(get(id));
+      } finally {
+        cache.releaseReadLockOnKey(id);
+      }
     }
     else {
       log.error("getCopy() - Trying to access cache with a NULL key - throwing an exception!");
@@ -234,6 +337,9 @@ private final CacheProperties properties;
    */
   public void putQuiet(T value) {
     cache.putQuiet(new Element(value.getId(), value));
+    if (indexed) {
+      updateIndexes(value);
+    }
   }
 
   /**
@@ -258,31 +364,40 @@ private final CacheProperties properties;
    *
    * Notifies the listeners that an update occurred for this DataTag. Should
    * be called *within a lock on the cache object* so the object is not modified
-   * before being passed to the listeners (using a clone).
+   * before being passed to the listeners (using a snapshot or a clone).
    *
    * @param cacheable the cache object that has been updated
    */
   public void notifyListenersOfUpdate(final T cacheable) {
     registeredEventListeners.notifyElementUpdated(new Element(cacheable.getId(), null), false); //only for monitoring via Ehcache: not using Ehcache listeners o.w.
-    try {
-      @SuppressWarnings("unchecked")
-      T cloned = (T) cacheable.clone();
-      for (C2monCacheListener< ? super T> listener : cacheListeners) {
-        listener.notifyElementUpdated(cloned);
-      }
-    } catch (CloneNotSupportedException e) {
-      log.error(CLONE_NOT_SUPPORTED_EXCEPTION_CAUGHT_WHILE_CLONING_A_CACHE_ELEMENT, e);
-      throw new FailedCacheElementCloningException(CLONE_NOT_SUPPORTED_EXCEPTION_CAUGHT_WHILE_CLONING_A_CACHE_ELEMENT, e);
+    T snapshot = createSnapshot(cacheable);
+    for (C2monCacheListener< ? super T> listener : cacheListeners) {
+      listener.notifyElementUpdated(snapshot);
     }
   }
 
   public void notifyListenerStatusConfirmation(final T cacheable, final long timestamp) {
+    T snapshot = createSnapshot(cacheable);
+    for (C2monCacheListener< ? super T> listener : cacheListeners) {
+      listener.confirmStatus(snapshot);
+    }
+  }
+
+  /**
+   * Creates the copy of the cache object that is shared by all listeners.
+   * Uses the lightweight {@link Snapshotable#snapshot()} if supported by the
+   * cache object and falls back to a clone otherwise.
+   *
+   * @param cacheable the cache object that has been updated
+   * @return the snapshot or clone passed to the listeners
+   */
+  @SuppressWarnings("unchecked")
+  private T createSnapshot(final T cacheable) {
+    if (cacheable instanceof Snapshotable) {
+      return (T) ((Snapshotable) cacheable).snapshot();
+    }
     try {
-      @SuppressWarnings("unchecked")
-      T cloned = (T) cacheable.clone();
-      for (C2monCacheListener< ? super T> listener : cacheListeners) {
-        listener.confirmStatus(cloned);
-      }
+      return (T) cacheable.clone();
     } catch (CloneNotSupportedException e) {
       log.error(CLONE_NOT_SUPPORTED_EXCEPTION_CAUGHT_WHILE_CLONING_A_CACHE_ELEMENT, e);
       throw new FailedCacheElementCloningException(CLONE_NOT_SUPPORTED_EXCEPTION_CAUGHT_WHILE_CLONING_A_CACHE_ELEMENT, e);
@@ -305,14 +420,30 @@ private final CacheProperties properties;
     return threadedCacheListener;
   }
 
+  public Lifecycle registerThreadedListener(C2monCacheListener<? super T> cacheListener, int queueCapacity, int threadPoolSize,
+                                            WaitStrategy waitStrategy) {
+    RingBufferCacheListener<? super T> ringBufferCacheListener = new RingBufferCacheListener<>(cacheListener, queueCapacity, threadPoolSize, waitStrategy);
+    cacheListeners.add(ringBufferCacheListener);
+    return ringBufferCacheListener;
+  }
+
+  public Lifecycle registerKeyAffinityListener(C2monCacheListener<? super T> cacheListener, int queueCapacity, int threadPoolSize) {
+    KeyAffinityCacheListener<? super T> keyAffinityCacheListener = new KeyAffinityCacheListener<>(cacheListener, queueCapacity, threadPoolSize);
+    cacheListeners.add(keyAffinityCacheListener);
+    return keyAffinityCacheListener;
+  }
+
   public Lifecycle registerBufferedListener(final C2monBufferedCacheListener c2monBufferedCacheListener, int frequency) {
-    DefaultBufferedCacheListener bufferedCacheListener = new DefaultBufferedCacheListener(c2monBufferedCacheListener, frequency);
+    DefaultBufferedCacheListener bufferedCacheListener = new DefaultBufferedCacheListener(c2monBufferedCacheListener, frequency,
+        properties.getBufferedListenerCapacity(), OverflowPolicy.fromName(properties.getBufferedListenerOverflowPolicy()),
+        properties.getBufferedListenerFlushThreads(), false);
     cacheListeners.add(bufferedCacheListener);
     return bufferedCacheListener;
   }
 
   public Lifecycle registerKeyBufferedListener(final C2monBufferedCacheListener<Long> bufferedCacheListener, int frequency) {
-    BufferedKeyCacheListener<T> bufferedKeyCacheListener = new BufferedKeyCacheListener<T>(bufferedCacheListener, frequency);
+    BufferedKeyCacheListener<T> bufferedKeyCacheListener = new BufferedKeyCacheListener<T>(bufferedCacheListener, frequency,
+        properties.getBufferedListenerFlushThreads());
     cacheListeners.add(bufferedKeyCacheListener);
     return bufferedKeyCacheListener;
   }
@@ -322,6 +453,26 @@ private final CacheProperties properties;
   // GETTERS AND SETTERS
   //***************************
 
+  /**
+   * Sets the strategy used to create the deep copies returned by
+   * {@link #getCopy(Object)}.
+   *
+   * @param copyStrategy the new copy strategy (not null)
+   */
+  public void setCopyStrategy(final CopyStrategy<T> copyStrategy) {
+    if (copyStrategy == null) {
+      throw new IllegalArgumentException("The cache copy strategy cannot be null!");
+    }
+    this.copyStrategy = copyStrategy;
+  }
+
+  /**
+   * @return the strategy used to create cache object copies
+   */
+  public CopyStrategy<T> getCopyStrategy() {
+    return copyStrategy;
+  }
+
   protected CacheLoader getCacheLoader() {
     return cacheLoader;
   }
@@ -415,8 +566,14 @@ private final CacheProperties properties;
     for (C2monCacheListener listener : cacheListeners) {
       if (listener instanceof MultiThreadedCacheListener) {
         queueSizes.add(((MultiThreadedCacheListener) listener).getTaskQueueSize());
+      } else if (listener instanceof RingBufferCacheListener) {
+        queueSizes.add(((RingBufferCacheListener) listener).getTaskQueueSize());
+      } else if (listener instanceof KeyAffinityCacheListener) {
+        queueSizes.add(((KeyAffinityCacheListener) listener).getTaskQueueSize());
       } else if (listener instanceof CacheListener) {
         queueSizes.add(((CacheListener) listener).getTaskQueueSize());
+      } else if (listener instanceof AbstractBufferedCacheListener) {
+        queueSizes.add(((AbstractBufferedCacheListener) listener).getQueueSize());
       }
     }
     return queueSizes;
@@ -432,10 +589,113 @@ private final CacheProperties properties;
     for (C2monCacheListener listener : cacheListeners) {
       if (listener instanceof MultiThreadedCacheListener) {
         threadPoolSizes.add(((MultiThreadedCacheListener) listener).getActiveThreadPoolNumber());
+      } else if (listener instanceof RingBufferCacheListener) {
+        threadPoolSizes.add(((RingBufferCacheListener) listener).getActiveThreadPoolNumber());
+      } else if (listener instanceof KeyAffinityCacheListener) {
+        threadPoolSizes.add(((KeyAffinityCacheListener) listener).getActiveThreadPoolNumber());
       }
     }
     return threadPoolSizes;
   }
 
+  /**
+   * For management purposes.
+   * @return the mean and maximum dispatch latencies (in microseconds) of the
+   *         ring buffer listeners to this cache
+   */
+  @ManagedOperation(description="Get ring buffer listener dispatch latencies (mean/max in microseconds).")
+  public List<String> getListenerDispatchLatencies() {
+    ArrayList<String> latencies = new ArrayList<String>();
+    for (C2monCacheListener listener : cacheListeners) {
+      if (listener instanceof RingBufferCacheListener) {
+        RingBufferCacheListener ringBufferCacheListener = (RingBufferCacheListener) listener;
+        latencies.add(ringBufferCacheListener.getMeanDispatchLatency() + "/" + ringBufferCacheListener.getMaxDispatchLatency());
+      }
+    }
+    return latencies;
+  }
+
+  /**
+   * For management purposes.
+   * @return the mean and maximum flush latencies (in milliseconds) and the
+   *         number of discarded notifications of the buffered listeners to
+   *         this cache
+   */
+  @ManagedOperation(description="Get buffered listener flush latencies (mean/max in milliseconds) and discarded notifications.")
+  public List<String> getBufferedListenerFlushLatencies() {
+    ArrayList<String> latencies = new ArrayList<String>();
+    for (C2monCacheListener listener : cacheListeners) {
+      if (listener instanceof AbstractBufferedCacheListener) {
+        AbstractBufferedCacheListener bufferedCacheListener = (AbstractBufferedCacheListener) listener;
+        latencies.add(bufferedCacheListener.getMeanFlushLatency() + "/" + bufferedCacheListener.getMaxFlushLatency()
+            + ", discarded: " + bufferedCacheListener.getDiscardedCount());
+      }
+    }
+    return latencies;
+  }
+
+  /**
+   * Keeps the indexes up to date with the elements put into and removed from
+   * the Ehcache.
+   */
+  private class IndexUpdater implements CacheEventListener {
+
+    @SuppressWarnings("unchecked")
+    private void update(final Element element) {
+      // the listener notifications of this class come without value
+      if (element != null && element.getObjectValue() != null) {
+        updateIndexes((T) element.getObjectValue());
+      }
+    }
+
+    private void remove(final Element element) {
+      if (element != null && element.getObjectKey() instanceof Long) {
+        for (CacheIndex<T> index : indexes) {
+          index.remove((Long) element.getObjectKey());
+        }
+      }
+    }
+
+    @Override
+    public void notifyElementPut(final Ehcache ehcache, final Element element) {
+      update(element);
+    }
 
+    @Override
+    public void notifyElementUpdated(final Ehcache ehcache, final Element element) {
+      update(element);
+    }
+
+    @Override
+    public void notifyElementRemoved(final Ehcache ehcache, final Element element) {
+      remove(element);
+    }
+
+    @Override
+    public void notifyElementExpired(final Ehcache ehcache, final Element element) {
+      remove(element);
+    }
+
+    @Override
+    public void notifyElementEvicted(final Ehcache ehcache, final Element element) {
+      remove(element);
+    }
+
+    @Override
+    public void notifyRemoveAll(final Ehcache ehcache) {
+      for (CacheIndex<T> index : indexes) {
+        index.clear();
+      }
+    }
+
+    @Override
+    public void dispose() {
+      // nothing to release
+    }
+
+    @Override
+    public Object clone() throws CloneNotSupportedException {
+      throw new CloneNotSupportedException("The index updater of a cache cannot be cloned");
+    }
+  }
 }
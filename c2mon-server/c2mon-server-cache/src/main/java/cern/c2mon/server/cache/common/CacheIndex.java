@@ -0,0 +1,173 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cache.common;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+import cern.c2mon.shared.common.Cacheable;
+
+/**
+ * Secondary index of a cache on one attribute of its objects, mapping each
+ * attribute value to the ids of the cache objects having that value.
+ *
+ * <p>The index is kept up to date by {@link AbstractCache} when objects are
+ * put into or removed from the cache, so it reflects the attribute values at
+ * the time of the last put. Lookups cost O(result) instead of a scan of the
+ * whole cache.
+ *
+ * @param <T> the cache object type
+ */
+public class CacheIndex<T extends Cacheable> {
+
+  /**
+   * Stands for a null attribute value, which the maps cannot hold.
+   */
+  private static final Object NULL_VALUE = new Object();
+
+  private final String name;
+
+  private final Function<? super T, ?> attribute;
+
+  private final ConcurrentMap<Object, Set<Long>> idsByValue;
+
+  private final ConcurrentHashMap<Long, Object> valueById = new ConcurrentHashMap<>();
+
+  /**
+   * @param name      the name of the index, for logging
+   * @param attribute extracts the indexed value from a cache object; values
+   *                  must implement equals() and hashCode()
+   */
+  public CacheIndex(final String name, final Function<? super T, ?> attribute) {
+    this(name, attribute, new ConcurrentHashMap<>());
+  }
+
+  /**
+   * @param name       the name of the index, for logging
+   * @param attribute  extracts the indexed value from a cache object
+   * @param idsByValue the empty map to hold the ids by value, e.g. a sorted map
+   */
+  protected CacheIndex(final String name, final Function<? super T, ?> attribute,
+                       final ConcurrentMap<Object, Set<Long>> idsByValue) {
+    this.name = name;
+    this.attribute = attribute;
+    this.idsByValue = idsByValue;
+  }
+
+  /**
+   * Adds the cache object to the index, or moves it if its attribute value
+   * has changed since the last update.
+   *
+   * @param cacheable the cache object that has been put into the cache
+   */
+  public void update(final T cacheable) {
+    final Object value = mask(attribute.apply(cacheable));
+    valueById.compute(cacheable.getId(), (id, previous) -> {
+      if (!value.equals(previous)) {
+        if (previous != null) {
+          removeFromValue(previous, id);
+        }
+        idsByValue.compute(value, (v, ids) -> {
+          Set<Long> valueIds = ids == null ? ConcurrentHashMap.newKeySet() : ids;
+          valueIds.add(id);
+          return valueIds;
+        });
+      }
+      return value;
+    });
+  }
+
+  /**
+   * @param id the id of the cache object removed from the cache
+   */
+  public void remove(final Long id) {
+    valueById.computeIfPresent(id, (key, previous) -> {
+      removeFromValue(previous, key);
+      return null;
+    });
+  }
+
+  private void removeFromValue(final Object value, final Long id) {
+    idsByValue.computeIfPresent(value, (v, ids) -> {
+      ids.remove(id);
+      return ids.isEmpty() ? null : ids;
+    });
+  }
+
+  /**
+   * Removes all cache objects from the index.
+   */
+  public void clear() {
+    valueById.clear();
+    idsByValue.clear();
+  }
+
+  /**
+   * @param value the attribute value, may be null
+   * @return a live, unmodifiable view of the ids of the cache objects with the
+   *         given value
+   */
+  public Set<Long> get(final Object value) {
+    Set<Long> ids = idsByValue.get(mask(value));
+    return ids == null ? Collections.emptySet() : Collections.unmodifiableSet(ids);
+  }
+
+  /**
+   * @param value the attribute value, may be null
+   * @return the number of cache objects with the given value
+   */
+  public int count(final Object value) {
+    Set<Long> ids = idsByValue.get(mask(value));
+    return ids == null ? 0 : ids.size();
+  }
+
+  /**
+   * @return a live, unmodifiable view of the ids of all indexed cache objects
+   */
+  public Set<Long> getIds() {
+    return Collections.unmodifiableSet(valueById.keySet());
+  }
+
+  /**
+   * @return the number of indexed cache objects
+   */
+  public int size() {
+    return valueById.size();
+  }
+
+  /**
+   * @return the name of the index
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return the ids of the cache objects by attribute value, for subclasses
+   *         implementing other lookups; not to be modified
+   */
+  protected final ConcurrentMap<Object, Set<Long>> getIdsByValue() {
+    return idsByValue;
+  }
+
+  private static Object mask(final Object value) {
+    return value == null ? NULL_VALUE : value;
+  }
+}
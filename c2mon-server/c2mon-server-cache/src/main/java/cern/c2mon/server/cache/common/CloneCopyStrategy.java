@@ -0,0 +1,49 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cache.common;
+
+import lombok.extern.slf4j.Slf4j;
+
+import cern.c2mon.shared.common.Cacheable;
+
+/**
+ * Creates deep copies of cache objects by calling their {@link Cacheable#clone()}
+ * method, avoiding the serialization round trip of {@link SerializationCopyStrategy}.
+ *
+ * <p>Must only be used for caches whose objects implement a deep clone, i.e.
+ * the tag caches (DataTag, RuleTag, ControlTag) and the Alarm cache. Tag values
+ * and metadata values are shared with the original, as they are never modified
+ * in place.
+ *
+ * @param <T> the cache object type
+ */
+@Slf4j
+public class CloneCopyStrategy<T extends Cacheable> implements CopyStrategy<T> {
+
+  private static final String CLONE_NOT_SUPPORTED_EXCEPTION_CAUGHT_WHILE_COPYING_A_CACHE_ELEMENT = "CloneNotSupportedException caught while copying a cache element - this should never happen!";
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T copy(final T original) {
+    try {
+      return (T) original.clone();
+    } catch (CloneNotSupportedException e) {
+      log.error(CLONE_NOT_SUPPORTED_EXCEPTION_CAUGHT_WHILE_COPYING_A_CACHE_ELEMENT, e);
+      throw new UnsupportedOperationException(CLONE_NOT_SUPPORTED_EXCEPTION_CAUGHT_WHILE_COPYING_A_CACHE_ELEMENT, e);
+    }
+  }
+}
@@ -0,0 +1,71 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cache.common;
+
+import cern.c2mon.shared.common.Cacheable;
+
+/**
+ * Strategy used by {@link AbstractCache#getCopy(Object)} to create a deep copy
+ * of a cache object. The copy is always created while holding the read lock on
+ * the cache key, so implementations need not worry about concurrent updates of
+ * the original object.
+ *
+ * @param <T> the cache object type
+ *
+ * @see SerializationCopyStrategy
+ * @see CloneCopyStrategy
+ */
+public interface CopyStrategy<T extends Cacheable> {
+
+  /**
+   * Name of the strategy copying cache objects through Java serialization.
+   */
+  String SERIALIZATION = "serialization";
+
+  /**
+   * Name of the strategy copying cache objects through their clone() method.
+   */
+  String CLONE = "clone";
+
+  /**
+   * Creates a deep copy of the given cache object. The returned object must
+   * not share any mutable state with the original.
+   *
+   * @param original the cache object to copy (never null)
+   * @return the copy
+   * @throws UnsupportedOperationException if the object cannot be copied
+   */
+  T copy(T original);
+
+  /**
+   * Returns the copy strategy registered under the given name.
+   *
+   * @param name either {@link #SERIALIZATION} or {@link #CLONE} (case insensitive)
+   * @param <T> the cache object type
+   * @return a new strategy instance
+   * @throws IllegalArgumentException if the name is unknown
+   */
+  static <T extends Cacheable> CopyStrategy<T> forName(String name) {
+    if (name == null || SERIALIZATION.equalsIgnoreCase(name)) {
+      return new SerializationCopyStrategy<>();
+    } else if (CLONE.equalsIgnoreCase(name)) {
+      return new CloneCopyStrategy<>();
+    } else {
+      throw new IllegalArgumentException("Unknown cache copy strategy: " + name);
+    }
+  }
+}
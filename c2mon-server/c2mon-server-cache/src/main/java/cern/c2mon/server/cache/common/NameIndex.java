@@ -0,0 +1,208 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cache.common;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+import cern.c2mon.shared.common.Cacheable;
+
+/**
+ * {@link CacheIndex} on the names of the cache objects, supporting the
+ * case insensitive wildcard search of the Ehcache ilike criteria.
+ *
+ * <p>The lower-cased names are kept sorted, so a search only has to match
+ * the names starting with the literal prefix of the wildcard expression,
+ * e.g. the names starting with "cp.b.sec" for "CP.B.SEC*.STATUS".
+ * Expressions starting with a wildcard still scan all names, but without
+ * touching the cache objects.
+ *
+ * @param <T> the cache object type
+ */
+public class NameIndex<T extends Cacheable> extends CacheIndex<T> {
+
+  /**
+   * @param name          the name of the index, for logging
+   * @param nameAttribute extracts the name from a cache object
+   */
+  public NameIndex(final String name, final Function<? super T, String> nameAttribute) {
+    super(name, cacheable -> toKey(nameAttribute.apply(cacheable)), new ConcurrentSkipListMap<>(NameIndex::compareKeys));
+  }
+
+  /**
+   * @param name the name, compared case insensitively
+   * @return a live, unmodifiable view of the ids of the cache objects with
+   *         the given name
+   */
+  public Set<Long> getByName(final String name) {
+    return get(toKey(name));
+  }
+
+  /**
+   * Searches the ids of the cache objects with a name matching the given
+   * expression, in which '*' matches any sequence of characters and '?' any
+   * single character; both can be escaped with a backslash. The search is
+   * case insensitive.
+   *
+   * @param wildcard   the expression to match
+   * @param maxResults the maximum number of ids returned
+   * @return the ids of the matching cache objects, ordered by name
+   */
+  public List<Long> find(final String wildcard, final int maxResults) {
+    List<Long> result = new ArrayList<>();
+    String pattern = toKey(wildcard);
+    int wildcardIndex = indexOfWildcard(pattern);
+
+    if (wildcardIndex < 0) {
+      addIds(result, getByName(unescape(pattern)), maxResults);
+      return result;
+    }
+
+    String prefix = unescape(pattern.substring(0, wildcardIndex));
+    Map<Object, Set<Long>> candidates = prefix.isEmpty()
+        ? getSortedIdsByValue()
+        : getSortedIdsByValue().subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+
+    String suffix = unescape(pattern.substring(lastIndexOfWildcard(pattern) + 1));
+    Pattern regex = compileWildcard(pattern);
+    for (Map.Entry<Object, Set<Long>> entry : candidates.entrySet()) {
+      if (result.size() >= maxResults) {
+        break;
+      }
+      if (entry.getKey() instanceof String) {
+        String key = (String) entry.getKey();
+        if (key.endsWith(suffix) && regex.matcher(key).matches()) {
+          addIds(result, entry.getValue(), maxResults);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Translates an Ehcache ilike expression into a case insensitive regular
+   * expression: '*' matches any sequence of characters and '?' any single
+   * character, unless escaped with a backslash.
+   *
+   * @param wildcard the ilike expression
+   * @return the compiled pattern, to be matched against the whole value
+   */
+  public static Pattern compileWildcard(final String wildcard) {
+    StringBuilder regex = new StringBuilder();
+    StringBuilder literal = new StringBuilder();
+    for (int i = 0; i < wildcard.length(); i++) {
+      char c = wildcard.charAt(i);
+      if (c == '\\' && i + 1 < wildcard.length()) {
+        literal.append(wildcard.charAt(++i));
+      } else if (c == '*' || c == '?') {
+        if (literal.length() > 0) {
+          regex.append(Pattern.quote(literal.toString()));
+          literal.setLength(0);
+        }
+        regex.append(c == '*' ? ".*" : ".");
+      } else {
+        literal.append(c);
+      }
+    }
+    if (literal.length() > 0) {
+      regex.append(Pattern.quote(literal.toString()));
+    }
+    return Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE | Pattern.DOTALL);
+  }
+
+  /**
+   * @return true if the expression contains a '*' or '?' that is not escaped
+   */
+  public static boolean isWildcard(final String expression) {
+    return indexOfWildcard(expression) >= 0;
+  }
+
+  @SuppressWarnings("unchecked")
+  private ConcurrentNavigableMap<Object, Set<Long>> getSortedIdsByValue() {
+    return (ConcurrentNavigableMap<Object, Set<Long>>) getIdsByValue();
+  }
+
+  private static void addIds(final List<Long> result, final Set<Long> ids, final int maxResults) {
+    for (Long id : ids) {
+      if (result.size() >= maxResults) {
+        return;
+      }
+      result.add(id);
+    }
+  }
+
+  private static int indexOfWildcard(final String expression) {
+    for (int i = 0; i < expression.length(); i++) {
+      char c = expression.charAt(i);
+      if (c == '\\') {
+        i++;
+      } else if (c == '*' || c == '?') {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static int lastIndexOfWildcard(final String expression) {
+    int last = -1;
+    for (int i = 0; i < expression.length(); i++) {
+      char c = expression.charAt(i);
+      if (c == '\\') {
+        i++;
+      } else if (c == '*' || c == '?') {
+        last = i;
+      }
+    }
+    return last;
+  }
+
+  private static String unescape(final String expression) {
+    if (expression.indexOf('\\') < 0) {
+      return expression;
+    }
+    StringBuilder literal = new StringBuilder(expression.length());
+    for (int i = 0; i < expression.length(); i++) {
+      char c = expression.charAt(i);
+      if (c == '\\' && i + 1 < expression.length()) {
+        c = expression.charAt(++i);
+      }
+      literal.append(c);
+    }
+    return literal.toString();
+  }
+
+  private static String toKey(final String name) {
+    return name == null ? null : name.toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Orders the names, with the placeholder of the null name first.
+   */
+  private static int compareKeys(final Object key1, final Object key2) {
+    if (key1 instanceof String && key2 instanceof String) {
+      return ((String) key1).compareTo((String) key2);
+    }
+    return Boolean.compare(key1 instanceof String, key2 instanceof String);
+  }
+}
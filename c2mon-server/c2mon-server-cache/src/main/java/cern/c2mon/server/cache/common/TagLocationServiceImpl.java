@@ -103,12 +103,16 @@ public class TagLocationServiceImpl implements TagLocationService {
   
   @Override
   public Tag get(final String tagName) {
-    if (dataTagCache.hasTagWithName(tagName)) {       
-      return dataTagCache.get(tagName);
-    } else if (ruleTagCache.hasTagWithName(tagName)) {
-      return ruleTagCache.get(tagName);
-    } else if (controlTagCache.hasTagWithName(tagName)) {
-      return controlTagCache.get(tagName);
+    // a single name lookup per cache, get(String) returns null if not found
+    Tag tag = dataTagCache.get(tagName);
+    if (tag == null) {
+      tag = ruleTagCache.get(tagName);
+    }
+    if (tag == null) {
+      tag = controlTagCache.get(tagName);
+    }
+    if (tag != null) {
+      return tag;
     } else {
       throw new CacheElementNotFoundException("TagLocationService failed to locate tag with name " + tagName + " in any of the rule, control or datatag caches.");
     }
@@ -40,6 +40,93 @@ public class CacheProperties {
    */
   private int bufferedListenerPullFrequency = 5000;
 
+  /**
+   * Capacity of each buffered cache listener (history, Elasticsearch)
+   * between two pulls, 0 for unbounded. The buffer is pulled early once half
+   * full and the overflow policy applies once it is full. The key listeners (cache persistence)
+   * are not bounded, as they keep at most one notification per cache key.
+   */
+  private int bufferedListenerCapacity = 0;
+
+  /**
+   * What a bounded buffered cache listener does with notifications once its
+   * buffer is full.
+   *
+   * Available options:
+   *
+   * flush: the notification is kept and the buffer is pulled right away, the
+   * buffer may exceed its capacity until the pull has caught up (default, no
+   * notification is lost)
+   *
+   * discard: the notification is dropped and counted, bounding the memory
+   * used by the buffer at the price of losing history and Elasticsearch
+   * updates under a burst
+   *
+   * The cache update never waits for the listener.
+   */
+  private String bufferedListenerOverflowPolicy = "flush";
+
+  /**
+   * Number of threads passing the pulled notifications of a buffered cache
+   * listener to the listener in batches. With more than one thread, the order
+   * of the notifications is only kept between pulls.
+   */
+  private int bufferedListenerFlushThreads = 1;
+
+  /**
+   * Strategy used by the tag and alarm caches to create the cache object
+   * copies returned by getCopy().
+   *
+   * Available options:
+   *
+   * serialization: deep copy through Java serialization
+   *
+   * clone: deep copy through the clone() method of the cache objects. Avoids
+   * the serialization round trip and is considerably cheaper.
+   */
+  private String copyStrategy = "serialization";
+
+  /**
+   * Backend used to pass the cache notifications to the threads of
+   * multi-threaded cache listeners.
+   *
+   * Available options:
+   *
+   * queue: unbounded linked blocking queue
+   *
+   * ringbuffer: pre-allocated, lock-free ring buffer of size ringBufferSize.
+   * Avoids one allocation per notification and reduces contention between the
+   * cache and listener threads.
+   *
+   * keyaffinity: one lane per thread, the updates of a given tag always being
+   * passed to the listener on the same lane and in order. An update still
+   * waiting in its lane is replaced by a more recent update of the same tag.
+   */
+  private String threadedListenerBackend = "queue";
+
+  /**
+   * Capacity of the ring buffer of each multi-threaded cache listener when
+   * using the "ringbuffer" backend (rounded up to the next power of 2). Once
+   * full, the cache notification thread waits.
+   */
+  private int ringBufferSize = 65536;
+
+  /**
+   * How the threads wait on an empty or full ring buffer when using the
+   * "ringbuffer" backend.
+   *
+   * Available options:
+   *
+   * blocking: wait on a lock condition (lowest CPU usage)
+   *
+   * sleeping: spin, then park for short periods
+   *
+   * yielding: spin, then yield the processor
+   *
+   * busy-spin: spin continuously (lowest latency, one core per thread)
+   */
+  private String ringBufferWaitStrategy = "blocking";
+
   private int timeRange = 60;
   private int oscNumbers = 6;
 }
@@ -1,5 +1,7 @@
 package cern.c2mon.server.cache.config;
 
+import java.io.File;
+
 import cern.c2mon.server.cache.loading.common.BatchCacheLoader;
 import cern.c2mon.server.cache.loading.common.C2monCacheLoader;
 import cern.c2mon.server.cache.loading.common.EhcacheLoaderImpl;
@@ -20,6 +22,9 @@ public class DataTagCacheConfig {
   @Autowired
   private CacheLoadingProperties properties;
 
+  @Autowired
+  private CacheProperties cacheProperties;
+
   @Bean
   public EhCacheFactoryBean dataTagEhcache(CacheManager cacheManager) {
     EhCacheFactoryBean factory = new EhCacheFactoryBean();
@@ -36,6 +41,11 @@ public class DataTagCacheConfig {
   @Bean
   public C2monCacheLoader dataTagCacheLoader(Ehcache dataTagEhcache, DataTagLoaderDAO dataTagLoaderDAO) {
     Integer batchSize = properties.getBatchSize();
-    return new BatchCacheLoader<>(dataTagEhcache, dataTagLoaderDAO, batchSize, "DataTagCacheLoader-");
+    BatchCacheLoader<?> cacheLoader = new BatchCacheLoader<>(dataTagEhcache, dataTagLoaderDAO, batchSize, "DataTagCacheLoader-");
+    cacheLoader.setStreaming(properties.isStreaming());
+    if (properties.getSnapshot().isEnabled() && cacheProperties.getMode().toLowerCase().startsWith("single")) {
+      cacheLoader.setSnapshot(new File(properties.getSnapshot().getDirectory()), properties.getSnapshot().getMaxAge());
+    }
+    return cacheLoader;
   }
 }
@@ -1,5 +1,7 @@
 package cern.c2mon.server.cache.config;
 
+import java.io.File;
+
 import cern.c2mon.server.cache.loading.common.BatchCacheLoader;
 import cern.c2mon.server.cache.loading.common.C2monCacheLoader;
 import cern.c2mon.server.cache.loading.common.EhcacheLoaderImpl;
@@ -20,6 +22,9 @@ public class RuleTagCacheConfig {
   @Autowired
   private CacheLoadingProperties properties;
 
+  @Autowired
+  private CacheProperties cacheProperties;
+
   @Bean
   public EhCacheFactoryBean ruleTagEhcache(CacheManager cacheManager) {
     EhCacheFactoryBean factory = new EhCacheFactoryBean();
@@ -36,6 +41,11 @@ public class RuleTagCacheConfig {
   @Bean
   public C2monCacheLoader ruleTagCacheLoader(Ehcache ruleTagEhcache, RuleTagLoaderDAO ruleTagLoaderDAO) {
     Integer batchSize = properties.getBatchSize();
-    return new BatchCacheLoader<>(ruleTagEhcache, ruleTagLoaderDAO, batchSize, "RuleTagCacheLoader-");
+    BatchCacheLoader<?> cacheLoader = new BatchCacheLoader<>(ruleTagEhcache, ruleTagLoaderDAO, batchSize, "RuleTagCacheLoader-");
+    cacheLoader.setStreaming(properties.isStreaming());
+    if (properties.getSnapshot().isEnabled() && cacheProperties.getMode().toLowerCase().startsWith("single")) {
+      cacheLoader.setSnapshot(new File(properties.getSnapshot().getDirectory()), properties.getSnapshot().getMaxAge());
+    }
+    return cacheLoader;
   }
 }
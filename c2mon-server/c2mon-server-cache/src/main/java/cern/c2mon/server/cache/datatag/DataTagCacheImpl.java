@@ -16,6 +16,7 @@
  *****************************************************************************/
 package cern.c2mon.server.cache.datatag;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -36,6 +37,7 @@ import org.springframework.stereotype.Service;
 
 import cern.c2mon.server.cache.ClusterCache;
 import cern.c2mon.server.cache.DataTagCache;
+import cern.c2mon.server.cache.common.CacheIndex;
 import cern.c2mon.server.cache.loading.common.C2monCacheLoader;
 import cern.c2mon.server.cache.exception.CacheElementNotFoundException;
 import cern.c2mon.server.cache.loading.SimpleCacheLoaderDAO;
@@ -54,6 +56,12 @@ import cern.c2mon.server.common.datatag.DataTag;
 @ManagedResource(objectName="cern.c2mon:type=cache,name=dataTagCache")
 public class DataTagCacheImpl extends AbstractTagCache<DataTag> implements DataTagCache {
 
+  /**
+   * Indexes of the DataTags by (sub-)equipment.
+   */
+  private final CacheIndex<DataTag> equipmentIdIndex;
+  private final CacheIndex<DataTag> subEquipmentIdIndex;
+
   @Autowired
   public DataTagCacheImpl(@Qualifier("clusterCache") final ClusterCache clusterCache,
                           @Qualifier("dataTagEhcache") final Ehcache ehcache,
@@ -62,6 +70,8 @@ public class DataTagCacheImpl extends AbstractTagCache<DataTag> implements DataT
                           @Qualifier("dataTagLoaderDAO") final SimpleCacheLoaderDAO<DataTag> cacheLoaderDAO,
                           final CacheProperties properties) {
     super(clusterCache, ehcache, cacheLoader, c2monCacheLoader, cacheLoaderDAO, properties);
+    this.equipmentIdIndex = createIndex("equipmentId", DataTag::getEquipmentId);
+    this.subEquipmentIdIndex = createIndex("subEquipmentId", DataTag::getSubEquipmentId);
   }
 
   /**
@@ -96,29 +106,35 @@ public class DataTagCacheImpl extends AbstractTagCache<DataTag> implements DataT
 
   @Override
   public List<Long> getDataTagIdsByEquipmentId(Long equipmentId) {
-    return getDataTagIds(equipmentId, "equipmentId");
+    return getDataTagIds(equipmentId, equipmentIdIndex);
   }
 
   @Override
   public List<Long> getDataTagIdsBySubEquipmentId(Long subEquipmentId) {
-    return getDataTagIds(subEquipmentId, "subEquipmentId");
+    return getDataTagIds(subEquipmentId, subEquipmentIdIndex);
   }
 
   /**
    * Receives a list of all DataTag ids which are attached to the given equipment or sub-equipment.
    * @param id The id of the (sub-)equipment
-   * @param searchAttribute The ehcache search attribute, which is specified in the wrapper method
+   * @param index The index of the DataTags by (sub-)equipment, which is specified in the wrapper method;
+   *              its name is the corresponding ehcache search attribute
    * @return A list of all DataTag ids belonging to the given (sub-)equipment
    */
-  private List<Long> getDataTagIds(Long id, String searchAttribute) {
-    List<Long> tagIds = new LinkedList<>();
-    Results results = null;
-
+  private List<Long> getDataTagIds(Long id, CacheIndex<DataTag> index) {
     if (id == null) {
       throw new IllegalArgumentException("Attempting to retrieve a List of DataTag ids from the cache with a NULL " +
           "parameter.");
     }
 
+    if (isIndexed()) {
+      checkIndexes();
+      return new ArrayList<>(index.get(id));
+    }
+
+    List<Long> tagIds = new LinkedList<>();
+    Results results = null;
+    String searchAttribute = index.getName();
     try {
       Attribute<Long> cacheEquipmentId = getCache().getSearchAttribute(searchAttribute);
       results = getCache().createQuery().includeKeys().addCriteria(cacheEquipmentId.eq(id)).execute();
@@ -16,9 +16,23 @@
  *****************************************************************************/
 package cern.c2mon.server.cache.listener;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedList;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
@@ -32,6 +46,20 @@ import cern.c2mon.shared.common.Cacheable;
  * Abstract listener implementation that batches the notifications before
  * calling the BufferedListener
  *
+ * <p>Unless a capacity is given the buffers are unbounded and keep every
+ * notification. With a capacity, the buffer is flushed early once it is half
+ * full and the {@link OverflowPolicy} decides whether the notifications
+ * arriving while it is full are kept or dropped. The cache threads never wait
+ * for the listener, as they notify it while holding the lock of the updated
+ * cache object, which the listener may need to read. In coalescing
+ * mode, a notification replaces the one of the same cache object still
+ * waiting in the buffer, so each object is passed at most once per flush.
+ *
+ * <p>Each flush passes all buffered notifications to the listener, in
+ * batches of at most {@link #MAX_TO_LISTENER} objects. With several flush
+ * threads the batches of one flush are passed in parallel, so the order of
+ * the notifications is then only kept between flushes.
+ *
  * @author Mark Brightwell
  * @param <T> the type of cache object received
  * @param <S> the type of object passed to the listener
@@ -45,7 +73,10 @@ public abstract class AbstractBufferedCacheListener<T extends Cacheable, S> impl
    */
   private static final int MAX_TO_LISTENER = 20000;
 
-  private static final long CHECK_FREQUENCY = 500L;
+  /**
+   * Number of dropped notifications between two warnings.
+   */
+  private static final long DISCARD_WARNING_FREQUENCY = 10000L;
 
   /**
    * Max sleep time between pulls (could be longer if previous task is longer)
@@ -53,16 +84,35 @@ public abstract class AbstractBufferedCacheListener<T extends Cacheable, S> impl
   private int frequency;
 
   /**
-   * Queues keeping the keys for supported methods.
+   * Buffers keeping the objects for supported methods.
    */
-  private final LinkedBlockingQueue<S> onUpdateQueue = new LinkedBlockingQueue<>();
-  private final LinkedBlockingQueue<S> statusConfirmationQueue = new LinkedBlockingQueue<>();
+  private final UpdateBuffer<S> onUpdateBuffer;
+  private final UpdateBuffer<S> statusConfirmationBuffer;
+
+  private final OverflowPolicy overflowPolicy;
+
+  private final int flushThreads;
+
+  /**
+   * Number of buffered objects from which the flush thread is woken up
+   * before the end of its sleep.
+   */
+  private final int flushThreshold;
 
   /**
    * Wrapped listener.
    */
   private C2monBufferedCacheListener<S> bufferedCacheListener;
 
+  private volatile Thread flushThread;
+
+  private ExecutorService flushExecutor;
+
+  private final LongAdder discardedCount = new LongAdder();
+  private final LongAdder flushCount = new LongAdder();
+  private final LongAdder totalFlushLatency = new LongAdder();
+  private final AtomicLong maxFlushLatency = new AtomicLong();
+
   /**
    * Indicates if the listener is enabled (if not, notifications are ignored and exception is thrown).
    */
@@ -70,14 +120,35 @@ public abstract class AbstractBufferedCacheListener<T extends Cacheable, S> impl
   private volatile boolean enabled;
 
   /**
-   * Notice that duplicate policy is ignored if finite capacity is set (duplicate.OK is set) - TODO rewrite/adapt SynchroBuffer for this...
-
+   * Creates a listener with unbounded buffers keeping every notification.
+   *
    * @param bufferedCacheListener listener expecting collections of cache objects
    * @param frequency the frequency (in ms) at which the buffer should be emptied
    */
   public AbstractBufferedCacheListener(C2monBufferedCacheListener<S> bufferedCacheListener, int frequency) {
+    this(bufferedCacheListener, frequency, 0, OverflowPolicy.FLUSH, 1, false);
+  }
+
+  /**
+   * @param bufferedCacheListener listener expecting collections of cache objects
+   * @param frequency the frequency (in ms) at which the buffer should be emptied
+   * @param capacity the maximum number of objects in each buffer, 0 for unbounded
+   * @param overflowPolicy what to do with notifications once a buffer is full
+   * @param flushThreads the number of threads passing the batches to the listener
+   * @param coalescing if true, only the latest notification of a cache object is kept until the next flush
+   */
+  public AbstractBufferedCacheListener(C2monBufferedCacheListener<S> bufferedCacheListener, int frequency, int capacity,
+                                       OverflowPolicy overflowPolicy, int flushThreads, boolean coalescing) {
+    if (capacity < 0 || flushThreads < 1) {
+      throw new IllegalArgumentException("The capacity must not be negative and at least one flush thread is needed");
+    }
     this.bufferedCacheListener = bufferedCacheListener;
     this.frequency = frequency;
+    this.overflowPolicy = overflowPolicy;
+    this.flushThreads = flushThreads;
+    this.onUpdateBuffer = new UpdateBuffer<>(capacity, coalescing);
+    this.statusConfirmationBuffer = new UpdateBuffer<>(capacity, coalescing);
+    this.flushThreshold = capacity > 0 ? Math.max(1, Math.min(capacity / 2, MAX_TO_LISTENER)) : MAX_TO_LISTENER;
     enabled = false;
   }
 
@@ -86,11 +157,7 @@ public abstract class AbstractBufferedCacheListener<T extends Cacheable, S> impl
   @Override
   public void confirmStatus(T cacheable) {
     if (enabled) {
-      try {
-        statusConfirmationQueue.put(getDerivedObject(cacheable));
-      } catch (InterruptedException e) {
-        log.error("Interrupted while waiting to insert into queue", e);
-      }
+      add(statusConfirmationBuffer, cacheable);
     } else {
       String errorMessage = "Updated notification received with listener disabled";
       log.warn(errorMessage);
@@ -101,11 +168,7 @@ public abstract class AbstractBufferedCacheListener<T extends Cacheable, S> impl
   @Override
   public void notifyElementUpdated(T cacheable) {
     if (enabled) {
-      try {
-        onUpdateQueue.put(getDerivedObject(cacheable));
-      } catch (InterruptedException e) {
-        log.error("Interrupted while waiting to insert key into queue", e);
-      }
+      add(onUpdateBuffer, cacheable);
     } else {
       String errorMessage = "Update notification received with listener disabled for " + bufferedCacheListener.getThreadName();
       log.warn(errorMessage);
@@ -113,6 +176,26 @@ public abstract class AbstractBufferedCacheListener<T extends Cacheable, S> impl
     }
   }
 
+  private void add(final UpdateBuffer<S> buffer, final T cacheable) {
+    if (!buffer.add(cacheable.getId(), getDerivedObject(cacheable), overflowPolicy)) {
+      discardedCount.increment();
+      long discarded = discardedCount.sum();
+      if (discarded % DISCARD_WARNING_FREQUENCY == 1) {
+        log.warn("Buffer of {} is full, {} notifications have been discarded so far", bufferedCacheListener.getThreadName(), discarded);
+      }
+    }
+    if (buffer.size() >= flushThreshold) {
+      wakeUpFlushThread();
+    }
+  }
+
+  private void wakeUpFlushThread() {
+    Thread thread = flushThread;
+    if (thread != null) {
+      LockSupport.unpark(thread);
+    }
+  }
+
   /**
    * A simple wrapper method around {@link AbstractBufferedCacheListener#notifyElementUpdated(Cacheable)}
    * @param cacheableList A list of {@link Cacheable} objects
@@ -136,22 +219,27 @@ public abstract class AbstractBufferedCacheListener<T extends Cacheable, S> impl
     if (!enabled) {
       log.info("Starting BufferedCacheListener for {}", bufferedCacheListener.getThreadName());
 
+      if (flushThreads > 1) {
+        AtomicInteger threadCount = new AtomicInteger();
+        flushExecutor = Executors.newFixedThreadPool(flushThreads,
+            r -> new Thread(r, bufferedCacheListener.getThreadName() + "-flush-" + threadCount.incrementAndGet()));
+      }
+
       Runnable task = () -> {
-        while (enabled || !onUpdateQueue.isEmpty() || !statusConfirmationQueue.isEmpty()) {
-          long millisStart = System.currentTimeMillis();
+        while (enabled || getQueueSize() > 0) {
+          long nanosStart = System.nanoTime();
           flush();
-          while (System.currentTimeMillis() - millisStart < frequency) {
-            try {
-              Thread.sleep(CHECK_FREQUENCY);
-            } catch (InterruptedException e) {
-              log.error("Sleep interrupted in BufferedCacheListener thread");
-            }
+          long deadline = nanosStart + TimeUnit.MILLISECONDS.toNanos(frequency);
+          long remaining;
+          while (enabled && getQueueSize() < flushThreshold && (remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(this, remaining);
           }
         }
       };
 
-      new Thread(task, bufferedCacheListener.getThreadName()).start();
       enabled = true;
+      flushThread = new Thread(task, bufferedCacheListener.getThreadName());
+      flushThread.start();
     }
   }
 
@@ -160,35 +248,210 @@ public abstract class AbstractBufferedCacheListener<T extends Cacheable, S> impl
     if (enabled) {
       log.info("Shutting down BufferedKeyCacheListener for {}", bufferedCacheListener.getThreadName());
       enabled = false;
+      LockSupport.unpark(flushThread);
       flush();
+      if (flushExecutor != null) {
+        flushExecutor.shutdown();
+      }
     }
   }
 
   private synchronized void flush() {
-    if (!onUpdateQueue.isEmpty()) {
-      LinkedList<S> updateKeys = new LinkedList<>();
-      onUpdateQueue.drainTo(updateKeys, MAX_TO_LISTENER);
-      if (!updateKeys.isEmpty()) {
-        try {
-          bufferedCacheListener.notifyElementUpdated(updateKeys);
-        } catch (Exception e) {
-          log.error("Uncaught exception occured in {} whilst notifying for update of {} elements!",  bufferedCacheListener.getThreadName(), updateKeys.size(), e);
+    flush(onUpdateBuffer, batch -> {
+      try {
+        bufferedCacheListener.notifyElementUpdated(batch);
+      } catch (Exception e) {
+        log.error("Uncaught exception occured in {} whilst notifying for update of {} elements!",  bufferedCacheListener.getThreadName(), batch.size(), e);
+      }
+    });
+
+    flush(statusConfirmationBuffer, batch -> {
+      try {
+        bufferedCacheListener.confirmStatus(batch);
+      } catch (Exception e) {
+        log.error("Uncaught exception occured in {} whilst confirming status of {} cache objects!", bufferedCacheListener.getThreadName(), batch.size(), e);
+      }
+    });
+  }
+
+  /**
+   * Passes the objects in the buffer when the flush starts to the listener,
+   * in batches of at most {@link #MAX_TO_LISTENER} objects, and waits for all
+   * batches to be processed.
+   */
+  private void flush(final UpdateBuffer<S> buffer, final Consumer<List<S>> listenerCall) {
+    int remaining = buffer.size();
+    List<Future<?>> batches = new ArrayList<>();
+    while (remaining > 0) {
+      List<S> batch = buffer.drain(Math.min(remaining, MAX_TO_LISTENER));
+      if (batch.isEmpty()) {
+        break;
+      }
+      remaining -= batch.size();
+      Runnable flushTask = () -> {
+        long start = System.nanoTime();
+        listenerCall.accept(batch);
+        recordFlushLatency(System.nanoTime() - start);
+      };
+      if (flushExecutor == null || flushExecutor.isShutdown()) {
+        flushTask.run();
+      } else {
+        batches.add(flushExecutor.submit(flushTask));
+      }
+    }
+
+    for (Future<?> batch : batches) {
+      try {
+        batch.get();
+      } catch (InterruptedException e) {
+        log.error("Interrupted while waiting for the flush of {}", bufferedCacheListener.getThreadName());
+        Thread.currentThread().interrupt();
+        return;
+      } catch (ExecutionException e) {
+        log.error("Uncaught exception occured in {} whilst flushing the buffer", bufferedCacheListener.getThreadName(), e.getCause());
+      }
+    }
+  }
+
+  private void recordFlushLatency(final long latency) {
+    flushCount.increment();
+    totalFlushLatency.add(latency);
+    long max = maxFlushLatency.get();
+    while (latency > max && !maxFlushLatency.compareAndSet(max, latency)) {
+      max = maxFlushLatency.get();
+    }
+  }
+
+  /**
+   * For management purposes.
+   * @return the number of objects waiting to be passed to the listener
+   */
+  public int getQueueSize() {
+    return onUpdateBuffer.size() + statusConfirmationBuffer.size();
+  }
+
+  /**
+   * For management purposes.
+   * @return the number of notifications dropped because the buffer was full
+   */
+  public long getDiscardedCount() {
+    return discardedCount.sum();
+  }
+
+  /**
+   * For management purposes.
+   * @return the number of notifications replaced by a later notification
+   *         of the same cache object before being flushed
+   */
+  public long getCoalescedCount() {
+    return onUpdateBuffer.getCoalescedCount() + statusConfirmationBuffer.getCoalescedCount();
+  }
+
+  /**
+   * For management purposes.
+   * @return the mean time (in milliseconds) taken by the listener to process a batch
+   */
+  public long getMeanFlushLatency() {
+    long count = flushCount.sum();
+    return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalFlushLatency.sum() / count);
+  }
+
+  /**
+   * For management purposes.
+   * @return the maximum time (in milliseconds) taken by the listener to process a batch
+   */
+  public long getMaxFlushLatency() {
+    return TimeUnit.NANOSECONDS.toMillis(maxFlushLatency.get());
+  }
+
+  /**
+   * Buffer of the notifications of one method, optionally bounded and
+   * keeping only the latest object per cache id.
+   */
+  private static final class UpdateBuffer<S> {
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /** The objects in arrival order, if not coalescing */
+    private final ArrayDeque<S> values;
+
+    /** The latest object per cache id in order of first arrival, if coalescing */
+    private final LinkedHashMap<Long, S> latestValues;
+
+    private final int capacity;
+
+    private volatile int size;
+
+    private long coalescedCount;
+
+    private UpdateBuffer(final int capacity, final boolean coalescing) {
+      this.capacity = capacity;
+      this.values = coalescing ? null : new ArrayDeque<>();
+      this.latestValues = coalescing ? new LinkedHashMap<>() : null;
+    }
+
+    /**
+     * Never waits: a full buffer keeps the object with the flush policy and
+     * discards it with the discard policy.
+     *
+     * @return false if the object has been discarded
+     */
+    private boolean add(final Long id, final S value, final OverflowPolicy overflowPolicy) {
+      lock.lock();
+      try {
+        if (latestValues != null && latestValues.containsKey(id)) {
+          latestValues.put(id, value);
+          coalescedCount++;
+          return true;
+        }
+        if (capacity > 0 && size >= capacity && overflowPolicy == OverflowPolicy.DISCARD) {
+          return false;
+        }
+        if (latestValues != null) {
+          latestValues.put(id, value);
+        } else {
+          values.add(value);
         }
+        size++;
+        return true;
+      } finally {
+        lock.unlock();
       }
     }
 
-    if (!statusConfirmationQueue.isEmpty()) {
-      LinkedList<S> confirmationKeys = new LinkedList<>();
-      statusConfirmationQueue.drainTo(confirmationKeys, MAX_TO_LISTENER);
-      if (!confirmationKeys.isEmpty()) {
-        try {
-          bufferedCacheListener.confirmStatus(confirmationKeys);
-        } catch (Exception e) {
-          log.error("Uncaught exception occured in {} whilst confirming status of {} cache objects!", bufferedCacheListener.getThreadName(), confirmationKeys.size(), e);
+    private List<S> drain(final int max) {
+      lock.lock();
+      try {
+        List<S> batch = new ArrayList<>(Math.min(max, size));
+        if (latestValues != null) {
+          Iterator<S> iterator = latestValues.values().iterator();
+          while (batch.size() < max && iterator.hasNext()) {
+            batch.add(iterator.next());
+            iterator.remove();
+          }
+        } else {
+          while (batch.size() < max && !values.isEmpty()) {
+            batch.add(values.poll());
+          }
         }
+        size -= batch.size();
+        return batch;
+      } finally {
+        lock.unlock();
       }
     }
-  }
 
+    private int size() {
+      return size;
+    }
 
+    private long getCoalescedCount() {
+      lock.lock();
+      try {
+        return coalescedCount;
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
 }
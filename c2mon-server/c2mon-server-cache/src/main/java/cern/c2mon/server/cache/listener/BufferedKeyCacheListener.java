@@ -38,6 +38,19 @@ public class BufferedKeyCacheListener<T extends Cacheable> extends AbstractBuffe
     super(bufferedKeyTimCacheListener, frequency);
   }
 
+  /**
+   * Constructor. As the listener only receives keys, a key is passed at most
+   * once per flush. The buffers are not given a capacity, holding at most
+   * one entry per cache key already bounds them.
+   *
+   * @param bufferedKeyTimCacheListener the listener to register.
+   * @param frequency                   the frequency (in ms) at which the buffer should be emptied
+   * @param flushThreads                the number of threads passing the keys to the listener
+   */
+  public BufferedKeyCacheListener(final C2monBufferedCacheListener<Long> bufferedKeyTimCacheListener, int frequency, int flushThreads) {
+    super(bufferedKeyTimCacheListener, frequency, 0, OverflowPolicy.FLUSH, flushThreads, true);
+  }
+
   /**
    * Returns the key of the cache object.
    */
@@ -42,7 +42,8 @@ import cern.c2mon.shared.util.threadhandler.ThreadHandler;
  * <p>Internally, registration on a single thread uses the
  * {@link ThreadHandler} implementation while registrations
  * on several threads use the {@link MultiThreadedCacheListener}
- * and the Java concurrency library.
+ * and the Java concurrency library, or the {@link RingBufferCacheListener}
+ * or {@link KeyAffinityCacheListener} if configured.
  *
  * @author Mark Brightwell
  *
@@ -62,6 +63,18 @@ public class CacheRegistrationServiceImpl implements CacheRegistrationService {
    */
   public static final int QUEUE_SIZE_DEFAULT = Integer.MAX_VALUE;
 
+  /**
+   * Value of the threadedListenerBackend property selecting the
+   * {@link RingBufferCacheListener}.
+   */
+  private static final String RING_BUFFER_BACKEND = "ringbuffer";
+
+  /**
+   * Value of the threadedListenerBackend property selecting the
+   * {@link KeyAffinityCacheListener}.
+   */
+  private static final String KEY_AFFINITY_BACKEND = "keyaffinity";
+
   /**
    * Reference to the DataTag cache.
    */
@@ -110,12 +123,28 @@ public class CacheRegistrationServiceImpl implements CacheRegistrationService {
     if (threads == 1) {
       return registerToAllTags(tagCacheListener);
     } else {
+      if (useKeyAffinity()) {
+        return registerOrderedToAllTags(tagCacheListener, threads);
+      }
+      if (useRingBuffer()) {
+        RingBufferCacheListener<Tag> ringBufferCacheListener = new RingBufferCacheListener<Tag>(tagCacheListener,
+            properties.getRingBufferSize(), threads, WaitStrategy.fromName(properties.getRingBufferWaitStrategy()));
+        registerListenerToTags(ringBufferCacheListener);
+        return ringBufferCacheListener;
+      }
       MultiThreadedCacheListener<Tag> threadedCacheListener = new MultiThreadedCacheListener<Tag>(tagCacheListener, QUEUE_SIZE_DEFAULT, threads);
       registerListenerToTags(threadedCacheListener);
       return threadedCacheListener;
     }
   }
 
+  @Override
+  public Lifecycle registerOrderedToAllTags(final C2monCacheListener<Tag> tagCacheListener, final int threads) {
+    KeyAffinityCacheListener<Tag> keyAffinityCacheListener = new KeyAffinityCacheListener<Tag>(tagCacheListener, QUEUE_SIZE_DEFAULT, threads);
+    registerListenerToTags(keyAffinityCacheListener);
+    return keyAffinityCacheListener;
+  }
+
   @Override
   public void registerForSupervisionChanges(CacheSupervisionListener<Tag> cacheSupervisionListener) {
     dataTagCache.registerListenerWithSupervision(cacheSupervisionListener);
@@ -146,6 +175,13 @@ public class CacheRegistrationServiceImpl implements CacheRegistrationService {
     if (threads == 1) {
       return dataTagCache.registerListener(dataTagCacheListener);
     } else {
+      if (useKeyAffinity()) {
+        return dataTagCache.registerKeyAffinityListener(dataTagCacheListener, QUEUE_SIZE_DEFAULT, threads);
+      }
+      if (useRingBuffer()) {
+        return dataTagCache.registerThreadedListener(dataTagCacheListener, properties.getRingBufferSize(), threads,
+            WaitStrategy.fromName(properties.getRingBufferWaitStrategy()));
+      }
       return dataTagCache.registerThreadedListener(dataTagCacheListener, QUEUE_SIZE_DEFAULT, threads);
     }
   }
@@ -161,6 +197,13 @@ public class CacheRegistrationServiceImpl implements CacheRegistrationService {
     if (threads == 1) {
       return ruleTagCache.registerListener(ruleTagCacheListener);
     } else {
+      if (useKeyAffinity()) {
+        return ruleTagCache.registerKeyAffinityListener(ruleTagCacheListener, QUEUE_SIZE_DEFAULT, threads);
+      }
+      if (useRingBuffer()) {
+        return ruleTagCache.registerThreadedListener(ruleTagCacheListener, properties.getRingBufferSize(), threads,
+            WaitStrategy.fromName(properties.getRingBufferWaitStrategy()));
+      }
       return ruleTagCache.registerThreadedListener(ruleTagCacheListener, QUEUE_SIZE_DEFAULT, threads);
     }
   }
@@ -168,7 +211,9 @@ public class CacheRegistrationServiceImpl implements CacheRegistrationService {
   @Override
   public Lifecycle registerBufferedListenerToTags(final C2monBufferedCacheListener<Tag> bufferListener) {
     int frequency = properties.getBufferedListenerPullFrequency();
-    DefaultBufferedCacheListener<Tag> bufferedCacheListener = new DefaultBufferedCacheListener<>(bufferListener, frequency);
+    DefaultBufferedCacheListener<Tag> bufferedCacheListener = new DefaultBufferedCacheListener<>(bufferListener, frequency,
+        properties.getBufferedListenerCapacity(), OverflowPolicy.fromName(properties.getBufferedListenerOverflowPolicy()),
+        properties.getBufferedListenerFlushThreads(), false);
     registerListenerToTags(bufferedCacheListener);
     return bufferedCacheListener;
   }
@@ -184,4 +229,18 @@ public class CacheRegistrationServiceImpl implements CacheRegistrationService {
     ruleTagCache.registerSynchronousListener(cacheListener);
   }
 
+  /**
+   * @return true if multi-threaded listeners should use the {@link RingBufferCacheListener}
+   */
+  private boolean useRingBuffer() {
+    return RING_BUFFER_BACKEND.equalsIgnoreCase(properties.getThreadedListenerBackend());
+  }
+
+  /**
+   * @return true if multi-threaded listeners should use the {@link KeyAffinityCacheListener}
+   */
+  private boolean useKeyAffinity() {
+    return KEY_AFFINITY_BACKEND.equalsIgnoreCase(properties.getThreadedListenerBackend());
+  }
+
 }
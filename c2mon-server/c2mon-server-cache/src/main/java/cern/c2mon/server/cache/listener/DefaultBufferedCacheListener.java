@@ -38,6 +38,22 @@ public class DefaultBufferedCacheListener<T extends Cacheable> extends AbstractB
     super(bufferedCacheListener, frequency);
   }
 
+  /**
+   * Constructor.
+   *
+   * @param bufferedCacheListener listener expecting collections of cache objects
+   * @param frequency the frequency (in ms) at which the buffer should be emptied
+   * @param capacity the maximum number of objects in each buffer, 0 for unbounded
+   * @param overflowPolicy what to do with notifications once a buffer is full
+   * @param flushThreads the number of threads passing the batches to the listener
+   * @param coalescing if true, only the latest version of a cache object is kept until the next flush;
+   *                   otherwise every notified version is passed on (e.g. for history)
+   */
+  public DefaultBufferedCacheListener(final C2monBufferedCacheListener<T> bufferedCacheListener, int frequency, int capacity,
+                                      OverflowPolicy overflowPolicy, int flushThreads, boolean coalescing) {
+    super(bufferedCacheListener, frequency, capacity, overflowPolicy, flushThreads, coalescing);
+  }
+
   /**
    * Returns the cache object itself.
    */
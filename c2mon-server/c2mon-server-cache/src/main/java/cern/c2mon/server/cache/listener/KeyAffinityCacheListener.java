@@ -0,0 +1,364 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cache.listener;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import lombok.extern.slf4j.Slf4j;
+
+import cern.c2mon.server.cache.C2monCacheListener;
+import cern.c2mon.server.common.component.Lifecycle;
+import cern.c2mon.shared.common.Cacheable;
+
+/**
+ * Multi-threaded cache listener preserving the order of the notifications
+ * for a given cache key.
+ *
+ * <p>Unlike the {@link MultiThreadedCacheListener}, where two updates of the
+ * same object may be processed concurrently and in any order, the
+ * notifications are routed to a fixed number of lanes according to the id
+ * of the cache object. Each lane is served by a single thread, so that all
+ * notifications for a given id are passed to the wrapped listener in the
+ * order they were made, while different ids are processed in parallel.
+ *
+ * <p>If a notification is made for an id which still has a notification
+ * waiting in its lane, the waiting notification is replaced by the new one
+ * (keeping its position in the lane): the listener only receives the latest
+ * state of the object. The replacement is a status confirmation only if both
+ * notifications are.
+ *
+ * <p><b>Note</b> the listener must be thread-safe, since it is called on
+ * several threads (but never concurrently for the same id).
+ *
+ * @param <T> type of cache object expected by listener
+ */
+@Slf4j
+public class KeyAffinityCacheListener<T extends Cacheable> implements C2monCacheListener<T>, Lifecycle {
+
+  /**
+   * The number of milliseconds to wait for the lane threads to terminate
+   * on shutdown.
+   */
+  private static final int THREAD_SHUTDOWN_TIMEOUT = 2000;
+
+  /**
+   * The wrapped listener.
+   */
+  private final C2monCacheListener<T> c2monCacheListener;
+
+  /**
+   * The lanes, each served by its own thread.
+   */
+  private final List<Lane> lanes;
+
+  /**
+   * The pool of threads calling the C2monCacheListener (one per lane, running
+   * until server shutdown).
+   */
+  private final ThreadPoolExecutor executor;
+
+  /**
+   * Number of notifications replaced by a later one before being passed to
+   * the listener.
+   */
+  private final LongAdder coalescedCount = new LongAdder();
+
+  /**
+   * Shutdown request made.
+   */
+  private volatile boolean shutdownRequestMade = false;
+
+  /**
+   * The listener can only be started and stopped once.
+   */
+  private volatile boolean running = false;
+
+  /**
+   * Constructor.
+   * @param timCacheListener the listener wrapped by this class
+   *        (the module listener)
+   * @param queueCapacity the total number of distinct ids that can wait in the
+   *        lanes (shared equally between the lanes); once a lane is full the
+   *        server thread is forced to wait
+   * @param threadPoolSize the number of lanes, i.e. the number of threads the
+   *        module should be called on
+   */
+  public KeyAffinityCacheListener(final C2monCacheListener<T> timCacheListener, final int queueCapacity, final int threadPoolSize) {
+    super();
+    if (threadPoolSize < 1) {
+      throw new IllegalArgumentException("The number of threads must be positive (was " + threadPoolSize + ")");
+    }
+    this.c2monCacheListener = timCacheListener;
+    int laneCapacity = Math.max(1, (int) Math.min(Integer.MAX_VALUE, ((long) queueCapacity + threadPoolSize - 1) / threadPoolSize));
+    lanes = new ArrayList<>(threadPoolSize);
+    executor = new ThreadPoolExecutor(threadPoolSize, threadPoolSize, Long.MAX_VALUE, TimeUnit.NANOSECONDS, new SynchronousQueue<Runnable>());
+    for (int i = 0; i < threadPoolSize; i++) {
+      Lane lane = new Lane(laneCapacity);
+      lanes.add(lane);
+      executor.submit(lane);
+    }
+  }
+
+  @Override
+  public void confirmStatus(final T cacheable) {
+    publish(cacheable, true);
+  }
+
+  @Override
+  public void notifyElementUpdated(final T cacheable) {
+    publish(cacheable, false);
+  }
+
+  private void publish(final T cacheable, final boolean statusConfirmation) {
+    if (shutdownRequestMade) {
+      log.warn("Attempt at notifying of element update after shutdown started "
+          + "- should not happen and indicates incorrect shutdown sequence!");
+      return;
+    }
+    try {
+      laneOf(cacheable.getId()).put(cacheable, statusConfirmation);
+    } catch (InterruptedException interEx) {
+      log.error("InterruptedException caught while waiting for KeyAffinityCacheListener lane to free space: ", interEx);
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * @param id the id of the cache object
+   * @return the lane processing the notifications for this id
+   */
+  private Lane laneOf(final Long id) {
+    if (id == null) {
+      return lanes.get(0);
+    }
+    long key = id;
+    int hash = (int) (key ^ (key >>> 32));
+    hash ^= hash >>> 16;
+    return lanes.get(Math.floorMod(hash, lanes.size()));
+  }
+
+  /**
+   * Is running until a shutdown request is made.
+   */
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+
+  /**
+   * Can only be started once at server start-up.
+   */
+  @Override
+  public void start() {
+    running = true;
+  }
+
+  /**
+   * Waits for all lanes to be emptied then shuts down the threads.
+   * Should be called when the cache is closed on server shutdown.
+   * Will have no effect if called a second time.
+   */
+  @Override
+  public synchronized void stop() {
+    if (running) {
+      log.debug("Shutting down key affinity cache listener.");
+      running = false;
+      shutdownRequestMade = true;
+      for (Lane lane : lanes) {
+        lane.wakeUp();
+      }
+      executor.shutdown();
+      try {
+        executor.awaitTermination(THREAD_SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException ex) {
+        log.error("Interrupted while waiting for shutdown to complete", ex);
+      }
+    }
+  }
+
+  /**
+   * For management purposes.
+   * @return the total number of notifications waiting in the lanes
+   */
+  public int getTaskQueueSize() {
+    int size = 0;
+    for (Lane lane : lanes) {
+      size += lane.size();
+    }
+    return size;
+  }
+
+  /**
+   * For management purposes.
+   * @return the number of active threads of this listener
+   */
+  public int getActiveThreadPoolNumber() {
+    return executor.getActiveCount();
+  }
+
+  /**
+   * For management purposes.
+   * @return the number of notifications replaced by a later notification for
+   *         the same id before reaching the listener
+   */
+  public long getCoalescedCount() {
+    return coalescedCount.sum();
+  }
+
+  /**
+   * A notification waiting in a lane.
+   */
+  private final class Notification {
+    private T cacheable;
+    private boolean statusConfirmation;
+
+    private Notification(final T cacheable, final boolean statusConfirmation) {
+      this.cacheable = cacheable;
+      this.statusConfirmation = statusConfirmation;
+    }
+  }
+
+  /**
+   * Notifications waiting for one thread, in order of arrival of their id
+   * (one entry per id).
+   */
+  private final class Lane implements Runnable {
+
+    private final int capacity;
+
+    private final LinkedHashMap<Long, Notification> pending = new LinkedHashMap<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    private Lane(final int capacity) {
+      this.capacity = capacity;
+    }
+
+    /**
+     * Adds the notification to the lane, or replaces the notification
+     * waiting for the same id.
+     */
+    private void put(final T cacheable, final boolean statusConfirmation) throws InterruptedException {
+      lock.lock();
+      try {
+        Notification waiting = pending.get(cacheable.getId());
+        if (waiting != null) {
+          waiting.cacheable = cacheable;
+          waiting.statusConfirmation &= statusConfirmation;
+          coalescedCount.increment();
+          return;
+        }
+        while (pending.size() >= capacity) {
+          notFull.await();
+          waiting = pending.get(cacheable.getId());
+          if (waiting != null) {
+            waiting.cacheable = cacheable;
+            waiting.statusConfirmation &= statusConfirmation;
+            coalescedCount.increment();
+            return;
+          }
+        }
+        pending.put(cacheable.getId(), new Notification(cacheable, statusConfirmation));
+        notEmpty.signal();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    /**
+     * @return the oldest notification of the lane, or null if the lane is
+     *         empty after shutdown
+     */
+    private Notification take() throws InterruptedException {
+      lock.lock();
+      try {
+        while (pending.isEmpty()) {
+          if (shutdownRequestMade) {
+            return null;
+          }
+          notEmpty.await();
+        }
+        Iterator<Map.Entry<Long, Notification>> iterator = pending.entrySet().iterator();
+        Notification notification = iterator.next().getValue();
+        iterator.remove();
+        notFull.signal();
+        return notification;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private void wakeUp() {
+      lock.lock();
+      try {
+        notEmpty.signal();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private int size() {
+      lock.lock();
+      try {
+        return pending.size();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    /**
+     * Runs from start up to shutdown, passing the notifications of the lane
+     * to the listener; the lane is emptied before the thread exits.
+     */
+    @Override
+    public void run() {
+      while (true) {
+        Notification notification;
+        try {
+          notification = take();
+        } catch (InterruptedException e) {
+          log.warn("Cache Listener thread interrupted in KeyAffinityCacheListener.", e);
+          continue;
+        }
+        if (notification == null) {
+          return;
+        }
+        try {
+          if (notification.statusConfirmation) {
+            c2monCacheListener.confirmStatus(notification.cacheable);
+          } else {
+            c2monCacheListener.notifyElementUpdated(notification.cacheable);
+          }
+        } catch (Exception e) {
+          log.error("Exception caught when notifying listener: the update could not be processed.", e);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,49 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cache.listener;
+
+/**
+ * What a bounded {@link AbstractBufferedCacheListener} does with a
+ * notification when its buffer is full.
+ */
+public enum OverflowPolicy {
+
+  /**
+   * The notification is kept and the buffer is flushed right away. No
+   * notification is lost: the buffer grows beyond its capacity until the
+   * flush has caught up, as the cache notification thread holds the lock of
+   * the cache object and must never wait for the listener.
+   */
+  FLUSH,
+
+  /**
+   * The notification is dropped and counted. The memory used by the buffer
+   * is bounded, at the price of losing notifications under a burst.
+   */
+  DISCARD;
+
+  /**
+   * Returns the policy with the given name, ignoring the case.
+   *
+   * @param name the name of the policy
+   * @return the overflow policy
+   * @throws IllegalArgumentException if the name is unknown
+   */
+  public static OverflowPolicy fromName(final String name) {
+    return valueOf(name.trim().toUpperCase());
+  }
+}
@@ -0,0 +1,542 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cache.listener;
+
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+import lombok.extern.slf4j.Slf4j;
+
+import cern.c2mon.server.cache.C2monCacheListener;
+import cern.c2mon.server.common.component.Lifecycle;
+import cern.c2mon.shared.common.Cacheable;
+
+/**
+ * Alternative to the {@link MultiThreadedCacheListener}, passing the
+ * notifications to the pool of listener threads through a pre-allocated,
+ * lock-free ring buffer instead of a {@link java.util.concurrent.LinkedBlockingQueue}.
+ *
+ * <p>The ring is a bounded multi-producer/multi-consumer array queue, where
+ * each slot carries a sequence number used to claim and publish it. No
+ * object is allocated per notification. The listener threads drain the ring
+ * in batches of up to {@code batchSize} notifications, and wait according to
+ * the configured {@link WaitStrategy} when it is empty. Like the
+ * {@link MultiThreadedCacheListener}, the cache threads wait when the ring is
+ * full.
+ *
+ * <p>The queue depth and the dispatch latency (time between the cache
+ * notification and the call of the wrapped listener) are recorded for
+ * management purposes.
+ *
+ * @param <T> type of cache object expected by listener
+ */
+@Slf4j
+public class RingBufferCacheListener<T extends Cacheable> implements C2monCacheListener<T>, Lifecycle {
+
+  /**
+   * Default maximum number of notifications a listener thread takes from the
+   * ring at once.
+   */
+  public static final int DEFAULT_BATCH_SIZE = 64;
+
+  /**
+   * Maximum capacity of the ring.
+   */
+  private static final int MAX_CAPACITY = 1 << 30;
+
+  /**
+   * The number of milliseconds to wait for the listener threads to terminate
+   * on shutdown.
+   */
+  private static final int THREAD_SHUTDOWN_TIMEOUT = 2000;
+
+  /**
+   * Number of spins before the SLEEPING and YIELDING strategies back off.
+   */
+  private static final int SPIN_TRIES = 100;
+
+  /**
+   * Time (in nanoseconds) the SLEEPING strategy parks for.
+   */
+  private static final long SLEEP_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+  /**
+   * Maximum time (in milliseconds) the BLOCKING strategy waits before
+   * re-checking the ring, so that threads notice a shutdown request.
+   */
+  private static final long MAX_BLOCKING_WAIT = 100;
+
+  /**
+   * The wrapped listener.
+   */
+  private final C2monCacheListener<T> c2monCacheListener;
+
+  private final WaitStrategy waitStrategy;
+
+  private final int batchSize;
+
+  /**
+   * Mask used to compute the slot index of a sequence (capacity - 1).
+   */
+  private final int mask;
+
+  /**
+   * The pre-allocated slots: the cache object, the method to call and the
+   * time of the notification. They are written before and read after the
+   * (volatile) update of the slot sequence.
+   */
+  private final Object[] entries;
+  private final boolean[] statusConfirmations;
+  private final long[] publishTimes;
+
+  /**
+   * Sequence of each slot. A slot is free for the producer at position p if
+   * its sequence equals p, and holds a published notification for the
+   * consumer at position p if its sequence equals p + 1.
+   */
+  private final AtomicLongArray sequences;
+
+  private final AtomicLong producerPosition = new AtomicLong();
+  private final AtomicLong consumerPosition = new AtomicLong();
+
+  /**
+   * Used by the BLOCKING wait strategy only.
+   */
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition notEmpty = lock.newCondition();
+  private final Condition notFull = lock.newCondition();
+  private final AtomicInteger waitingConsumers = new AtomicInteger();
+  private final AtomicInteger waitingProducers = new AtomicInteger();
+
+  /**
+   * The pool of threads calling the C2monCacheListener (the threads are submitted
+   * a fixed set of tasks that run until server shutdown).
+   */
+  private final ThreadPoolExecutor executor;
+
+  /**
+   * Dispatch statistics (latencies in nanoseconds).
+   */
+  private final LongAdder dispatchCount = new LongAdder();
+  private final LongAdder totalDispatchLatency = new LongAdder();
+  private final AtomicLong maxDispatchLatency = new AtomicLong();
+
+  /**
+   * Shutdown request made.
+   */
+  private volatile boolean shutdownRequestMade = false;
+
+  /**
+   * The listener can only be started and stopped once.
+   */
+  private volatile boolean running = false;
+
+  /**
+   * Constructor using the {@link #DEFAULT_BATCH_SIZE}.
+   *
+   * @see #RingBufferCacheListener(C2monCacheListener, int, int, WaitStrategy, int)
+   */
+  public RingBufferCacheListener(final C2monCacheListener<T> timCacheListener, final int capacity, final int threadPoolSize,
+                                 final WaitStrategy waitStrategy) {
+    this(timCacheListener, capacity, threadPoolSize, waitStrategy, DEFAULT_BATCH_SIZE);
+  }
+
+  /**
+   * Constructor.
+   * @param timCacheListener the listener wrapped by this class
+   *        (the module listener)
+   * @param capacity the capacity of the ring, rounded up to the next
+   *        power of 2
+   * @param threadPoolSize the number of threads that the module
+   *        should be called on
+   * @param waitStrategy how threads wait on an empty or full ring
+   * @param batchSize maximum number of notifications a listener thread
+   *        takes from the ring at once
+   */
+  public RingBufferCacheListener(final C2monCacheListener<T> timCacheListener, final int capacity, final int threadPoolSize,
+                                 final WaitStrategy waitStrategy, final int batchSize) {
+    super();
+    if (capacity < 1 || capacity > MAX_CAPACITY) {
+      throw new IllegalArgumentException("Ring buffer capacity must be between 1 and " + MAX_CAPACITY + " (was " + capacity + ")");
+    }
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("Ring buffer batch size must be positive (was " + batchSize + ")");
+    }
+    this.c2monCacheListener = timCacheListener;
+    this.waitStrategy = waitStrategy;
+    this.batchSize = batchSize;
+
+    int ringSize = Integer.highestOneBit(capacity);
+    if (ringSize < capacity) {
+      ringSize <<= 1;
+    }
+    this.mask = ringSize - 1;
+    this.entries = new Object[ringSize];
+    this.statusConfirmations = new boolean[ringSize];
+    this.publishTimes = new long[ringSize];
+    this.sequences = new AtomicLongArray(ringSize);
+    for (int i = 0; i < ringSize; i++) {
+      sequences.set(i, i);
+    }
+
+    executor = new ThreadPoolExecutor(threadPoolSize, threadPoolSize, Long.MAX_VALUE, TimeUnit.NANOSECONDS, new SynchronousQueue<Runnable>());
+    for (int i = 0; i < threadPoolSize; i++) {
+      executor.submit(new NotifyTask());
+    }
+  }
+
+  @Override
+  public void confirmStatus(final T cacheable) {
+    publish(cacheable, true);
+  }
+
+  @Override
+  public void notifyElementUpdated(final T cacheable) {
+    publish(cacheable, false);
+  }
+
+  /**
+   * Puts the notification in the ring, waiting if the ring is full.
+   */
+  private void publish(final T cacheable, final boolean statusConfirmation) {
+    if (shutdownRequestMade) {
+      log.warn("Attempt at notifying of element update after shutdown started "
+          + "- should not happen and indicates incorrect shutdown sequence!");
+      return;
+    }
+    int attempt = 0;
+    while (!offer(cacheable, statusConfirmation)) {
+      try {
+        waitFor(attempt, notFull, waitingProducers, this::hasFreeSlot);
+        attempt = Math.min(attempt + 1, SPIN_TRIES);
+      } catch (InterruptedException interEx) {
+        log.error("InterruptedException caught while waiting for RingBufferCacheListener to free space: ", interEx);
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+    if (waitingConsumers.get() > 0) {
+      signal(notEmpty);
+    }
+  }
+
+  /**
+   * Claims the next free slot and publishes the notification in it.
+   *
+   * @return false if the ring is full
+   */
+  private boolean offer(final T cacheable, final boolean statusConfirmation) {
+    long position = producerPosition.get();
+    while (true) {
+      int index = (int) position & mask;
+      long difference = sequences.get(index) - position;
+      if (difference == 0) {
+        if (producerPosition.compareAndSet(position, position + 1)) {
+          entries[index] = cacheable;
+          statusConfirmations[index] = statusConfirmation;
+          publishTimes[index] = System.nanoTime();
+          sequences.set(index, position + 1);
+          return true;
+        }
+      } else if (difference < 0) {
+        return false;
+      }
+      position = producerPosition.get();
+    }
+  }
+
+  /**
+   * Takes up to {@code batchSize} published notifications from the ring.
+   *
+   * @return the number of notifications copied into the batch arrays
+   */
+  private int drain(final Object[] items, final boolean[] confirmations, final long[] times) {
+    int count = 0;
+    while (count < batchSize) {
+      long position = consumerPosition.get();
+      int index = (int) position & mask;
+      long difference = sequences.get(index) - (position + 1);
+      if (difference == 0) {
+        if (consumerPosition.compareAndSet(position, position + 1)) {
+          items[count] = entries[index];
+          confirmations[count] = statusConfirmations[index];
+          times[count] = publishTimes[index];
+          entries[index] = null;
+          sequences.set(index, position + mask + 1);
+          count++;
+        }
+      } else if (difference < 0) {
+        break;
+      }
+    }
+    if (count > 0 && waitingProducers.get() > 0) {
+      signal(notFull);
+    }
+    return count;
+  }
+
+  /**
+   * @return true if the slot at the producer position is free
+   */
+  private boolean hasFreeSlot() {
+    long position = producerPosition.get();
+    return sequences.get((int) position & mask) - position >= 0;
+  }
+
+  /**
+   * @return true if the slot at the consumer position holds a notification
+   */
+  private boolean hasPublished() {
+    long position = consumerPosition.get();
+    return sequences.get((int) position & mask) - (position + 1) >= 0;
+  }
+
+  /**
+   * Waits once according to the wait strategy. Callers must re-check the
+   * ring once the method returns.
+   *
+   * @param attempt the number of times the caller already waited in a row
+   * @param condition the condition to wait on (BLOCKING strategy)
+   * @param waiting the counter of threads waiting on the condition
+   * @param ready checked under the lock before blocking, to avoid missing a signal
+   * @throws InterruptedException if interrupted while blocking
+   */
+  private void waitFor(final int attempt, final Condition condition, final AtomicInteger waiting, final BooleanSupplier ready)
+      throws InterruptedException {
+    switch (waitStrategy) {
+      case BLOCKING:
+        lock.lock();
+        try {
+          waiting.incrementAndGet();
+          try {
+            if (!ready.getAsBoolean() && !shutdownRequestMade) {
+              condition.await(MAX_BLOCKING_WAIT, TimeUnit.MILLISECONDS);
+            }
+          } finally {
+            waiting.decrementAndGet();
+          }
+        } finally {
+          lock.unlock();
+        }
+        break;
+      case SLEEPING:
+        if (attempt >= SPIN_TRIES) {
+          LockSupport.parkNanos(SLEEP_NANOS);
+        }
+        break;
+      case YIELDING:
+        if (attempt >= SPIN_TRIES) {
+          Thread.yield();
+        }
+        break;
+      default:
+        break;
+    }
+  }
+
+  private void signal(final Condition condition) {
+    lock.lock();
+    try {
+      condition.signal();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Is running until a shutdown request is made.
+   */
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+
+  /**
+   * Can only be started once at server start-up.
+   */
+  @Override
+  public void start() {
+    running = true;
+  }
+
+  /**
+   * Waits for all notifications to be processed then shuts down the threads.
+   * Should be called when the cache is closed on server shutdown.
+   * Will have no effect if called a second time.
+   */
+  @Override
+  public synchronized void stop() {
+    if (running) {
+      log.debug("Shutting down ring buffer cache listener.");
+      running = false;
+      shutdownRequestMade = true;
+      //wait for the ring to empty
+      while (getQueueDepth() > 0) {
+        try {
+          Thread.sleep(100);
+        } catch (InterruptedException ex) {
+          log.error("Interrupted while waiting for shutdown to complete", ex);
+        }
+      }
+      executor.shutdown();
+      try {
+        executor.awaitTermination(THREAD_SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException ex) {
+        log.error("Interrupted while waiting for shutdown to complete", ex);
+      }
+    }
+  }
+
+  /**
+   * For management purposes.
+   * @return the number of notifications waiting in the ring
+   */
+  public int getQueueDepth() {
+    return (int) Math.max(0, producerPosition.get() - consumerPosition.get());
+  }
+
+  /**
+   * For management purposes. Identical to {@link #getQueueDepth()}.
+   * @return the size of the task queue for this listener
+   */
+  public int getTaskQueueSize() {
+    return getQueueDepth();
+  }
+
+  /**
+   * For management purposes.
+   * @return the capacity of the ring
+   */
+  public int getCapacity() {
+    return mask + 1;
+  }
+
+  /**
+   * For management purposes.
+   * @return the number of active threads of this listener
+   */
+  public int getActiveThreadPoolNumber() {
+    return executor.getActiveCount();
+  }
+
+  /**
+   * For management purposes.
+   * @return the number of notifications passed to the wrapped listener
+   */
+  public long getDispatchCount() {
+    return dispatchCount.sum();
+  }
+
+  /**
+   * For management purposes.
+   * @return the mean time (in microseconds) between the cache notification
+   *         and the call of the wrapped listener
+   */
+  public long getMeanDispatchLatency() {
+    long count = dispatchCount.sum();
+    return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalDispatchLatency.sum() / count);
+  }
+
+  /**
+   * For management purposes.
+   * @return the maximum time (in microseconds) between the cache notification
+   *         and the call of the wrapped listener
+   */
+  public long getMaxDispatchLatency() {
+    return TimeUnit.NANOSECONDS.toMicros(maxDispatchLatency.get());
+  }
+
+  private void recordLatency(final long latency) {
+    dispatchCount.increment();
+    totalDispatchLatency.add(latency);
+    long max = maxDispatchLatency.get();
+    while (latency > max && !maxDispatchLatency.compareAndSet(max, latency)) {
+      max = maxDispatchLatency.get();
+    }
+  }
+
+  /**
+   * The task submitted to the executor threads. One task is submitted per
+   * thread and it runs until the server shutdown, draining the ring in
+   * batches.
+   */
+  private class NotifyTask implements Runnable {
+
+    private final Object[] items = new Object[batchSize];
+    private final boolean[] confirmations = new boolean[batchSize];
+    private final long[] times = new long[batchSize];
+
+    /**
+     * Runs from start up to shutdown and listens for updates.
+     */
+    @Override
+    public void run() {
+      int attempt = 0;
+      while (!shutdownRequestMade) {
+        int count = drain(items, confirmations, times);
+        if (count > 0) {
+          dispatch(count);
+          attempt = 0;
+        } else {
+          try {
+            waitFor(attempt, notEmpty, waitingConsumers, RingBufferCacheListener.this::hasPublished);
+            attempt = Math.min(attempt + 1, SPIN_TRIES);
+          } catch (InterruptedException e) {
+            log.warn("Cache Listener thread interrupted in RingBufferCacheListener.", e);
+          }
+        }
+      }
+
+      //empty the ring before shutting down
+      int count;
+      while ((count = drain(items, confirmations, times)) > 0) {
+        dispatch(count);
+      }
+    }
+
+    /**
+     * Calls the wrapped listener for each notification of the batch.
+     * @param count the number of notifications in the batch
+     */
+    @SuppressWarnings("unchecked")
+    private void dispatch(final int count) {
+      for (int i = 0; i < count; i++) {
+        T cacheable = (T) items[i];
+        items[i] = null;
+        recordLatency(System.nanoTime() - times[i]);
+        try {
+          if (confirmations[i]) {
+            c2monCacheListener.confirmStatus(cacheable);
+          } else {
+            c2monCacheListener.notifyElementUpdated(cacheable);
+          }
+        } catch (Exception e) {
+          log.error("Exception caught when notifying listener: the update could not be processed.", e);
+        }
+      }
+    }
+  }
+}
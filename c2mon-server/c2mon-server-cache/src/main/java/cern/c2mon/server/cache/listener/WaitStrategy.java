@@ -0,0 +1,61 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cache.listener;
+
+/**
+ * Strategies used by the {@link RingBufferCacheListener} threads while
+ * waiting for notifications (consumers on an empty ring) or for free
+ * slots (producers on a full ring).
+ *
+ * <p>The strategies trade latency against CPU usage: BUSY_SPIN has the
+ * lowest latency but burns one core per waiting thread, BLOCKING uses no
+ * CPU while waiting but requires the producers to signal the consumers.
+ */
+public enum WaitStrategy {
+
+  /**
+   * Threads park on a lock condition and are signalled on publication.
+   */
+  BLOCKING,
+
+  /**
+   * Threads spin for a while, then park for a short period.
+   */
+  SLEEPING,
+
+  /**
+   * Threads spin for a while, then yield the CPU.
+   */
+  YIELDING,
+
+  /**
+   * Threads spin continuously.
+   */
+  BUSY_SPIN;
+
+  /**
+   * Returns the strategy with the given name, ignoring the case and
+   * accepting '-' instead of '_' (e.g. "busy-spin").
+   *
+   * @param name the name of the strategy
+   * @return the wait strategy
+   * @throws IllegalArgumentException if the name is unknown
+   */
+  public static WaitStrategy fromName(final String name) {
+    return valueOf(name.trim().toUpperCase().replace('-', '_'));
+  }
+}
@@ -17,6 +17,7 @@
 package cern.c2mon.server.cache.rule;
 
 import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.Properties;
 
 import lombok.extern.slf4j.Slf4j;
@@ -29,6 +30,7 @@ import cern.c2mon.server.cache.AlarmCache;
 import cern.c2mon.server.cache.AlarmFacade;
 import cern.c2mon.server.cache.RuleTagCache;
 import cern.c2mon.server.cache.RuleTagFacade;
+import cern.c2mon.server.cache.RuleTagUpdate;
 import cern.c2mon.server.cache.common.AbstractTagFacade;
 import cern.c2mon.server.cache.exception.CacheElementNotFoundException;
 import cern.c2mon.server.common.rule.RuleTag;
@@ -161,6 +163,17 @@ public class RuleTagFacadeImpl extends AbstractTagFacade<RuleTag> implements Rul
     }
   }
 
+  @Override
+  public void updateAndValidate(final Collection<RuleTagUpdate> updates) {
+    for (RuleTagUpdate update : updates) {
+      try {
+        updateAndValidate(update.getId(), update.getValue(), update.getValueDescription(), update.getTimestamp());
+      } catch (RuntimeException e) {
+        log.warn("Unexpected error while updating rule #{}", update.getId(), e);
+      }
+    }
+  }
+
   /**
    * For rules, sets the rule text field (which in turn parses the rule expression and
    * set the corresponding field). Also sets the parent equipments and processes for this
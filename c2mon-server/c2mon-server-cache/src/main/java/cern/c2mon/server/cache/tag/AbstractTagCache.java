@@ -30,6 +30,8 @@ import cern.c2mon.server.cache.C2monCacheWithSupervision;
 import cern.c2mon.server.cache.CacheSupervisionListener;
 import cern.c2mon.server.cache.ClusterCache;
 import cern.c2mon.server.cache.common.AbstractCache;
+import cern.c2mon.server.cache.common.CopyStrategy;
+import cern.c2mon.server.cache.common.NameIndex;
 import cern.c2mon.server.cache.loading.common.C2monCacheLoader;
 import cern.c2mon.server.cache.loading.SimpleCacheLoaderDAO;
 import cern.c2mon.server.common.tag.AbstractTagCacheObject;
@@ -65,6 +67,12 @@ public abstract class AbstractTagCache<T extends Tag> extends AbstractCache<Long
   private final List<CacheSupervisionListener< ? super T>> listenersWithSupervision;
   private final ReentrantReadWriteLock listenerLock;
 
+  /**
+   * Index of the tags by name, used instead of the Ehcache search when
+   * the cache is indexed.
+   */
+  private final NameIndex<T> nameIndex;
+
   /**
    * Constructor.
    */
@@ -75,8 +83,10 @@ public abstract class AbstractTagCache<T extends Tag> extends AbstractCache<Long
                           final SimpleCacheLoaderDAO<T> cacheLoaderDAO,
                           final CacheProperties properties) {
     super(clusterCache, ehcache, cacheLoader, c2monCacheLoader, cacheLoaderDAO, properties);
+    setCopyStrategy(CopyStrategy.forName(properties.getCopyStrategy()));
     listenersWithSupervision = new ArrayList<>();
     listenerLock = new ReentrantReadWriteLock();
+    nameIndex = addIndex(new NameIndex<>("tagName", Tag::getName));
   }
 
 
@@ -123,6 +133,11 @@ public abstract class AbstractTagCache<T extends Tag> extends AbstractCache<Long
       throw new IllegalArgumentException("Attempting to retrieve a Tag from the cache with a NULL or empty name parameter.");
     }
 
+    if (isIndexed()) {
+      checkIndexes();
+      return !nameIndex.getByName(name).isEmpty();
+    }
+
     // This will prevent wildcard searches
     if (name.contains("*")) {
       name = name.replace("*", "\\*");
@@ -157,6 +172,16 @@ public abstract class AbstractTagCache<T extends Tag> extends AbstractCache<Long
       throw new IllegalArgumentException("Attempting to retrieve a Tag from the cache with a NULL or empty name parameter.");
     }
 
+    if (isIndexed()) {
+      checkIndexes();
+      for (Long key : nameIndex.getByName(name)) {
+        if (hasKey(key)) {
+          return get(key);
+        }
+      }
+      return null;
+    }
+
     // This will prevent wildcard searches
     if (name.contains("*")) {
       name = name.replace("*", "\\*");
@@ -186,8 +211,11 @@ public abstract class AbstractTagCache<T extends Tag> extends AbstractCache<Long
    * A regular expression matcher. '?' and '*' may be used.
    * The search is always case insensitive.
    * <p>
+   * When the cache is indexed, only the names starting with the literal
+   * prefix of the expression are matched.
+   * <p>
    * WARN: Expressions starting with a leading wildcard character are
-   * potentially very expensive (ie. full scan) for indexed caches
+   * potentially very expensive (ie. full scan of the names)
    *
    * @param regex The regular expression including '?' and '*'
    * @param maxResults the maximum amount of results that shall be returned
@@ -216,6 +244,14 @@ public abstract class AbstractTagCache<T extends Tag> extends AbstractCache<Long
         }
       }
     }
+    else if (isIndexed()) {
+      checkIndexes();
+      for (Long key : nameIndex.find(regex, maxResults)) {
+        if (hasKey(key)) {
+          resultList.add(get(key));
+        }
+      }
+    }
     else {
       try {
         Ehcache ehcache = getCache();
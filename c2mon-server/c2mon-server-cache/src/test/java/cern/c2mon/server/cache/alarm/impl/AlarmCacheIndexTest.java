@@ -0,0 +1,109 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cache.alarm.impl;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import cern.c2mon.server.cache.AbstractCacheIntegrationTest;
+import cern.c2mon.server.common.alarm.AlarmCacheObject;
+import cern.c2mon.shared.client.alarm.AlarmQuery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the indexed alarm queries against the alarm cache loaded from the
+ * test DB.
+ */
+public class AlarmCacheIndexTest extends AbstractCacheIntegrationTest {
+
+  @Autowired
+  private AlarmCacheImpl alarmCache;
+
+  @Test
+  public void testOscillatingQueryOnlyReadsOscillatingAlarms() {
+    AlarmCacheObject alarm = (AlarmCacheObject) alarmCache.getCopy(350000L);
+    alarm.setOscillating(false);
+    alarmCache.putQuiet(alarm);
+
+    Set<Long> oscillating = getOscillatingAlarmIds();
+    assertFalse(oscillating.isEmpty());
+    assertTrue(oscillating.size() < alarmCache.getKeys().size());
+
+    AlarmQuery query = AlarmQuery.builder().oscillating(true).build();
+    assertEquals(oscillating, alarmCache.getCandidates(query));
+    assertEquals(oscillating, new HashSet<>(alarmCache.findAlarm(query)));
+  }
+
+  @Test
+  public void testActiveQueryOnlyReadsActiveAlarms() {
+    AlarmQuery query = AlarmQuery.builder().active(true).build();
+    AlarmCacheObject alarm = (AlarmCacheObject) alarmCache.getCopy(350000L);
+    alarm.setActive(true);
+    alarm.setInternalActive(true);
+    alarmCache.putQuiet(alarm);
+
+    Set<Long> active = new HashSet<>();
+    for (Long id : alarmCache.getKeys()) {
+      if (alarmCache.get(id).isActive()) {
+        active.add(id);
+      }
+    }
+    assertTrue(active.contains(350000L));
+    assertEquals(active, alarmCache.getCandidates(query));
+    assertEquals(active, new HashSet<>(alarmCache.findAlarm(query)));
+  }
+
+  /**
+   * The oscillation updater changes the flag on the cache object without
+   * putting it back into the cache.
+   */
+  @Test
+  public void testOscillatingFlagChangedWithoutPut() {
+    Long alarmId = 350000L;
+    AlarmQuery query = AlarmQuery.builder().oscillating(true).build();
+    boolean oscillating = alarmCache.get(alarmId).isOscillating();
+
+    alarmCache.acquireWriteLockOnKey(alarmId);
+    try {
+      AlarmCacheObject alarm = (AlarmCacheObject) alarmCache.get(alarmId);
+      alarm.setOscillating(!oscillating);
+      alarmCache.updateFlagIndexes(alarm);
+    } finally {
+      alarmCache.releaseWriteLockOnKey(alarmId);
+    }
+
+    assertEquals(!oscillating, alarmCache.getCandidates(query).contains(alarmId));
+    assertEquals(!oscillating, alarmCache.findAlarm(query).contains(alarmId));
+    assertEquals(getOscillatingAlarmIds(), alarmCache.getCandidates(query));
+  }
+
+  private Set<Long> getOscillatingAlarmIds() {
+    Set<Long> oscillating = new HashSet<>();
+    for (Long id : alarmCache.getKeys()) {
+      if (alarmCache.get(id).isOscillating()) {
+        oscillating.add(id);
+      }
+    }
+    return oscillating;
+  }
+}
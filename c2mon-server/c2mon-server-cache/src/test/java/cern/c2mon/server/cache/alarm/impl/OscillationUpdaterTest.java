@@ -133,6 +133,7 @@ public class OscillationUpdaterTest {
       dataTagCacheObject.setValue(i % 2);
 
       // Notify the mock object that we expect put() to be called
+      myAlarmCache.updateFlagIndexes(alarmCacheObject);
       if (i <= oscillationProperties.getOscNumbers()) {
         myAlarmCache.put(alarmCacheObject.getId(), alarmCacheObject);
       } else {
@@ -160,6 +161,7 @@ public class OscillationUpdaterTest {
 
       dataTagCacheObject.setValue(i % 2);
       // Notify the mock object that we expect put() to be called
+      myAlarmCache.updateFlagIndexes(alarmCacheObject);
       if (i <= oscillationProperties.getOscNumbers()) {
         myAlarmCache.put(alarmCacheObject.getId(), alarmCacheObject);
       } else {
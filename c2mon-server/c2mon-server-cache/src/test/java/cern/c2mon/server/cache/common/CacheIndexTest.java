@@ -0,0 +1,90 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cache.common;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import cern.c2mon.server.common.datatag.DataTag;
+import cern.c2mon.server.common.datatag.DataTagCacheObject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CacheIndexTest {
+
+  private CacheIndex<DataTag> index;
+
+  @Before
+  public void setUp() {
+    index = new CacheIndex<>("equipmentId", DataTag::getEquipmentId);
+  }
+
+  @Test
+  public void testUpdate() {
+    index.update(createTag(1L, 10L));
+    index.update(createTag(2L, 10L));
+    index.update(createTag(3L, 20L));
+
+    assertEquals(3, index.size());
+    assertEquals(2, index.count(10L));
+    assertTrue(index.get(10L).contains(1L));
+    assertTrue(index.get(10L).contains(2L));
+    assertEquals(1, index.get(20L).size());
+    assertTrue(index.get(30L).isEmpty());
+  }
+
+  @Test
+  public void testUpdateMovesChangedValue() {
+    index.update(createTag(1L, 10L));
+    index.update(createTag(1L, 20L));
+
+    assertEquals(1, index.size());
+    assertEquals(0, index.count(10L));
+    assertTrue(index.get(20L).contains(1L));
+  }
+
+  @Test
+  public void testNullValue() {
+    index.update(createTag(1L, null));
+
+    assertEquals(1, index.count(null));
+    assertTrue(index.get(null).contains(1L));
+  }
+
+  @Test
+  public void testRemove() {
+    index.update(createTag(1L, 10L));
+    index.update(createTag(2L, 10L));
+    index.remove(1L);
+    index.remove(5L);
+
+    assertEquals(1, index.size());
+    assertEquals(1, index.count(10L));
+    assertTrue(index.get(10L).contains(2L));
+
+    index.clear();
+    assertEquals(0, index.size());
+    assertTrue(index.getIds().isEmpty());
+  }
+
+  private static DataTag createTag(Long id, Long equipmentId) {
+    DataTagCacheObject tag = new DataTagCacheObject(id);
+    tag.setEquipmentId(equipmentId);
+    return tag;
+  }
+}
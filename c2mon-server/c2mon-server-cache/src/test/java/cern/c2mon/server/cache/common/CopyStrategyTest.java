@@ -0,0 +1,105 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cache.common;
+
+import java.sql.Timestamp;
+
+import org.junit.Test;
+
+import cern.c2mon.server.common.alarm.AlarmCacheObject;
+import cern.c2mon.server.common.datatag.DataTagCacheObject;
+import cern.c2mon.server.test.CacheObjectComparison;
+import cern.c2mon.server.test.CacheObjectCreation;
+import cern.c2mon.shared.common.datatag.TagQualityStatus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test of the {@link CopyStrategy} implementations.
+ */
+public class CopyStrategyTest {
+
+  @Test
+  public void testForName() {
+    assertTrue(CopyStrategy.forName(null) instanceof SerializationCopyStrategy);
+    assertTrue(CopyStrategy.forName("serialization") instanceof SerializationCopyStrategy);
+    assertTrue(CopyStrategy.forName("CLONE") instanceof CloneCopyStrategy);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testForUnknownName() {
+    CopyStrategy.forName("kryo");
+  }
+
+  @Test
+  public void testSerializationCopyOfDataTag() {
+    testDataTagCopy(new SerializationCopyStrategy<>());
+  }
+
+  @Test
+  public void testCloneCopyOfDataTag() {
+    testDataTagCopy(new CloneCopyStrategy<>());
+  }
+
+  @Test
+  public void testCloneCopyOfAlarm() {
+    AlarmCacheObject original = CacheObjectCreation.createTestAlarm1();
+    original.getMetadata().addMetadata("location", "864");
+
+    AlarmCacheObject copy = new CloneCopyStrategy<AlarmCacheObject>().copy(original);
+    assertNotSame(original, copy);
+    assertEquals(original.getCondition(), copy.getCondition());
+    assertNotSame(original.getCondition(), copy.getCondition());
+    assertEquals(original.getMetadata(), copy.getMetadata());
+
+    original.getMetadata().addMetadata("building", "2");
+    original.getTimestamp().setTime(0);
+    assertEquals(1, copy.getMetadata().getMetadata().size());
+    assertTrue(copy.getTimestamp().getTime() != 0);
+  }
+
+  /**
+   * Checks the copy is equal to the original and does not share any state
+   * modified in place by the cache.
+   */
+  private void testDataTagCopy(CopyStrategy<DataTagCacheObject> strategy) {
+    DataTagCacheObject original = CacheObjectCreation.createTestDataTag();
+    original.getMetadata().addMetadata("responsible", "operator");
+
+    DataTagCacheObject copy = strategy.copy(original);
+    assertNotSame(original, copy);
+    CacheObjectComparison.equals(original, copy);
+    assertEquals(original.getMetadata(), copy.getMetadata());
+
+    long time = original.getDaqTimestamp().getTime();
+    original.setDaqTimestamp(new Timestamp(time + 1000));
+    original.setSourceTimestamp(new Timestamp(time + 1000));
+    original.setCacheTimestamp(new Timestamp(time + 1000));
+    original.addRuleId(200L);
+    original.getMetadata().addMetadata("building", "2");
+    original.getDataTagQuality().addInvalidStatus(TagQualityStatus.INACCESSIBLE);
+
+    assertEquals(time, copy.getDaqTimestamp().getTime());
+    assertTrue(copy.getSourceTimestamp().getTime() != time + 1000);
+    assertTrue(copy.getCacheTimestamp().getTime() != time + 1000);
+    assertEquals(1, copy.getRuleIds().size());
+    assertEquals(1, copy.getMetadata().getMetadata().size());
+    assertTrue(copy.getDataTagQuality().isValid());
+  }
+}
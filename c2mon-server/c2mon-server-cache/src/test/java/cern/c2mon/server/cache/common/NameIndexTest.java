@@ -0,0 +1,98 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cache.common;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import cern.c2mon.server.common.datatag.DataTag;
+import cern.c2mon.server.common.datatag.DataTagCacheObject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class NameIndexTest {
+
+  private NameIndex<DataTag> index;
+
+  @Before
+  public void setUp() {
+    index = new NameIndex<>("tagName", DataTag::getName);
+    index.update(createTag(1L, "CP.B.SEC1.STATUS"));
+    index.update(createTag(2L, "CP.B.SEC2.STATUS"));
+    index.update(createTag(3L, "cp.b.sec2.alarm"));
+    index.update(createTag(4L, "CP.C.SEC1.STATUS"));
+    index.update(createTag(5L, "TAG*NAME"));
+  }
+
+  @Test
+  public void testGetByName() {
+    assertTrue(index.getByName("cp.b.sec1.status").contains(1L));
+    assertTrue(index.getByName("CP.B.SEC2.ALARM").contains(3L));
+    assertTrue(index.getByName("CP.B.SEC3.STATUS").isEmpty());
+  }
+
+  @Test
+  public void testFindByPrefix() {
+    assertEquals(Arrays.asList(1L, 3L, 2L), index.find("CP.B.*", 100));
+    assertEquals(Arrays.asList(1L, 3L), index.find("cp.b.*", 2));
+  }
+
+  @Test
+  public void testFindWithWildcards() {
+    assertEquals(new HashSet<>(Arrays.asList(1L, 2L, 4L)), new HashSet<>(index.find("*.STATUS", 100)));
+    assertEquals(Arrays.asList(1L, 2L), index.find("CP.B.SEC?.STATUS", 100));
+    assertEquals(Arrays.asList(4L), index.find("CP.C.SEC1.STATUS", 100));
+    assertTrue(index.find("CP.B.SEC??.STATUS", 100).isEmpty());
+  }
+
+  @Test
+  public void testFindEscapedWildcard() {
+    assertEquals(Arrays.asList(5L), index.find("tag\\*name", 100));
+    assertEquals(Arrays.asList(5L), index.find("TAG\\**", 100));
+    assertTrue(index.find("TAG\\?NAME", 100).isEmpty());
+  }
+
+  @Test
+  public void testRenameAndRemove() {
+    index.update(createTag(1L, "CP.D.SEC1.STATUS"));
+    index.remove(2L);
+
+    List<Long> ids = index.find("CP.B.*", 100);
+    assertEquals(Arrays.asList(3L), ids);
+    assertFalse(index.getByName("CP.D.SEC1.STATUS").isEmpty());
+  }
+
+  @Test
+  public void testWildcardDetection() {
+    assertTrue(NameIndex.isWildcard("CP.*"));
+    assertTrue(NameIndex.isWildcard("CP.?"));
+    assertFalse(NameIndex.isWildcard("CP.\\*"));
+    assertTrue(NameIndex.compileWildcard("a*b?c").matcher("AxxBxC").matches());
+  }
+
+  private static DataTag createTag(Long id, String name) {
+    DataTagCacheObject tag = new DataTagCacheObject(id);
+    tag.setName(name);
+    return tag;
+  }
+}
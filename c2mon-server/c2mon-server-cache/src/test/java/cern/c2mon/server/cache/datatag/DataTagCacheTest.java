@@ -30,8 +30,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.annotation.DirtiesContext;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 import static org.junit.Assert.*;
 
@@ -133,6 +136,36 @@ public class DataTagCacheTest extends AbstractCacheIntegrationTest {
     CacheObjectComparison.equals(cacheObject, objectInDb);
   }
   
+  /**
+   * The (sub-)equipment lookups must return the same tags as a scan of the
+   * cache, also after a tag has been moved to another equipment.
+   */
+  @Test
+  public void testGetDataTagIdsByEquipmentId() {
+    DataTag tag = dataTagCache.getCopy(200002L);
+    Long equipmentId = tag.getEquipmentId();
+    assertEquals(scanByEquipmentId(equipmentId), new HashSet<>(dataTagCache.getDataTagIdsByEquipmentId(equipmentId)));
+    assertTrue(dataTagCache.getDataTagIdsByEquipmentId(equipmentId).contains(200002L));
+
+    Long otherEquipmentId = equipmentId + 1000000L;
+    ((DataTagCacheObject) tag).setEquipmentId(otherEquipmentId);
+    dataTagCache.putQuiet(tag);
+
+    assertFalse(dataTagCache.getDataTagIdsByEquipmentId(equipmentId).contains(200002L));
+    assertEquals(scanByEquipmentId(equipmentId), new HashSet<>(dataTagCache.getDataTagIdsByEquipmentId(equipmentId)));
+    assertEquals(Collections.singletonList(200002L), dataTagCache.getDataTagIdsByEquipmentId(otherEquipmentId));
+  }
+
+  private Set<Long> scanByEquipmentId(Long equipmentId) {
+    Set<Long> tagIds = new HashSet<>();
+    for (Long id : dataTagCache.getKeys()) {
+      if (equipmentId.equals(dataTagCache.get(id).getEquipmentId())) {
+        tagIds.add(id);
+      }
+    }
+    return tagIds;
+  }
+
   @Test
   public void testGetTagByName() {
     Assert.assertNull(dataTagCache.get("does not exist"));
@@ -0,0 +1,245 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cache.listener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import cern.c2mon.server.cache.C2monBufferedCacheListener;
+import cern.c2mon.shared.common.Cacheable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test of the AbstractBufferedCacheListener class
+ * (so no Spring context).
+ */
+public class BufferedCacheListenerTest {
+
+  /**
+   * Long enough for the buffer to be only flushed when full or stopped.
+   */
+  private static final int FREQUENCY = 60000;
+
+  /**
+   * Class to test.
+   */
+  private AbstractBufferedCacheListener<TestCacheable, ?> bufferedListener;
+
+  @After
+  public void shutdown() {
+    bufferedListener.stop();
+  }
+
+  /**
+   * Without coalescing every notification is passed on in order.
+   */
+  @Test
+  public void testKeepAll() {
+    TestListener<TestCacheable> listener = new TestListener<>();
+    bufferedListener = new DefaultBufferedCacheListener<>(listener, FREQUENCY);
+    bufferedListener.start();
+
+    bufferedListener.notifyElementUpdated(new TestCacheable(1L, 0));
+    bufferedListener.notifyElementUpdated(new TestCacheable(2L, 0));
+    bufferedListener.notifyElementUpdated(new TestCacheable(1L, 1));
+    assertEquals(3, bufferedListener.getQueueSize());
+    bufferedListener.stop();
+
+    assertEquals(3, listener.received.size());
+    assertEquals(1, listener.received.get(2).version);
+  }
+
+  /**
+   * A key is passed at most once per flush.
+   */
+  @Test
+  public void testKeysAreCoalesced() {
+    TestListener<Long> listener = new TestListener<>();
+    bufferedListener = new BufferedKeyCacheListener<>(listener, FREQUENCY, 1);
+    bufferedListener.start();
+
+    bufferedListener.notifyElementUpdated(new TestCacheable(1L, 0));
+    bufferedListener.notifyElementUpdated(new TestCacheable(2L, 0));
+    bufferedListener.notifyElementUpdated(new TestCacheable(1L, 1));
+    bufferedListener.notifyElementUpdated(new TestCacheable(1L, 2));
+    assertEquals(2, bufferedListener.getQueueSize());
+    bufferedListener.stop();
+
+    assertEquals(Long.valueOf(1L), listener.received.get(0));
+    assertEquals(Long.valueOf(2L), listener.received.get(1));
+    assertEquals(2, listener.received.size());
+    assertEquals(2, bufferedListener.getCoalescedCount());
+  }
+
+  /**
+   * Coalesced cache objects are passed on in their latest version.
+   */
+  @Test
+  public void testLastValueWins() {
+    TestListener<TestCacheable> listener = new TestListener<>();
+    bufferedListener = new DefaultBufferedCacheListener<>(listener, FREQUENCY, 0, OverflowPolicy.FLUSH, 1, true);
+    bufferedListener.start();
+
+    bufferedListener.notifyElementUpdated(new TestCacheable(1L, 0));
+    bufferedListener.notifyElementUpdated(new TestCacheable(1L, 1));
+    bufferedListener.stop();
+
+    assertEquals(1, listener.received.size());
+    assertEquals(1, listener.received.get(0).version);
+  }
+
+  /**
+   * Notifications arriving while the buffer is full are dropped.
+   */
+  @Test
+  public void testDiscardWhenFull() throws InterruptedException {
+    TestListener<TestCacheable> listener = new TestListener<>();
+    listener.block();
+    bufferedListener = new DefaultBufferedCacheListener<>(listener, FREQUENCY, 4, OverflowPolicy.DISCARD, 1, false);
+    bufferedListener.start();
+
+    // half full: the flush thread is woken up and blocks in the listener
+    bufferedListener.notifyElementUpdated(new TestCacheable(1L, 0));
+    bufferedListener.notifyElementUpdated(new TestCacheable(2L, 0));
+    assertTrue(listener.called.await(5, TimeUnit.SECONDS));
+
+    int free = 4 - bufferedListener.getQueueSize();
+    for (long id = 0; id < free + 3; id++) {
+      bufferedListener.notifyElementUpdated(new TestCacheable(10L + id, 0));
+    }
+    assertEquals(4, bufferedListener.getQueueSize());
+    assertEquals(3, bufferedListener.getDiscardedCount());
+    listener.release();
+  }
+
+  /**
+   * The cache thread never waits for the listener: a full buffer keeps the
+   * notifications beyond its capacity until the listener has caught up,
+   * without losing any.
+   */
+  @Test
+  public void testFlushWhenFull() throws InterruptedException {
+    TestListener<TestCacheable> listener = new TestListener<>();
+    listener.block();
+    bufferedListener = new DefaultBufferedCacheListener<>(listener, FREQUENCY, 2, OverflowPolicy.FLUSH, 1, false);
+    bufferedListener.start();
+
+    bufferedListener.notifyElementUpdated(new TestCacheable(1L, 0));
+    assertTrue(listener.called.await(5, TimeUnit.SECONDS));
+
+    for (long id = 2; id <= 6; id++) {
+      bufferedListener.notifyElementUpdated(new TestCacheable(id, 0));
+    }
+    assertEquals(5, bufferedListener.getQueueSize());
+
+    listener.release();
+    bufferedListener.stop();
+    assertEquals(6, listener.received.size());
+    assertEquals(0, bufferedListener.getDiscardedCount());
+  }
+
+  /**
+   * All buffered notifications are passed on in one flush, in batches
+   * processed by several threads.
+   */
+  @Test
+  public void testParallelFlush() {
+    TestListener<TestCacheable> listener = new TestListener<>();
+    bufferedListener = new DefaultBufferedCacheListener<>(listener, FREQUENCY, 0, OverflowPolicy.FLUSH, 4, false);
+    bufferedListener.start();
+
+    for (long id = 0; id < 50000; id++) {
+      bufferedListener.notifyElementUpdated(new TestCacheable(id, 0));
+    }
+    bufferedListener.stop();
+
+    assertEquals(50000, listener.received.size());
+    assertEquals(0, bufferedListener.getQueueSize());
+    assertTrue(listener.batches >= 3);
+  }
+
+  private static class TestListener<S> implements C2monBufferedCacheListener<S> {
+
+    private final List<S> received = Collections.synchronizedList(new ArrayList<>());
+
+    private final CountDownLatch called = new CountDownLatch(1);
+
+    private CountDownLatch released = new CountDownLatch(0);
+
+    private volatile int batches;
+
+    void block() {
+      released = new CountDownLatch(1);
+    }
+
+    void release() {
+      released.countDown();
+    }
+
+    @Override
+    public synchronized void notifyElementUpdated(final Collection<S> collection) {
+      called.countDown();
+      try {
+        released.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      received.addAll(collection);
+      batches++;
+    }
+
+    @Override
+    public void confirmStatus(final Collection<S> eventCollection) {
+      notifyElementUpdated(eventCollection);
+    }
+
+    @Override
+    public String getThreadName() {
+      return "BufferedCacheListenerTest";
+    }
+  }
+
+  private static class TestCacheable implements Cacheable {
+
+    private final Long id;
+    private final int version;
+
+    TestCacheable(final Long id, final int version) {
+      this.id = id;
+      this.version = version;
+    }
+
+    @Override
+    public Long getId() {
+      return id;
+    }
+
+    @Override
+    public TestCacheable clone() {
+      return this;
+    }
+  }
+}
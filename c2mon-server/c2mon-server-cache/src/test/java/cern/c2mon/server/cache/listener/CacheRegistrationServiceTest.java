@@ -17,6 +17,7 @@
 package cern.c2mon.server.cache.listener;
 
 import cern.c2mon.server.cache.*;
+import cern.c2mon.server.cache.config.CacheProperties;
 import cern.c2mon.server.common.component.Lifecycle;
 import cern.c2mon.server.common.control.ControlTag;
 import cern.c2mon.server.common.datatag.DataTag;
@@ -72,6 +73,9 @@ public class CacheRegistrationServiceTest extends AbstractCacheIntegrationTest {
   @Resource
   private DataTagFacade dataTagFacade;
 
+  @Resource
+  private CacheProperties cacheProperties;
+
   private DataTag dataTag;
   
   private ControlTag controlTag;
@@ -146,8 +150,24 @@ public class CacheRegistrationServiceTest extends AbstractCacheIntegrationTest {
   public void testRegisterOnMultipleThreads() throws InterruptedException {
     commonRegisterTest(3);
   }
+
+  /**
+   * Same as testRegisterOnMultipleThreads() with the key affinity backend.
+   *
+   * @throws InterruptedException
+   */
+  @Test
+  @DirtiesContext
+  public void testRegisterOnKeyAffinityThreads() throws InterruptedException {
+    cacheProperties.setThreadedListenerBackend("keyaffinity");
+    try {
+      assertTrue(commonRegisterTest(3) instanceof KeyAffinityCacheListener);
+    } finally {
+      cacheProperties.setThreadedListenerBackend("queue");
+    }
+  }
   
-  private void commonRegisterTest(int threads) throws InterruptedException {
+  private Lifecycle commonRegisterTest(int threads) throws InterruptedException {
   //set up listener
     OutputTestListener testListener = new OutputTestListener();
     Lifecycle listenerContainer = cacheRegistrationService.registerToAllTags(testListener, threads);
@@ -182,7 +202,7 @@ public class CacheRegistrationServiceTest extends AbstractCacheIntegrationTest {
     assertEquals(controlTagFromCache.getValue(), Long.valueOf(100)); //check is indeed 100
     assertEquals(controlTag.getId(), testListener.receivedId);
     listenerContainer.stop();
-    
+    return listenerContainer;
   }
   
   public class OutputTestListener implements C2monCacheListener<Tag> {
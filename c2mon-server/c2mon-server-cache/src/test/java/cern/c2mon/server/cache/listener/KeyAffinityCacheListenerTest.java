@@ -0,0 +1,213 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cache.listener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import cern.c2mon.server.cache.C2monCacheListener;
+import cern.c2mon.shared.common.Cacheable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test of the KeyAffinityCacheListener class
+ * (so no Spring context).
+ */
+public class KeyAffinityCacheListenerTest {
+
+  /**
+   * Class to test.
+   */
+  private KeyAffinityCacheListener<TestCacheable> keyAffinityListener;
+
+  @After
+  public void shutdown() {
+    keyAffinityListener.start();
+    keyAffinityListener.stop();
+  }
+
+  /**
+   * Updates of each id must reach the listener in order.
+   */
+  @Test
+  public void testOrderPerKey() throws InterruptedException {
+    final int ids = 20;
+    final int updates = 500;
+    final ConcurrentHashMap<Long, List<Integer>> received = new ConcurrentHashMap<>();
+    final CountDownLatch lastUpdates = new CountDownLatch(ids);
+    keyAffinityListener = new KeyAffinityCacheListener<>(new C2monCacheListener<TestCacheable>() {
+      @Override
+      public void notifyElementUpdated(final TestCacheable cacheable) {
+        received.computeIfAbsent(cacheable.getId(), id -> Collections.synchronizedList(new ArrayList<>())).add(cacheable.version);
+        if (cacheable.version == updates - 1) {
+          lastUpdates.countDown();
+        }
+      }
+
+      @Override
+      public void confirmStatus(final TestCacheable cacheable) {
+        notifyElementUpdated(cacheable);
+      }
+    }, 8, 4);
+
+    for (int version = 0; version < updates; version++) {
+      for (long id = 0; id < ids; id++) {
+        keyAffinityListener.notifyElementUpdated(new TestCacheable(id, version));
+      }
+    }
+    assertTrue(lastUpdates.await(10, TimeUnit.SECONDS));
+    for (List<Integer> versions : received.values()) {
+      for (int i = 1; i < versions.size(); i++) {
+        assertTrue(versions.get(i - 1) < versions.get(i));
+      }
+    }
+  }
+
+  /**
+   * Updates made while the listener is busy with the same id are collapsed
+   * into the latest one.
+   */
+  @Test
+  public void testCoalescing() throws InterruptedException {
+    final CountDownLatch firstCallStarted = new CountDownLatch(1);
+    final CountDownLatch releaseListener = new CountDownLatch(1);
+    final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+    final CountDownLatch done = new CountDownLatch(2);
+    keyAffinityListener = new KeyAffinityCacheListener<>(new C2monCacheListener<TestCacheable>() {
+      @Override
+      public void notifyElementUpdated(final TestCacheable cacheable) {
+        calls.add("update-" + cacheable.version);
+        firstCallStarted.countDown();
+        try {
+          releaseListener.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        done.countDown();
+      }
+
+      @Override
+      public void confirmStatus(final TestCacheable cacheable) {
+        calls.add("confirm-" + cacheable.version);
+        done.countDown();
+      }
+    }, 10, 1);
+
+    keyAffinityListener.notifyElementUpdated(new TestCacheable(1L, 0));
+    assertTrue(firstCallStarted.await(5, TimeUnit.SECONDS));
+    keyAffinityListener.notifyElementUpdated(new TestCacheable(1L, 1));
+    keyAffinityListener.confirmStatus(new TestCacheable(1L, 2));
+    keyAffinityListener.notifyElementUpdated(new TestCacheable(1L, 3));
+    assertEquals(1, keyAffinityListener.getTaskQueueSize());
+    releaseListener.countDown();
+
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+    assertEquals(2, calls.size());
+    assertEquals("update-0", calls.get(0));
+    assertEquals("update-3", calls.get(1));
+    assertEquals(2, keyAffinityListener.getCoalescedCount());
+  }
+
+  /**
+   * A status confirmation replacing another one is still passed on as
+   * a confirmation.
+   */
+  @Test
+  public void testConfirmationsCoalescedAsConfirmation() throws InterruptedException {
+    final CountDownLatch releaseListener = new CountDownLatch(1);
+    final CountDownLatch done = new CountDownLatch(1);
+    final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+    keyAffinityListener = new KeyAffinityCacheListener<>(new C2monCacheListener<TestCacheable>() {
+      @Override
+      public void notifyElementUpdated(final TestCacheable cacheable) {
+        try {
+          releaseListener.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+
+      @Override
+      public void confirmStatus(final TestCacheable cacheable) {
+        calls.add("confirm-" + cacheable.version);
+        done.countDown();
+      }
+    }, 10, 1);
+
+    keyAffinityListener.notifyElementUpdated(new TestCacheable(1L, 0));
+    keyAffinityListener.confirmStatus(new TestCacheable(2L, 1));
+    keyAffinityListener.confirmStatus(new TestCacheable(2L, 2));
+    releaseListener.countDown();
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+    assertEquals(1, calls.size());
+    assertEquals("confirm-2", calls.get(0));
+  }
+
+  @Test
+  public void testStopDrainsLanes() {
+    final List<Long> received = Collections.synchronizedList(new ArrayList<>());
+    keyAffinityListener = new KeyAffinityCacheListener<>(new C2monCacheListener<TestCacheable>() {
+      @Override
+      public void notifyElementUpdated(final TestCacheable cacheable) {
+        received.add(cacheable.getId());
+      }
+
+      @Override
+      public void confirmStatus(final TestCacheable cacheable) {
+        notifyElementUpdated(cacheable);
+      }
+    }, 1000, 2);
+    keyAffinityListener.start();
+    for (long id = 0; id < 100; id++) {
+      keyAffinityListener.notifyElementUpdated(new TestCacheable(id, 0));
+    }
+    keyAffinityListener.stop();
+    assertEquals(100, received.size());
+    assertFalse(keyAffinityListener.isRunning());
+  }
+
+  private static class TestCacheable implements Cacheable {
+
+    private final Long id;
+    private final int version;
+
+    TestCacheable(final Long id, final int version) {
+      this.id = id;
+      this.version = version;
+    }
+
+    @Override
+    public Long getId() {
+      return id;
+    }
+
+    @Override
+    public TestCacheable clone() {
+      return this;
+    }
+  }
+}
@@ -0,0 +1,161 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cache.listener;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import cern.c2mon.server.cache.C2monCacheListener;
+import cern.c2mon.shared.common.Cacheable;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test of the RingBufferCacheListener class
+ * (so no Spring context).
+ */
+public class RingBufferCacheListenerTest {
+
+  /**
+   * Class to test.
+   */
+  private RingBufferCacheListener ringBufferListener;
+
+  @After
+  public void shutdown() {
+    if (ringBufferListener != null) {
+      ringBufferListener.start();
+      ringBufferListener.stop();
+    }
+  }
+
+  @Test
+  public void testNotification() throws InterruptedException {
+    C2monCacheListener mockTimCacheListener = createMock(C2monCacheListener.class);
+    ringBufferListener = new RingBufferCacheListener(mockTimCacheListener, 4, 2, WaitStrategy.BLOCKING);
+    final Cacheable mockCacheable = createMock(Cacheable.class);
+    final Cacheable mockCacheable2 = createMock(Cacheable.class);
+    CountDownLatch latch = new CountDownLatch(2);
+
+    mockTimCacheListener.notifyElementUpdated(mockCacheable);
+    expectLastCall().andAnswer(() -> {
+      latch.countDown();
+      return null;
+    });
+    mockTimCacheListener.confirmStatus(mockCacheable2);
+    expectLastCall().andAnswer(() -> {
+      latch.countDown();
+      return null;
+    });
+
+    replay(mockCacheable, mockCacheable2, mockTimCacheListener);
+    ringBufferListener.notifyElementUpdated(mockCacheable);
+    ringBufferListener.confirmStatus(mockCacheable2);
+    assertTrue(latch.await(5, TimeUnit.SECONDS));
+    verify(mockTimCacheListener, mockCacheable, mockCacheable2);
+  }
+
+  /**
+   * Many more notifications than slots from several threads, so that the
+   * producers have to wait for the listener threads.
+   */
+  @Test
+  public void testAllStrategiesWithFullRing() throws InterruptedException {
+    for (WaitStrategy waitStrategy : WaitStrategy.values()) {
+      final int producers = 4;
+      final int updates = 500;
+      CountingListener listener = new CountingListener(producers * updates);
+      ringBufferListener = new RingBufferCacheListener(listener, 8, 2, waitStrategy, 4);
+      ringBufferListener.start();
+
+      Thread[] threads = new Thread[producers];
+      for (int i = 0; i < producers; i++) {
+        threads[i] = new Thread(() -> {
+          for (int j = 0; j < updates; j++) {
+            ringBufferListener.notifyElementUpdated(createMock(Cacheable.class));
+          }
+        });
+        threads[i].start();
+      }
+      for (Thread thread : threads) {
+        thread.join();
+      }
+      assertTrue(waitStrategy.name(), listener.latch.await(10, TimeUnit.SECONDS));
+      ringBufferListener.stop();
+      assertEquals(producers * updates, ringBufferListener.getDispatchCount());
+      assertEquals(0, ringBufferListener.getQueueDepth());
+    }
+    ringBufferListener = null;
+  }
+
+  /**
+   * Pending notifications are passed on before the threads are shut down.
+   */
+  @Test
+  public void testStopDrainsRing() throws InterruptedException {
+    CountingListener listener = new CountingListener(100);
+    ringBufferListener = new RingBufferCacheListener(listener, 128, 1, WaitStrategy.SLEEPING);
+    ringBufferListener.start();
+    for (int i = 0; i < 100; i++) {
+      ringBufferListener.notifyElementUpdated(createMock(Cacheable.class));
+    }
+    ringBufferListener.stop();
+    assertEquals(0, listener.latch.getCount());
+    ringBufferListener = null;
+  }
+
+  @Test
+  public void testCapacityRoundedToPowerOfTwo() {
+    ringBufferListener = new RingBufferCacheListener(createMock(C2monCacheListener.class), 1000, 1, WaitStrategy.BLOCKING);
+    assertEquals(1024, ringBufferListener.getCapacity());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidCapacity() {
+    new RingBufferCacheListener(createMock(C2monCacheListener.class), 0, 1, WaitStrategy.BLOCKING);
+  }
+
+  @Test
+  public void testWaitStrategyFromName() {
+    assertEquals(WaitStrategy.BUSY_SPIN, WaitStrategy.fromName("busy-spin"));
+    assertEquals(WaitStrategy.BLOCKING, WaitStrategy.fromName("Blocking"));
+  }
+
+  private static class CountingListener implements C2monCacheListener<Cacheable> {
+
+    private final CountDownLatch latch;
+
+    CountingListener(final int expected) {
+      latch = new CountDownLatch(expected);
+    }
+
+    @Override
+    public void notifyElementUpdated(final Cacheable cacheable) {
+      latch.countDown();
+    }
+
+    @Override
+    public void confirmStatus(final Cacheable cacheable) {
+      latch.countDown();
+    }
+  }
+}
@@ -16,9 +16,13 @@
  *****************************************************************************/
 package cern.c2mon.server.cache.dbaccess;
 
+import java.sql.Timestamp;
 import java.util.List;
 
+import org.apache.ibatis.session.ResultHandler;
+
 import cern.c2mon.server.cache.dbaccess.structure.DBBatch;
+import cern.c2mon.server.cache.dbaccess.structure.DBIdRange;
 import cern.c2mon.shared.common.Cacheable;
 
 /**
@@ -36,4 +40,30 @@ public interface BatchLoaderMapper<T extends Cacheable> extends SimpleLoaderMapp
    * @return the list of records
    */
   List<T> getRowBatch(DBBatch dbBatch);
+
+  /**
+   * Streams the ids of all the records to load, in ascending order.
+   *
+   * @param resultHandler called for each id as it is read from the DB
+   */
+  void getIdStream(ResultHandler<Long> resultHandler);
+
+  /**
+   * Streams the records with ids in the given range, in ascending id order.
+   * Each record is passed to the handler as soon as it is complete, so the
+   * range is never held in memory as a whole.
+   *
+   * @param idRange the range of ids to load
+   * @param resultHandler called for each record as it is read from the DB
+   */
+  void getIdRangeStream(DBIdRange idRange, ResultHandler<T> resultHandler);
+
+  /**
+   * Streams the records that were updated after the given time, in
+   * ascending id order (according to the server timestamp stored in the DB).
+   *
+   * @param since only records updated strictly after this time are returned
+   * @param resultHandler called for each record as it is read from the DB
+   */
+  void getChangedSinceStream(Timestamp since, ResultHandler<T> resultHandler);
 }
@@ -16,7 +16,11 @@
  *****************************************************************************/
 package cern.c2mon.server.cache.loading;
 
+import java.util.Date;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
 
 import cern.c2mon.shared.common.Cacheable;
 
@@ -49,4 +53,48 @@ public interface BatchCacheLoaderDAO<T extends Cacheable> extends SimpleCacheLoa
    */
   Map<Object, T> getBatchAsMap(Long firstRow, Long lastRow);
 
+  /**
+   * Splits the ids of the elements that need loading into consecutive ranges
+   * of at most partitionSize elements, based on the ids actually in the DB
+   * (so sparse or dense id ranges result in evenly sized partitions).
+   *
+   * @param partitionSize the maximum number of elements in a partition
+   * @return the first and last id (inclusive) of each partition, in ascending order
+   */
+  List<long[]> getIdPartitions(int partitionSize);
+
+  /**
+   * Passes all elements with ids between the provided ids to the consumer, as
+   * they are read from the DB (no intermediate collection is built).
+   *
+   * <p>This method also performs post-DB-access logic to the object itself, using
+   * the implemented doPostDbLoading method.
+   *
+   * @param firstId the lowest id to load (inclusive)
+   * @param lastId the highest id to load (inclusive)
+   * @param consumer called with each object ready to load into the cache
+   */
+  void streamBatch(Long firstId, Long lastId, Consumer<T> consumer);
+
+  /**
+   * Passes the ids of all the elements that need loading to the consumer, in
+   * ascending order.
+   *
+   * @param consumer called with each id as it is read from the DB
+   */
+  void streamIds(LongConsumer consumer);
+
+  /**
+   * Passes all elements that were updated in the DB after the given time to
+   * the consumer, as they are read from the DB. Used to bring a cache restored
+   * from a snapshot up to date.
+   *
+   * <p>This method also performs post-DB-access logic to the object itself, using
+   * the implemented doPostDbLoading method.
+   *
+   * @param since only elements updated strictly after this time are passed on
+   * @param consumer called with each object ready to load into the cache
+   */
+  void streamChangedSince(Date since, Consumer<T> consumer);
+
 }
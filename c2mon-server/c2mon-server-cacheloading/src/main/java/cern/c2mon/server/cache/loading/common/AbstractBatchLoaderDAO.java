@@ -16,17 +16,25 @@
  *****************************************************************************/
 package cern.c2mon.server.cache.loading.common;
 
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
 
 import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import cern.c2mon.server.cache.dbaccess.BatchLoaderMapper;
 import cern.c2mon.server.cache.dbaccess.structure.DBBatch;
+import cern.c2mon.server.cache.dbaccess.structure.DBIdRange;
 import cern.c2mon.server.cache.loading.BatchCacheLoaderDAO;
 import cern.c2mon.shared.common.Cacheable;
 
@@ -83,4 +91,91 @@ public abstract class AbstractBatchLoaderDAO<T extends Cacheable> extends Abstra
     return returnMap;
   }
 
+  @Override
+  public List<long[]> getIdPartitions(final int partitionSize) {
+    IdPartitioner partitioner = new IdPartitioner(partitionSize);
+    batchLoaderMapper.getIdStream(partitioner);
+    return partitioner.getPartitions();
+  }
+
+  @Override
+  public void streamBatch(final Long firstId, final Long lastId, final Consumer<T> consumer) {
+    batchLoaderMapper.getIdRangeStream(new DBIdRange(firstId, lastId), context -> {
+      T element = context.getResultObject();
+      if (element != null) {
+        consumer.accept(doPostDbLoading(element));
+      } else {
+        log.warn("Null value retrieved from DB by Mapper {} with firstId:{}, lastId:{}",
+            batchLoaderMapper.getClass().getSimpleName(), firstId, lastId);
+      }
+    });
+  }
+
+  @Override
+  public void streamIds(final LongConsumer consumer) {
+    batchLoaderMapper.getIdStream(context -> {
+      Long id = context.getResultObject();
+      if (id != null) {
+        consumer.accept(id);
+      }
+    });
+  }
+
+  @Override
+  public void streamChangedSince(final Date since, final Consumer<T> consumer) {
+    batchLoaderMapper.getChangedSinceStream(new Timestamp(since.getTime()), context -> {
+      T element = context.getResultObject();
+      if (element != null) {
+        consumer.accept(doPostDbLoading(element));
+      } else {
+        log.warn("Null value retrieved from DB by Mapper {} for changes since {}",
+            batchLoaderMapper.getClass().getSimpleName(), since);
+      }
+    });
+  }
+
+  /**
+   * Groups the ids read from the DB (in ascending order) into partitions of
+   * a given size, only keeping the first and last id of each partition.
+   */
+  private static class IdPartitioner implements ResultHandler<Long> {
+
+    private final int partitionSize;
+
+    private final List<long[]> partitions = new ArrayList<>();
+
+    private long firstId;
+
+    private long lastId;
+
+    private int count = 0;
+
+    IdPartitioner(final int partitionSize) {
+      this.partitionSize = partitionSize;
+    }
+
+    @Override
+    public void handleResult(final ResultContext<? extends Long> context) {
+      Long id = context.getResultObject();
+      if (id == null) {
+        return;
+      }
+      if (count == 0) {
+        firstId = id;
+      }
+      lastId = id;
+      if (++count == partitionSize) {
+        partitions.add(new long[] {firstId, lastId});
+        count = 0;
+      }
+    }
+
+    List<long[]> getPartitions() {
+      if (count > 0) {
+        partitions.add(new long[] {firstId, lastId});
+        count = 0;
+      }
+      return partitions;
+    }
+  }
 }
@@ -16,8 +16,10 @@
  *****************************************************************************/
 package cern.c2mon.server.cache.loading.common;
 
-import java.util.LinkedList;
-import java.util.Map;
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.*;
 import java.util.concurrent.*;
 
 import cern.c2mon.server.cache.loading.BatchCacheLoaderDAO;
@@ -33,6 +35,21 @@ import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
  * Cache loader implementation that loads the cache on multiple threads. The cache
  * must provided a BatchCacheLoaderDAO implementation.
  *
+ * <p>In streaming mode, the ids in the DB are first split into partitions of
+ * batchSize objects. Each partition is then loaded on a separate thread with
+ * a single id range query, putting the objects into the cache as they are
+ * read from the DB.
+ *
+ * <p>If a snapshot file is set, the cache is restored from the last snapshot
+ * (see {@link #writeSnapshot()}) instead and then reconciled with the DB: new
+ * objects are loaded, objects no longer in the DB are removed and all objects
+ * updated in the DB after the snapshot was taken are reloaded. The DB preload
+ * is only used if no valid snapshot is found. Configuration changes do not
+ * update the timestamp of the objects, so the snapshot is deleted whenever a
+ * configuration is applied (see {@link #deleteSnapshot()}). Configuration
+ * changes done directly in the DB while the server is down are not detected;
+ * the maximum age of the snapshot bounds this window.
+ *
  * @param <T> the cache object type
  *
  * @author Mark Brightwell
@@ -72,6 +89,21 @@ public class BatchCacheLoader<T extends Cacheable> implements C2monCacheLoader {
    */
   private final BatchCacheLoaderDAO<T> batchCacheLoaderDAO;
 
+  /**
+   * Streaming mode (see class comment).
+   */
+  private boolean streaming = false;
+
+  /**
+   * Snapshot file used at start up instead of the DB preload (null if disabled).
+   */
+  private File snapshotFile;
+
+  /**
+   * Snapshots older than this are ignored at start up (in milliseconds, 0 for no limit).
+   */
+  private long snapshotMaxAge;
+
   /**
    * Constructor (used in Spring XML to instantiate the loaders
    * for the different caches).
@@ -93,18 +125,29 @@ public class BatchCacheLoader<T extends Cacheable> implements C2monCacheLoader {
 
   @Override
   public void preload() {
+    if (snapshotFile != null && preloadFromSnapshot()) {
+      return;
+    }
     log.debug("preload() - Start preloading data for cache " + cache.getName());
-    Integer lastRow = batchCacheLoaderDAO.getMaxRow(); // 0 if no cache objects!
+    Integer lastRow = streaming ? 0 : batchCacheLoaderDAO.getMaxRow(); // 0 if no cache objects!
 
     cacheLoadingThreadPoolTaskExecutor.setThreadNamePrefix(this.threadNamePrefix);
     cacheLoadingThreadPoolTaskExecutor.initialize();
 
-    Integer firstRow = 0;
     LinkedList<Callable<Object>> tasks = new LinkedList<Callable<Object>>();
-    while (firstRow <= lastRow) {
-      MapLoaderTask mapTask = new MapLoaderTask(firstRow + 1, firstRow + batchSize);
-      tasks.push(mapTask);
-      firstRow += batchSize;
+    if (streaming) {
+      List<long[]> partitions = batchCacheLoaderDAO.getIdPartitions(batchSize);
+      log.debug("preload() - Streaming {} partition(s) of at most {} objects into cache {}", partitions.size(), batchSize, cache.getName());
+      for (long[] partition : partitions) {
+        tasks.push(new StreamLoaderTask(partition[0], partition[1]));
+      }
+    } else {
+      Integer firstRow = 0;
+      while (firstRow <= lastRow) {
+        MapLoaderTask mapTask = new MapLoaderTask(firstRow + 1, firstRow + batchSize);
+        tasks.push(mapTask);
+        firstRow += batchSize;
+      }
     }
     try {
       cacheLoadingThreadPoolTaskExecutor.getThreadPoolExecutor().invokeAll(tasks, 1800, TimeUnit.SECONDS);
@@ -120,6 +163,160 @@ public class BatchCacheLoader<T extends Cacheable> implements C2monCacheLoader {
     log.debug("preload() - Finished preload for cache " + cache.getName());
   }
 
+  /**
+   * Enables the streaming mode (disabled by default).
+   *
+   * @param streaming true to load the partitions of the id range as streams
+   */
+  public void setStreaming(final boolean streaming) {
+    this.streaming = streaming;
+  }
+
+  /**
+   * Enables the snapshot mechanism (see class comment). The snapshot of
+   * the cache is stored in the given directory, in a file named after the
+   * cache.
+   *
+   * @param directory the snapshot directory
+   * @param maxAge snapshots older than this are ignored at start up (in milliseconds, 0 for no limit)
+   */
+  public void setSnapshot(final File directory, final long maxAge) {
+    this.snapshotFile = new File(directory, cache.getName() + ".snapshot");
+    this.snapshotMaxAge = maxAge;
+  }
+
+  /**
+   * @return the snapshot file of this cache, or null if snapshots are disabled
+   */
+  public File getSnapshotFile() {
+    return snapshotFile;
+  }
+
+  /**
+   * Writes a snapshot of the current content of the cache, replacing the
+   * previous snapshot once complete. Each object is serialized while holding
+   * the read lock on its key.
+   *
+   * @return the number of objects in the snapshot
+   * @throws IOException if the snapshot can not be written
+   * @throws IllegalStateException if snapshots are not enabled for this cache
+   */
+  public synchronized int writeSnapshot() throws IOException {
+    if (snapshotFile == null) {
+      throw new IllegalStateException("Snapshots are not enabled for cache " + cache.getName());
+    }
+    long start = System.currentTimeMillis();
+    try (CacheSnapshotFile.Writer writer = CacheSnapshotFile.openWriter(snapshotFile, cache.getName(), start)) {
+      for (Object key : cache.getKeys()) {
+        cache.acquireReadLockOnKey(key);
+        try {
+          Element element = cache.getQuiet(key);
+          if (element != null) {
+            writer.write((Serializable) element.getObjectValue());
+          }
+        } finally {
+          cache.releaseReadLockOnKey(key);
+        }
+      }
+      writer.commit();
+      log.info("Wrote snapshot of {} objects of cache {} to {} in {}ms", writer.getCount(), cache.getName(),
+          snapshotFile, System.currentTimeMillis() - start);
+      return writer.getCount();
+    }
+  }
+
+  /**
+   * Deletes the snapshot of this cache, so the next start up preloads the
+   * cache from the DB unless a new snapshot has been written in between.
+   * Waits for a snapshot being written to complete before deleting it.
+   *
+   * @return true if a snapshot has been deleted
+   * @throws IllegalStateException if snapshots are not enabled for this cache
+   */
+  public synchronized boolean deleteSnapshot() {
+    if (snapshotFile == null) {
+      throw new IllegalStateException("Snapshots are not enabled for cache " + cache.getName());
+    }
+    if (snapshotFile.delete()) {
+      log.debug("Deleted snapshot {} of cache {}", snapshotFile, cache.getName());
+      return true;
+    }
+    if (snapshotFile.exists()) {
+      log.error("Unable to delete snapshot {} of cache {}", snapshotFile, cache.getName());
+    }
+    return false;
+  }
+
+  /**
+   * Loads the cache from the snapshot file and reconciles it with the DB.
+   *
+   * @return false if no valid snapshot was found, in which case the cache is left empty
+   */
+  private boolean preloadFromSnapshot() {
+    if (!snapshotFile.exists()) {
+      log.info("No snapshot found for cache {} in {}, preloading from DB", cache.getName(), snapshotFile);
+      return false;
+    }
+    long age = System.currentTimeMillis() - snapshotFile.lastModified();
+    if (snapshotMaxAge > 0 && age > snapshotMaxAge) {
+      log.info("Snapshot {} of cache {} is too old ({}ms), preloading from DB", snapshotFile, cache.getName(), age);
+      return false;
+    }
+
+    long start = System.currentTimeMillis();
+    try {
+      long timestamp = CacheSnapshotFile.read(snapshotFile, cache.getName(), object -> {
+        Cacheable cacheable = (Cacheable) object;
+        cache.putQuiet(new Element(cacheable.getId(), cacheable));
+      });
+      int restored = cache.getSize();
+      reconcileWithDb(timestamp);
+      log.info("Restored {} objects of cache {} from snapshot {} in {}ms ({} objects in cache after reconciliation with DB)",
+          restored, cache.getName(), snapshotFile, System.currentTimeMillis() - start, cache.getSize());
+      return true;
+    } catch (IOException | RuntimeException e) {
+      log.warn("Unable to restore cache {} from snapshot {}, preloading from DB", cache.getName(), snapshotFile, e);
+      cache.removeAll();
+      return false;
+    }
+  }
+
+  /**
+   * Brings a cache restored from a snapshot up to date with the DB.
+   *
+   * @param timestamp the time at which the snapshot was started
+   */
+  private void reconcileWithDb(final long timestamp) {
+    Set<Long> dbIds = new HashSet<>();
+    batchCacheLoaderDAO.streamIds(dbIds::add);
+
+    int removed = 0;
+    for (Object key : cache.getKeys()) {
+      if (!dbIds.contains(key)) {
+        cache.removeQuiet(key);
+        removed++;
+      }
+    }
+
+    int added = 0;
+    for (Long id : dbIds) {
+      if (!cache.isKeyInCache(id)) {
+        T element = batchCacheLoaderDAO.getItem(id);
+        if (element != null) {
+          cache.putQuiet(new Element(id, element));
+          added++;
+        }
+      }
+    }
+
+    int[] updated = new int[1];
+    batchCacheLoaderDAO.streamChangedSince(new Date(timestamp), element -> {
+      cache.putQuiet(new Element(element.getId(), element));
+      updated[0]++;
+    });
+    log.debug("Reconciled snapshot of cache {} with DB: {} removed, {} added, {} updated", cache.getName(), removed, added, updated[0]);
+  }
+
   /**
    * Task that loads a batch of cache objects into
    * the cache. A batch must be specified by a first
@@ -155,4 +352,32 @@ public class BatchCacheLoader<T extends Cacheable> implements C2monCacheLoader {
     }
   }
 
+  /**
+   * Task that streams a partition of cache objects, specified
+   * by its first and last id, into the cache.
+   *
+   * <p>Returns null on successful completion.
+   */
+  private class StreamLoaderTask implements Callable<Object> {
+
+    private final long firstId;
+    private final long lastId;
+
+    StreamLoaderTask(final long firstId, final long lastId) {
+      this.firstId = firstId;
+      this.lastId = lastId;
+    }
+
+    @Override
+    public Object call() {
+      batchCacheLoaderDAO.streamBatch(firstId, lastId, element -> {
+        if (log.isTraceEnabled()) {
+          log.trace("StreamLoaderTask - Putting key {} to cache {}", element.getId(), cache.getName());
+        }
+        cache.putQuiet(new Element(element.getId(), element));
+      });
+      return null;
+    }
+  }
+
 }
@@ -0,0 +1,231 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cache.loading.common;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * Snapshot of the content of a cache, used to restart a server without
+ * preloading the whole cache from the DB.
+ *
+ * <p>The file is a plain Java serialization object stream. It contains a
+ * header (magic number, format version, cache name and the time at which the
+ * snapshot was started), followed by the cache objects and a trailer with
+ * the number of objects, which is checked when reading so that truncated
+ * files are rejected. Snapshots are first
+ * written to a temporary file which is moved over the previous snapshot once
+ * complete. Files are read through a memory-mapped buffer.
+ */
+final class CacheSnapshotFile {
+
+  /**
+   * "C2MS"
+   */
+  private static final int MAGIC = 0x43324D53;
+
+  private static final int VERSION = 1;
+
+  /**
+   * Number of objects written before the serialization back-references are
+   * reset, to keep the memory used by the object stream bounded.
+   */
+  private static final int RESET_INTERVAL = 1000;
+
+  /**
+   * Larger files are read from a stream, as they can not be mapped in a single buffer.
+   */
+  private static final long MAX_MAPPED_SIZE = Integer.MAX_VALUE;
+
+  private CacheSnapshotFile() {
+  }
+
+  /**
+   * Creates a new snapshot for the given cache. Nothing is visible under
+   * the snapshot file name until {@link Writer#commit()} is called.
+   *
+   * @param file the snapshot file
+   * @param cacheName the name of the snapshot cache, checked when reading
+   * @param timestamp the time at which the snapshot was started
+   * @return the writer to pass the cache objects to
+   * @throws IOException if the temporary file can not be created
+   */
+  static Writer openWriter(final File file, final String cacheName, final long timestamp) throws IOException {
+    return new Writer(file, cacheName, timestamp);
+  }
+
+  /**
+   * Reads a snapshot file, passing all objects to the consumer.
+   *
+   * @param file the snapshot file
+   * @param cacheName the expected cache name
+   * @param consumer called with each object of the snapshot
+   * @return the time at which the snapshot was started
+   * @throws IOException if the file can not be read, is incomplete or does not
+   *                     belong to the cache
+   */
+  static long read(final File file, final String cacheName, final Consumer<Object> consumer) throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      InputStream input;
+      if (channel.size() <= MAX_MAPPED_SIZE) {
+        input = new ByteBufferInputStream(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+      } else {
+        input = new BufferedInputStream(Channels.newInputStream(channel), 1 << 16);
+      }
+      try (ObjectInputStream in = new ObjectInputStream(input)) {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+          throw new IOException("Unsupported cache snapshot format in " + file);
+        }
+        String name = in.readUTF();
+        if (!name.equals(cacheName)) {
+          throw new IOException("Snapshot " + file + " was written for cache " + name + " and not " + cacheName);
+        }
+        long timestamp = in.readLong();
+
+        int count = 0;
+        Object object;
+        while ((object = in.readObject()) != null) {
+          consumer.accept(object);
+          count++;
+        }
+        if (in.readInt() != count) {
+          throw new IOException("Incomplete cache snapshot " + file);
+        }
+        return timestamp;
+      } catch (ClassNotFoundException e) {
+        throw new IOException("Cache snapshot " + file + " contains unknown classes", e);
+      }
+    }
+  }
+
+  /**
+   * Writes the objects of a snapshot to a temporary file.
+   */
+  static final class Writer implements Closeable {
+
+    private final File file;
+
+    private final File tmpFile;
+
+    private final ObjectOutputStream out;
+
+    private int count = 0;
+
+    private boolean committed = false;
+
+    private Writer(final File file, final String cacheName, final long timestamp) throws IOException {
+      this.file = file;
+      File directory = file.getAbsoluteFile().getParentFile();
+      if (directory != null) {
+        Files.createDirectories(directory.toPath());
+      }
+      this.tmpFile = new File(directory, file.getName() + ".tmp");
+      this.out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile), 1 << 16));
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeUTF(cacheName);
+      out.writeLong(timestamp);
+    }
+
+    /**
+     * @param object the cache object to add to the snapshot
+     * @throws IOException if the object can not be written
+     */
+    void write(final Serializable object) throws IOException {
+      out.writeObject(object);
+      if (++count % RESET_INTERVAL == 0) {
+        out.reset();
+      }
+    }
+
+    /**
+     * @return the number of objects written so far
+     */
+    int getCount() {
+      return count;
+    }
+
+    /**
+     * Completes the snapshot and replaces the previous snapshot file.
+     *
+     * @throws IOException if the file can not be written or moved
+     */
+    void commit() throws IOException {
+      out.writeObject(null);
+      out.writeInt(count);
+      out.close();
+      Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      committed = true;
+    }
+
+    /**
+     * Discards the temporary file if the snapshot was not committed.
+     */
+    @Override
+    public void close() throws IOException {
+      if (!committed) {
+        try {
+          out.close();
+        } finally {
+          Files.deleteIfExists(tmpFile.toPath());
+        }
+      }
+    }
+  }
+
+  /**
+   * Stream over a (memory-mapped) byte buffer.
+   */
+  private static final class ByteBufferInputStream extends InputStream {
+
+    private final ByteBuffer buffer;
+
+    ByteBufferInputStream(final MappedByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(final byte[] bytes, final int offset, final int length) {
+      if (length == 0) {
+        return 0;
+      }
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      int n = Math.min(length, buffer.remaining());
+      buffer.get(bytes, offset, n);
+      return n;
+    }
+
+    @Override
+    public int available() {
+      return buffer.remaining();
+    }
+  }
+}
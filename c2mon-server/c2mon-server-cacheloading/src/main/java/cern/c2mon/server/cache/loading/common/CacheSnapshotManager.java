@@ -0,0 +1,162 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cache.loading.common;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Service;
+
+import cern.c2mon.server.cache.loading.config.CacheLoadingProperties;
+import cern.c2mon.server.common.config.ServerConstants;
+
+/**
+ * Writes the snapshots of all the caches loaded by a {@link BatchCacheLoader}
+ * with snapshots enabled, at regular intervals and when the server is shut
+ * down.
+ *
+ * <p>Stops after the components feeding updates into the caches, so the
+ * snapshot written at shutdown contains the final state of the caches.
+ */
+@Slf4j
+@Service
+@ManagedResource(objectName = "cern.c2mon:name=cacheSnapshotManager")
+public class CacheSnapshotManager implements SmartLifecycle {
+
+  private final CacheLoadingProperties properties;
+
+  /**
+   * All the cache loaders of the server (only the ones with snapshots enabled are used).
+   */
+  @Autowired(required = false)
+  private List<C2monCacheLoader> cacheLoaders = Collections.emptyList();
+
+  private Timer timer;
+
+  private volatile boolean running = false;
+
+  @Autowired
+  public CacheSnapshotManager(final CacheLoadingProperties properties) {
+    this.properties = properties;
+  }
+
+  /**
+   * Writes the snapshots of all caches with snapshots enabled. A failure
+   * for one cache does not prevent writing the others.
+   *
+   * @return the number of snapshots written
+   */
+  @ManagedOperation(description = "Writes the snapshots of all the caches with snapshots enabled")
+  public int writeSnapshots() {
+    int written = 0;
+    for (BatchCacheLoader<?> loader : getSnapshotLoaders()) {
+      try {
+        loader.writeSnapshot();
+        written++;
+      } catch (IOException | RuntimeException e) {
+        log.error("Failed to write cache snapshot {}", loader.getSnapshotFile(), e);
+      }
+    }
+    return written;
+  }
+
+  /**
+   * Deletes the snapshots of all caches with snapshots enabled. Called before
+   * and after a configuration is applied, as the changed objects would
+   * otherwise be restored with their previous configuration if the server
+   * stops before the next snapshot is written: the reconciliation with the
+   * DB at start up only detects value updates.
+   */
+  @ManagedOperation(description = "Deletes the snapshots of all the caches with snapshots enabled")
+  public void invalidateSnapshots() {
+    for (BatchCacheLoader<?> loader : getSnapshotLoaders()) {
+      loader.deleteSnapshot();
+    }
+  }
+
+  private List<BatchCacheLoader<?>> getSnapshotLoaders() {
+    List<BatchCacheLoader<?>> snapshotLoaders = new ArrayList<>();
+    for (C2monCacheLoader loader : cacheLoaders) {
+      if (loader instanceof BatchCacheLoader && ((BatchCacheLoader<?>) loader).getSnapshotFile() != null) {
+        snapshotLoaders.add((BatchCacheLoader<?>) loader);
+      }
+    }
+    return snapshotLoaders;
+  }
+
+  @Override
+  public synchronized void start() {
+    long interval = properties.getSnapshot().getInterval();
+    if (interval > 0 && !getSnapshotLoaders().isEmpty()) {
+      log.info("Writing cache snapshots every {}ms", interval);
+      timer = new Timer("CacheSnapshotWriter", true);
+      timer.schedule(new TimerTask() {
+        @Override
+        public void run() {
+          writeSnapshots();
+        }
+      }, interval, interval);
+    }
+    running = true;
+  }
+
+  @Override
+  public synchronized void stop() {
+    if (timer != null) {
+      timer.cancel();
+      timer = null;
+    }
+    if (!getSnapshotLoaders().isEmpty()) {
+      log.info("Writing cache snapshots before shutdown");
+      writeSnapshots();
+    }
+    running = false;
+  }
+
+  @Override
+  public void stop(Runnable callback) {
+    stop();
+    callback.run();
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+
+  @Override
+  public boolean isAutoStartup() {
+    return true;
+  }
+
+  /**
+   * Stops before the cache persistence and DB connections.
+   */
+  @Override
+  public int getPhase() {
+    return ServerConstants.PHASE_STOP_LAST + 1;
+  }
+}
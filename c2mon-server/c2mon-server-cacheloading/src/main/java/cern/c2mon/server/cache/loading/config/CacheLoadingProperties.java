@@ -30,4 +30,47 @@ public class CacheLoadingProperties {
    * thrown at startup)
    */
   private int queueSize = 1000;
+
+  /**
+   * Preload the DataTag, RuleTag and Alarm caches in streaming mode: the ids
+   * are split into partitions of batchSize objects according to the ids
+   * actually in the database, and each partition is read with a single
+   * id range query and put into the cache row by row (no intermediate map)
+   */
+  private boolean streaming = false;
+
+  /**
+   * Restart the DataTag, RuleTag and Alarm caches from a snapshot file
+   * (only in single cache mode)
+   */
+  private Snapshot snapshot = new Snapshot();
+
+  @Data
+  public static class Snapshot {
+
+    /**
+     * Write snapshots of the caches periodically and at shutdown, and use them
+     * at start up instead of preloading the whole caches from the database.
+     * Only the objects changed in the database since the snapshot are reloaded
+     */
+    private boolean enabled = false;
+
+    /**
+     * Directory of the snapshot files
+     */
+    private String directory = "/tmp/c2mon-cache-snapshot/";
+
+    /**
+     * Interval (in milliseconds) at which snapshots are written (0 to only
+     * write them at shutdown)
+     */
+    private long interval = 600000;
+
+    /**
+     * Snapshots older than this (in milliseconds) are ignored at start up
+     * (0 for no limit). Bounds the time during which configuration changes
+     * done directly in the database are not seen by a restarted server
+     */
+    private long maxAge = 3600000;
+  }
 }
@@ -77,4 +77,31 @@ public class DataTagLoaderDAOTest {
     assertEquals("Expected 6 entries between rows 10 and 15", 6, batch3.size());
     assertTrue("Entries between rows 10 and 15 do not match", batch3.keySet().containsAll(expectedResult.subList(10, 15)));
   }
+
+  @Test
+  public void testGetIdPartitions() {
+    List<long[]> partitions = dataTagLoaderDAO.getIdPartitions(5);
+    assertEquals("Expected 16 ids in partitions of 5", 4, partitions.size());
+    assertEquals(200000L, partitions.get(0)[0]);
+    assertEquals(200004L, partitions.get(0)[1]);
+    assertEquals(200005L, partitions.get(1)[0]);
+    assertEquals(210010L, partitions.get(3)[0]);
+    assertEquals(210010L, partitions.get(3)[1]);
+  }
+
+  @Test
+  public void testStreamBatch() {
+    List<Long> expectedResult = Arrays.asList(200000L, 200001L, 200002L, 200003L, 200004L, 200005L, 200010L, 200011L, 200012L, 210000L, 210001L, 210002L, 210003L, 210008L, 210009L, 210010L);
+    List<DataTag> streamed = new ArrayList<>();
+    for (long[] partition : dataTagLoaderDAO.getIdPartitions(3)) {
+      dataTagLoaderDAO.streamBatch(partition[0], partition[1], streamed::add);
+    }
+    assertEquals(expectedResult.size(), streamed.size());
+    for (int i = 0; i < expectedResult.size(); i++) {
+      assertEquals(expectedResult.get(i), streamed.get(i).getId());
+    }
+
+    DataTag tagWithAlarms = streamed.get(0);
+    assertEquals(2, tagWithAlarms.getAlarmIds().size());
+  }
 }
@@ -0,0 +1,203 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cache.loading.common;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.config.Configuration;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import cern.c2mon.server.cache.loading.BatchCacheLoaderDAO;
+import cern.c2mon.server.cache.loading.config.CacheLoadingProperties;
+import cern.c2mon.server.common.datatag.DataTagCacheObject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class BatchCacheLoaderSnapshotTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final List<CacheManager> cacheManagers = new ArrayList<>();
+
+  /**
+   * Rows of the simulated DataTag table.
+   */
+  private final TreeMap<Long, DataTagCacheObject> db = new TreeMap<>();
+
+  @After
+  public void tearDown() {
+    cacheManagers.forEach(CacheManager::shutdown);
+  }
+
+  @Test
+  public void testRestartFromSnapshot() throws IOException {
+    db.put(1L, createTag(1L, 100L));
+    BatchCacheLoader<DataTagCacheObject> loader = createLoader(0);
+    loader.preload();
+    assertEquals(1, loader.writeSnapshot());
+
+    db.put(2L, createTag(2L, 200L));
+    BatchCacheLoader<DataTagCacheObject> restartedLoader = createLoader(0);
+    restartedLoader.preload();
+
+    Ehcache restartedCache = getLastCache();
+    assertEquals(2, restartedCache.getSize());
+    assertNotSame("Tag should be restored from the snapshot", db.get(1L), getTag(restartedCache, 1L));
+    assertEquals(Collections.singletonList(100L), getTag(restartedCache, 1L).getRuleIds());
+    assertSame("New tag should be loaded from the DB", db.get(2L), getTag(restartedCache, 2L));
+  }
+
+  /**
+   * A reconfiguration does not update the timestamp of the tag, the snapshot
+   * must not be used to restart after it.
+   */
+  @Test
+  public void testReconfigurationAfterSnapshot() throws IOException {
+    db.put(1L, createTag(1L, 100L));
+    BatchCacheLoader<DataTagCacheObject> loader = createLoader(0);
+    loader.preload();
+    loader.writeSnapshot();
+
+    CacheSnapshotManager snapshotManager = new CacheSnapshotManager(new CacheLoadingProperties());
+    ReflectionTestUtils.setField(snapshotManager, "cacheLoaders", Collections.singletonList(loader));
+    db.put(1L, createTag(1L, 101L));
+    snapshotManager.invalidateSnapshots();
+    assertFalse(loader.getSnapshotFile().exists());
+
+    BatchCacheLoader<DataTagCacheObject> restartedLoader = createLoader(0);
+    restartedLoader.preload();
+
+    Ehcache restartedCache = getLastCache();
+    assertEquals(1, restartedCache.getSize());
+    assertEquals(Collections.singletonList(101L), getTag(restartedCache, 1L).getRuleIds());
+  }
+
+  @Test
+  public void testSnapshotOlderThanMaxAgeIsIgnored() throws IOException {
+    db.put(1L, createTag(1L, 100L));
+    BatchCacheLoader<DataTagCacheObject> loader = createLoader(0);
+    loader.preload();
+    loader.writeSnapshot();
+    assertTrue(loader.getSnapshotFile().setLastModified(System.currentTimeMillis() - 120000L));
+
+    db.put(1L, createTag(1L, 101L));
+    BatchCacheLoader<DataTagCacheObject> restartedLoader = createLoader(60000L);
+    restartedLoader.preload();
+
+    assertEquals(Collections.singletonList(101L), getTag(getLastCache(), 1L).getRuleIds());
+  }
+
+  /**
+   * @return a loader of an empty tag cache, as after a server restart
+   */
+  private BatchCacheLoader<DataTagCacheObject> createLoader(final long maxAge) {
+    CacheManager cacheManager = CacheManager.newInstance(new Configuration().name("snapshotTest" + cacheManagers.size()));
+    cacheManagers.add(cacheManager);
+    cacheManager.addCache(new Cache(new CacheConfiguration("tagCache", 0)));
+
+    BatchCacheLoader<DataTagCacheObject> loader =
+        new BatchCacheLoader<>(cacheManager.getEhcache("tagCache"), new TestLoaderDAO(), 10, "test-");
+    ReflectionTestUtils.setField(loader, "cacheLoadingThreadPoolTaskExecutor", new ThreadPoolTaskExecutor());
+    loader.setSnapshot(folder.getRoot(), maxAge);
+    return loader;
+  }
+
+  /**
+   * @return the cache of the last created loader
+   */
+  private Ehcache getLastCache() {
+    return cacheManagers.get(cacheManagers.size() - 1).getEhcache("tagCache");
+  }
+
+  private static DataTagCacheObject getTag(final Ehcache cache, final Long id) {
+    return (DataTagCacheObject) cache.get(id).getObjectValue();
+  }
+
+  private static DataTagCacheObject createTag(final Long id, final Long ruleId) {
+    DataTagCacheObject tag = new DataTagCacheObject(id, "tag" + id, "Integer", (short) 0);
+    tag.addRuleId(ruleId);
+    return tag;
+  }
+
+  /**
+   * Reads the simulated table, none of the rows is ever changed by a value update.
+   */
+  private class TestLoaderDAO implements BatchCacheLoaderDAO<DataTagCacheObject> {
+
+    @Override
+    public Integer getMaxRow() {
+      return db.isEmpty() ? 0 : db.lastKey().intValue();
+    }
+
+    @Override
+    public Map<Object, DataTagCacheObject> getBatchAsMap(final Long firstRow, final Long lastRow) {
+      return new HashMap<>(db.subMap(firstRow, true, lastRow, true));
+    }
+
+    @Override
+    public List<long[]> getIdPartitions(final int partitionSize) {
+      return db.isEmpty() ? new ArrayList<>() : Collections.singletonList(new long[] {db.firstKey(), db.lastKey()});
+    }
+
+    @Override
+    public void streamBatch(final Long firstId, final Long lastId, final Consumer<DataTagCacheObject> consumer) {
+      db.subMap(firstId, true, lastId, true).values().forEach(consumer);
+    }
+
+    @Override
+    public void streamIds(final LongConsumer consumer) {
+      db.keySet().forEach(consumer::accept);
+    }
+
+    @Override
+    public void streamChangedSince(final Date since, final Consumer<DataTagCacheObject> consumer) {
+    }
+
+    @Override
+    public DataTagCacheObject getItem(final Object id) {
+      return db.get(id);
+    }
+
+    @Override
+    public boolean isInDb(final Long id) {
+      return db.containsKey(id);
+    }
+  }
+}
@@ -0,0 +1,97 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cache.loading.common;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import cern.c2mon.server.common.datatag.DataTagCacheObject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+public class CacheSnapshotFileTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testWriteAndRead() throws IOException {
+    File file = new File(folder.getRoot(), "tagCache.snapshot");
+    writeSnapshot(file, 2500);
+
+    List<Object> objects = new ArrayList<>();
+    long timestamp = CacheSnapshotFile.read(file, "tagCache", objects::add);
+    assertEquals(1000L, timestamp);
+    assertEquals(2500, objects.size());
+    for (int i = 0; i < objects.size(); i++) {
+      DataTagCacheObject tag = (DataTagCacheObject) objects.get(i);
+      assertEquals(Long.valueOf(i), tag.getId());
+      assertEquals("tag" + i, tag.getName());
+    }
+    assertFalse("Temporary file should be moved", new File(folder.getRoot(), "tagCache.snapshot.tmp").exists());
+  }
+
+  @Test
+  public void testUncommittedSnapshotIsDiscarded() throws IOException {
+    File file = new File(folder.getRoot(), "tagCache.snapshot");
+    try (CacheSnapshotFile.Writer writer = CacheSnapshotFile.openWriter(file, "tagCache", 1000L)) {
+      writer.write(new DataTagCacheObject(1L));
+    }
+    assertFalse(file.exists());
+    assertFalse(new File(folder.getRoot(), "tagCache.snapshot.tmp").exists());
+  }
+
+  @Test(expected = IOException.class)
+  public void testTruncatedSnapshotIsRejected() throws IOException {
+    File file = new File(folder.getRoot(), "tagCache.snapshot");
+    writeSnapshot(file, 100);
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.setLength(raf.length() / 2);
+    }
+    CacheSnapshotFile.read(file, "tagCache", object -> { });
+  }
+
+  @Test
+  public void testSnapshotOfOtherCacheIsRejected() throws IOException {
+    File file = new File(folder.getRoot(), "tagCache.snapshot");
+    writeSnapshot(file, 10);
+    try {
+      CacheSnapshotFile.read(file, "alarmCache", object -> fail("No object should be read"));
+      fail("Snapshot of another cache should be rejected");
+    } catch (IOException e) {
+      // expected
+    }
+  }
+
+  private static void writeSnapshot(File file, int size) throws IOException {
+    try (CacheSnapshotFile.Writer writer = CacheSnapshotFile.openWriter(file, "tagCache", 1000L)) {
+      for (long i = 0; i < size; i++) {
+        writer.write(new DataTagCacheObject(i, "tag" + i, "Integer", (short) 0));
+      }
+      writer.commit();
+    }
+  }
+}
@@ -16,8 +16,6 @@
  *****************************************************************************/
 package cern.c2mon.server.cachepersistence;
 
-import java.util.List;
-
 import cern.c2mon.shared.common.Cacheable;
 
 /**
@@ -42,8 +40,8 @@ public interface CachePersistenceDAO<T extends Cacheable> {
   /**
    * Persists a batch of cache objects in a single transaction.
    * 
-   * @param keyList keys of the cache objects to persist
+   * @param keys keys of the cache objects to persist
    */
-  void persistBatch(List<Long> keyList);
+  void persistBatch(long[] keys);
 
 }
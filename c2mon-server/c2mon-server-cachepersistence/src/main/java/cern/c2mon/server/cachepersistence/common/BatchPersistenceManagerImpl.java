@@ -33,6 +33,7 @@ import cern.c2mon.server.cache.ClusterCache;
 import cern.c2mon.server.cachepersistence.CachePersistenceDAO;
 import cern.c2mon.server.common.config.ServerConstants;
 import cern.c2mon.shared.common.Cacheable;
+import cern.c2mon.shared.util.collections.LongHashSet;
 
 /**
  * Standard implementation of a {@link BatchPersistenceManager}.
@@ -95,8 +96,11 @@ public class BatchPersistenceManagerImpl<T extends Cacheable> implements BatchPe
    * <p>Not shared across servers or kept in distributed cache (could
    * be done at later stage to avoid inconsistencies, with server updating
    * DB once it is back).
+   *
+   * <p>Ids are kept as primitive longs to avoid boxing garbage on every
+   * persistence cycle.
    */
-  private Set<Long> toBePersisted = new HashSet<>();
+  private LongHashSet toBePersisted = new LongHashSet();
 
   /**
    * Lock for accessing toBePersisted collection, used only
@@ -131,7 +135,14 @@ public class BatchPersistenceManagerImpl<T extends Cacheable> implements BatchPe
       LOGGER.debug("Submitting new persistence task (currently " + cachePersistenceThreadPoolTaskExecutor.getThreadPoolExecutor().getQueue().size() + " tasks in queue)");
 
       //local set, no synch needed; removes duplicates from collection (though unnecessary with current SynchroBuffer)
-      Set<Long> localToBePersisted = new HashSet<>(keyCollection);
+      LongHashSet localToBePersisted = new LongHashSet(keyCollection.size());
+      for (Long key : keyCollection) {
+        if (key == null) {
+          LOGGER.warn("Null key submitted for persistence - ignoring it (" + cache.getClass().getSimpleName() + ")");
+        } else {
+          localToBePersisted.add(key);
+        }
+      }
 
       toBePersistedLock.writeLock().lock();
       try {
@@ -141,27 +152,19 @@ public class BatchPersistenceManagerImpl<T extends Cacheable> implements BatchPe
         toBePersistedLock.writeLock().unlock();
       }
 
-      int size = localToBePersisted.size();
+      long[] keys = localToBePersisted.toArray();
+      int size = keys.length;
 
       LOGGER.debug("Persisting " + size + " cache object(s) to the database (" + cache.getClass() + ")");
 
-      LinkedList<Future< ? >> taskResults = new LinkedList<>();
-      Map<Future< ? >, Collection<Long>> submittedSets = new HashMap<>();
-
-      Iterator<Long> it = localToBePersisted.iterator();
-      while (it.hasNext()) {
-        PersistenceTask task = new PersistenceTask();
-        LinkedList<Long> persistedIds = new LinkedList<>();
-        int counter = 0;
-        while (it.hasNext() && counter < RECORDS_PER_BATCH) {
-          Long currentId = it.next();
-          task.put(currentId);
-          counter++;
-          persistedIds.push(currentId);
-        }
-        Future< ? > result = cachePersistenceThreadPoolTaskExecutor.submit(task);
-        taskResults.offerLast(result);
-        submittedSets.put(result, persistedIds);
+      int batchCount = (size + RECORDS_PER_BATCH - 1) / RECORDS_PER_BATCH;
+      List<Future< ? >> taskResults = new ArrayList<>(batchCount);
+      List<PersistenceTask> submittedTasks = new ArrayList<>(batchCount);
+
+      for (int from = 0; from < size; from += RECORDS_PER_BATCH) {
+        PersistenceTask task = new PersistenceTask(Arrays.copyOfRange(keys, from, Math.min(size, from + RECORDS_PER_BATCH)));
+        taskResults.add(cachePersistenceThreadPoolTaskExecutor.submit(task));
+        submittedTasks.add(task);
       }
 
       //wait for all to complete; if wait longer than 5s for a single
@@ -172,6 +175,7 @@ public class BatchPersistenceManagerImpl<T extends Cacheable> implements BatchPe
       int exceptionCount = 0;
       for (Future< ? > result : taskResults) {
         boolean exceptionCaught = false;
+        PersistenceTask task = submittedTasks.get(count);
         count++;
         try {
           result.get(timeoutPerBatch, TimeUnit.MILLISECONDS);
@@ -193,7 +197,7 @@ public class BatchPersistenceManagerImpl<T extends Cacheable> implements BatchPe
             exceptionCount++;
             toBePersistedLock.writeLock().lock();
             try {
-              toBePersisted.addAll(submittedSets.get(result));
+              toBePersisted.addAll(task.keys);
             } finally {
               toBePersistedLock.writeLock().unlock();
             }
@@ -212,6 +216,10 @@ public class BatchPersistenceManagerImpl<T extends Cacheable> implements BatchPe
 
   @Override
   public void addElementToPersist(Long key) {
+    if (key == null) {
+      LOGGER.warn("Null key submitted for persistence - ignoring it (" + cache.getClass().getSimpleName() + ")");
+      return;
+    }
     toBePersistedLock.writeLock().lock();
     try {
       toBePersisted.add(key);
@@ -250,14 +258,13 @@ public class BatchPersistenceManagerImpl<T extends Cacheable> implements BatchPe
     /**
      * Keys of cache elements to persist.
      */
-    private ArrayList<Long> keyList = new ArrayList<>(RECORDS_PER_BATCH);
+    private final long[] keys;
 
     /**
-     * Add the key to the task, prior to execution.
-     * @param key the cache element key
+     * @param keys the keys of the cache elements to persist
      */
-    public void put(final Long key) {
-      keyList.add(key);
+    PersistenceTask(final long[] keys) {
+      this.keys = keys;
     }
 
     /**
@@ -266,7 +273,7 @@ public class BatchPersistenceManagerImpl<T extends Cacheable> implements BatchPe
      */
     @Override
     public Object call() {
-      cachePersistenceDAO.persistBatch(keyList);
+      cachePersistenceDAO.persistBatch(keys);
       return null;
     }
 
@@ -309,7 +316,7 @@ public class BatchPersistenceManagerImpl<T extends Cacheable> implements BatchPe
       LOGGER.debug("Detected cache objects that need persisting... trying to persist them.");
       toBePersistedLock.writeLock().lock();
       try {
-        cachePersistenceDAO.persistBatch(new ArrayList<>(toBePersisted));
+        cachePersistenceDAO.persistBatch(toBePersisted.toArray());
         toBePersisted.clear();
       } catch (PersistenceException e) {
         LOGGER.error("Exception caught while persisting final batch of cache objects - will try again in 1s", e);
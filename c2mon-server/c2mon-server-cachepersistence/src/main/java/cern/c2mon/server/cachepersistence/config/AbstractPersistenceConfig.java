@@ -1,8 +1,15 @@
 package cern.c2mon.server.cachepersistence.config;
 
+import cern.c2mon.server.cache.C2monCache;
 import cern.c2mon.server.cache.ClusterCache;
 import cern.c2mon.server.cache.config.CacheProperties;
+import cern.c2mon.server.cache.dbaccess.PersistenceMapper;
+import cern.c2mon.server.cachepersistence.CachePersistenceDAO;
+import cern.c2mon.server.cachepersistence.impl.CachePersistenceDAOImpl;
+import cern.c2mon.shared.common.Cacheable;
+import org.apache.ibatis.session.SqlSessionFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 /**
@@ -21,4 +28,26 @@ public abstract class AbstractPersistenceConfig {
 
   @Autowired
   protected ThreadPoolTaskExecutor cachePersistenceThreadPoolTaskExecutor;
+
+  @Autowired
+  @Qualifier("cacheSqlSessionFactory")
+  protected SqlSessionFactory cacheSqlSessionFactory;
+
+  /**
+   * Creates the persistence DAO of a cache, with the JDBC batch mode if enabled.
+   *
+   * @param mapper the persistence mapper bean of the cache
+   * @param mapperInterface the mapper interface of the bean
+   * @param cache the cache to persist
+   * @param jdbcBatch true if the JDBC batch mode is enabled for this cache
+   * @return the DAO
+   */
+  protected <T extends Cacheable> CachePersistenceDAO<T> createPersistenceDAO(PersistenceMapper<T> mapper,
+                                                                            Class<? extends PersistenceMapper<T>> mapperInterface,
+                                                                            C2monCache<Long, T> cache, boolean jdbcBatch) {
+    if (jdbcBatch) {
+      return new CachePersistenceDAOImpl<>(mapper, cache, cacheSqlSessionFactory, mapperInterface, properties.getJdbcBatch().getSize());
+    }
+    return new CachePersistenceDAOImpl<>(mapper, cache);
+  }
 }
@@ -6,7 +6,6 @@ import cern.c2mon.server.cache.dbaccess.AlarmMapper;
 import cern.c2mon.server.cachepersistence.CachePersistenceDAO;
 import cern.c2mon.server.cachepersistence.common.BatchPersistenceManager;
 import cern.c2mon.server.cachepersistence.common.BatchPersistenceManagerImpl;
-import cern.c2mon.server.cachepersistence.impl.CachePersistenceDAOImpl;
 import cern.c2mon.server.cachepersistence.listener.PersistenceSynchroListener;
 import cern.c2mon.server.common.alarm.Alarm;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -29,7 +28,7 @@ public class AlarmPersistenceConfig extends AbstractPersistenceConfig {
 
   @Bean
   public CachePersistenceDAO<Alarm> alarmPersistenceDAO() {
-    return new CachePersistenceDAOImpl<>(alarmMapper, alarmCache);
+    return createPersistenceDAO(alarmMapper, AlarmMapper.class, alarmCache, properties.getJdbcBatch().isAlarm());
   }
 
   @Bean
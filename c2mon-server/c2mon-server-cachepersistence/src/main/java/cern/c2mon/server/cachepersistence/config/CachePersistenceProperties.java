@@ -23,4 +23,26 @@ public class CachePersistenceProperties {
 
   /** Set the capacity for the ThreadPoolExecutor's BlockingQueue */
   private int queueCapacity = 1000;
+
+  /** JDBC batch mode of the batch persistence, per cache */
+  private JdbcBatch jdbcBatch = new JdbcBatch();
+
+  @Data
+  public static class JdbcBatch {
+
+    /** Maximum number of update statements sent to the database in a single JDBC batch */
+    private int size = 100;
+
+    /** Use JDBC batches to persist the DataTag cache */
+    private boolean dataTag = false;
+
+    /** Use JDBC batches to persist the RuleTag cache */
+    private boolean ruleTag = false;
+
+    /** Use JDBC batches to persist the ControlTag cache */
+    private boolean controlTag = false;
+
+    /** Use JDBC batches to persist the Alarm cache */
+    private boolean alarm = false;
+  }
 }
@@ -5,7 +5,6 @@ import cern.c2mon.server.cache.dbaccess.DataTagMapper;
 import cern.c2mon.server.cachepersistence.CachePersistenceDAO;
 import cern.c2mon.server.cachepersistence.common.BatchPersistenceManager;
 import cern.c2mon.server.cachepersistence.common.BatchPersistenceManagerImpl;
-import cern.c2mon.server.cachepersistence.impl.CachePersistenceDAOImpl;
 import cern.c2mon.server.cachepersistence.listener.PersistenceSynchroListener;
 import cern.c2mon.server.common.datatag.DataTag;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -26,7 +25,7 @@ public class DataTagPersistenceConfig extends AbstractPersistenceConfig {
 
   @Bean
   public CachePersistenceDAO<DataTag> dataTagPersistenceDAO() {
-    return new CachePersistenceDAOImpl<>(dataTagMapper, dataTagCache);
+    return createPersistenceDAO(dataTagMapper, DataTagMapper.class, dataTagCache, properties.getJdbcBatch().isDataTag());
   }
 
   @Bean
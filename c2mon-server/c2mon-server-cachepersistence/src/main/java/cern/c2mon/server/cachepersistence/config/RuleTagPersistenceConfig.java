@@ -5,7 +5,6 @@ import cern.c2mon.server.cache.dbaccess.RuleTagMapper;
 import cern.c2mon.server.cachepersistence.CachePersistenceDAO;
 import cern.c2mon.server.cachepersistence.common.BatchPersistenceManager;
 import cern.c2mon.server.cachepersistence.common.BatchPersistenceManagerImpl;
-import cern.c2mon.server.cachepersistence.impl.CachePersistenceDAOImpl;
 import cern.c2mon.server.cachepersistence.listener.PersistenceSynchroListener;
 import cern.c2mon.server.common.rule.RuleTag;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -26,7 +25,7 @@ public class RuleTagPersistenceConfig extends AbstractPersistenceConfig {
 
   @Bean
   public CachePersistenceDAO<RuleTag> ruleTagPersistenceDAO() {
-    return new CachePersistenceDAOImpl<>(ruleTagMapper, ruleTagCache);
+    return createPersistenceDAO(ruleTagMapper, RuleTagMapper.class, ruleTagCache, properties.getJdbcBatch().isRuleTag());
   }
 
   @Bean
@@ -16,9 +16,10 @@
  *****************************************************************************/
 package cern.c2mon.server.cachepersistence.impl;
 
-import java.util.List;
-
 import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.transaction.annotation.Transactional;
@@ -35,6 +36,10 @@ import cern.c2mon.shared.common.Cacheable;
  * to the database. The cache object needs to have a corresponding
  * {@link PersistenceMapper}.
  *
+ * <p>If constructed with a {@link SqlSessionFactory}, the batches are sent
+ * to the database as JDBC batches (MyBatis {@link ExecutorType#BATCH}),
+ * instead of one statement round trip per cache object.
+ *
  * @author Mark Brightwell
  *
  * @param <T> the type of the cache object
@@ -55,6 +60,22 @@ public class CachePersistenceDAOImpl<T extends Cacheable> implements CachePersis
    */
   private C2monCache<Long, T> cache;
 
+  /**
+   * Factory used to open the JDBC batch sessions; null if the JDBC batch mode
+   * is disabled.
+   */
+  private SqlSessionFactory sqlSessionFactory;
+
+  /**
+   * The mapper interface used for creating the batch mapper from the session.
+   */
+  private Class<? extends PersistenceMapper<T>> mapperInterface;
+
+  /**
+   * Maximum number of statements sent to the database in a single JDBC batch.
+   */
+  private int jdbcBatchSize;
+
   /**
    * Constructor required cache and the persistence bean for this cache.
    *
@@ -67,6 +88,27 @@ public class CachePersistenceDAOImpl<T extends Cacheable> implements CachePersis
     this.cache = cache;
   }
 
+  /**
+   * Constructor enabling the JDBC batch mode for the batch persistence.
+   *
+   * @param persistenceMapper the mapper bean for this cache
+   * @param cache the cache that is being persisted
+   * @param sqlSessionFactory the factory of the cache database sessions
+   * @param mapperInterface the mapper interface of the persistenceMapper
+   * @param jdbcBatchSize maximum number of statements sent in a single JDBC batch
+   */
+  public CachePersistenceDAOImpl(final PersistenceMapper<T> persistenceMapper, final C2monCache<Long, T> cache,
+                                 final SqlSessionFactory sqlSessionFactory,
+                                 final Class<? extends PersistenceMapper<T>> mapperInterface, final int jdbcBatchSize) {
+    this(persistenceMapper, cache);
+    if (jdbcBatchSize < 1) {
+      throw new IllegalArgumentException("The JDBC batch size must be positive (was " + jdbcBatchSize + ")");
+    }
+    this.sqlSessionFactory = sqlSessionFactory;
+    this.mapperInterface = mapperInterface;
+    this.jdbcBatchSize = jdbcBatchSize;
+  }
+
   /**
    * Persists a single cacheable
    * setting).
@@ -80,24 +122,64 @@ public class CachePersistenceDAOImpl<T extends Cacheable> implements CachePersis
   /**
    * Used to persist a batch of cache objects in a single transaction.
    * An object that is not found in the cache will not be persisted and skipped.
-   * @param keyList keys of the elements that need persisting
+   * @param keys keys of the elements that need persisting
    */
   @Transactional(value = "cacheTransactionManager")
   @Override
-  public void persistBatch(final List<Long> keyList) {
-    T cacheObject;
-    for (Long key : keyList) {
-      try {
-        cacheObject = cache.getCopy(key);
-        //do not persist unconfigured tags TODO could remove as unconfigured not used
-        if (cacheObject != null && (!(cacheObject instanceof Tag) || !((Tag) cacheObject).isInUnconfigured())) {
-          persistenceMapper.updateCacheable(cacheObject);
+  public void persistBatch(final long[] keys) {
+    if (sqlSessionFactory != null) {
+      persistInJdbcBatches(keys);
+    } else {
+      for (long key : keys) {
+        persist(key, persistenceMapper);
+      }
+    }
+  }
+
+  /**
+   * Sends the updates to the database in JDBC batches of at most jdbcBatchSize
+   * statements. The batch session uses the connection of the current Spring
+   * transaction, so the updates are committed (or rolled back) with it.
+   *
+   * @param keys keys of the elements that need persisting
+   */
+  private void persistInJdbcBatches(final long[] keys) {
+    SqlSession session = sqlSessionFactory.openSession(ExecutorType.BATCH, false);
+    try {
+      PersistenceMapper<T> batchMapper = session.getMapper(mapperInterface);
+      int pending = 0;
+      for (long key : keys) {
+        if (persist(key, batchMapper) && ++pending == jdbcBatchSize) {
+          session.flushStatements();
+          pending = 0;
         }
-      } catch (CacheElementNotFoundException ex) {
-        log.warn("Cache element with id {} could not be persisted as not found in cache " +
-            "(may have been removed in the meantime by a re-configuration). Cache is {}", key, cache.getClass().getSimpleName(), ex);
       }
+      session.commit();
+    } finally {
+      session.close();
+    }
+  }
+
+  /**
+   * The cache is keyed by {@link Long} objects: the key is boxed once here
+   * and the same object is used for the cache lookup and the log message.
+   *
+   * @return true if an update statement was issued for the cache object
+   */
+  private boolean persist(final long key, final PersistenceMapper<T> mapper) {
+    final Long id = key;
+    try {
+      T cacheObject = cache.getCopy(id);
+      //do not persist unconfigured tags TODO could remove as unconfigured not used
+      if (cacheObject != null && (!(cacheObject instanceof Tag) || !((Tag) cacheObject).isInUnconfigured())) {
+        mapper.updateCacheable(cacheObject);
+        return true;
+      }
+    } catch (CacheElementNotFoundException ex) {
+      log.warn("Cache element with id {} could not be persisted as not found in cache " +
+          "(may have been removed in the meantime by a re-configuration). Cache is {}", id, cache.getClass().getSimpleName(), ex);
     }
+    return false;
   }
 
 
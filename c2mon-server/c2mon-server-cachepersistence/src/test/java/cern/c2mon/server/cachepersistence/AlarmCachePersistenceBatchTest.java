@@ -0,0 +1,116 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cachepersistence;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.lang.StringUtils;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import cern.c2mon.server.cache.AlarmCache;
+import cern.c2mon.server.cache.dbaccess.AlarmMapper;
+import cern.c2mon.server.cachepersistence.common.BatchPersistenceManagerImpl;
+import cern.c2mon.server.common.alarm.AlarmCacheObject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * Runs the Alarm persistence tests with the JDBC batch mode enabled. The
+ * batch size is smaller than the number of persisted alarms, so that the
+ * statements are flushed several times per transaction.
+ */
+@TestPropertySource(properties = {
+    "c2mon.server.cachepersistence.jdbcBatch.alarm=true",
+    "c2mon.server.cachepersistence.jdbcBatch.size=2"
+})
+public class AlarmCachePersistenceBatchTest extends AlarmCachePersistenceTest {
+
+  private static final List<Long> ALARM_IDS = Arrays.asList(350000L, 350001L, 350002L);
+
+  @Autowired
+  private AlarmCache alarmCache;
+
+  @Autowired
+  private AlarmMapper alarmMapper;
+
+  @Autowired
+  private BatchPersistenceManagerImpl alarmPersistenceManager;
+
+  @After
+  public void removeAlarms() {
+    for (Long id : ALARM_IDS) {
+      if (alarmCache.hasKey(id)) {
+        alarmCache.remove(id);
+      }
+    }
+  }
+
+  /**
+   * More alarms than the batch size, and not a multiple of it.
+   */
+  @Test
+  public void testPersistMoreAlarmsThanBatchSize() {
+    for (Long id : ALARM_IDS) {
+      putInfo(id, "info " + id);
+    }
+
+    alarmPersistenceManager.persistList(ALARM_IDS);
+
+    for (Long id : ALARM_IDS) {
+      assertEquals("info " + id, alarmMapper.getItem(id).getInfo());
+    }
+  }
+
+  /**
+   * The info of one alarm does not fit into the ALARMINFO column: none of the
+   * alarms is persisted, including the ones of the batches already flushed, and
+   * all of them are persisted with the next persistence run.
+   */
+  @Test
+  public void testFailingAlarmInBatch() {
+    Long failingId = ALARM_IDS.get(2);
+    for (Long id : ALARM_IDS) {
+      putInfo(id, "info " + id);
+    }
+    putInfo(failingId, StringUtils.repeat("x", 101));
+
+    alarmPersistenceManager.persistList(ALARM_IDS);
+
+    for (Long id : ALARM_IDS) {
+      assertNotEquals("info " + id, alarmMapper.getItem(id).getInfo());
+    }
+
+    putInfo(failingId, "info " + failingId);
+    alarmPersistenceManager.persistList(Collections.<Long>emptyList());
+
+    for (Long id : ALARM_IDS) {
+      assertEquals("info " + id, alarmMapper.getItem(id).getInfo());
+    }
+  }
+
+  private void putInfo(final Long id, final String info) {
+    AlarmCacheObject alarm = (AlarmCacheObject) alarmMapper.getItem(id);
+    alarm.setInfo(info);
+    alarmCache.putQuiet(alarm);
+  }
+}
@@ -0,0 +1,116 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cachepersistence;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.lang.StringUtils;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import cern.c2mon.server.cache.datatag.DataTagCacheImpl;
+import cern.c2mon.server.cache.dbaccess.DataTagMapper;
+import cern.c2mon.server.cachepersistence.common.BatchPersistenceManagerImpl;
+import cern.c2mon.server.common.datatag.DataTagCacheObject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * Runs the DataTag persistence tests with the JDBC batch mode enabled. The
+ * batch size is smaller than the number of persisted tags, so that the
+ * statements are flushed several times per transaction.
+ */
+@TestPropertySource(properties = {
+    "c2mon.server.cachepersistence.jdbcBatch.dataTag=true",
+    "c2mon.server.cachepersistence.jdbcBatch.size=2"
+})
+public class DataTagCachePersistenceBatchTest extends DataTagCachePersistenceTest {
+
+  private static final List<Long> TAG_IDS = Arrays.asList(200000L, 200001L, 200002L, 200003L, 200004L);
+
+  @Autowired
+  private DataTagCacheImpl dataTagCache;
+
+  @Autowired
+  private DataTagMapper dataTagMapper;
+
+  @Autowired
+  private BatchPersistenceManagerImpl dataTagPersistenceManager;
+
+  @After
+  public void removeTags() {
+    for (Long id : TAG_IDS) {
+      if (dataTagCache.hasKey(id)) {
+        dataTagCache.remove(id);
+      }
+    }
+  }
+
+  /**
+   * More tags than the batch size, and not a multiple of it.
+   */
+  @Test
+  public void testPersistMoreTagsThanBatchSize() {
+    for (Long id : TAG_IDS) {
+      putValue(id, id.intValue() + 1);
+    }
+
+    dataTagPersistenceManager.persistList(TAG_IDS);
+
+    for (Long id : TAG_IDS) {
+      assertEquals(id.intValue() + 1, dataTagMapper.getItem(id).getValue());
+    }
+  }
+
+  /**
+   * The value of one tag does not fit into the TAGVALUE column: none of the
+   * tags is persisted, including the ones of the batches already flushed, and
+   * all of them are persisted with the next persistence run.
+   */
+  @Test
+  public void testFailingTagInBatch() {
+    Long failingId = TAG_IDS.get(2);
+    for (Long id : TAG_IDS) {
+      putValue(id, id.intValue() + 1);
+    }
+    putValue(failingId, StringUtils.repeat("x", 4001));
+
+    dataTagPersistenceManager.persistList(TAG_IDS);
+
+    for (Long id : TAG_IDS) {
+      assertNotEquals(id.intValue() + 1, dataTagMapper.getItem(id).getValue());
+    }
+
+    putValue(failingId, failingId.intValue() + 1);
+    dataTagPersistenceManager.persistList(Collections.<Long>emptyList());
+
+    for (Long id : TAG_IDS) {
+      assertEquals(id.intValue() + 1, dataTagMapper.getItem(id).getValue());
+    }
+  }
+
+  private void putValue(final Long id, final Object value) {
+    DataTagCacheObject tag = (DataTagCacheObject) dataTagMapper.getItem(id);
+    tag.setValue(value);
+    dataTagCache.putQuiet(tag);
+  }
+}
@@ -18,6 +18,7 @@ package cern.c2mon.server.cachepersistence;
 
 import java.io.IOException;
 import java.sql.Timestamp;
+import java.util.Arrays;
 
 import cern.c2mon.server.cache.config.CacheModule;
 import cern.c2mon.server.cache.dbaccess.config.CacheDbAccessModule;
@@ -120,6 +121,21 @@ public class DataTagCachePersistenceTest {
     dataTagCache.remove(originalObject.getId());
 }
 
+  /**
+   * A null key in the persisted list is skipped, the other keys are persisted.
+   */
+  @Test
+  public void testNullKeyIgnored() {
+    originalObject.setValue(0);
+    dataTagCache.putQuiet(originalObject);
+
+    dataTagPersistenceManager.persistList(Arrays.asList(null, originalObject.getId()));
+    dataTagPersistenceManager.addElementToPersist(null);
+
+    assertEquals(0, dataTagMapper.getItem(originalObject.getId()).getValue());
+    dataTagCache.remove(originalObject.getId());
+  }
+
   /**
    * Tests that if 2 updates for the same tag are written to the cache at roughly
    * the same time, that only the most recent one ends up in the DB. This is testing
@@ -0,0 +1,116 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cachepersistence;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.lang.StringUtils;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import cern.c2mon.server.cache.dbaccess.RuleTagMapper;
+import cern.c2mon.server.cache.rule.RuleTagCacheImpl;
+import cern.c2mon.server.cachepersistence.common.BatchPersistenceManagerImpl;
+import cern.c2mon.server.common.rule.RuleTagCacheObject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * Runs the RuleTag persistence tests with the JDBC batch mode enabled. The
+ * batch size is smaller than the number of persisted rules, so that the
+ * statements are flushed several times per transaction.
+ */
+@TestPropertySource(properties = {
+    "c2mon.server.cachepersistence.jdbcBatch.ruleTag=true",
+    "c2mon.server.cachepersistence.jdbcBatch.size=2"
+})
+public class RuleTagCachePersistenceBatchTest extends RuleTagCachePersistenceTest {
+
+  private static final List<Long> RULE_IDS = Arrays.asList(60000L, 60001L, 60002L, 60003L, 60004L);
+
+  @Autowired
+  private RuleTagCacheImpl ruleTagCache;
+
+  @Autowired
+  private RuleTagMapper ruleTagMapper;
+
+  @Autowired
+  private BatchPersistenceManagerImpl ruleTagPersistenceManager;
+
+  @After
+  public void removeRules() {
+    for (Long id : RULE_IDS) {
+      if (ruleTagCache.hasKey(id)) {
+        ruleTagCache.remove(id);
+      }
+    }
+  }
+
+  /**
+   * More rules than the batch size, and not a multiple of it.
+   */
+  @Test
+  public void testPersistMoreRulesThanBatchSize() {
+    for (Long id : RULE_IDS) {
+      putValue(id, id.intValue() + 1);
+    }
+
+    ruleTagPersistenceManager.persistList(RULE_IDS);
+
+    for (Long id : RULE_IDS) {
+      assertEquals(id.intValue() + 1, ruleTagMapper.getItem(id).getValue());
+    }
+  }
+
+  /**
+   * The value of one rule does not fit into the TAGVALUE column: none of the
+   * rules is persisted, including the ones of the batches already flushed, and
+   * all of them are persisted with the next persistence run.
+   */
+  @Test
+  public void testFailingRuleInBatch() {
+    Long failingId = RULE_IDS.get(2);
+    for (Long id : RULE_IDS) {
+      putValue(id, id.intValue() + 1);
+    }
+    putValue(failingId, StringUtils.repeat("x", 4001));
+
+    ruleTagPersistenceManager.persistList(RULE_IDS);
+
+    for (Long id : RULE_IDS) {
+      assertNotEquals(id.intValue() + 1, ruleTagMapper.getItem(id).getValue());
+    }
+
+    putValue(failingId, failingId.intValue() + 1);
+    ruleTagPersistenceManager.persistList(Collections.<Long>emptyList());
+
+    for (Long id : RULE_IDS) {
+      assertEquals(id.intValue() + 1, ruleTagMapper.getItem(id).getValue());
+    }
+  }
+
+  private void putValue(final Long id, final Object value) {
+    RuleTagCacheObject rule = (RuleTagCacheObject) ruleTagMapper.getItem(id);
+    rule.setValue(value);
+    ruleTagCache.putQuiet(rule);
+  }
+}
@@ -0,0 +1,119 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.cachepersistence.impl;
+
+import java.util.ArrayList;
+
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.easymock.EasyMock;
+import org.easymock.IMocksControl;
+import org.junit.Before;
+import org.junit.Test;
+
+import cern.c2mon.server.cache.C2monCache;
+import cern.c2mon.server.cache.dbaccess.DataTagMapper;
+import cern.c2mon.server.common.datatag.DataTag;
+import cern.c2mon.server.common.datatag.DataTagCacheObject;
+
+import static org.junit.Assert.fail;
+
+/**
+ * Unit test of the JDBC batch mode of the {@link CachePersistenceDAOImpl}.
+ */
+public class CachePersistenceDAOImplTest {
+
+  private IMocksControl control;
+
+  private C2monCache<Long, DataTag> cache;
+
+  private DataTagMapper mapper;
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  private SqlSession session;
+
+  private CachePersistenceDAOImpl<DataTag> persistenceDAO;
+
+  @Before
+  @SuppressWarnings("unchecked")
+  public void setUp() {
+    control = EasyMock.createStrictControl();
+    cache = control.createMock(C2monCache.class);
+    mapper = control.createMock(DataTagMapper.class);
+    sqlSessionFactory = control.createMock(SqlSessionFactory.class);
+    session = control.createMock(SqlSession.class);
+    persistenceDAO = new CachePersistenceDAOImpl<>(mapper, cache, sqlSessionFactory, DataTagMapper.class, 2);
+  }
+
+  /**
+   * The statements are flushed each time the batch size is reached, the
+   * remaining ones with the commit.
+   */
+  @Test
+  public void testFlushAtBatchSize() {
+    EasyMock.expect(sqlSessionFactory.openSession(ExecutorType.BATCH, false)).andReturn(session);
+    EasyMock.expect(session.getMapper(DataTagMapper.class)).andReturn(mapper);
+    for (long key = 1; key <= 5; key++) {
+      expectUpdate(key);
+      if (key % 2 == 0) {
+        EasyMock.expect(session.flushStatements()).andReturn(new ArrayList<BatchResult>());
+      }
+    }
+    session.commit();
+    session.close();
+    control.replay();
+
+    persistenceDAO.persistBatch(new long[] {1, 2, 3, 4, 5});
+
+    control.verify();
+  }
+
+  /**
+   * The error of a statement is only reported when its batch is flushed; the
+   * remaining statements are not sent and the session is not committed.
+   */
+  @Test
+  public void testFailingStatementInBatch() {
+    EasyMock.expect(sqlSessionFactory.openSession(ExecutorType.BATCH, false)).andReturn(session);
+    EasyMock.expect(session.getMapper(DataTagMapper.class)).andReturn(mapper);
+    expectUpdate(1);
+    expectUpdate(2);
+    EasyMock.expect(session.flushStatements()).andReturn(new ArrayList<BatchResult>());
+    expectUpdate(3);
+    expectUpdate(4);
+    EasyMock.expect(session.flushStatements()).andThrow(new PersistenceException("batch index #0 failed"));
+    session.close();
+    control.replay();
+
+    try {
+      persistenceDAO.persistBatch(new long[] {1, 2, 3, 4, 5});
+      fail("PersistenceException expected");
+    } catch (PersistenceException e) {
+      control.verify();
+    }
+  }
+
+  private void expectUpdate(final long key) {
+    DataTagCacheObject tag = new DataTagCacheObject(key);
+    EasyMock.expect(cache.getCopy(key)).andReturn(tag);
+    mapper.updateCacheable(tag);
+  }
+}
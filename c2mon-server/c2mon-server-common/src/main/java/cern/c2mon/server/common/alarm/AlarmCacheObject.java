@@ -150,6 +150,9 @@ public class AlarmCacheObject implements Cloneable, Cacheable, Alarm {
     if (this.timestamp != null) {
       alarmCacheObject.timestamp = (Timestamp) this.timestamp.clone();
     }
+    if (this.metadata != null) {
+      alarmCacheObject.metadata = this.metadata.clone();
+    }
     return alarmCacheObject;
   }
 
@@ -21,6 +21,7 @@ import java.sql.Timestamp;
 import java.util.HashSet;
 import java.util.Set;
 
+import cern.c2mon.server.common.listener.Snapshotable;
 import cern.c2mon.server.common.tag.AbstractTagCacheObject;
 import cern.c2mon.shared.common.Cacheable;
 import cern.c2mon.shared.common.datatag.DataTagAddress;
@@ -39,7 +40,7 @@ import cern.c2mon.shared.common.datatag.DataTagQualityImpl;
  * @author Mark Brightwell
  *
  */
-public class DataTagCacheObject extends AbstractTagCacheObject implements DataTag, Cacheable, Cloneable {
+public class DataTagCacheObject extends AbstractTagCacheObject implements DataTag, Cacheable, Cloneable, Snapshotable {
 
   /**
    * Version number of the class used during serialization/deserialization. This
@@ -139,9 +140,31 @@ public class DataTagCacheObject extends AbstractTagCacheObject implements DataTa
     if (sourceTimestamp != null) {
       dataTagCacheObject.sourceTimestamp = (Timestamp) this.sourceTimestamp.clone();
     }
+    if (daqTimestamp != null) {
+      dataTagCacheObject.daqTimestamp = (Timestamp) this.daqTimestamp.clone();
+    }
     return dataTagCacheObject;
   }
 
+  /**
+   * Creates a lightweight snapshot used for notifying the cache listeners.
+   * The address is shared with this object, as it is only ever replaced on
+   * reconfiguration; the timestamps are copied as they are updated in place.
+   *
+   * @return the snapshot of this DataTag
+   */
+  @Override
+  public DataTagCacheObject snapshot() {
+    DataTagCacheObject snapshot = (DataTagCacheObject) createSnapshot();
+    if (sourceTimestamp != null) {
+      snapshot.sourceTimestamp = (Timestamp) this.sourceTimestamp.clone();
+    }
+    if (daqTimestamp != null) {
+      snapshot.daqTimestamp = (Timestamp) this.daqTimestamp.clone();
+    }
+    return snapshot;
+  }
+
   /**
    * Constructor This constructor should only be used to create a "fake"
    * DataTagCacheObject representing a tag that does not exist within the TIM
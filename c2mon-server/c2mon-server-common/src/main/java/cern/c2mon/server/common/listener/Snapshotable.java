@@ -0,0 +1,39 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.common.listener;
+
+import cern.c2mon.shared.common.Cacheable;
+
+/**
+ * Implemented by cache objects able to provide a lightweight snapshot of
+ * their current state. The cache uses the snapshot instead of a full clone
+ * when notifying its listeners of an update, and shares the same snapshot
+ * between all listeners.
+ *
+ * <p>Listeners must treat the snapshot as read-only. If they need to modify
+ * the received object, they have to clone it first.
+ */
+public interface Snapshotable {
+
+  /**
+   * Creates a snapshot of the current state of this cache object. Should be
+   * called within a lock on the cache object.
+   *
+   * @return a read-only snapshot of the same type as this object
+   */
+  Cacheable snapshot();
+}
@@ -52,6 +52,24 @@ public class Metadata implements Serializable, Cloneable {
     return null;
   }
 
+  /**
+   * Creates a copy of this metadata with its own map. The values are not
+   * copied, as they are restricted to immutable String, Number and Boolean
+   * types.
+   *
+   * @return a copy of this metadata
+   */
+  @Override
+  public Metadata clone() {
+    try {
+      Metadata clone = (Metadata) super.clone();
+      clone.metadata = new HashMap<>(this.metadata);
+      return clone;
+    } catch (CloneNotSupportedException e) {
+      throw new IllegalStateException("Metadata is Cloneable - this should never happen!", e);
+    }
+  }
+
   public void addMetadata(String key, Object value) {
     metadata.put(key, value);
   }
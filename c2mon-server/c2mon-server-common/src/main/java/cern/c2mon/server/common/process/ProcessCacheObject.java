@@ -94,9 +94,10 @@ public class ProcessCacheObject extends AbstractSupervisedCacheObject implements
   private Boolean requiresReboot = Boolean.FALSE;
 
   /**
-   * Process Identifier Key (PIK) per DAQ instance
+   * Process Identifier Key (PIK) per DAQ instance (volatile as it is read
+   * without locking when checking the incoming DAQ updates)
    */
-  private Long processPIK;
+  private volatile Long processPIK;
 
   /**
    * Enum for describing configuration type
@@ -235,9 +235,39 @@ public abstract class AbstractTagCacheObject implements DataTagConstants, Clonea
     if (cacheTimestamp != null) {
       cacheObject.cacheTimestamp = (Timestamp) cacheTimestamp.clone();
     }
+    if (metadata != null) {
+      cacheObject.metadata = metadata.clone();
+    }
     return cacheObject;
   }
 
+  /**
+   * Creates a lightweight copy of this tag, from which the subclasses
+   * build their {@link cern.c2mon.server.common.listener.Snapshotable#snapshot()}.
+   *
+   * <p>Unlike {@link #clone()}, only the state modified in place on value
+   * updates (quality and cache timestamp) is copied. The configuration state
+   * (metadata, alarm and rule ids) is shared with this object, as it is never
+   * modified in place but always replaced. The snapshot also shares the locks
+   * of this object, which is harmless as the snapshot is read-only.
+   *
+   * @return the shallow copy with its own value state
+   */
+  protected AbstractTagCacheObject createSnapshot() {
+    try {
+      AbstractTagCacheObject snapshot = (AbstractTagCacheObject) super.clone();
+      if (dataTagQuality != null) {
+        snapshot.dataTagQuality = (DataTagQuality) dataTagQuality.clone();
+      }
+      if (cacheTimestamp != null) {
+        snapshot.cacheTimestamp = (Timestamp) cacheTimestamp.clone();
+      }
+      return snapshot;
+    } catch (CloneNotSupportedException e) {
+      throw new IllegalStateException("Tag cache objects are Cloneable - this should never happen!", e);
+    }
+  }
+
   /**
    * only compare ids so far
    */
@@ -276,10 +306,15 @@ public abstract class AbstractTagCacheObject implements DataTagConstants, Clonea
   /**
    * Add a new rule to the collection of rules that need to be evaluated when
    * THIS tags changes.
+   *
+   * <p>The collection is replaced rather than modified, as it may be shared
+   * with snapshots of this tag.
    */
   public final boolean addRuleId(final Long pId) {
     if (!this.ruleIds.contains(pId)) {
-      this.ruleIds.add(pId);
+      Collection<Long> newRuleIds = new ArrayList<>(this.ruleIds);
+      newRuleIds.add(pId);
+      this.ruleIds = newRuleIds;
       this.tagChange = CHANGE_CONFIGURATION;
       return true;
     } else {
@@ -290,10 +325,15 @@ public abstract class AbstractTagCacheObject implements DataTagConstants, Clonea
   /**
    * Remove a rule from the collection of rules that need to be evaluated when
    * THIS tags changes.
+   *
+   * <p>The collection is replaced rather than modified, as it may be shared
+   * with snapshots of this tag.
    */
   public final boolean removeRuleId(final Long pId) {
     if (this.ruleIds.contains(pId)) {
-      this.ruleIds.remove(pId);
+      Collection<Long> newRuleIds = new ArrayList<>(this.ruleIds);
+      newRuleIds.remove(pId);
+      this.ruleIds = newRuleIds;
       this.tagChange = CHANGE_CONFIGURATION;
       return true;
     } else {
@@ -301,6 +341,40 @@ public abstract class AbstractTagCacheObject implements DataTagConstants, Clonea
     }
   }
 
+  /**
+   * Add a new alarm to the collection of alarms attached to this tag.
+   *
+   * <p>The collection is replaced rather than modified, as it may be shared
+   * with snapshots of this tag.
+   */
+  public final boolean addAlarmId(final Long alarmId) {
+    if (!this.alarmIds.contains(alarmId)) {
+      Collection<Long> newAlarmIds = new ArrayList<>(this.alarmIds);
+      newAlarmIds.add(alarmId);
+      this.alarmIds = newAlarmIds;
+      return true;
+    } else {
+      return false;
+    }
+  }
+
+  /**
+   * Remove an alarm from the collection of alarms attached to this tag.
+   *
+   * <p>The collection is replaced rather than modified, as it may be shared
+   * with snapshots of this tag.
+   */
+  public final boolean removeAlarmId(final Long alarmId) {
+    if (this.alarmIds.contains(alarmId)) {
+      Collection<Long> newAlarmIds = new ArrayList<>(this.alarmIds);
+      newAlarmIds.remove(alarmId);
+      this.alarmIds = newAlarmIds;
+      return true;
+    } else {
+      return false;
+    }
+  }
+
   public final boolean isValid() {
     return dataTagQuality.isValid();
   }
@@ -391,12 +465,19 @@ public abstract class AbstractTagCacheObject implements DataTagConstants, Clonea
     try {
       if (ruleIdsString != null && !ruleIdsString.isEmpty()) {
         String[] ruleIdArray = ruleIdsString.split(",");
-        setRuleIds(new ArrayList<Long>(ruleIdArray.length));
+        Collection<Long> newRuleIds = new ArrayList<>(ruleIdArray.length);
         for (int i = 0; i != ruleIdArray.length; i++) {
           if (!ruleIdArray[i].equals("")) {
-            addRuleId(Long.valueOf(ruleIdArray[i].trim()));
+            Long ruleId = Long.valueOf(ruleIdArray[i].trim());
+            if (!newRuleIds.contains(ruleId)) {
+              newRuleIds.add(ruleId);
+            }
           }
         }
+        setRuleIds(newRuleIds);
+        if (!newRuleIds.isEmpty()) {
+          this.tagChange = CHANGE_CONFIGURATION;
+        }
       } else {
         setRuleIds(new ArrayList<>(0));
         this.ruleIdsString = null;
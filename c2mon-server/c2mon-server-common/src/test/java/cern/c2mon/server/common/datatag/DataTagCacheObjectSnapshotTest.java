@@ -0,0 +1,105 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.common.datatag;
+
+import java.sql.Timestamp;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import cern.c2mon.server.common.control.ControlTagCacheObject;
+import cern.c2mon.shared.common.datatag.DataTagAddress;
+import cern.c2mon.shared.common.datatag.DataTagQualityImpl;
+import cern.c2mon.shared.common.datatag.TagQualityStatus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test of the DataTag snapshots used for cache listener notification.
+ */
+public class DataTagCacheObjectSnapshotTest {
+
+  private DataTagCacheObject dataTag;
+
+  @Before
+  public void setUp() {
+    dataTag = new DataTagCacheObject(1L, "test_tag", "Integer", DataTagCacheObject.MODE_OPERATIONAL);
+    dataTag.setValue(10);
+    dataTag.setAddress(new DataTagAddress());
+    dataTag.setDataTagQuality(new DataTagQualityImpl());
+    dataTag.getDataTagQuality().validate();
+    dataTag.setCacheTimestamp(new Timestamp(1000));
+    dataTag.setSourceTimestamp(new Timestamp(1000));
+    dataTag.setDaqTimestamp(new Timestamp(1000));
+    dataTag.setRuleIdsString("2,3");
+    dataTag.addAlarmId(4L);
+    dataTag.getMetadata().addMetadata("building", "864");
+  }
+
+  @Test
+  public void testSnapshotSharesConfiguration() {
+    DataTagCacheObject snapshot = dataTag.snapshot();
+
+    assertNotSame(dataTag, snapshot);
+    assertEquals(dataTag.getValue(), snapshot.getValue());
+    assertSame(dataTag.getAddress(), snapshot.getAddress());
+    assertSame(dataTag.getMetadata(), snapshot.getMetadata());
+    assertSame(dataTag.getRuleIds(), snapshot.getRuleIds());
+    assertSame(dataTag.getAlarmIds(), snapshot.getAlarmIds());
+  }
+
+  @Test
+  public void testSnapshotIsIsolatedFromValueUpdates() {
+    DataTagCacheObject snapshot = dataTag.snapshot();
+
+    dataTag.setValue(20);
+    dataTag.setCacheTimestamp(new Timestamp(2000));
+    dataTag.setSourceTimestamp(new Timestamp(2000));
+    dataTag.setDaqTimestamp(new Timestamp(2000));
+    dataTag.getDataTagQuality().addInvalidStatus(TagQualityStatus.INACCESSIBLE);
+
+    assertEquals(10, snapshot.getValue());
+    assertEquals(1000, snapshot.getCacheTimestamp().getTime());
+    assertEquals(1000, snapshot.getSourceTimestamp().getTime());
+    assertEquals(1000, snapshot.getDaqTimestamp().getTime());
+    assertTrue(snapshot.getDataTagQuality().isValid());
+  }
+
+  @Test
+  public void testSnapshotIsIsolatedFromReconfiguration() {
+    DataTagCacheObject snapshot = dataTag.snapshot();
+
+    dataTag.addRuleId(5L);
+    dataTag.removeRuleId(2L);
+    dataTag.addAlarmId(6L);
+
+    assertEquals(2, snapshot.getRuleIds().size());
+    assertTrue(snapshot.getRuleIds().contains(2L));
+    assertEquals(1, snapshot.getAlarmIds().size());
+    assertEquals(2, dataTag.getRuleIds().size());
+    assertEquals(2, dataTag.getAlarmIds().size());
+  }
+
+  @Test
+  public void testControlTagSnapshotType() {
+    ControlTagCacheObject controlTag = new ControlTagCacheObject(7L, "control_tag", "Long", DataTagCacheObject.MODE_OPERATIONAL);
+    assertEquals(ControlTagCacheObject.class, controlTag.snapshot().getClass());
+  }
+}
@@ -28,6 +28,7 @@ import cern.c2mon.server.cache.DataTagFacade;
 import cern.c2mon.server.cache.TagLocationService;
 import cern.c2mon.server.cache.C2monCache;
 import cern.c2mon.server.cache.loading.ConfigurableDAO;
+import cern.c2mon.server.common.tag.AbstractTagCacheObject;
 import cern.c2mon.server.common.tag.Tag;
 import cern.c2mon.shared.common.ConfigurationException;
 
@@ -158,7 +159,7 @@ abstract class TagConfigTransactedImpl<T extends Tag> implements TagConfigTransa
     tagCache.acquireWriteLockOnKey(tagId);
     try {
       T tag = tagCache.get(tagId);
-      tag.getAlarmIds().add(alarmId);
+      ((AbstractTagCacheObject) tag).addAlarmId(alarmId);
       tagCache.putQuiet(tag);
     } finally {
       tagCache.releaseWriteLockOnKey(tagId);
@@ -172,7 +173,7 @@ abstract class TagConfigTransactedImpl<T extends Tag> implements TagConfigTransa
     tagCache.acquireWriteLockOnKey(tagId);
     try {      
       T tag = tagCache.get(tagId);
-      tag.getAlarmIds().remove(alarmId);
+      ((AbstractTagCacheObject) tag).removeAlarmId(alarmId);
       tagCache.putQuiet(tag);
     } finally {
       tagCache.releaseWriteLockOnKey(tagId);
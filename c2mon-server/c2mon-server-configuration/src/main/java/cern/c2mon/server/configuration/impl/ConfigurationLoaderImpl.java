@@ -42,6 +42,7 @@ import cern.c2mon.server.cache.ClusterCache;
 import cern.c2mon.server.cache.ProcessCache;
 import cern.c2mon.server.cache.ProcessFacade;
 import cern.c2mon.server.cache.loading.SequenceDAO;
+import cern.c2mon.server.cache.loading.common.CacheSnapshotManager;
 import cern.c2mon.server.common.config.ServerProperties;
 import cern.c2mon.server.configuration.ConfigProgressMonitor;
 import cern.c2mon.server.configuration.ConfigurationLoader;
@@ -126,6 +127,8 @@ public class ConfigurationLoaderImpl implements ConfigurationLoader {
 
   private final DeviceConfigHandler deviceConfigHandler;
 
+  private final CacheSnapshotManager cacheSnapshotManager;
+
   private Environment environment;
 
   /**
@@ -169,7 +172,8 @@ public class ConfigurationLoaderImpl implements ConfigurationLoader {
                                  ConfigurationParser configParser,
                                  SequenceDAO sequenceDAO,
                                  ConfigurationProperties properties,
-                                 ServerProperties serverProperties) {
+                                 ServerProperties serverProperties,
+                                 CacheSnapshotManager cacheSnapshotManager) {
     super();
     this.processCommunicationManager = processCommunicationManager;
     this.configurationDAO = configurationDAO;
@@ -188,6 +192,7 @@ public class ConfigurationLoaderImpl implements ConfigurationLoader {
     this.deviceConfigHandler = deviceConfigHandler;
     this.configParser = configParser;
     this.sequenceDAO = sequenceDAO;
+    this.cacheSnapshotManager = cacheSnapshotManager;
     this.daqConfigEnabled = properties.isDaqConfigEnabled();
     this.reportDirectory = serverProperties.getHome() + "/reports";
   }
@@ -318,6 +323,10 @@ public class ConfigurationLoaderImpl implements ConfigurationLoader {
       configProgressMonitor.resetCounter();
     }
 
+    // The cache snapshots are reconciled with value updates only, drop the ones
+    // taken before or while the configuration is applied
+    cacheSnapshotManager.invalidateSnapshots();
+
     // Write lock needed to avoid parallel Batch persistence transactions
     try {
       clusterCache.acquireWriteLockOnKey(this.cachePersistenceLock);
@@ -348,6 +357,7 @@ public class ConfigurationLoaderImpl implements ConfigurationLoader {
       }
     } finally {
       clusterCache.releaseWriteLockOnKey(this.cachePersistenceLock);
+      cacheSnapshotManager.invalidateSnapshots();
     }
 
     //send events to Process if enabled, convert the responses and introduce them into the existing report; else set all DAQs to restart
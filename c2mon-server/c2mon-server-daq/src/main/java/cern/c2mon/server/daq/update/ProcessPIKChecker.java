@@ -0,0 +1,136 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.daq.update;
+
+import lombok.extern.slf4j.Slf4j;
+
+import cern.c2mon.server.cache.ProcessCache;
+import cern.c2mon.server.cache.ProcessFacade;
+import cern.c2mon.server.cache.exception.CacheElementNotFoundException;
+import cern.c2mon.server.common.config.ServerProperties;
+import cern.c2mon.server.common.process.Process;
+import cern.c2mon.shared.common.datatag.DataTagValueUpdate;
+
+/**
+ * Checks the Process Identifier Key (PIK) sent with the incoming DAQ updates.
+ *
+ * <p>Once the PIK of a process is registered in the server (the normal case),
+ * updates are checked against the PIK of the process cache object without
+ * any locking, so that the JMS threads receiving updates for the same process
+ * do not serialise on the process cache key. The write lock on the process is
+ * only taken to register the PIK received from the DAQ when none is set in
+ * the server (this registration is checked again once the lock is held).
+ */
+@Slf4j
+public class ProcessPIKChecker {
+
+  private final ProcessCache processCache;
+
+  private final ProcessFacade processFacade;
+
+  private final ServerProperties properties;
+
+  public ProcessPIKChecker(final ProcessCache processCache,
+                           final ProcessFacade processFacade,
+                           final ServerProperties properties) {
+    this.processCache = processCache;
+    this.processFacade = processFacade;
+    this.properties = properties;
+  }
+
+  /**
+   * Function to check all possible process PIK scenarios
+   *
+   * @param dataTagValueUpdate Update with all information
+   * @return false if PIK registered in server but no PIK or wrong PIK sent,
+   *         true in any other case
+   */
+  public boolean checkProcessPIK(final DataTagValueUpdate dataTagValueUpdate) {
+    Process process;
+    try {
+      process = processCache.get(dataTagValueUpdate.getProcessId());
+    } catch (CacheElementNotFoundException cacheEx) {
+      log.warn("Receive updates from unrecognized Process #" + dataTagValueUpdate.getProcessId() +  ": Ignoring the updates", cacheEx);
+      return true;
+    }
+
+    Long registeredPIK = process.getProcessPIK();
+    if (registeredPIK != null) {
+      return checkRegisteredPIK(process, registeredPIK, dataTagValueUpdate);
+    }
+
+    // If no PIK sent by the DAQ update ignore message
+    if (dataTagValueUpdate.getProcessPIK() == null) {
+      log.warn("Processing incoming update for Process " + process.getName() + " with no PIK: Ignoring the update");
+      return false;
+    }
+
+    // If the Test Mode is on we don't save the PIK
+    if (properties.isTestMode()) {
+      log.trace("[TEST] Processing incoming update for Process " + process.getName());
+      return true;
+    }
+
+    return registerPIK(dataTagValueUpdate);
+  }
+
+  /**
+   * If PIK is registered in Server and no PIK or wrong PIK is sent by the DAQ
+   * update, the message is ignored.
+   */
+  private boolean checkRegisteredPIK(final Process process, final Long registeredPIK, final DataTagValueUpdate dataTagValueUpdate) {
+    if (dataTagValueUpdate.getProcessPIK() == null) {
+      log.warn(" Processing incoming update for Process " + process.getName() +
+          ": PIK registered (" + registeredPIK + ") but no PIK received from update: Ignoring the update");
+
+      // TODO: Send disconnection
+      return false;
+    } else if (!registeredPIK.equals(dataTagValueUpdate.getProcessPIK())) {
+      log.warn("Processing incoming updates for Process " + process.getName() +
+          ": Received wrong PIK - cache vs update (" + registeredPIK + " vs " +
+          dataTagValueUpdate.getProcessPIK() + "): Ignoring the update");
+
+      // TODO: Send disconnection
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * If no PIK is registered in the server cache (ie. corrupted) save the PIK
+   * of the update and accept it, unless another thread registered a PIK in
+   * the meantime.
+   */
+  private boolean registerPIK(final DataTagValueUpdate dataTagValueUpdate) {
+    processCache.acquireWriteLockOnKey(dataTagValueUpdate.getProcessId());
+    try {
+      Process process = processCache.get(dataTagValueUpdate.getProcessId());
+      Long registeredPIK = process.getProcessPIK();
+      if (registeredPIK != null) {
+        return checkRegisteredPIK(process, registeredPIK, dataTagValueUpdate);
+      }
+
+      log.trace("Processing incoming update for Process " + process.getName() + " and saving PIK " + dataTagValueUpdate.getProcessPIK());
+      processFacade.setProcessPIK(process.getId(), dataTagValueUpdate.getProcessPIK());
+    } catch (CacheElementNotFoundException cacheEx) {
+      log.warn("Receive updates from unrecognized Process #" + dataTagValueUpdate.getProcessId() +  ": Ignoring the updates", cacheEx);
+    } finally {
+      processCache.releaseWriteLockOnKey(dataTagValueUpdate.getProcessId());
+    }
+    return true;
+  }
+}
@@ -40,7 +40,6 @@ import cern.c2mon.server.cache.DataTagFacade;
 import cern.c2mon.server.cache.ProcessCache;
 import cern.c2mon.server.cache.ProcessFacade;
 import cern.c2mon.server.cache.exception.CacheElementNotFoundException;
-import cern.c2mon.server.common.process.Process;
 import cern.c2mon.server.common.thread.Event;
 import cern.c2mon.server.supervision.SupervisionManager;
 import cern.c2mon.shared.common.datatag.DataTagValueUpdate;
@@ -91,16 +90,9 @@ public class SourceUpdateManagerImpl implements SourceUpdateManager, SessionAwar
   private final SupervisionManager supervisionManager;
 
   /**
-   * Reference to the Process Facade needed to check the process PIK (we avoid to use the Process Cache)
+   * Checks the process PIK of the incoming updates.
    */
-  private final ProcessFacade processFacade;
-
-  /**
-   * Reference to the Process Cache
-   */
-  private final ProcessCache processCache;
-
-  private final ServerProperties properties;
+  private final ProcessPIKChecker processPIKChecker;
 
   /**
    * For management only. Number of JMS threads
@@ -125,9 +117,6 @@ public class SourceUpdateManagerImpl implements SourceUpdateManager, SessionAwar
   private static final int SWITCH_OFF_COUNTDOWN = 10000;
   private volatile AtomicInteger switchOffCountDown = new AtomicInteger(SWITCH_OFF_COUNTDOWN);
 
-  private static final Boolean IGNORE_UPDATE = false;
-  private static final Boolean ACCEPT_UPDATE = true;
-
   @Autowired
   public SourceUpdateManagerImpl(final DataTagFacade dataTagFacade,
                                  final ControlTagFacade controlTagFacade,
@@ -141,9 +130,7 @@ public class SourceUpdateManagerImpl implements SourceUpdateManager, SessionAwar
     this.controlTagFacade = controlTagFacade;
     this.supervisionManager = supervisionManager;
     this.converter = dataTagValueUpdateConverter;
-    this.processFacade = processFacade;
-    this.processCache = processCache;
-    this.properties = properties;
+    this.processPIKChecker = new ProcessPIKChecker(processCache, processFacade, properties);
   }
 
   /**
@@ -203,7 +190,7 @@ public class SourceUpdateManagerImpl implements SourceUpdateManager, SessionAwar
       DataTagValueUpdate update = (DataTagValueUpdate) converter.fromMessage(message);
 
       // We do the process PIK checking in order to accept or not the update
-      if(this.checkProcessPIK(update)) {
+      if (processPIKChecker.checkProcessPIK(update)) {
         processUpdates(update);
       }
       else {
@@ -267,64 +254,4 @@ public class SourceUpdateManagerImpl implements SourceUpdateManager, SessionAwar
   public final AtomicInteger getActiveUpdateThreads() {
     return activeUpdateThreads;
   }
-
-  /**
-   * Function to check all possible process PIK scenarios
-   *
-   * @param dataTagValueUpdate Update with all information
-   * @return {@link #IGNORE_UPDATE} if PIK registered in server but no PIK or wrong PIK sent
-   *         {@link #ACCEPT_UPDATE} in any other case
-   */
-  private Boolean checkProcessPIK(final DataTagValueUpdate dataTagValueUpdate) {
-    Process process;
-
-    processCache.acquireWriteLockOnKey(dataTagValueUpdate.getProcessId());
-    try {
-      process = this.processCache.get(dataTagValueUpdate.getProcessId());
-
-      // if PIK is registered in Server
-      if (process.getProcessPIK() != null) {
-        // If no PIK sent by the DAQ update or wrong PIK is sent by DAQ update ignore message
-        if (dataTagValueUpdate.getProcessPIK() == null) {
-          log.warn(" Processing incoming update for Process " + process.getName() +
-              ": PIK registered (" + process.getProcessPIK() + ") but no PIK received from update: Ignoring the update");
-
-          // TODO: Send disconnection
-          return IGNORE_UPDATE;
-        } else if (!process.getProcessPIK().equals(dataTagValueUpdate.getProcessPIK())) {
-          log.warn("Processing incoming updates for Process " + process.getName() +
-              ": Received wrong PIK - cache vs update (" + process.getProcessPIK() + " vs " +
-              dataTagValueUpdate.getProcessPIK() + "): Ignoring the update");
-
-          // TODO: Send disconnection
-          return IGNORE_UPDATE;
-        }
-      }
-      // If no PIK register in server cache (ie. corrupted) save the PIK and Accept
-      else {
-        // If no PIK sent by the DAQ update ignore message
-        if (dataTagValueUpdate.getProcessPIK() == null) {
-          log.warn("Processing incoming update for Process " + process.getName() + " with no PIK: Ignoring the update");
-
-          return IGNORE_UPDATE;
-        }
-
-        // If the Test Mode is on we don't save the PIK
-        if (properties.isTestMode()) {
-          log.trace("[TEST] Processing incoming update for Process " + process.getName());
-        } else {
-          log.trace("Processing incoming update for Process " + process.getName() + " and saving PIK " + dataTagValueUpdate.getProcessPIK());
-
-          this.processFacade.setProcessPIK(process.getId(), dataTagValueUpdate.getProcessPIK());
-        }
-      }
-    } catch (CacheElementNotFoundException cacheEx) {
-      log.warn("Receive updates from unrecognized Process #" + dataTagValueUpdate.getProcessId() +  ": Ignoring the updates", cacheEx);
-    } finally {
-      processCache.releaseWriteLockOnKey(dataTagValueUpdate.getProcessId());
-    }
-
-    // If no problems we accept the update
-    return ACCEPT_UPDATE;
-  }
 }
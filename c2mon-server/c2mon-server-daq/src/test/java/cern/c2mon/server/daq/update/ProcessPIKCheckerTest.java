@@ -0,0 +1,104 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.daq.update;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import cern.c2mon.server.cache.ProcessCache;
+import cern.c2mon.server.cache.ProcessFacade;
+import cern.c2mon.server.common.config.ServerProperties;
+import cern.c2mon.server.common.process.ProcessCacheObject;
+import cern.c2mon.shared.common.datatag.DataTagValueUpdate;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ProcessPIKCheckerTest {
+
+  private static final Long PROCESS_ID = 50L;
+
+  private ProcessCache processCache;
+
+  private ProcessFacade processFacade;
+
+  private ProcessPIKChecker checker;
+
+  private ProcessCacheObject process;
+
+  @Before
+  public void setUp() {
+    processCache = createMock(ProcessCache.class);
+    processFacade = createMock(ProcessFacade.class);
+    checker = new ProcessPIKChecker(processCache, processFacade, new ServerProperties());
+    process = new ProcessCacheObject(PROCESS_ID);
+    process.setName("P_TEST");
+  }
+
+  @Test
+  public void testRegisteredPIKIsCheckedWithoutLocking() {
+    process.setProcessPIK(12345L);
+    expect(processCache.get(PROCESS_ID)).andReturn(process).times(3);
+    replay(processCache, processFacade);
+
+    assertTrue(checker.checkProcessPIK(new DataTagValueUpdate(PROCESS_ID, 12345L)));
+    assertFalse(checker.checkProcessPIK(new DataTagValueUpdate(PROCESS_ID, 54321L)));
+    assertFalse(checker.checkProcessPIK(new DataTagValueUpdate(PROCESS_ID)));
+
+    verify(processCache, processFacade);
+  }
+
+  @Test
+  public void testPIKIsRegisteredUnderWriteLock() {
+    expect(processCache.get(PROCESS_ID)).andReturn(process).times(2);
+    processCache.acquireWriteLockOnKey(PROCESS_ID);
+    processFacade.setProcessPIK(PROCESS_ID, 12345L);
+    processCache.releaseWriteLockOnKey(PROCESS_ID);
+    replay(processCache, processFacade);
+
+    assertTrue(checker.checkProcessPIK(new DataTagValueUpdate(PROCESS_ID, 12345L)));
+
+    verify(processCache, processFacade);
+  }
+
+  @Test
+  public void testPIKRegisteredConcurrentlyIsChecked() {
+    ProcessCacheObject registered = new ProcessCacheObject(PROCESS_ID);
+    registered.setName("P_TEST");
+    registered.setProcessPIK(12345L);
+    expect(processCache.get(PROCESS_ID)).andReturn(process);
+    processCache.acquireWriteLockOnKey(PROCESS_ID);
+    expect(processCache.get(PROCESS_ID)).andReturn(registered);
+    processCache.releaseWriteLockOnKey(PROCESS_ID);
+    replay(processCache, processFacade);
+
+    assertFalse(checker.checkProcessPIK(new DataTagValueUpdate(PROCESS_ID, 54321L)));
+
+    verify(processCache, processFacade);
+  }
+
+  @Test
+  public void testUpdateWithoutPIKIsIgnoredWhenNoneRegistered() {
+    expect(processCache.get(PROCESS_ID)).andReturn(process);
+    replay(processCache, processFacade);
+
+    assertFalse(checker.checkProcessPIK(new DataTagValueUpdate(PROCESS_ID)));
+
+    verify(processCache, processFacade);
+  }
+}
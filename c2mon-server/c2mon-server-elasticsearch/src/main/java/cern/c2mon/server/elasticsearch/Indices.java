@@ -22,9 +22,11 @@ import org.springframework.stereotype.Component;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Static utility singleton for working with Elasticsearch indices.
@@ -41,7 +43,20 @@ public class Indices {
   @Getter
   private ElasticsearchProperties properties;
 
-  private final List<String> indexCache = new CopyOnWriteArrayList<>();
+  /**
+   * Names of the indices known to exist, read without locking.
+   */
+  private final Set<String> indexCache = ConcurrentHashMap.newKeySet();
+
+  /**
+   * Index names by prefix, index type and day. The name of a time series
+   * index only depends on the local date of the timestamp, so it is
+   * computed once per day instead of formatting every timestamp.
+   */
+  private final ConcurrentHashMap<String, String> indexNameCache = new ConcurrentHashMap<>();
+
+  /** Bound of the index name cache, which is cleared when reached */
+  private static final int MAX_CACHED_INDEX_NAMES = 1000;
 
   private static Indices self;
 
@@ -73,6 +88,9 @@ public class Indices {
    * @return true if the index was successfully created, false otherwise
    */
   public static boolean create(String indexName, String type, String mapping) {
+    if (self.indexCache.contains(indexName)) {
+      return true;
+    }
     synchronized (Indices.class) {
       if (exists(indexName)) {
         return true;
@@ -111,14 +129,17 @@ public class Indices {
   /**
    * Check if a given index exists.
    * <p>
-   * The node-local index cache will be searched first before querying
-   * Elasticsearch directly.
+   * The node-local index cache will be searched first, without locking,
+   * before querying Elasticsearch directly.
    *
    * @param indexName the name of the index
    *
    * @return true if the index exists, false otherwise
    */
   public static boolean exists(String indexName) {
+    if (self.indexCache.contains(indexName)) {
+      return true;
+    }
     synchronized (Indices.class) {
       boolean exists = self.indexCache.contains(indexName);
       if (!exists) {
@@ -223,6 +244,21 @@ public class Indices {
    */
   private static String getIndexName(String prefix, long timestamp) {
     String indexType = self.properties.getIndexType();
+    long day = Math.floorDiv(timestamp + TimeZone.getDefault().getOffset(timestamp), TimeUnit.DAYS.toMillis(1));
+    String key = prefix + '|' + indexType + '|' + day;
+
+    String indexName = self.indexNameCache.get(key);
+    if (indexName == null) {
+      if (self.indexNameCache.size() >= MAX_CACHED_INDEX_NAMES) {
+        self.indexNameCache.clear();
+      }
+      indexName = formatIndexName(prefix, indexType, timestamp);
+      self.indexNameCache.put(key, indexName);
+    }
+    return indexName;
+  }
+
+  private static String formatIndexName(String prefix, String indexType, long timestamp) {
     String dateFormat;
 
     switch (indexType.toLowerCase()) {
@@ -0,0 +1,186 @@
+package cern.c2mon.server.elasticsearch.bulk;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.rest.RestStatus;
+
+/**
+ * Handles the index requests that could not be executed by a bulk operation,
+ * which has been sent asynchronously:
+ * <ul>
+ * <li>requests rejected by a busy cluster are submitted again after an
+ * exponentially growing delay, up to a maximum number of retries;
+ * <li>the other failed requests, and the rejected ones out of retries, are
+ * passed to the fallback registered for their mapping type, so that the
+ * documents are not lost.
+ * </ul>
+ */
+@Slf4j
+public class BulkFailureHandler {
+
+  private final Map<String, Consumer<List<IndexRequest>>> fallbacks = new ConcurrentHashMap<>();
+
+  /** Number of retries of the requests being retried */
+  private final Map<IndexRequest, Integer> retries = new ConcurrentHashMap<>();
+
+  private final Consumer<IndexRequest> resubmit;
+
+  private final int maxRetries;
+
+  private final long retryDelay;
+
+  private final ScheduledExecutorService retryScheduler;
+
+  /**
+   * @param resubmit   submits a request again
+   * @param maxRetries maximum number of retries of a rejected request
+   * @param retryDelay delay in ms before the first retry, doubled on every
+   *                   further retry
+   */
+  public BulkFailureHandler(Consumer<IndexRequest> resubmit, int maxRetries, long retryDelay) {
+    this.resubmit = resubmit;
+    this.maxRetries = maxRetries;
+    this.retryDelay = retryDelay;
+    this.retryScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "ElasticsearchBulkRetry");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * @param type     the mapping type of the index requests
+   * @param fallback called with the failed requests of the given type
+   */
+  public void registerFallback(String type, Consumer<List<IndexRequest>> fallback) {
+    fallbacks.put(type, fallback);
+  }
+
+  /**
+   * Retries or falls back the failed items of a completed bulk operation.
+   *
+   * @param request  the executed bulk request
+   * @param response its response, with one item per request
+   */
+  public void onResponse(BulkRequest request, BulkResponse response) {
+    if (!response.hasFailures()) {
+      if (!retries.isEmpty()) {
+        request.requests().forEach(retries::remove);
+      }
+      return;
+    }
+
+    List<IndexRequest> failed = new ArrayList<>();
+    for (BulkItemResponse item : response.getItems()) {
+      DocWriteRequest docWriteRequest = request.requests().get(item.getItemId());
+      if (!(docWriteRequest instanceof IndexRequest)) {
+        continue;
+      }
+      IndexRequest indexRequest = (IndexRequest) docWriteRequest;
+      if (!item.isFailed()) {
+        retries.remove(indexRequest);
+      } else if (item.getFailure().getStatus() != RestStatus.TOO_MANY_REQUESTS || !retry(indexRequest)) {
+        log.debug("Failed to index document in {}: {}", item.getIndex(), item.getFailureMessage());
+        failed.add(indexRequest);
+      }
+    }
+
+    if (!failed.isEmpty()) {
+      log.warn("{} of {} documents of a bulk operation could not be indexed", failed.size(), request.numberOfActions());
+      fallback(failed);
+    }
+  }
+
+  /**
+   * Retries or falls back all requests of a failed bulk operation.
+   *
+   * @param request the bulk request that could not be executed
+   * @param failure the cause
+   */
+  public void onFailure(BulkRequest request, Throwable failure) {
+    boolean rejected = ExceptionsHelper.unwrapCause(failure) instanceof EsRejectedExecutionException;
+    if (!rejected) {
+      log.warn("Error executing bulk operation composed of {} actions", request.numberOfActions(), failure);
+    }
+
+    List<IndexRequest> failed = new ArrayList<>();
+    for (DocWriteRequest docWriteRequest : request.requests()) {
+      if (docWriteRequest instanceof IndexRequest) {
+        IndexRequest indexRequest = (IndexRequest) docWriteRequest;
+        if (!rejected || !retry(indexRequest)) {
+          failed.add(indexRequest);
+        }
+      }
+    }
+    fallback(failed);
+  }
+
+  /**
+   * Stops the retries. Pending retries are passed to the fallbacks.
+   */
+  public void shutdown() {
+    retryScheduler.shutdownNow();
+    List<IndexRequest> pending = new ArrayList<>(retries.keySet());
+    retries.clear();
+    fallback(pending);
+  }
+
+  /**
+   * @return the number of requests waiting for or being retried
+   */
+  public int getPendingRetries() {
+    return retries.size();
+  }
+
+  /**
+   * Schedules the request to be submitted again.
+   *
+   * @return false if the request is out of retries
+   */
+  private boolean retry(IndexRequest request) {
+    int attempt = retries.merge(request, 1, Integer::sum);
+    if (attempt > maxRetries || retryScheduler.isShutdown()) {
+      retries.remove(request);
+      return false;
+    }
+    long delay = retryDelay << Math.min(attempt - 1, 20);
+    retryScheduler.schedule(() -> resubmit.accept(request), delay, TimeUnit.MILLISECONDS);
+    return true;
+  }
+
+  private void fallback(List<IndexRequest> failed) {
+    Map<String, List<IndexRequest>> byType = new LinkedHashMap<>();
+    for (IndexRequest request : failed) {
+      byType.computeIfAbsent(request.type(), type -> new ArrayList<>()).add(request);
+    }
+
+    byType.forEach((type, requests) -> {
+      Consumer<List<IndexRequest>> fallback = fallbacks.get(type);
+      if (fallback == null) {
+        log.error("No fallback registered for type {}, {} documents are lost", type, requests.size());
+        return;
+      }
+      try {
+        fallback.accept(requests);
+      } catch (RuntimeException e) {
+        log.error("Error passing {} documents of type {} to the fallback", requests.size(), type, e);
+      }
+    });
+  }
+}
@@ -1,9 +1,21 @@
 package cern.c2mon.server.elasticsearch.bulk;
 
+import java.util.List;
+import java.util.function.Consumer;
+
 import org.elasticsearch.action.index.IndexRequest;
 
 public interface BulkProcessorProxy {
   void add(IndexRequest request);
 
   void flush();
+
+  /**
+   * Registers the handler of the requests of the given mapping type that
+   * could not be indexed, after all retries.
+   *
+   * @param type     the mapping type of the index requests
+   * @param fallback called with the failed requests
+   */
+  void registerFallback(String type, Consumer<List<IndexRequest>> fallback);
 }
@@ -1,6 +1,10 @@
 package cern.c2mon.server.elasticsearch.bulk;
 
+import java.util.List;
+import java.util.function.Consumer;
+
 import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.bulk.BackoffPolicy;
 import org.elasticsearch.action.bulk.BulkProcessor;
 import org.elasticsearch.action.bulk.BulkRequest;
 import org.elasticsearch.action.bulk.BulkResponse;
@@ -16,10 +20,15 @@ import cern.c2mon.server.elasticsearch.client.ElasticsearchClient;
 import cern.c2mon.server.elasticsearch.config.ElasticsearchProperties;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 /**
- * Wrapper around {@link BulkProcessor}. If a bulk operation fails, this class
- * will throw a {@link RuntimeException}.
+ * Wrapper around {@link BulkProcessor}. The bulk operations are executed
+ * asynchronously, with at most {@code concurrentRequests} bulks in flight:
+ * {@link #add(IndexRequest)} blocks while that limit is reached. The failed
+ * documents are retried or passed to a fallback by the
+ * {@link BulkFailureHandler}, rather than the bulk processor retrying whole
+ * bulks, so that every failure can be matched to its request.
  *
  * @author Justin Lewis Salmon
  */
@@ -28,6 +37,8 @@ public class BulkProcessorProxyImpl implements BulkProcessor.Listener, BulkProce
 
   private final BulkProcessor bulkProcessor;
 
+  private final BulkFailureHandler failureHandler;
+
   @Autowired
   public BulkProcessorProxyImpl(final ElasticsearchClient client, final ElasticsearchProperties properties) {
     this.bulkProcessor = BulkProcessor.builder(client.getClient(), this)
@@ -35,7 +46,9 @@ public class BulkProcessorProxyImpl implements BulkProcessor.Listener, BulkProce
           .setBulkSize(new ByteSizeValue(properties.getBulkSize(), ByteSizeUnit.MB))
           .setFlushInterval(TimeValue.timeValueSeconds(properties.getBulkFlushInterval()))
           .setConcurrentRequests(properties.getConcurrentRequests())
+          .setBackoffPolicy(BackoffPolicy.noBackoff())
           .build();
+    this.failureHandler = new BulkFailureHandler(this::add, properties.getBulkRetries(), properties.getBulkRetryDelay());
   }
 
   @Override
@@ -49,6 +62,19 @@ public class BulkProcessorProxyImpl implements BulkProcessor.Listener, BulkProce
     bulkProcessor.flush();
   }
 
+  @Override
+  public void registerFallback(String type, Consumer<List<IndexRequest>> fallback) {
+    failureHandler.registerFallback(type, fallback);
+  }
+
+  /**
+   * Passes the documents still waiting for a retry to their fallback.
+   */
+  @PreDestroy
+  public void shutdown() {
+    failureHandler.shutdown();
+  }
+
   @Override
   public void beforeBulk(long executionId, BulkRequest request) {
     log.debug("Going to execute new bulk operation composed of {} actions", request.numberOfActions());
@@ -57,11 +83,11 @@ public class BulkProcessorProxyImpl implements BulkProcessor.Listener, BulkProce
   @Override
   public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
     log.debug("Executed bulk operation composed of {} actions", request.numberOfActions());
+    failureHandler.onResponse(request, response);
   }
 
   @Override
   public void afterBulk(long executionId, BulkRequest request, Throwable failure) {
-    log.warn("Error executing bulk operation", failure);
-    throw new RuntimeException(failure);
+    failureHandler.onFailure(request, failure);
   }
 }
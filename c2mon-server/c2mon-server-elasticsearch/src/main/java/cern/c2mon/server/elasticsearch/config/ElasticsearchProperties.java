@@ -109,6 +109,18 @@ public class ElasticsearchProperties {
    */
   private int concurrentRequests = 1;
 
+  /**
+   * Maximum number of retries of a document rejected by the cluster because
+   * it is too busy, before it is written to the fallback file
+   */
+  private int bulkRetries = 8;
+
+  /**
+   * Delay in milliseconds before the first retry of a rejected document,
+   * doubled on every further retry
+   */
+  private long bulkRetryDelay = 50;
+
   /**
    * Absolute path the file to which tag updates will be written in the
    * event of Elasticsearch communication failure
@@ -24,8 +24,10 @@ import java.util.stream.Collectors;
 
 import javax.annotation.PostConstruct;
 
+import cern.c2mon.server.elasticsearch.bulk.BulkProcessorProxy;
 import cern.c2mon.server.elasticsearch.client.ElasticsearchClient;
 import lombok.extern.slf4j.Slf4j;
+import org.elasticsearch.action.index.IndexRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.SmartLifecycle;
@@ -62,6 +64,9 @@ public class TagDocumentListener implements C2monBufferedCacheListener<Tag>, Sma
   @Autowired
   private TagDocumentConverter converter;
 
+  @Autowired
+  private BulkProcessorProxy bulkProcessor;
+
   private Lifecycle listenerContainer;
 
   private volatile boolean running = false;
@@ -71,9 +76,20 @@ public class TagDocumentListener implements C2monBufferedCacheListener<Tag>, Sma
     // Register to be notified of all tag updates (data, rule and control tags)
     if (this.elasticsearchClient.getProperties().isEnabled()) {
       listenerContainer = cacheRegistrationService.registerBufferedListenerToTags(this);
+      // Tags failing in an asynchronous bulk operation go to the fallback file
+      bulkProcessor.registerFallback("tag", this::storeInFallback);
     }
   }
 
+  private void storeInFallback(final List<IndexRequest> requests) {
+    TagDocument reader = new TagDocument();
+    List<TagDocument> tagDocuments = requests.stream()
+        .map(request -> (TagDocument) reader.getObject(request.source().utf8ToString()))
+        .collect(Collectors.toList());
+
+    persistenceManager.storeInFallback(tagDocuments);
+  }
+
   @Override
   public void notifyElementUpdated(final Collection<Tag> tags) {
     if (tags == null) {
@@ -2,6 +2,7 @@ package cern.c2mon.server.elasticsearch;
 
 import cern.c2mon.server.elasticsearch.alarm.AlarmDocumentConverterTests;
 import cern.c2mon.server.elasticsearch.alarm.AlarmDocumentIndexerTests;
+import cern.c2mon.server.elasticsearch.bulk.BulkFailureHandlerTests;
 import cern.c2mon.server.elasticsearch.client.ElasticsearchClientTests;
 import cern.c2mon.server.elasticsearch.config.ElasticsearchProperties;
 import cern.c2mon.server.elasticsearch.supervision.SupervisionEventDocumentIndexerTests;
@@ -22,6 +23,7 @@ import org.springframework.util.FileSystemUtils;
     IndicesTests.class,
     AlarmDocumentConverterTests.class,
     AlarmDocumentIndexerTests.class,
+    BulkFailureHandlerTests.class,
     ElasticsearchClientTests.class,
     SupervisionEventDocumentIndexerTests.class,
     SupervisionEventDocumentTests.class,
@@ -0,0 +1,131 @@
+package cern.c2mon.server.elasticsearch.bulk;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class BulkFailureHandlerTests {
+
+  private final List<IndexRequest> resubmitted = new CopyOnWriteArrayList<>();
+
+  private final List<IndexRequest> fallback = new ArrayList<>();
+
+  private CountDownLatch resubmitLatch;
+
+  private BulkFailureHandler handler;
+
+  @Before
+  public void setUp() {
+    resubmitLatch = new CountDownLatch(1);
+    handler = new BulkFailureHandler(request -> {
+      resubmitted.add(request);
+      resubmitLatch.countDown();
+    }, 2, 0);
+    handler.registerFallback("tag", fallback::addAll);
+  }
+
+  @After
+  public void tearDown() {
+    handler.shutdown();
+  }
+
+  @Test
+  public void rejectedItemIsResubmitted() throws InterruptedException {
+    BulkRequest request = bulkRequest(2);
+    BulkResponse response = bulkResponse(request,
+        new EsRejectedExecutionException("rejected"),
+        new IllegalArgumentException("mapping"));
+
+    handler.onResponse(request, response);
+
+    assertTrue(resubmitLatch.await(5, TimeUnit.SECONDS));
+    assertEquals(1, resubmitted.size());
+    assertSame(request.requests().get(0), resubmitted.get(0));
+    assertEquals(1, fallback.size());
+    assertSame(request.requests().get(1), fallback.get(0));
+    assertEquals(1, handler.getPendingRetries());
+  }
+
+  @Test
+  public void rejectedItemOutOfRetriesFallsBack() throws InterruptedException {
+    BulkRequest request = bulkRequest(1);
+    BulkResponse response = bulkResponse(request, new EsRejectedExecutionException("rejected"));
+
+    handler.onResponse(request, response);
+    handler.onResponse(request, response);
+    handler.onResponse(request, response);
+
+    assertEquals(1, fallback.size());
+    assertEquals(0, handler.getPendingRetries());
+  }
+
+  @Test
+  public void failedBulkFallsBack() {
+    BulkRequest request = bulkRequest(3);
+
+    handler.onFailure(request, new RuntimeException("no node available"));
+
+    assertEquals(3, fallback.size());
+    assertTrue(resubmitted.isEmpty());
+  }
+
+  @Test
+  public void rejectedBulkIsResubmitted() throws InterruptedException {
+    resubmitLatch = new CountDownLatch(3);
+    BulkRequest request = bulkRequest(3);
+
+    handler.onFailure(request, new EsRejectedExecutionException("rejected"));
+
+    assertTrue(resubmitLatch.await(5, TimeUnit.SECONDS));
+    assertTrue(fallback.isEmpty());
+  }
+
+  @Test
+  public void pendingRetriesFallBackOnShutdown() {
+    handler = new BulkFailureHandler(resubmitted::add, 2, TimeUnit.HOURS.toMillis(1));
+    handler.registerFallback("tag", fallback::addAll);
+    BulkRequest request = bulkRequest(2);
+
+    handler.onFailure(request, new EsRejectedExecutionException("rejected"));
+    assertEquals(2, handler.getPendingRetries());
+
+    handler.shutdown();
+    assertEquals(2, fallback.size());
+    assertTrue(resubmitted.isEmpty());
+  }
+
+  private static BulkRequest bulkRequest(int size) {
+    BulkRequest request = new BulkRequest();
+    for (int i = 0; i < size; i++) {
+      request.add(new IndexRequest("c2mon-tag_2017-01", "tag").source("{\"id\":" + i + "}", XContentType.JSON));
+    }
+    return request;
+  }
+
+  private static BulkResponse bulkResponse(BulkRequest request, Exception... failures) {
+    BulkItemResponse[] items = new BulkItemResponse[failures.length];
+    for (int i = 0; i < failures.length; i++) {
+      DocWriteRequest itemRequest = request.requests().get(i);
+      items[i] = new BulkItemResponse(i, DocWriteRequest.OpType.INDEX,
+          new BulkItemResponse.Failure(itemRequest.index(), itemRequest.type(), null, failures[i]));
+    }
+    return new BulkResponse(items, 1);
+  }
+}
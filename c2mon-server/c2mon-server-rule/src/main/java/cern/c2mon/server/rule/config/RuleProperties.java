@@ -14,4 +14,11 @@ public class RuleProperties {
    * Number of threads that the rule evaluation engine will use
    */
   private int numEvaluationThreads = 1;
+
+  /**
+   * Evaluate the rules in batches: updates arriving during an evaluation are
+   * collected, and the affected rules together with their dependent rules are
+   * evaluated once per batch in dependency order
+   */
+  private boolean batchEvaluation = false;
 }
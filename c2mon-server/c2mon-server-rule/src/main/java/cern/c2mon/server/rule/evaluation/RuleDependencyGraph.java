@@ -0,0 +1,188 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.rule.evaluation;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import cern.c2mon.server.cache.RuleTagCache;
+import cern.c2mon.server.cache.exception.CacheElementNotFoundException;
+import cern.c2mon.server.common.rule.RuleTag;
+
+/**
+ * Dependency graph of the rules, used to evaluate a set of changed rules
+ * together with all the rules depending on them, in topological order.
+ *
+ * <p>The downstream edges are the rule ids of each rule tag
+ * ({@link RuleTag#getRuleIds()}). Each rule is given a rank: 0 if none of its
+ * inputs is a rule, otherwise one more than the highest rank of its rule
+ * inputs. Rules with the same rank do not depend on each other and can be
+ * evaluated in parallel.
+ *
+ * <p>Ranks are computed on demand and cached together with the rule text they
+ * were computed for. When the text of a rule no longer matches its cached
+ * rank, the cached ranks of the rule and of all the rules depending on it are
+ * dropped. The rules of a batch are checked before any of their ranks is used,
+ * so a reconfigured rule of the batch is always ranked before its dependents.
+ */
+@Slf4j
+@Component
+public class RuleDependencyGraph {
+
+  private final RuleTagCache ruleTagCache;
+
+  /** Cached ranks, by rule id */
+  private final Map<Long, Rank> ranks = new ConcurrentHashMap<>();
+
+  @Autowired
+  public RuleDependencyGraph(final RuleTagCache ruleTagCache) {
+    this.ruleTagCache = ruleTagCache;
+  }
+
+  /**
+   * Returns the given rules and all the rules depending on them (directly or
+   * indirectly), grouped by rank.
+   *
+   * @param ruleIds ids of the rules that need evaluating
+   * @return the rules to evaluate, grouped by ascending rank; rules of a
+   *         group only depend on rules of the previous groups
+   */
+  public List<List<Long>> getEvaluationLevels(final Collection<Long> ruleIds) {
+    Set<Long> affected = new HashSet<>();
+    Deque<Long> queue = new ArrayDeque<>(ruleIds);
+    while (!queue.isEmpty()) {
+      Long ruleId = queue.poll();
+      if (affected.add(ruleId)) {
+        try {
+          RuleTag rule = ruleTagCache.get(ruleId);
+          Rank cached = ranks.get(ruleId);
+          if (cached != null && !Objects.equals(cached.ruleText, rule.getRuleText())) {
+            invalidate(rule);
+          }
+          queue.addAll(rule.getRuleIds());
+        } catch (CacheElementNotFoundException e) {
+          // still returned, the evaluation reports the missing rule
+          log.debug("Rule #{} not found in cache while collecting dependent rules", ruleId);
+        }
+      }
+    }
+
+    TreeMap<Integer, List<Long>> levels = new TreeMap<>();
+    for (Long ruleId : affected) {
+      levels.computeIfAbsent(getRank(ruleId), rank -> new ArrayList<>()).add(ruleId);
+    }
+    return new ArrayList<>(levels.values());
+  }
+
+  /**
+   * @param ruleId id of a rule
+   * @return the rank of the rule in the dependency graph, 0 if the rule
+   *         only has data or control tag inputs (or cannot be found)
+   */
+  public int getRank(final Long ruleId) {
+    return rank(ruleId, new HashSet<Long>());
+  }
+
+  /**
+   * Drops all cached ranks.
+   */
+  public void clear() {
+    ranks.clear();
+  }
+
+  private int rank(final Long ruleId, final Set<Long> visiting) {
+    final RuleTag rule;
+    try {
+      rule = ruleTagCache.get(ruleId);
+    } catch (CacheElementNotFoundException e) {
+      return 0;
+    }
+
+    Rank cached = ranks.get(ruleId);
+    if (cached != null) {
+      if (Objects.equals(cached.ruleText, rule.getRuleText())) {
+        return cached.rank;
+      }
+      invalidate(rule);
+    }
+    if (!visiting.add(ruleId)) {
+      log.warn("Rule #{} depends on itself - ignoring the cyclic dependency for the evaluation order", ruleId);
+      return 0;
+    }
+
+    int rank = 0;
+    for (Long inputId : rule.getRuleInputTagIds()) {
+      if (ruleTagCache.hasKey(inputId)) {
+        rank = Math.max(rank, rank(inputId, visiting) + 1);
+      }
+    }
+    visiting.remove(ruleId);
+
+    ranks.put(ruleId, new Rank(rule.getRuleText(), rank));
+    return rank;
+  }
+
+  /**
+   * Drops the cached ranks of the given rule and of all the rules depending
+   * on it, directly or indirectly.
+   *
+   * @param rule the reconfigured rule
+   */
+  private void invalidate(final RuleTag rule) {
+    Set<Long> invalidated = new HashSet<>();
+    Deque<Long> queue = new ArrayDeque<>(rule.getRuleIds());
+    ranks.remove(rule.getId());
+    invalidated.add(rule.getId());
+    while (!queue.isEmpty()) {
+      Long ruleId = queue.poll();
+      if (invalidated.add(ruleId)) {
+        ranks.remove(ruleId);
+        try {
+          queue.addAll(ruleTagCache.get(ruleId).getRuleIds());
+        } catch (CacheElementNotFoundException e) {
+          log.debug("Rule #{} not found in cache while invalidating dependent ranks", ruleId);
+        }
+      }
+    }
+  }
+
+  /**
+   * Rank of a rule, with the rule text it was computed for.
+   */
+  private static final class Rank {
+    private final String ruleText;
+    private final int rank;
+
+    private Rank(final String ruleText, final int rank) {
+      this.ruleText = ruleText;
+      this.rank = rank;
+    }
+  }
+}
@@ -0,0 +1,125 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.rule.evaluation;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Per-rule evaluation counts and latencies, exposed over JMX.
+ *
+ * <p>The latency of an evaluation is measured from the call to the rule
+ * evaluator to the result being passed to the {@link RuleUpdateBuffer}. It
+ * includes the wait for the rule lock and the retrieval of the input tags.
+ */
+@Component
+@ManagedResource(objectName = "cern.c2mon:name=ruleEvaluationStatistics")
+public class RuleEvaluationStatistics {
+
+  private final Map<Long, RuleStatistics> statistics = new ConcurrentHashMap<>();
+
+  private final LongAdder totalEvaluations = new LongAdder();
+
+  /**
+   * Records an evaluation of a rule.
+   *
+   * @param ruleId id of the evaluated rule
+   * @param nanos duration of the evaluation in nanoseconds
+   */
+  public void record(final Long ruleId, final long nanos) {
+    statistics.computeIfAbsent(ruleId, id -> new RuleStatistics()).record(nanos);
+    totalEvaluations.increment();
+  }
+
+  @ManagedAttribute(description = "Number of rule evaluations since start up or the last reset")
+  public long getTotalEvaluationCount() {
+    return totalEvaluations.sum();
+  }
+
+  @ManagedOperation(description = "Number of evaluations of the given rule")
+  public long getEvaluationCount(final Long ruleId) {
+    RuleStatistics ruleStatistics = statistics.get(ruleId);
+    return ruleStatistics == null ? 0 : ruleStatistics.count.sum();
+  }
+
+  @ManagedOperation(description = "Average evaluation time of the given rule in milliseconds")
+  public double getAverageEvaluationMillis(final Long ruleId) {
+    RuleStatistics ruleStatistics = statistics.get(ruleId);
+    return ruleStatistics == null ? 0 : ruleStatistics.getAverageMillis();
+  }
+
+  @ManagedOperation(description = "Maximum evaluation time of the given rule in milliseconds")
+  public double getMaxEvaluationMillis(final Long ruleId) {
+    RuleStatistics ruleStatistics = statistics.get(ruleId);
+    return ruleStatistics == null ? 0 : toMillis(ruleStatistics.maxNanos.get());
+  }
+
+  @ManagedOperation(description = "Statistics of the most often evaluated rules")
+  public List<String> getMostEvaluatedRules(final int count) {
+    List<Map.Entry<Long, RuleStatistics>> entries = new ArrayList<>(statistics.entrySet());
+    entries.sort(Comparator.comparingLong((Map.Entry<Long, RuleStatistics> entry) -> entry.getValue().count.sum()).reversed());
+
+    List<String> result = new ArrayList<>();
+    for (Map.Entry<Long, RuleStatistics> entry : entries.subList(0, Math.min(count, entries.size()))) {
+      RuleStatistics ruleStatistics = entry.getValue();
+      result.add(String.format("#%d: %d evaluations, average %.3f ms, max %.3f ms", entry.getKey(),
+          ruleStatistics.count.sum(), ruleStatistics.getAverageMillis(), toMillis(ruleStatistics.maxNanos.get())));
+    }
+    return result;
+  }
+
+  @ManagedOperation(description = "Resets all rule evaluation statistics")
+  public void reset() {
+    statistics.clear();
+    totalEvaluations.reset();
+  }
+
+  private static double toMillis(final long nanos) {
+    return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  /**
+   * Counters of a single rule.
+   */
+  private static final class RuleStatistics {
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    private void record(final long nanos) {
+      count.increment();
+      totalNanos.add(nanos);
+      maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    private double getAverageMillis() {
+      long evaluations = count.sum();
+      return evaluations == 0 ? 0 : toMillis(totalNanos.sum()) / evaluations;
+    }
+  }
+}
@@ -17,9 +17,23 @@
 package cern.c2mon.server.rule.evaluation;
 
 import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.annotation.PostConstruct;
 
@@ -40,6 +54,7 @@ import cern.c2mon.server.common.tag.Tag;
 import cern.c2mon.server.rule.RuleEvaluator;
 import cern.c2mon.server.rule.config.RuleProperties;
 import cern.c2mon.shared.common.datatag.TagQualityStatus;
+import cern.c2mon.shared.common.rule.RuleInputValue;
 import cern.c2mon.shared.rule.RuleEvaluationException;
 
 import static cern.c2mon.shared.common.type.TypeConverter.getType;
@@ -51,6 +66,15 @@ import static cern.c2mon.shared.common.type.TypeConverter.getType;
  * to the RuleUpdateBuffer where rapid successive updates are
  * clustered into a single update.
  *
+ * <p>With <code>c2mon.server.rule.batchEvaluation</code> enabled, tag updates
+ * only collect the ids of the rules to evaluate. A single batch thread then
+ * evaluates the collected rules together with all the rules depending on
+ * them, once per batch and in the topological order of the
+ * {@link RuleDependencyGraph}. Rules of the same rank are evaluated in parallel
+ * on <code>numEvaluationThreads</code> threads. Dependent rules use the results
+ * of the same batch for their rule inputs, so the update of these rules in the
+ * cache does not trigger the same evaluations again.
+ *
  * @author mbrightw
  *
  */
@@ -69,6 +93,33 @@ public class RuleEvaluatorImpl implements C2monCacheListener<Tag>, SmartLifecycl
 
   private final RuleProperties properties;
 
+  private final RuleDependencyGraph dependencyGraph;
+
+  private final RuleEvaluationStatistics statistics;
+
+  /** Rules waiting for the next batch evaluation */
+  private final Set<Long> pendingRuleIds = ConcurrentHashMap.newKeySet();
+
+  /** Set while a batch evaluation is scheduled but has not yet collected the pending rules */
+  private final AtomicBoolean batchScheduled = new AtomicBoolean(false);
+
+  /**
+   * Last batch result of each rule with dependent rules, which have already
+   * been evaluated with it. Only used to ignore the rule update when it comes
+   * back from the cache with the same result, never as a rule input. A result
+   * is only kept if all the dependent rules were evaluated in a later rank of
+   * the batch, so after the result was known. The
+   * entry of a rule whose update is filtered out stays until its next update
+   * or batch evaluation; the dependent rules have seen that result anyway.
+   */
+  private final Map<Long, BatchResult> batchResults = new ConcurrentHashMap<>();
+
+  /** Runs the batch evaluations, one at a time */
+  private ExecutorService batchExecutor;
+
+  /** Evaluates the rules of a rank in parallel (null for a single evaluation thread) */
+  private ExecutorService levelExecutor;
+
   /**
    * Listener container lifecycle hook.
    */
@@ -84,13 +135,17 @@ public class RuleEvaluatorImpl implements C2monCacheListener<Tag>, SmartLifecycl
                            RuleUpdateBuffer ruleUpdateBuffer,
                            TagLocationService tagLocationService,
                            CacheRegistrationService cacheRegistrationService,
-                           RuleProperties properties) {
+                           RuleProperties properties,
+                           RuleDependencyGraph dependencyGraph,
+                           RuleEvaluationStatistics statistics) {
     super();
     this.ruleTagCache = ruleTagCache;
     this.ruleUpdateBuffer = ruleUpdateBuffer;
     this.tagLocationService = tagLocationService;
     this.cacheRegistrationService = cacheRegistrationService;
     this.properties = properties;
+    this.dependencyGraph = dependencyGraph;
+    this.statistics = statistics;
   }
 
   /**
@@ -99,12 +154,24 @@ public class RuleEvaluatorImpl implements C2monCacheListener<Tag>, SmartLifecycl
   @PostConstruct
   public void init() {
     listenerContainer = cacheRegistrationService.registerToAllTags(this, properties.getNumEvaluationThreads());
+    if (properties.isBatchEvaluation()) {
+      batchExecutor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "RuleBatchEvaluator"));
+      if (properties.getNumEvaluationThreads() > 1) {
+        final AtomicInteger threadCount = new AtomicInteger();
+        levelExecutor = Executors.newFixedThreadPool(properties.getNumEvaluationThreads(),
+            runnable -> new Thread(runnable, "RuleEvaluator-" + threadCount.incrementAndGet()));
+      }
+    }
   }
 
   @Override
   public void notifyElementUpdated(Tag tag) {
     try {
-      evaluateRules(tag);
+      if (batchExecutor != null) {
+        scheduleRules(tag);
+      } else {
+        evaluateRules(tag);
+      }
     } catch (Exception e) {
       log.error("Error caught when evaluating dependend rules ({}) of #{}", tag.getRuleIds(), tag.getId(), e);
     }
@@ -142,8 +209,92 @@ public class RuleEvaluatorImpl implements C2monCacheListener<Tag>, SmartLifecycl
    */
   @Override
   public final void evaluateRule(final Long pRuleId) {
+    evaluateRule(pRuleId, null);
+  }
+
+  /**
+   * Adds the rules depending on the given tag to the next batch evaluation,
+   * and schedules that evaluation if needed. Updates of rules whose dependent
+   * rules have already been evaluated with that result are ignored.
+   *
+   * @param tag the updated tag
+   */
+  private void scheduleRules(final Tag tag) {
+    if (tag instanceof RuleTag) {
+      BatchResult result = batchResults.remove(tag.getId());
+      if (result != null && result.matches(tag)) {
+        log.trace("Dependent rules of #{} already evaluated with this result", tag.getId());
+        return;
+      }
+    }
+    if (!tag.getRuleIds().isEmpty()) {
+      pendingRuleIds.addAll(tag.getRuleIds());
+      if (batchScheduled.compareAndSet(false, true)) {
+        batchExecutor.execute(this::evaluateBatch);
+      }
+    }
+  }
+
+  /**
+   * Evaluates all pending rules and their dependent rules, rank by rank.
+   * Rules added while the batch runs are collected for the next batch.
+   */
+  private void evaluateBatch() {
+    batchScheduled.set(false);
+    List<Long> ruleIds = new ArrayList<>();
+    for (Iterator<Long> it = pendingRuleIds.iterator(); it.hasNext();) {
+      ruleIds.add(it.next());
+      it.remove();
+    }
+    if (ruleIds.isEmpty()) {
+      return;
+    }
+
+    try {
+      final Batch batch = new Batch();
+      final List<List<Long>> levels = dependencyGraph.getEvaluationLevels(ruleIds);
+      for (int i = 0; i < levels.size(); i++) {
+        for (Long ruleId : levels.get(i)) {
+          batch.levels.put(ruleId, i);
+        }
+      }
+      for (List<Long> level : levels) {
+        if (levelExecutor == null || level.size() == 1) {
+          for (Long ruleId : level) {
+            evaluateRule(ruleId, batch);
+          }
+        } else {
+          List<Callable<Void>> evaluations = new ArrayList<>(level.size());
+          for (final Long ruleId : level) {
+            evaluations.add(() -> {
+              evaluateRule(ruleId, batch);
+              return null;
+            });
+          }
+          for (Future<Void> evaluation : levelExecutor.invokeAll(evaluations)) {
+            evaluation.get();
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      log.warn("Interrupted during batch evaluation of rules {}", ruleIds);
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException | RuntimeException e) {
+      log.error("Error caught during batch evaluation of rules {}", ruleIds, e);
+    }
+  }
+
+  /**
+   * Evaluates the rule with the given id.
+   *
+   * @param pRuleId The id of a rule.
+   * @param batch the current batch evaluation, or null outside of a batch
+   *              evaluation
+   */
+  private void evaluateRule(final Long pRuleId, final Batch batch) {
     log.trace("evaluateRule() called for #{}", pRuleId);
 
+    final long start = System.nanoTime();
     final Timestamp ruleResultTimestamp = new Timestamp(System.currentTimeMillis());
 
     // We synchronize on the rule reference object from the cache
@@ -172,10 +323,17 @@ public class RuleEvaluatorImpl implements C2monCacheListener<Tag>, SmartLifecycl
             // We don't use a read lock here, because a tag change would anyway
             // result in another rule evaluation
             // look for tag in datatag, rule and control caches
-            tag = tagLocationService.get(inputTagId);
-
-            // put reference to cache object in map
-            tags.put(inputTagId, tag);
+            tag = batch == null ? null : batch.tags.get(inputTagId);
+            if (tag == null) {
+              tag = tagLocationService.get(inputTagId);
+              if (batch != null) {
+                batch.tags.put(inputTagId, tag);
+              }
+            }
+
+            // put reference to cache object in map (or the result of that rule in this batch)
+            BatchResult batchResult = batch == null ? null : batch.results.get(inputTagId);
+            tags.put(inputTagId, batchResult == null ? tag : batchResult.toInput(tag));
           }
 
           // Retrieve class type of resulting value, in order to cast correctly
@@ -184,20 +342,24 @@ public class RuleEvaluatorImpl implements C2monCacheListener<Tag>, SmartLifecycl
 
           Object value = rule.getRuleExpression().evaluate(tags, ruleResultClass);
           ruleUpdateBuffer.update(pRuleId, value, "Rule result", ruleResultTimestamp);
+          recordResult(rule, batch, new BatchResult(value, true));
         } catch (CacheElementNotFoundException cacheEx) {
           log.warn("evaluateRule #{} - Failed to locate tag with id {} in any tag cache (during rule evaluation) - unable to evaluate rule.", pRuleId, actualTag, cacheEx);
           ruleUpdateBuffer.invalidate(pRuleId, TagQualityStatus.UNKNOWN_REASON,
               "Unable to evaluate rule as cannot find required Tag in cache: " + cacheEx.getMessage(), ruleResultTimestamp);
+          recordResult(rule, batch, new BatchResult(null, false));
         } catch (RuleEvaluationException re) {
           // TODO change in rule engine: this should NOT be done using an
           // exception since it is normal behavior switched to trace
           log.trace("Problem evaluating expresion for rule #{} - invalidating rule with quality UNKNOWN_REASON ({})", pRuleId, re.getMessage());
           // switched from INACCESSIBLE in old code
           ruleUpdateBuffer.invalidate(pRuleId, TagQualityStatus.UNKNOWN_REASON, re.getMessage(), ruleResultTimestamp);
+          recordResult(rule, batch, new BatchResult(null, false));
         } catch (Exception e) {
           log.error("Unexpected Error evaluating expresion of rule #{} - invalidating rule with quality UNKNOWN_REASON", pRuleId, e);
           // switched from INACCESSIBLE in old code
           ruleUpdateBuffer.invalidate(pRuleId, TagQualityStatus.UNKNOWN_REASON, e.getMessage(), ruleResultTimestamp);
+          recordResult(rule, batch, new BatchResult(null, false));
         }
       } else {
         log.error("Unable to evaluate rule #{} as RuleExpression is null", pRuleId);
@@ -210,6 +372,18 @@ public class RuleEvaluatorImpl implements C2monCacheListener<Tag>, SmartLifecycl
       ruleUpdateBuffer.invalidate(pRuleId, TagQualityStatus.UNKNOWN_REASON, e.getMessage(), ruleResultTimestamp);
     } finally {
       ruleTagCache.releaseWriteLockOnKey(pRuleId);
+      statistics.record(pRuleId, System.nanoTime() - start);
+    }
+  }
+
+  private void recordResult(final RuleTag rule, final Batch batch, final BatchResult result) {
+    if (batch != null && !rule.getRuleIds().isEmpty()) {
+      batch.results.put(rule.getId(), result);
+      if (batch.evaluatedAfter(rule)) {
+        batchResults.put(rule.getId(), result);
+      } else {
+        batchResults.remove(rule.getId());
+      }
     }
   }
 
@@ -248,6 +422,17 @@ public class RuleEvaluatorImpl implements C2monCacheListener<Tag>, SmartLifecycl
   public void stop() {
     log.debug("Stopping rule evaluator");
     listenerContainer.stop();
+    if (batchExecutor != null) {
+      batchExecutor.shutdown();
+      try {
+        batchExecutor.awaitTermination(10, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      if (levelExecutor != null) {
+        levelExecutor.shutdown();
+      }
+    }
     running = false;
   }
 
@@ -255,4 +440,85 @@ public class RuleEvaluatorImpl implements C2monCacheListener<Tag>, SmartLifecycl
   public int getPhase() {
     return ServerConstants.PHASE_INTERMEDIATE;
   }
+
+  /**
+   * State of one batch evaluation, dropped when the batch is done.
+   */
+  private static final class Batch {
+
+    /** Input tags, retrieved once per batch */
+    private final Map<Long, Tag> tags = new ConcurrentHashMap<>();
+
+    /** Results of the rules evaluated so far, used as input for their dependent rules */
+    private final Map<Long, BatchResult> results = new ConcurrentHashMap<>();
+
+    /** Index of the evaluation level of each rule of the batch */
+    private final Map<Long, Integer> levels = new HashMap<>();
+
+    /**
+     * @param rule a rule of the batch
+     * @return true if all the dependent rules are evaluated in a later level
+     *         than the given rule, so with its result of this batch
+     */
+    private boolean evaluatedAfter(final RuleTag rule) {
+      Integer level = levels.get(rule.getId());
+      if (level == null) {
+        return false;
+      }
+      for (Long ruleId : rule.getRuleIds()) {
+        Integer dependentLevel = levels.get(ruleId);
+        if (dependentLevel == null || dependentLevel <= level) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Result of a batch evaluation of a rule.
+   */
+  private static final class BatchResult {
+
+    /** the rule result, null if the rule was invalidated */
+    private final Object value;
+
+    private final boolean valid;
+
+    private BatchResult(final Object value, final boolean valid) {
+      this.value = value;
+      this.valid = valid;
+    }
+
+    /**
+     * @return true if the cache update of the rule carries this result
+     */
+    private boolean matches(final Tag ruleTag) {
+      return valid ? ruleTag.isValid() && Objects.equals(value, ruleTag.getValue()) : !ruleTag.isValid();
+    }
+
+    /**
+     * @param ruleTag the rule tag as currently found in the cache
+     * @return the input value to use in place of the cached rule
+     */
+    private RuleInputValue toInput(final Tag ruleTag) {
+      final Object inputValue = valid ? value : ruleTag.getValue();
+      return new RuleInputValue() {
+        @Override
+        public Long getId() {
+          return ruleTag.getId();
+        }
+
+        @Override
+        public Object getValue() {
+          return inputValue;
+        }
+
+        @Override
+        public boolean isValid() {
+          return valid;
+        }
+      };
+    }
+  }
 }
@@ -18,13 +18,18 @@ package cern.c2mon.server.rule.evaluation;
 
 import java.sql.Timestamp;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
 import org.springframework.stereotype.Service;
 
 import cern.c2mon.server.cache.RuleTagFacade;
+import cern.c2mon.server.cache.RuleTagUpdate;
 import cern.c2mon.server.cache.exception.CacheElementNotFoundException;
+import cern.c2mon.server.common.config.ServerConstants;
 import cern.c2mon.shared.common.datatag.TagQualityStatus;
 
 /**
@@ -34,13 +39,22 @@ import cern.c2mon.shared.common.datatag.TagQualityStatus;
  * in this cases like a time-deadband which sends only the latest value after it did
  * not receive any further evaluations after the last cacheUpdate intervals.
  *
+ * <p>Each rule has its own buffer entry, which is only created, modified and
+ * removed through the atomic <code>compute</code> operations of the buffer map,
+ * so that rule evaluation threads only contend when they update the same rule.
+ * A timer task checks the entries at a fixed rate and passes the rule results
+ * to update to the {@link RuleTagFacade} in one batch per check cycle.
+ *
+ * <p>The timer is started and stopped with the Spring lifecycle; the entries
+ * left in the buffer are flushed on stop.
+ *
  * In C2MON, instantiated as a Spring singleton using annotations.
  *
  * @author Matthias Braeger
  */
 @Slf4j
 @Service
-public final class RuleUpdateBuffer {
+public final class RuleUpdateBuffer implements SmartLifecycle {
   
   /** The initial buffer size */
   private static final int INITIAL_BUFFER_SIZE = 1000;
@@ -54,44 +68,36 @@ public final class RuleUpdateBuffer {
    */
   private static final int MAX_CYCLES_WAIT = 6; // 6 * 75 = 450 ms <== max delay
   
-  /** thread synchronization object */
-  private static final Object BUFFER_LOCK = new Object();
-  
   /**
-   * Reference to the local home interface of the
-   * <code>DataTagFacade</code> session bean.
-   */
-  private static RuleTagFacade ruleTagFacade;
-  
-  /** The internal buffer used for the */
-  private static final Map<Long, RuleBufferObject> RULE_OBJECT_BUF = new Hashtable<Long, RuleBufferObject>(INITIAL_BUFFER_SIZE);
-  
-  /** 
-   * Map containing the flags which indicates that an update was received
-   * within the last cache updater cycle.
+   * Reference to the <code>RuleTagFacade</code> bean.
    */
-  private static final Map<Long, Boolean> UPDATE_RECEIVED_FLAGS  = new Hashtable<Long, Boolean>(INITIAL_BUFFER_SIZE);
+  private final RuleTagFacade ruleTagFacade;
   
-  /**
-   * The counters for checking the cycles that a specific rule is already been buffered.
-   * When the counter exceeds the MAX_CYCLES_WAIT the <code>CacheUpdaterTask</code> forces
-   * a cache update.
-   */
-  private static final Map<Long, Integer> CYCLE_COUNTERS = new Hashtable<Long, Integer>(INITIAL_BUFFER_SIZE);
+  /** The buffered rule updates, by rule id */
+  private final ConcurrentMap<Long, RuleBufferObject> ruleObjectBuf = new ConcurrentHashMap<>(INITIAL_BUFFER_SIZE);
   
-  /** Timer instance that schedules the <code>CacheUpdaterTask</code> */
-  private final Timer timer;
+  /** The schedule interval of the <code>CacheUpdaterTask</code> */
+  private final long timerMillis;
   
-  /** will be set to true, once the timer is running */ 
-  private static boolean isCacheUpdaterRunning = false;
+  /** Timer instance that schedules the <code>CacheUpdaterTask</code>, null when stopped */
+  private Timer timer;
   
   /**
    * Constructor 
    */
   @Autowired
   private RuleUpdateBuffer(RuleTagFacade ruleTagFacade) {
-    this.timer = new Timer("RuleUpdater");
-    RuleUpdateBuffer.ruleTagFacade = ruleTagFacade;
+    this(ruleTagFacade, BUFFER_TIMER_MILLIS);
+  }
+
+  /**
+   * Constructor
+   * @param ruleTagFacade the facade used to update the rules in the cache
+   * @param timerMillis the schedule interval of the <code>CacheUpdaterTask</code>
+   */
+  RuleUpdateBuffer(RuleTagFacade ruleTagFacade, long timerMillis) {
+    this.ruleTagFacade = ruleTagFacade;
+    this.timerMillis = timerMillis;
   }
 
   /**
@@ -102,20 +108,13 @@ public final class RuleUpdateBuffer {
    * @param pTimestamp the timestamp of the rule evaluation.
    */
   public void update(final Long pId, final Object pValue, final String pValueDesc, final Timestamp pTimestamp) {
-    final RuleBufferObject bufferObj;
-    
     log.trace(pId + " entering update()");
-    synchronized (BUFFER_LOCK) {
-      if (!RULE_OBJECT_BUF.containsKey(pId)) {
-        bufferObj = new RuleBufferObject(pId, pValue, pValueDesc, pTimestamp);
-        RULE_OBJECT_BUF.put(pId, bufferObj);
-      }
-      else {
-        bufferObj = (RuleBufferObject) RULE_OBJECT_BUF.get(pId);
-        bufferObj.update(pValue, pValueDesc, pTimestamp);
-      }
-      scheduleCacheUpdaterTask(pId);
-    }
+    ruleObjectBuf.compute(pId, (id, bufferObj) -> {
+      RuleBufferObject result = bufferObj == null ? new RuleBufferObject(id) : bufferObj;
+      result.update(pValue, pValueDesc, pTimestamp);
+      result.updateReceived = true;
+      return result;
+    });
     log.trace(pId + " leaving update()");
   }
 
@@ -127,51 +126,144 @@ public final class RuleUpdateBuffer {
    * @param pTimestamp the timestamp of the rule evaluation
    */
   public void invalidate(final Long pId, final TagQualityStatus pReason, final String pDescription, final Timestamp pTimestamp) {
-    final RuleBufferObject bufferObj;
-    
-    log.trace(pId + " entering invalidate()");
-    synchronized (BUFFER_LOCK) {
-      if (!RULE_OBJECT_BUF.containsKey(pId)) {
-        bufferObj = new RuleBufferObject(pId, null, pReason, pDescription, null, pTimestamp);
-        RULE_OBJECT_BUF.put(pId, bufferObj);
-      }
-      else {
-        bufferObj = (RuleBufferObject) RULE_OBJECT_BUF.get(pId);
-        bufferObj.invalidate(pReason, pDescription, pTimestamp);
-      }
-      scheduleCacheUpdaterTask(pId);
+    if (pReason == null) {
+      throw new IllegalArgumentException("invalidate(..) method called with null TagQualityStatus argument.");
     }
+    log.trace(pId + " entering invalidate()");
+    ruleObjectBuf.compute(pId, (id, bufferObj) -> {
+      RuleBufferObject result = bufferObj == null ? new RuleBufferObject(id) : bufferObj;
+      result.invalidate(pReason, pDescription, pTimestamp);
+      result.updateReceived = true;
+      return result;
+    });
     log.trace(pId + " leaving invalidate()");
   }
 
   /**
-   * Registers an update for the given rule id and triggers
-   * the start of the <code>CacheUpdaterTask</code>, if not
-   * yet done.
-   * @param pId the rule process id that has been updated. 
+   * Performs one check cycle: collects the rules that received no update
+   * during the last cycle, or have been delayed for MAX_CYCLES_WAIT cycles,
+   * and updates them in the cache.
    */
-  private void scheduleCacheUpdaterTask(final Long pId) {
-    UPDATE_RECEIVED_FLAGS.put(pId, Boolean.TRUE);
-    if (!isCacheUpdaterRunning) {
+  void checkBuffer() {
+    flush(false);
+  }
+
+  /**
+   * Takes the due entries out of the buffer and updates them in the cache.
+   * The valid rule results are passed to the <code>RuleTagFacade</code> in
+   * one batch.
+   *
+   * @param all if true, all buffered entries are flushed, whatever their cycle counter
+   */
+  private void flush(final boolean all) {
+    List<RuleBufferObject> rulesToUpdate = new ArrayList<RuleBufferObject>(); // List of rules where the cache shall be updated
+
+    for (Long id : ruleObjectBuf.keySet()) {
+      ruleObjectBuf.computeIfPresent(id, (key, bufferObj) -> {
+        boolean forceCacheUpdate = bufferObj.cycleCounter >= MAX_CYCLES_WAIT;
+        if (all || !bufferObj.updateReceived || forceCacheUpdate) {
+          // False ==> then we update the cache since there was no recent update of that rule
+          // OR we the buffer was updated more than MAX_CYCLES_WAIT cycle in a row ==> force update
+          rulesToUpdate.add(bufferObj);
+          if (forceCacheUpdate) {
+            log.debug("CacheUpdaterTask() - Forcing a cache update for rule "
+                + bufferObj.id + " since it was already delayed by "
+                + MAX_CYCLES_WAIT * timerMillis + " ms.");
+          }
+          return null;
+        }
+        // Set the flag to FALSE in order indicate a cache update at the next check
+        bufferObj.updateReceived = false;
+        bufferObj.cycleCounter++;
+        return bufferObj;
+      });
+    }
+
+    // the removed entries are no longer reachable by the writers, so they can be read without lock
+    List<RuleTagUpdate> validUpdates = new ArrayList<>(rulesToUpdate.size());
+    for (RuleBufferObject rbo : rulesToUpdate) {
+      if (rbo.qualityCollection.isEmpty()) {
+        log.trace("CacheUpdaterTask() - updating cache for rule id " + rbo.id
+            + ": value=" + rbo.value
+            + ", description=" + rbo.valueDesc
+            + ", timestamp=" + rbo.timestamp);
+        validUpdates.add(new RuleTagUpdate(rbo.id, rbo.value, rbo.valueDesc, rbo.timestamp));
+      } else {
+        log.trace("CacheUpdaterTask() - invalidating cache for rule id " + rbo.id
+            + ": reasons=" + rbo.qualityCollection
+            + ", descriptions=" + rbo.qualityDescriptions
+            + ", timestamp=" + rbo.timestamp);
+        try {
+          ruleTagFacade.setQuality(rbo.id, rbo.qualityCollection, null, rbo.qualityDescriptions, rbo.timestamp);
+        } catch (CacheElementNotFoundException cacheEx) {
+          log.warn("Unable to update rule as could not be located in cache (normal during rule reconfiguration)", cacheEx);
+        }
+      }
+    }
+
+    if (!validUpdates.isEmpty()) {
       try {
-        log.trace(pId + " scheduleCacheUpdaterTask() - Initialize new cache updater task");
-        timer.schedule(new CacheUpdaterTask(), BUFFER_TIMER_MILLIS, BUFFER_TIMER_MILLIS);
-        isCacheUpdaterRunning = true;
-      } catch (IllegalStateException ise) {
-        log.error(pId + "scheduleCacheUpdaterTask() - Catched illegal state exception", ise);
-      }      
+        ruleTagFacade.updateAndValidate(validUpdates);
+      } catch (Exception exception) {
+        log.warn("Unexpected error during rule evaluation", exception);
+      }
+    }
+  }
+
+  @Override
+  public boolean isAutoStartup() {
+    return true;
+  }
+
+  @Override
+  public void stop(Runnable runnable) {
+    stop();
+    runnable.run();
+  }
+
+  @Override
+  public synchronized boolean isRunning() {
+    return timer != null;
+  }
+
+  @Override
+  public synchronized void start() {
+    if (timer == null) {
+      log.debug("Starting rule update buffer");
+      timer = new Timer("RuleUpdater");
+      timer.scheduleAtFixedRate(new CacheUpdaterTask(), timerMillis, timerMillis);
     }
   }
+
+  @Override
+  public synchronized void stop() {
+    if (timer != null) {
+      log.debug("Stopping rule update buffer");
+      timer.cancel();
+      timer = null;
+      flush(true);
+    }
+  }
+
+  /**
+   * Stops after the rule evaluator, so that its last results are flushed.
+   */
+  @Override
+  public int getPhase() {
+    return ServerConstants.PHASE_INTERMEDIATE - 1;
+  }
   
   /**
    * Inner class which is used to store the rule update
    * information for the cache of the given rule data tag.
+   * The fields are only modified inside the <code>compute</code> operations
+   * of the buffer map.
    *
    * @author Matthias Braeger
    */
   private static final class RuleBufferObject {
     /** Rule data tag id */
-    private Long id = null;
+    private final Long id;
     /** rule result object */
     private Object value = null;
     /** quality flag */
@@ -180,53 +272,29 @@ public final class RuleUpdateBuffer {
     private HashMap<TagQualityStatus, String> qualityDescriptions = new HashMap<TagQualityStatus, String>();
     /** value description */
     private String valueDesc = null; 
-    /** rule evaluation timestamp */
+    /** rule evaluation timestamp, null until the first update */
     private Timestamp timestamp = null;
-
+    /** Flag indicating that an update was received within the last cache updater cycle */
+    private boolean updateReceived = false;
     /**
-     * Copy Constructor
-     * @param rbo The object to be copied
+     * The number of cycles that this rule has already been buffered. When the counter
+     * reaches MAX_CYCLES_WAIT the <code>CacheUpdaterTask</code> forces a cache update.
      */
-    @SuppressWarnings("unchecked")
-    private RuleBufferObject(final RuleBufferObject rbo) {
-      this.id = rbo.id;
-      this.value = rbo.value;
-      this.qualityCollection = (HashSet<TagQualityStatus>) rbo.qualityCollection.clone();
-      this.qualityDescriptions = (HashMap<TagQualityStatus, String>) rbo.qualityDescriptions.clone();
-      this.valueDesc = rbo.valueDesc;     
-      this.timestamp = new Timestamp(rbo.timestamp.getTime());
-    }
+    private int cycleCounter = 0;
 
     /**
      * Constructor
      * @param pId rule data tag id
-     * @param pValue rule result
-     * @param pValueDesc description
-     * @param pTimestamp rule evaluation timestamp
      */
-    private RuleBufferObject(final Long pId, final Object pValue, final String pValueDesc, final Timestamp pTimestamp) {
-      this(pId, pValue, null, null, pValueDesc, pTimestamp);
+    private RuleBufferObject(final Long pId) {
+      this.id = pId;
     }
 
     /**
-     * Constructor
-     * @param pId rule data tag id
-     * @param pValue rule result
-     * @param pQuality error quality flag
-     * @param pValueDesc description
-     * @param pTimestamp rule evaluation timestamp
+     * @return <code>true</code> if an update with the given timestamp is not older than the buffered one
      */
-    private RuleBufferObject(final Long pId, final Object pValue, final TagQualityStatus pStatus, final String pQualityDesc, final String pValueDesc, final Timestamp pTimestamp) {
-        this.id = pId;
-        this.value = pValue;
-        if (pStatus != null) {
-          this.qualityCollection.add(pStatus);
-          if (pQualityDesc != null) {
-            this.qualityDescriptions.put(pStatus, pQualityDesc);
-          }          
-        }        
-        this.valueDesc = pValueDesc;
-        this.timestamp = pTimestamp;
+    private boolean accepts(final Timestamp pTimestamp) {
+      return this.timestamp == null || this.timestamp.before(pTimestamp) || this.timestamp.equals(pTimestamp);
     }
 
     /**
@@ -238,16 +306,14 @@ public final class RuleUpdateBuffer {
      */
     private boolean update(final Object pValue, final String pValueDesc, final Timestamp pTimestamp) {
       boolean retval = false;
-      synchronized (BUFFER_LOCK) {
-        if (this.timestamp.before(pTimestamp) || this.timestamp.equals(pTimestamp)) {
-          this.value = pValue;
-          this.qualityCollection.clear();
-          this.qualityDescriptions.clear();
-          this.valueDesc = pValueDesc;
-          this.timestamp = pTimestamp;
-          retval = true;
-        }
-      }      
+      if (accepts(pTimestamp)) {
+        this.value = pValue;
+        this.qualityCollection.clear();
+        this.qualityDescriptions.clear();
+        this.valueDesc = pValueDesc;
+        this.timestamp = pTimestamp;
+        retval = true;
+      }
       return retval;
     }
 
@@ -259,11 +325,8 @@ public final class RuleUpdateBuffer {
      * @return <code>true</code>, if object was updated, else <code>false</code>
      */
     private boolean invalidate(final TagQualityStatus pQuality, final String pDescription, final Timestamp pTimestamp) {
-      if (pQuality == null) {
-        throw new IllegalArgumentException("invalidate(..) method called with null TagQualityStatus argument.");
-      }
       boolean retval = false;
-      if (this.timestamp.before(pTimestamp) || this.timestamp.equals(pTimestamp)) {
+      if (accepts(pTimestamp)) {
         this.qualityCollection.add(pQuality);
         this.qualityDescriptions.put(pQuality, pDescription);        
         this.timestamp = pTimestamp;
@@ -275,11 +338,11 @@ public final class RuleUpdateBuffer {
 
   /**
    * This class extends the Java <code>TimerTask</code> and
-   * takes care of updating the oc4j cache via the <code>DataTagFacadeBean</code>.
+   * takes care of updating the cache via the <code>RuleTagFacade</code>.
    *
    * @author Matthias Braeger
    */
-  private static class CacheUpdaterTask extends TimerTask {
+  private class CacheUpdaterTask extends TimerTask {
     /**
      * This method is executed when it gets triggered
      * by its <code>Timer</code> instance. It then takes
@@ -288,87 +351,8 @@ public final class RuleUpdateBuffer {
      */
     public void run() {
       //keep logic in try clause as exception will kill the timer thread here
-      try {        
-        Collection<RuleBufferObject> rulesToUpdate = null;
-  
-        // create first a copy of all rule objects that needs to be updated
-        synchronized (BUFFER_LOCK) {
-          rulesToUpdate = new ArrayList<RuleBufferObject>(); // List of rules where the cache shall be updated
-          Integer actCounter = null; // actual cycle counter
-          boolean hasJustBeenUpdated = false; // flag indicating, if the actual rule was updated since the last check
-          boolean forceCacheUpdate = false; // true, if a cache update shall be forced due to an exceed of the MAX_CYCLE_WAIT
-          for (Long actTagId : UPDATE_RECEIVED_FLAGS.keySet()) {
-            hasJustBeenUpdated = ((Boolean) UPDATE_RECEIVED_FLAGS.get(actTagId)).booleanValue();
-            actCounter = (Integer) CYCLE_COUNTERS.get(actTagId);
-            forceCacheUpdate = (actCounter != null && actCounter.intValue() >= MAX_CYCLES_WAIT);
-              
-            if (!hasJustBeenUpdated || forceCacheUpdate) {
-              // False ==> then we update the cache since there was no recent update of that rule
-              // OR we the buffer was updated more than MAX_CYCLES_WAIT cycle in a row ==> force update 
-              RuleBufferObject rbo = new RuleBufferObject((RuleBufferObject) RULE_OBJECT_BUF.get(actTagId));
-              rulesToUpdate.add(rbo);
-              if (forceCacheUpdate) {
-                log.debug("CacheUpdaterTask() - Forcing a cache update for rule "
-                    + actTagId + " since it was already delayed by "
-                    + MAX_CYCLES_WAIT * BUFFER_TIMER_MILLIS + " ms.");
-              }
-            }
-            else {
-              // Set the flag to FALSE in order indicate a cache update at the next check
-              UPDATE_RECEIVED_FLAGS.put(actTagId, Boolean.FALSE);
-              if (actCounter == null) {
-                CYCLE_COUNTERS.put(actTagId, new Integer(1));
-              }
-              else { // Increasing the counter
-                CYCLE_COUNTERS.put(actTagId, new Integer(actCounter.intValue() + 1));
-              }
-            }
-          }
-          
-          // Cleaning the buffer from all objects that are going to be put into the cache.
-          Long actTagId;
-          for (RuleBufferObject rbo : rulesToUpdate) {
-            actTagId = rbo.id;
-            UPDATE_RECEIVED_FLAGS.remove(actTagId);
-            RULE_OBJECT_BUF.remove(actTagId);
-            CYCLE_COUNTERS.remove(actTagId);
-          }
-          
-          if (UPDATE_RECEIVED_FLAGS.size() == 0) {
-            log.trace("CacheUpdaterTask() - Canceling next cache updater check, because there are no more updates registered.");
-            this.cancel();
-            isCacheUpdaterRunning = false;
-          }
-        } // end of synchronization
-        
-        if (rulesToUpdate.size() > 0) {
-          // Updating the cache
-          for (RuleBufferObject rbo : rulesToUpdate) {
-            if (rbo.qualityCollection.isEmpty()) {
-              log.trace("CacheUpdaterTask() - updating cache for rule id " + rbo.id
-                  + ": value=" + rbo.value
-                  + ", description=" + rbo.valueDesc
-                  + ", timestamp=" + rbo.timestamp);
-              try {
-                ruleTagFacade.updateAndValidate(rbo.id, rbo.value, rbo.valueDesc, rbo.timestamp);            
-              } catch (CacheElementNotFoundException cacheEx) {
-                log.warn("Unable to update rule (can happen during rule reconfiguration)", cacheEx);
-              } catch (Exception exception) {
-                log.warn("Unexpected error during rule evaluation", exception);
-              }
-            } else {
-              log.trace("CacheUpdaterTask() - invalidating cache for rule id " + rbo.id
-                  + ": reasons=" + rbo.qualityCollection
-                  + ", descriptions=" + rbo.qualityDescriptions
-                  + ", timestamp=" + rbo.timestamp);
-              try {                
-                ruleTagFacade.setQuality(rbo.id, rbo.qualityCollection, null, rbo.qualityDescriptions, rbo.timestamp);
-              } catch (CacheElementNotFoundException cacheEx) {
-                log.warn("Unable to update rule as could not be located in cache (normal during rule reconfiguration)", cacheEx);
-              }                          
-            }
-          } // end for                    
-        }      
+      try {
+        checkBuffer();
       } catch (Exception ex) {
         log.error("Exception caught during rule update - should not be ignored!", ex);
       }
@@ -0,0 +1,114 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.rule.evaluation;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.easymock.EasyMock;
+import org.junit.Before;
+import org.junit.Test;
+
+import cern.c2mon.server.cache.RuleTagCache;
+import cern.c2mon.server.common.rule.RuleTagCacheObject;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit test of the {@link RuleDependencyGraph}.
+ */
+public class RuleDependencyGraphTest {
+
+  private RuleTagCache ruleTagCache;
+
+  private RuleDependencyGraph graph;
+
+  private RuleTagCacheObject rule12;
+
+  private RuleTagCacheObject rule13;
+
+  @Before
+  public void setUp() {
+    // rule 10 <- tags 1, 2; rule 11 <- rule 10, tag 3; rule 12 <- rules 10, 11; rule 13 <- tag 2; rule 14 <- rule 13
+    RuleTagCacheObject rule10 = createRule(10L, "(#1 > 0) & (#2 > 0)");
+    RuleTagCacheObject rule11 = createRule(11L, "#10 = #3");
+    rule12 = createRule(12L, "#11 = #10");
+    rule13 = createRule(13L, "#2 > 3");
+    RuleTagCacheObject rule14 = createRule(14L, "#13 = true");
+    rule10.addRuleId(11L);
+    rule10.addRuleId(12L);
+    rule11.addRuleId(12L);
+    rule13.addRuleId(14L);
+
+    ruleTagCache = EasyMock.createNiceMock(RuleTagCache.class);
+    for (RuleTagCacheObject rule : Arrays.asList(rule10, rule11, rule12, rule13, rule14)) {
+      EasyMock.expect(ruleTagCache.get(rule.getId())).andReturn(rule).anyTimes();
+      EasyMock.expect(ruleTagCache.hasKey(rule.getId())).andReturn(true).anyTimes();
+    }
+    EasyMock.replay(ruleTagCache);
+
+    graph = new RuleDependencyGraph(ruleTagCache);
+  }
+
+  @Test
+  public void testRanks() {
+    assertEquals(0, graph.getRank(10L));
+    assertEquals(1, graph.getRank(11L));
+    assertEquals(2, graph.getRank(12L));
+    assertEquals(0, graph.getRank(13L));
+    assertEquals(1, graph.getRank(14L));
+  }
+
+  /**
+   * Rule 13 is reconfigured to depend on rule 12: the cached rank of its
+   * dependent rule 14 must not be used any more.
+   */
+  @Test
+  public void testReconfigurationInvalidatesDependentRanks() {
+    assertEquals(Arrays.asList(Arrays.asList(13L), Arrays.asList(14L)), graph.getEvaluationLevels(Arrays.asList(13L)));
+
+    rule13.setRuleText("#12 > 3");
+    rule12.addRuleId(13L);
+    assertEquals(Arrays.asList(Arrays.asList(13L), Arrays.asList(14L)), graph.getEvaluationLevels(Arrays.asList(14L, 13L)));
+    assertEquals(3, graph.getRank(13L));
+    assertEquals(4, graph.getRank(14L));
+  }
+
+  @Test
+  public void testEvaluationLevelsIncludeDependentRules() {
+    List<List<Long>> levels = graph.getEvaluationLevels(Arrays.asList(10L, 13L));
+
+    assertEquals(3, levels.size());
+    assertEquals(new HashSet<>(Arrays.asList(10L, 13L)), new HashSet<>(levels.get(0)));
+    assertEquals(new HashSet<>(Arrays.asList(11L, 14L)), new HashSet<>(levels.get(1)));
+    assertEquals(Arrays.asList(12L), levels.get(2));
+  }
+
+  @Test
+  public void testEachRuleEvaluatedOnce() {
+    List<List<Long>> levels = graph.getEvaluationLevels(Arrays.asList(11L, 10L, 12L));
+
+    assertEquals(Arrays.asList(Arrays.asList(10L), Arrays.asList(11L), Arrays.asList(12L)), levels);
+  }
+
+  private static RuleTagCacheObject createRule(final Long id, final String ruleText) {
+    RuleTagCacheObject rule = new RuleTagCacheObject(id);
+    rule.setRuleText(ruleText);
+    return rule;
+  }
+}
@@ -0,0 +1,253 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.rule.evaluation;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import cern.c2mon.server.cache.CacheRegistrationService;
+import cern.c2mon.server.cache.RuleTagCache;
+import cern.c2mon.server.cache.RuleTagFacade;
+import cern.c2mon.server.cache.RuleTagUpdate;
+import cern.c2mon.server.cache.TagLocationService;
+import cern.c2mon.server.cache.exception.CacheElementNotFoundException;
+import cern.c2mon.server.common.component.Lifecycle;
+import cern.c2mon.server.common.datatag.DataTagCacheObject;
+import cern.c2mon.server.common.rule.RuleTag;
+import cern.c2mon.server.common.rule.RuleTagCacheObject;
+import cern.c2mon.server.common.tag.AbstractTagCacheObject;
+import cern.c2mon.server.common.tag.Tag;
+import cern.c2mon.server.rule.config.RuleProperties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test of the batch evaluation of the {@link RuleEvaluatorImpl}.
+ *
+ * <p>Rule 10 = #1 + #2, rule 11 = #10 + #3 and rule 12 = #11 + #10, with the
+ * data tags 1, 2 and 3 set to 1, 2 and 3.
+ */
+public class RuleEvaluatorImplTest {
+
+  /** Cache content, data tags and rules */
+  private final Map<Long, AbstractTagCacheObject> tags = new ConcurrentHashMap<>();
+
+  /** Rule results written to the cache by the update buffer */
+  private final Map<Long, Object> cacheUpdates = new ConcurrentHashMap<>();
+
+  /** Set to block the first input tag retrieval */
+  private final AtomicBoolean blockFirstRetrieval = new AtomicBoolean(false);
+
+  private final CountDownLatch retrievalBlocked = new CountDownLatch(1);
+
+  private final CountDownLatch releaseRetrieval = new CountDownLatch(1);
+
+  private RuleUpdateBuffer ruleUpdateBuffer;
+
+  private RuleEvaluationStatistics statistics;
+
+  private RuleEvaluatorImpl ruleEvaluator;
+
+  @Before
+  @SuppressWarnings("unchecked")
+  public void setUp() {
+    createDataTag(1L, 1.0, 10L);
+    createDataTag(2L, 2.0, 10L);
+    createDataTag(3L, 3.0, 11L);
+    createRule(10L, "#1 + #2", 11L, 12L);
+    createRule(11L, "#10 + #3", 12L);
+    createRule(12L, "#11 + #10");
+
+    RuleTagCache ruleTagCache = EasyMock.createNiceMock(RuleTagCache.class);
+    EasyMock.expect(ruleTagCache.get(EasyMock.<Long>anyObject())).andAnswer(() -> (RuleTag) getTag(EasyMock.getCurrentArguments()[0])).anyTimes();
+    EasyMock.expect(ruleTagCache.hasKey(EasyMock.<Long>anyObject())).andAnswer(() -> tags.get(EasyMock.getCurrentArguments()[0]) instanceof RuleTag).anyTimes();
+
+    TagLocationService tagLocationService = EasyMock.createNiceMock(TagLocationService.class);
+    EasyMock.expect(tagLocationService.get(EasyMock.<Long>anyObject())).andAnswer(() -> {
+      if (blockFirstRetrieval.compareAndSet(true, false)) {
+        retrievalBlocked.countDown();
+        releaseRetrieval.await(5, TimeUnit.SECONDS);
+      }
+      return getTag(EasyMock.getCurrentArguments()[0]);
+    }).anyTimes();
+
+    RuleTagFacade ruleTagFacade = EasyMock.createNiceMock(RuleTagFacade.class);
+    ruleTagFacade.updateAndValidate(EasyMock.<Collection<RuleTagUpdate>>anyObject());
+    EasyMock.expectLastCall().andAnswer(() -> {
+      for (RuleTagUpdate update : (Collection<RuleTagUpdate>) EasyMock.getCurrentArguments()[0]) {
+        cacheUpdates.put(update.getId(), update.getValue());
+      }
+      return null;
+    }).anyTimes();
+
+    CacheRegistrationService cacheRegistrationService = EasyMock.createNiceMock(CacheRegistrationService.class);
+    EasyMock.expect(cacheRegistrationService.registerToAllTags(EasyMock.anyObject(), EasyMock.anyInt()))
+        .andReturn(EasyMock.createNiceMock(Lifecycle.class)).anyTimes();
+
+    EasyMock.replay(ruleTagCache, tagLocationService, ruleTagFacade, cacheRegistrationService);
+
+    RuleProperties properties = new RuleProperties();
+    properties.setBatchEvaluation(true);
+    ruleUpdateBuffer = new RuleUpdateBuffer(ruleTagFacade, TimeUnit.DAYS.toMillis(1));
+    statistics = new RuleEvaluationStatistics();
+    ruleEvaluator = new RuleEvaluatorImpl(ruleTagCache, ruleUpdateBuffer, tagLocationService, cacheRegistrationService,
+        properties, new RuleDependencyGraph(ruleTagCache), statistics);
+    ruleEvaluator.init();
+  }
+
+  @After
+  public void tearDown() {
+    releaseRetrieval.countDown();
+    ruleEvaluator.stop();
+  }
+
+  @Test
+  public void testDependentRulesUseResultsOfTheBatch() {
+    ruleEvaluator.notifyElementUpdated(getTag(1L));
+    ruleEvaluator.stop();
+    flushUpdateBuffer();
+
+    assertEquals(3.0, cacheUpdates.get(10L));
+    assertEquals(6.0, cacheUpdates.get(11L));
+    assertEquals(9.0, cacheUpdates.get(12L));
+    assertEvaluationCounts(1, 1, 1);
+  }
+
+  @Test
+  public void testUpdatesDuringBatchAreCoalesced() throws InterruptedException {
+    blockFirstRetrieval.set(true);
+    ruleEvaluator.notifyElementUpdated(getTag(1L));
+    assertTrue(retrievalBlocked.await(5, TimeUnit.SECONDS));
+
+    for (int i = 0; i < 10; i++) {
+      ruleEvaluator.notifyElementUpdated(getTag(1L));
+      ruleEvaluator.notifyElementUpdated(getTag(2L));
+      ruleEvaluator.notifyElementUpdated(getTag(3L));
+    }
+    releaseRetrieval.countDown();
+    ruleEvaluator.stop();
+
+    // the first batch and one batch for all updates received in the meantime
+    assertEvaluationCounts(2, 2, 2);
+  }
+
+  @Test
+  public void testRuleUpdateWithBatchResultIsIgnored() throws InterruptedException {
+    ruleEvaluator.notifyElementUpdated(getTag(1L));
+    waitForEvaluations(3);
+
+    tags.get(10L).setValue(3.0);
+    ruleEvaluator.notifyElementUpdated(getTag(10L));
+    ruleEvaluator.stop();
+
+    assertEvaluationCounts(1, 1, 1);
+  }
+
+  @Test
+  public void testChangedRuleUpdateTriggersDependentRules() throws InterruptedException {
+    ruleEvaluator.notifyElementUpdated(getTag(1L));
+    waitForEvaluations(3);
+
+    tags.get(10L).setValue(5.0);
+    ruleEvaluator.notifyElementUpdated(getTag(10L));
+    ruleEvaluator.stop();
+    flushUpdateBuffer();
+
+    assertEvaluationCounts(1, 2, 2);
+    assertEquals(8.0, cacheUpdates.get(11L));
+    assertEquals(13.0, cacheUpdates.get(12L));
+  }
+
+  /**
+   * The update of rule 10 is filtered out, so its batch result is never
+   * matched by a cache update. It must not be used by later batches.
+   */
+  @Test
+  public void testBatchResultNotUsedByLaterBatches() throws InterruptedException {
+    ruleEvaluator.notifyElementUpdated(getTag(1L));
+    waitForEvaluations(3);
+
+    tags.get(10L).setValue(7.0);
+    ruleEvaluator.notifyElementUpdated(getTag(3L));
+    ruleEvaluator.stop();
+    flushUpdateBuffer();
+
+    assertEvaluationCounts(1, 2, 2);
+    assertEquals(10.0, cacheUpdates.get(11L));
+    assertEquals(17.0, cacheUpdates.get(12L));
+  }
+
+  private void createDataTag(final Long id, final Double value, final Long ruleId) {
+    DataTagCacheObject tag = new DataTagCacheObject(id);
+    tag.setValue(value);
+    tag.getDataTagQuality().validate();
+    tag.addRuleId(ruleId);
+    tags.put(id, tag);
+  }
+
+  private void createRule(final Long id, final String ruleText, final Long... ruleIds) {
+    RuleTagCacheObject rule = new RuleTagCacheObject(id);
+    rule.setRuleText(ruleText);
+    rule.setDataType("Double");
+    rule.setValue(0.0);
+    rule.getDataTagQuality().validate();
+    for (Long ruleId : ruleIds) {
+      rule.addRuleId(ruleId);
+    }
+    tags.put(id, rule);
+  }
+
+  private Tag getTag(final Object id) {
+    Tag tag = (Tag) tags.get(id);
+    if (tag == null) {
+      throw new CacheElementNotFoundException();
+    }
+    return tag;
+  }
+
+  /**
+   * Passes the buffered rule results to the cache.
+   */
+  private void flushUpdateBuffer() {
+    ruleUpdateBuffer.checkBuffer();
+    ruleUpdateBuffer.checkBuffer();
+  }
+
+  private void waitForEvaluations(final long count) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (statistics.getTotalEvaluationCount() < count && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(count, statistics.getTotalEvaluationCount());
+  }
+
+  private void assertEvaluationCounts(final long rule10, final long rule11, final long rule12) {
+    assertEquals(rule10, statistics.getEvaluationCount(10L));
+    assertEquals(rule11, statistics.getEvaluationCount(11L));
+    assertEquals(rule12, statistics.getEvaluationCount(12L));
+  }
+}
@@ -17,27 +17,37 @@
 package cern.c2mon.server.rule.evaluation;
 
 import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
+import org.easymock.Capture;
+import org.easymock.EasyMock;
 import org.junit.Before;
+import org.junit.Test;
 
+import cern.c2mon.server.cache.RuleTagFacade;
+import cern.c2mon.server.cache.RuleTagUpdate;
 import cern.c2mon.shared.common.datatag.TagQualityStatus;
 
 import static org.junit.Assert.*;
 
 
 /**
- * It is difficult to test the full <code>RuleUpdateBuffer</code> logic,
- * since it uses JNDI and needs a J2EE container. However, you can comment
- * out the call to the <code>DataTagFacadeBean</code> and test the basic
- * behavior.
- * 
- * TODO need to adapt this to C2MON code ... only started so far
+ * Tests the buffering logic of the <code>RuleUpdateBuffer</code>. The check
+ * cycles are triggered by the tests, the buffer is only started to test its stop.
  *
  * @author Matthias Braeger
  */
 public class RuleUpdateBufferTest {
   
-  /** Singleton instance */
+  private RuleTagFacade ruleTagFacade;
+
   private RuleUpdateBuffer rub = null;
   
   
@@ -45,32 +55,146 @@ public class RuleUpdateBufferTest {
    * It is called before running any of the tests defined on this class
    */
   @Before
-  protected final void setUp() {
-    //rub = RuleUpdateBuffer.getInstance();
+  public final void setUp() {
+    ruleTagFacade = EasyMock.createStrictMock(RuleTagFacade.class);
+    rub = new RuleUpdateBuffer(ruleTagFacade, TimeUnit.DAYS.toMillis(1));
   }
   
-  
-  public final void testUpdate() {
-    for (int i = 0; i < 100; i++) {
-      rub.update(new Long(1234L), (Object) ("test " + i), "testUpdate " + i, new Timestamp(System.currentTimeMillis()));
-//      try {Thread.sleep(40);} catch (InterruptedException e) {}
-      rub.update(new Long(1235L), (Object) ("test " + i), "testUpdate " + i, new Timestamp(System.currentTimeMillis()));
-      try {Thread.sleep(65);} catch (InterruptedException e) {}
-      System.out.println(i);
+  @Test
+  public final void testUpdatesAreCoalesced() {
+    Timestamp timestamp = new Timestamp(System.currentTimeMillis());
+    ruleTagFacade.updateAndValidate(Collections.singletonList(new RuleTagUpdate(1234L, "test 9", "testUpdate 9", timestamp)));
+    EasyMock.replay(ruleTagFacade);
+
+    for (int i = 0; i < 10; i++) {
+      rub.update(1234L, "test " + i, "testUpdate " + i, timestamp);
     }
-    
-    try {Thread.sleep(1000);} catch (InterruptedException e) {}
-    assertTrue(true);
+    rub.checkBuffer(); // update received in this cycle
+    rub.checkBuffer(); // no further update => flushed
+    rub.checkBuffer(); // nothing left
+
+    EasyMock.verify(ruleTagFacade);
   }
-  
+
+  @Test
+  public final void testOlderUpdateIgnored() {
+    Timestamp timestamp = new Timestamp(System.currentTimeMillis());
+    ruleTagFacade.updateAndValidate(Collections.singletonList(new RuleTagUpdate(1234L, "new", "new", timestamp)));
+    EasyMock.replay(ruleTagFacade);
+
+    rub.update(1234L, "new", "new", timestamp);
+    rub.update(1234L, "old", "old", new Timestamp(timestamp.getTime() - 1));
+    rub.checkBuffer();
+    rub.checkBuffer();
+
+    EasyMock.verify(ruleTagFacade);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
   public final void testInvalidate() {
-    for (int i = 0; i < 100; i++) {
-      rub.invalidate(new Long(12345L), TagQualityStatus.INACCESSIBLE, "testUpdate " + i, new Timestamp(System.currentTimeMillis()));
-      try {Thread.sleep(60);} catch (InterruptedException e) {}
-      System.out.println(i);
+    Timestamp timestamp = new Timestamp(System.currentTimeMillis());
+    ruleTagFacade.setQuality(EasyMock.eq(12345L), (Collection<TagQualityStatus>) EasyMock.anyObject(),
+        (Collection<TagQualityStatus>) EasyMock.isNull(), (Map<TagQualityStatus, String>) EasyMock.anyObject(),
+        EasyMock.eq(timestamp));
+    EasyMock.replay(ruleTagFacade);
+
+    rub.update(12345L, "value", "value", new Timestamp(timestamp.getTime() - 1));
+    rub.invalidate(12345L, TagQualityStatus.INACCESSIBLE, "testInvalidate", timestamp);
+    rub.checkBuffer();
+    rub.checkBuffer();
+
+    EasyMock.verify(ruleTagFacade);
+  }
+
+  /**
+   * A rule updated at every cycle is forced into the cache after MAX_CYCLES_WAIT cycles.
+   */
+  @Test
+  public final void testForcedUpdate() {
+    Timestamp timestamp = new Timestamp(System.currentTimeMillis());
+    ruleTagFacade.updateAndValidate(Collections.singletonList(new RuleTagUpdate(1235L, "test 6", "testUpdate 6", timestamp)));
+    EasyMock.replay(ruleTagFacade);
+
+    for (int i = 0; i < 7; i++) {
+      rub.update(1235L, "test " + i, "testUpdate " + i, timestamp);
+      rub.checkBuffer();
     }
-    
-    try {Thread.sleep(1000);} catch (InterruptedException e) {}
-    assertTrue(true);
+
+    EasyMock.verify(ruleTagFacade);
+  }
+
+  /**
+   * All threads update the same rules. Every timestamp is used once, so the
+   * update kept for a rule is the one of the last iteration of the last thread,
+   * whatever the interleaving.
+   */
+  @Test
+  public final void testConcurrentUpdates() throws InterruptedException {
+    final int threads = 8;
+    final int rules = 100;
+    final int iterations = 100;
+    final long time = System.currentTimeMillis();
+    ruleTagFacade = EasyMock.createStrictMock(RuleTagFacade.class);
+    Capture<Collection<RuleTagUpdate>> batch = EasyMock.newCapture();
+    ruleTagFacade.updateAndValidate(EasyMock.capture(batch));
+    EasyMock.replay(ruleTagFacade);
+    rub = new RuleUpdateBuffer(ruleTagFacade, TimeUnit.DAYS.toMillis(1));
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    final CountDownLatch start = new CountDownLatch(1);
+    final CountDownLatch done = new CountDownLatch(threads);
+    for (int t = 0; t < threads; t++) {
+      final int thread = t;
+      executor.execute(() -> {
+        try {
+          start.await();
+          for (int i = 0; i < iterations; i++) {
+            for (long id = 0; id < rules; id++) {
+              String value = thread + "-" + i;
+              rub.update(id, value, value, new Timestamp(time + i * threads + thread));
+            }
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        } finally {
+          done.countDown();
+        }
+      });
+    }
+    start.countDown();
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    executor.shutdown();
+    rub.checkBuffer();
+    rub.checkBuffer();
+
+    EasyMock.verify(ruleTagFacade);
+    String lastValue = (threads - 1) + "-" + (iterations - 1);
+    Timestamp lastTimestamp = new Timestamp(time + (iterations - 1) * threads + threads - 1);
+    Map<Long, RuleTagUpdate> updates = new HashMap<>();
+    for (RuleTagUpdate update : batch.getValue()) {
+      assertNull("Rule " + update.getId() + " updated twice", updates.put(update.getId(), update));
+    }
+    assertEquals(rules, updates.size());
+    for (long id = 0; id < rules; id++) {
+      assertEquals(new RuleTagUpdate(id, lastValue, lastValue, lastTimestamp), updates.get(id));
+    }
+  }
+
+  /**
+   * All buffered entries are flushed in one batch when the buffer is stopped.
+   */
+  @Test
+  public final void testStopFlushesBuffer() {
+    Timestamp timestamp = new Timestamp(System.currentTimeMillis());
+    ruleTagFacade.updateAndValidate(Collections.singletonList(new RuleTagUpdate(1236L, "value", "value", timestamp)));
+    EasyMock.replay(ruleTagFacade);
+
+    rub.start();
+    rub.update(1236L, "value", "value", timestamp);
+    rub.stop();
+    assertFalse(rub.isRunning());
+
+    EasyMock.verify(ruleTagFacade);
   }
 }
@@ -16,6 +16,7 @@
  *****************************************************************************/
 package cern.c2mon.server.supervision.alive;
 
+import java.util.List;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -30,11 +31,13 @@ import org.springframework.stereotype.Service;
 
 import cern.c2mon.server.cache.AliveTimerCache;
 import cern.c2mon.server.cache.AliveTimerFacade;
+import cern.c2mon.server.cache.C2monCacheListener;
 import cern.c2mon.server.cache.ClusterCache;
 import cern.c2mon.server.cache.exception.CacheElementNotFoundException;
 import cern.c2mon.server.common.alive.AliveTimer;
 import cern.c2mon.server.common.config.ServerConstants;
 import cern.c2mon.server.supervision.SupervisionManager;
+import cern.c2mon.server.supervision.config.SupervisionProperties;
 
 /**
  * Timer that regularly checks all the active alive timers monitoring
@@ -45,11 +48,16 @@ import cern.c2mon.server.supervision.SupervisionManager;
  *  message arrived, where alive-interval is specific to the AliveTimer
  *  object (see <code>hasExpired</code> in {@link AliveTimerFacade}).
  *
+ * <p>The deadlines of the active timers are kept in {@link AliveTimerDeadlines},
+ * refreshed on every update of the alive timer cache, so a check only reads
+ * the timers that are due. These are checked against the cache before being
+ * stopped, as they may have been updated on another server of the cluster.
+ *
  * @author Mark Brightwell
  *
  */
 @Service
-public class AliveTimerChecker extends TimerTask implements SmartLifecycle {
+public class AliveTimerChecker extends TimerTask implements SmartLifecycle, C2monCacheListener<AliveTimer> {
 
   /**
    * Log4j Logger for this class.
@@ -78,10 +86,15 @@ public class AliveTimerChecker extends TimerTask implements SmartLifecycle {
   private static final String LAST_ALIVE_TIMER_CHECK_LONG = "c2mon.supervision.AliveTimerChecker.lastAliveTimerCheck";
 
   /**
-   * How often the timer checks whether the alive
-   * timer have expired.
+   * How often all alive timers are compared with the tracked deadlines,
+   * to pick up timers added or changed without a cache notification.
+   */
+  private static final int RECONCILIATION_INTERVAL = 10000;
+
+  /**
+   * Time after which the warning about DAQs down is switched off.
    */
-  private static final int SCAN_INTERVAL = 10000;
+  private static final int WARNING_SWITCH_OFF_DELAY = 600000; //10mins
 
   /**
    * The time the server waits before doing first
@@ -125,15 +138,33 @@ public class AliveTimerChecker extends TimerTask implements SmartLifecycle {
    */
   private boolean alarmActive = false;
 
+  /**
+   * Number of checks until the alarm is switched off.
+   */
+  private final int switchOffCountdown;
+
   /**
    * Count down to alarm switch off.
    */
-  private AtomicInteger warningSwitchOffCountDown = new AtomicInteger(SWITCH_OFF_COUNTDOWN);
+  private AtomicInteger warningSwitchOffCountDown;
 
   /** Reference to the clusterCache to share values accross teh cluster nodes */
   private final ClusterCache clusterCache;
 
-  private static final int SWITCH_OFF_COUNTDOWN = 60; //10mins
+  /**
+   * How often the timer checks whether the alive timers have expired.
+   */
+  private final int checkInterval;
+
+  /**
+   * Deadlines of the alive timers.
+   */
+  private final AliveTimerDeadlines deadlines = new AliveTimerDeadlines();
+
+  /**
+   * Time of the last reconciliation of the deadlines with the cache.
+   */
+  private long lastReconciliation = 0;
 
   /**
    * Constructor.
@@ -141,17 +172,22 @@ public class AliveTimerChecker extends TimerTask implements SmartLifecycle {
    * @param aliveTimerFacade the alive timer facade bean
    * @param supervisionManager the supervision manager bean
    * @param clusterCache Reference to the clusterCache to share values accross teh cluster nodes
+   * @param properties the supervision properties
    */
   @Autowired
   public AliveTimerChecker(final AliveTimerCache cache,
                            final AliveTimerFacade aliveTimerFacade,
                            final SupervisionManager supervisionManager,
-                           final ClusterCache clusterCache) {
+                           final ClusterCache clusterCache,
+                           final SupervisionProperties properties) {
     super();
     this.aliveTimerCache = cache;
     this.aliveTimerFacade = aliveTimerFacade;
     this.supervisionManager = supervisionManager;
     this.clusterCache = clusterCache;
+    this.checkInterval = properties.getAliveCheckInterval();
+    this.switchOffCountdown = Math.max(1, WARNING_SWITCH_OFF_DELAY / checkInterval);
+    this.warningSwitchOffCountDown = new AtomicInteger(switchOffCountdown);
   }
 
   /**
@@ -169,6 +205,7 @@ public class AliveTimerChecker extends TimerTask implements SmartLifecycle {
     } finally {
       clusterCache.releaseWriteLockOnKey(LAST_ALIVE_TIMER_CHECK_INITIALISATION_KEY);
     }
+    aliveTimerCache.registerSynchronousListener(this);
     LOGGER.trace("Initialisation complete.");
   }
 
@@ -179,7 +216,7 @@ public class AliveTimerChecker extends TimerTask implements SmartLifecycle {
   public synchronized void start() {
     LOGGER.info("Starting the C2MON alive timer mechanism.");
     timer = new Timer("AliveChecker");
-    timer.schedule(this, INITIAL_SCAN_DELAY, SCAN_INTERVAL);
+    timer.schedule(this, INITIAL_SCAN_DELAY, checkInterval);
     running = true;
   }
 
@@ -204,51 +241,40 @@ public class AliveTimerChecker extends TimerTask implements SmartLifecycle {
     clusterCache.acquireWriteLockOnKey(LAST_ALIVE_TIMER_CHECK_LONG);
     try {
       Long lastCheck = (Long) clusterCache.getCopy(LAST_ALIVE_TIMER_CHECK_LONG);
-      if (System.currentTimeMillis() - lastCheck.longValue() < 9000) { //results in check on a single server
+      if (System.currentTimeMillis() - lastCheck.longValue() < checkInterval * 9L / 10) { //results in check on a single server
         LOGGER.debug("Skipping alive check as already performed.");
       } else {
-        if (LOGGER.isDebugEnabled()) {
-          LOGGER.debug("run() : checking alive timers ... ");
+        if (LOGGER.isTraceEnabled()) {
+          LOGGER.trace("run() : checking alive timers ... ");
         }
-        short aliveDownCount = 0;
         try {
-          for (Long currentId : aliveTimerCache.getKeys()) {
-            AliveTimer aliveTimerCopy = null;
-            boolean aliveExpiration = false;
-            aliveTimerCopy = aliveTimerCache.getCopy(currentId);
-
-            if (aliveTimerCopy.isActive()) {
-              if (aliveTimerFacade.hasExpired(currentId)) {
-                aliveTimerFacade.stop(currentId);
-                aliveExpiration = true;
-                aliveDownCount++;
-              }
-            } else {
-              aliveDownCount++;
-            }
-
-            if (aliveExpiration) {
-              onAliveTimerExpiration(currentId);
-            }
+          long now = System.currentTimeMillis();
+          if (now - lastReconciliation >= RECONCILIATION_INTERVAL) {
+            reconcile();
+            lastReconciliation = now;
+          }
 
+          List<Long> dueIds = deadlines.pollExpired(now);
+          for (Long currentId : dueIds) {
+            checkAliveTimer(currentId);
           }
+
+          int aliveDownCount = deadlines.getInactiveCount();
           if (!alarmActive && aliveDownCount > WARNING_THRESHOLD) {
             alarmActive = true;
             SMS_LOGGER.warn("Over " + WARNING_THRESHOLD + " DAQ/Equipment are currently down.");
           } else if (alarmActive && warningSwitchOffCountDown.decrementAndGet() == 0) {
             SMS_LOGGER.warn("DAQ/Equipment status back to normal (" + aliveDownCount + " detected as down)");
             alarmActive = false;
-            warningSwitchOffCountDown = new AtomicInteger(SWITCH_OFF_COUNTDOWN);
+            warningSwitchOffCountDown = new AtomicInteger(switchOffCountdown);
           }
-        } catch (CacheElementNotFoundException cacheEx) {
-          LOGGER.warn("Failed to locate alive timer in cache on expiration check (may happen exceptionally if just removed).", cacheEx);
         } catch (Exception e) {
           LOGGER.error("Unexpected exception when checking the alive timers", e);
         }
         lastCheck = Long.valueOf(System.currentTimeMillis());
         clusterCache.put(LAST_ALIVE_TIMER_CHECK_LONG, lastCheck);
-        if (LOGGER.isDebugEnabled()) {
-          LOGGER.debug("run() : finished checking alive timers ... ");
+        if (LOGGER.isTraceEnabled()) {
+          LOGGER.trace("run() : finished checking alive timers ... ");
         }
       } // end of else block
     } finally {
@@ -256,6 +282,60 @@ public class AliveTimerChecker extends TimerTask implements SmartLifecycle {
     }
   }
 
+  /**
+   * Stops the alive timer if it has expired, otherwise tracks it again with
+   * its current deadline.
+   *
+   * @param aliveTimerId the id of a timer whose tracked deadline has passed
+   */
+  private void checkAliveTimer(final Long aliveTimerId) {
+    try {
+      AliveTimer aliveTimerCopy = aliveTimerCache.getCopy(aliveTimerId);
+      if (aliveTimerCopy.isActive() && aliveTimerFacade.hasExpired(aliveTimerId)) {
+        aliveTimerFacade.stop(aliveTimerId);
+        deadlines.update(aliveTimerId, false, 0L);
+        onAliveTimerExpiration(aliveTimerId);
+      } else {
+        deadlines.update(aliveTimerCopy);
+      }
+    } catch (CacheElementNotFoundException cacheEx) {
+      LOGGER.warn("Failed to locate alive timer in cache on expiration check (may happen exceptionally if just removed).", cacheEx);
+      deadlines.remove(aliveTimerId);
+    }
+  }
+
+  /**
+   * Tracks the alive timers that are not tracked as active, e.g. timers
+   * loaded into the cache or started on another server, and forgets the
+   * timers removed from the cache.
+   */
+  private void reconcile() {
+    List<Long> ids = aliveTimerCache.getKeys();
+    deadlines.retainAll(ids);
+    for (Long id : ids) {
+      if (!deadlines.isActive(id)) {
+        try {
+          deadlines.update(aliveTimerCache.getCopy(id));
+        } catch (CacheElementNotFoundException cacheEx) {
+          deadlines.remove(id);
+        }
+      }
+    }
+  }
+
+  /**
+   * Refreshes the deadline of the updated alive timer.
+   */
+  @Override
+  public void notifyElementUpdated(final AliveTimer aliveTimer) {
+    deadlines.update(aliveTimer);
+  }
+
+  @Override
+  public void confirmStatus(final AliveTimer aliveTimer) {
+    deadlines.update(aliveTimer);
+  }
+
   /**
    * Notifies the supervision manager.
    *
@@ -0,0 +1,164 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.supervision.alive;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import cern.c2mon.server.common.alive.AliveTimer;
+
+/**
+ * Keeps the alive timers ordered by the time at which they expire, so that
+ * a check only has to look at the timers that are due.
+ *
+ * <p>A timer is re-queued with its new deadline on every update; the entries
+ * of the previous deadlines are left in the queue and skipped when they come
+ * up. Inactive timers are only counted.
+ */
+class AliveTimerDeadlines {
+
+  /** Current deadline of the active timers */
+  private final Map<Long, Long> deadlines = new HashMap<>();
+
+  private final Set<Long> inactive = new HashSet<>();
+
+  private final PriorityQueue<Deadline> queue = new PriorityQueue<>();
+
+  /**
+   * @param aliveTimer the alive timer
+   * @return the time at which the timer expires if it is not updated, see
+   *         {@code AliveTimerFacade.hasExpired}
+   */
+  static long deadlineOf(final AliveTimer aliveTimer) {
+    return aliveTimer.getLastUpdate() + aliveTimer.getAliveInterval() + aliveTimer.getAliveInterval() / 3;
+  }
+
+  /**
+   * Records the current state of the alive timer.
+   *
+   * @param aliveTimer the alive timer that has been updated, started or stopped
+   */
+  void update(final AliveTimer aliveTimer) {
+    update(aliveTimer.getId(), aliveTimer.isActive(), deadlineOf(aliveTimer));
+  }
+
+  synchronized void update(final Long id, final boolean active, final long deadline) {
+    if (active) {
+      inactive.remove(id);
+      Long previous = deadlines.put(id, deadline);
+      if (previous == null || previous != deadline) {
+        queue.add(new Deadline(id, deadline));
+        compact();
+      }
+    } else {
+      deadlines.remove(id);
+      inactive.add(id);
+    }
+  }
+
+  /**
+   * Stops tracking the given timer.
+   */
+  synchronized void remove(final Long id) {
+    deadlines.remove(id);
+    inactive.remove(id);
+  }
+
+  /**
+   * Stops tracking all timers that are not in the given collection.
+   */
+  synchronized void retainAll(final Collection<Long> ids) {
+    Set<Long> retained = ids instanceof Set ? (Set<Long>) ids : new HashSet<>(ids);
+    deadlines.keySet().retainAll(retained);
+    inactive.retainAll(retained);
+  }
+
+  /**
+   * @return true if the timer is active and its deadline is known
+   */
+  synchronized boolean isActive(final Long id) {
+    return deadlines.containsKey(id);
+  }
+
+  /**
+   * Removes the active timers whose deadline has passed. The caller is
+   * expected to check them and {@link #update} them again.
+   *
+   * @param now the current time in ms
+   * @return the ids of the timers whose deadline is not later than now
+   */
+  synchronized List<Long> pollExpired(final long now) {
+    List<Long> expired = new ArrayList<>();
+    Deadline head;
+    while ((head = queue.peek()) != null && head.deadline <= now) {
+      queue.poll();
+      Long current = deadlines.get(head.id);
+      if (current != null && current == head.deadline) {
+        deadlines.remove(head.id);
+        expired.add(head.id);
+      }
+    }
+    return expired;
+  }
+
+  /**
+   * @return the number of inactive timers
+   */
+  synchronized int getInactiveCount() {
+    return inactive.size();
+  }
+
+  /**
+   * @return the number of entries in the queue, including the outdated ones
+   */
+  synchronized int getQueueSize() {
+    return queue.size();
+  }
+
+  /**
+   * Drops the outdated entries once they outnumber the active timers.
+   */
+  private void compact() {
+    if (queue.size() > 2 * deadlines.size() + 64) {
+      queue.clear();
+      deadlines.forEach((id, deadline) -> queue.add(new Deadline(id, deadline)));
+    }
+  }
+
+  private static final class Deadline implements Comparable<Deadline> {
+
+    private final Long id;
+
+    private final long deadline;
+
+    private Deadline(final Long id, final long deadline) {
+      this.id = id;
+      this.deadline = deadline;
+    }
+
+    @Override
+    public int compareTo(final Deadline other) {
+      return Long.compare(deadline, other.deadline);
+    }
+  }
+}
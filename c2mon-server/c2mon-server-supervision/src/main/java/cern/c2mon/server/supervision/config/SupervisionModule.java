@@ -1,5 +1,6 @@
 package cern.c2mon.server.supervision.config;
 
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
@@ -8,6 +9,7 @@ import org.springframework.context.annotation.Import;
  * @author Justin Lewis Salmon
  */
 @Configuration
+@EnableConfigurationProperties(SupervisionProperties.class)
 @Import({
   SupervisionCacheConfig.class
 })
@@ -0,0 +1,98 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.server.supervision.alive;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import cern.c2mon.server.common.alive.AliveTimer;
+import cern.c2mon.server.common.alive.AliveTimerCacheObject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AliveTimerDeadlinesTest {
+
+  private AliveTimerDeadlines deadlines = new AliveTimerDeadlines();
+
+  @Test
+  public void testDeadlineOf() {
+    AliveTimer aliveTimer = new AliveTimerCacheObject(1L, 10L, "P_TEST", 20L, AliveTimer.ALIVE_TYPE_PROCESS, 60000);
+    aliveTimer.setLastUpdate(1000L);
+    assertEquals(1000L + 60000 + 20000, AliveTimerDeadlines.deadlineOf(aliveTimer));
+  }
+
+  @Test
+  public void testPollExpiredInDeadlineOrder() {
+    deadlines.update(1L, true, 3000L);
+    deadlines.update(2L, true, 1000L);
+    deadlines.update(3L, true, 2000L);
+
+    assertTrue(deadlines.pollExpired(999L).isEmpty());
+    assertEquals(Arrays.asList(2L, 3L), deadlines.pollExpired(2000L));
+    assertFalse(deadlines.isActive(2L));
+    assertTrue(deadlines.isActive(1L));
+    assertEquals(Collections.singletonList(1L), deadlines.pollExpired(5000L));
+  }
+
+  @Test
+  public void testUpdatePushesDeadlineBack() {
+    deadlines.update(1L, true, 1000L);
+    deadlines.update(1L, true, 4000L);
+
+    assertTrue(deadlines.pollExpired(3000L).isEmpty());
+    assertEquals(Collections.singletonList(1L), deadlines.pollExpired(4000L));
+    assertTrue(deadlines.pollExpired(10000L).isEmpty());
+  }
+
+  @Test
+  public void testInactiveTimers() {
+    deadlines.update(1L, true, 1000L);
+    deadlines.update(2L, true, 1000L);
+    deadlines.update(1L, false, 0L);
+
+    assertEquals(1, deadlines.getInactiveCount());
+    assertEquals(Collections.singletonList(2L), deadlines.pollExpired(1000L));
+
+    deadlines.update(1L, true, 2000L);
+    assertEquals(0, deadlines.getInactiveCount());
+    assertEquals(Collections.singletonList(1L), deadlines.pollExpired(2000L));
+  }
+
+  @Test
+  public void testRetainAll() {
+    deadlines.update(1L, true, 1000L);
+    deadlines.update(2L, false, 0L);
+    deadlines.update(3L, true, 1000L);
+    deadlines.retainAll(Arrays.asList(3L));
+
+    assertEquals(0, deadlines.getInactiveCount());
+    assertEquals(Collections.singletonList(3L), deadlines.pollExpired(1000L));
+  }
+
+  @Test
+  public void testOutdatedEntriesAreCompacted() {
+    for (long i = 0; i < 1000; i++) {
+      deadlines.update(1L, true, i);
+    }
+    assertTrue(deadlines.getQueueSize() < 100);
+    assertEquals(Collections.singletonList(1L), deadlines.pollExpired(999L));
+  }
+}
@@ -0,0 +1,49 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.shared.common.datatag;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Value update for a given tag, used on the DAQ side to send the values of
+ * several tags at once
+ */
+@Getter
+@EqualsAndHashCode(callSuper = true)
+@ToString(callSuper = true)
+public class TagValueUpdate extends ValueUpdate {
+
+  /** The id of the tag to update */
+  private final Long tagId;
+
+  public TagValueUpdate(final Long tagId, final Object value) {
+    super(value);
+    this.tagId = tagId;
+  }
+
+  public TagValueUpdate(final Long tagId, final Object value, final long sourceTimestamp) {
+    super(value, sourceTimestamp);
+    this.tagId = tagId;
+  }
+
+  public TagValueUpdate(final Long tagId, final Object value, final String valueDescription, final long sourceTimestamp) {
+    super(value, valueDescription, sourceTimestamp);
+    this.tagId = tagId;
+  }
+}
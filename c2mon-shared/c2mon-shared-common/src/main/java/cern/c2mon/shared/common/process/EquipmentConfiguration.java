@@ -19,6 +19,7 @@ package cern.c2mon.shared.common.process;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -118,6 +119,13 @@ public class EquipmentConfiguration implements IEquipmentConfiguration, Cloneabl
    */
   private Map<Long, SourceDataTag> sourceDataTags = new ConcurrentHashMap<>();
 
+  /**
+   * Index of the source data tag ids by lower case tag name, used for the
+   * name based updates. Tags put directly into {@link #sourceDataTags} are
+   * indexed on their first lookup.
+   */
+  private Map<String, Long> sourceDataTagIdsByName = new ConcurrentHashMap<>();
+
   /**
    * Only used internally to deserialise from XML! Please use {@link #sourceDataTags} instead
    * The list of SourceDataTags that will be deserialised and converted to the
@@ -155,6 +163,7 @@ public class EquipmentConfiguration implements IEquipmentConfiguration, Cloneabl
 
     for (SourceDataTag tag : sourceDataTagList) {
       sourceDataTags.put(tag.getId(), tag);
+      indexSourceDataTagName(tag);
     }
 
     for (SourceCommandTag tag : sourceCommandTagList) {
@@ -463,14 +472,53 @@ public class EquipmentConfiguration implements IEquipmentConfiguration, Cloneabl
 
   @Override
   public Long getSourceDataTagIdByName(String name) {
-   SourceDataTag tag = sourceDataTags.values().stream()
+    Long id = name != null ? sourceDataTagIdsByName.get(nameKey(name)) : null;
+    if (id != null) {
+      SourceDataTag tag = sourceDataTags.get(id);
+      if (tag != null && tag.getName().equalsIgnoreCase(name)) {
+        return id;
+      }
+    }
+
+    // Not indexed yet or the index entry is outdated
+    SourceDataTag tag = sourceDataTags.values().stream()
         .filter(t -> t.getName().equalsIgnoreCase(name))
         .findFirst()
         .orElseThrow(() -> new IllegalArgumentException("No SourceDataTag with the name " + name + " attached to the equipment."));
 
+    indexSourceDataTagName(tag);
     return tag.getId();
   }
 
+  /**
+   * Adds the name of the given data tag to the name index used by
+   * {@link #getSourceDataTagIdByName(String)}. Has to be called when a tag is
+   * added or renamed.
+   *
+   * @param sourceDataTag The data tag to index.
+   */
+  public void indexSourceDataTagName(final SourceDataTag sourceDataTag) {
+    if (sourceDataTag.getName() != null) {
+      sourceDataTagIdsByName.put(nameKey(sourceDataTag.getName()), sourceDataTag.getId());
+    }
+  }
+
+  /**
+   * Removes the name of the given data tag from the name index, if it still
+   * refers to this tag. Has to be called when a tag is removed or renamed.
+   *
+   * @param sourceDataTag The data tag with the name to remove.
+   */
+  public void removeSourceDataTagName(final SourceDataTag sourceDataTag) {
+    if (sourceDataTag.getName() != null) {
+      sourceDataTagIdsByName.remove(nameKey(sourceDataTag.getName()), sourceDataTag.getId());
+    }
+  }
+
+  private static String nameKey(final String name) {
+    return name.toLowerCase(Locale.ROOT);
+  }
+
   /**
    * Clones the equipment configuration. Be careful The contained maps will NOT
    * be cloned. So if you try to access for example the contained data tags the
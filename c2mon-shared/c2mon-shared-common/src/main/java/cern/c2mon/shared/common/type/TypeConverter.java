@@ -20,8 +20,7 @@ import java.awt.Color;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.text.DateFormat;
-
-import lombok.extern.slf4j.Slf4j;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This helper class provides methods to cast a given raw type object into
@@ -30,11 +29,13 @@ import lombok.extern.slf4j.Slf4j;
  * @author Matthias Braeger
  * @author Franz Ritter
  */
-@Slf4j
 public final class TypeConverter  {
 
   private static final String JAVA_LANG_PREFIX = "java.lang.";
 
+  /** The converters by type name, including the unknown types */
+  private static final ConcurrentHashMap<String, ValueConverter> CONVERTERS = new ConcurrentHashMap<>();
+
   /**
    * Hidden default constructor
    */
@@ -535,33 +536,36 @@ public final class TypeConverter  {
    * @return The casted object or <code>null</code>, if casting wasn't possible
    */
   public static final Object cast(final Object value, final String className) {
-    Object result = null;
-
-    if (value != null && className != null && !className.isEmpty()) {
-      try {
-
-        Class<?> type = getType(className);
-
-        if (type != null) {
+    if (value == null || className == null || className.isEmpty()) {
+      return null;
+    }
+    return getConverter(className).convert(value);
+  }
 
-          if (type.equals(String.class)) {
-            result = value.toString();
-          } else {
-            result = castToType(value, type);
-          }
-        }
+  /**
+   * Returns the converter into the given type. The type name is only resolved
+   * the first time, so the converter of a tag data type can be reused for all
+   * its updates.
+   *
+   * @param className The raw type class as Sting and without the <code>java.lang.</code>
+   *                    prefix, or the fully qualified class name
+   * @return The converter, which returns <code>null</code> for all values if the type is unknown
+   */
+  public static ValueConverter getConverter(final String className) {
+    if (className == null) {
+      return ValueConverters.UNKNOWN;
+    }
 
-        if (result == null) {
-          log.error("Conversion error: Could not cast input value [" + value + "] of type "
-              + value.getClass().getName() + " to resulting type " + className);
-        }
-      } catch (ClassCastException cce) {
-        log.error("Conversion error: {}", cce.getMessage());
-        result = null;
+    ValueConverter converter = CONVERTERS.get(className);
+    if (converter == null) {
+      // not computeIfAbsent, the converters of array types look up the converter of their component type
+      converter = ValueConverters.create(className);
+      ValueConverter previous = CONVERTERS.putIfAbsent(className, converter);
+      if (previous != null) {
+        converter = previous;
       }
     }
-
-    return result;
+    return converter;
   }
 
 
@@ -594,17 +598,7 @@ public final class TypeConverter  {
    * @return the class for the given name if known, {@literal null} otherwise
    */
   public static Class<?> getType(String typeName) {
-    if (typeName == null) {
-      return null;
-    }
-
-    String fullPath = typeName.contains(".") ? typeName : JAVA_LANG_PREFIX + typeName;
-
-    try {
-      return Class.forName(fullPath);
-    } catch (ClassNotFoundException e) {
-      return null;
-    }
+    return getConverter(typeName).getType();
   }
 
   /**
@@ -0,0 +1,40 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.shared.common.type;
+
+/**
+ * Converts values into one given type. Instances are obtained with
+ * {@link TypeConverter#getConverter(String)}, which resolves the type name
+ * only once, and can be kept for all the updates of a tag.
+ */
+public interface ValueConverter {
+
+  /**
+   * @return the type into which values are converted, or {@literal null} if
+   *         the type name could not be resolved into a known class
+   */
+  Class<?> getType();
+
+  /**
+   * Same as {@link TypeConverter#cast(Object, String)} with the type name of
+   * this converter.
+   *
+   * @param value the object to convert
+   * @return the converted object or {@literal null}, if the conversion wasn't possible
+   */
+  Object convert(Object value);
+}
@@ -0,0 +1,281 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.shared.common.type;
+
+import java.lang.reflect.Array;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The {@link ValueConverter} implementations returned by {@link TypeConverter}.
+ *
+ * <p>The converters of the common tag types handle numeric input directly and
+ * leave all other cases to {@link TypeConverter#castToType(Object, Class)}, so
+ * that the results are the same as the ones of the generic conversion.
+ */
+@Slf4j
+final class ValueConverters {
+
+  private static final String JAVA_LANG_PREFIX = "java.lang.";
+
+  /** Returned for a missing type name */
+  static final ValueConverter UNKNOWN = new UnknownTypeConverter(null);
+
+  /**
+   * Hidden default constructor
+   */
+  private ValueConverters() {
+    // Do nothing
+  }
+
+  /**
+   * @param typeName a simple class name within the java.lang.* package or the
+   *                 fully qualified class name
+   * @return a new converter into the given type
+   */
+  static ValueConverter create(final String typeName) {
+    Class<?> type = resolveType(typeName);
+
+    if (type == null) {
+      return new UnknownTypeConverter(typeName);
+    } else if (type == String.class) {
+      return new StringConverter(typeName);
+    } else if (type == Integer.class) {
+      return new IntegerConverter(typeName);
+    } else if (type == Long.class) {
+      return new LongConverter(typeName);
+    } else if (type == Float.class) {
+      return new FloatConverter(typeName);
+    } else if (type == Double.class) {
+      return new DoubleConverter(typeName);
+    } else if (type == Boolean.class) {
+      return new BooleanConverter(typeName);
+    } else if (type.isArray()) {
+      return new ArrayConverter(type, typeName);
+    } else {
+      return new GenericConverter(type, typeName);
+    }
+  }
+
+  private static Class<?> resolveType(final String typeName) {
+    String fullPath = typeName.contains(".") ? typeName : JAVA_LANG_PREFIX + typeName;
+
+    try {
+      return Class.forName(fullPath);
+    } catch (ClassNotFoundException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Converts with {@link TypeConverter#castToType(Object, Class)} and logs the
+   * conversion errors.
+   */
+  private static class GenericConverter implements ValueConverter {
+
+    private final Class<?> type;
+
+    private final String typeName;
+
+    GenericConverter(final Class<?> type, final String typeName) {
+      this.type = type;
+      this.typeName = typeName;
+    }
+
+    @Override
+    public Class<?> getType() {
+      return type;
+    }
+
+    @Override
+    public final Object convert(final Object value) {
+      if (value == null) {
+        return null;
+      }
+
+      Object result = null;
+      try {
+        result = doConvert(value);
+
+        if (result == null) {
+          log.error("Conversion error: Could not cast input value [" + value + "] of type "
+              + value.getClass().getName() + " to resulting type " + typeName);
+        }
+      } catch (ClassCastException cce) {
+        log.error("Conversion error: {}", cce.getMessage());
+      }
+      return result;
+    }
+
+    /**
+     * @throws ClassCastException if the value cannot be converted
+     */
+    Object doConvert(final Object value) {
+      return TypeConverter.castToType(value, type);
+    }
+  }
+
+  private static final class UnknownTypeConverter extends GenericConverter {
+
+    UnknownTypeConverter(final String typeName) {
+      super(null, typeName);
+    }
+
+    @Override
+    Object doConvert(final Object value) {
+      return null;
+    }
+  }
+
+  private static final class StringConverter extends GenericConverter {
+
+    StringConverter(final String typeName) {
+      super(String.class, typeName);
+    }
+
+    @Override
+    Object doConvert(final Object value) {
+      return value.toString();
+    }
+  }
+
+  private static final class IntegerConverter extends GenericConverter {
+
+    IntegerConverter(final String typeName) {
+      super(Integer.class, typeName);
+    }
+
+    @Override
+    Object doConvert(final Object value) {
+      if (value instanceof Integer) {
+        return value;
+      } else if (value instanceof Number) {
+        long x = Math.round(((Number) value).doubleValue());
+        if (x > Integer.MAX_VALUE || x < Integer.MIN_VALUE) {
+          throw new ClassCastException("Numeric value " + x + " to big to be converted to Integer.");
+        }
+        return Integer.valueOf((int) x);
+      }
+      return super.doConvert(value);
+    }
+  }
+
+  private static final class LongConverter extends GenericConverter {
+
+    LongConverter(final String typeName) {
+      super(Long.class, typeName);
+    }
+
+    @Override
+    Object doConvert(final Object value) {
+      if (value instanceof Long) {
+        return value;
+      } else if (value instanceof Number) {
+        return Long.valueOf(Math.round(((Number) value).doubleValue()));
+      }
+      return super.doConvert(value);
+    }
+  }
+
+  private static final class FloatConverter extends GenericConverter {
+
+    FloatConverter(final String typeName) {
+      super(Float.class, typeName);
+    }
+
+    @Override
+    Object doConvert(final Object value) {
+      if (value instanceof Float) {
+        return value;
+      } else if (value instanceof Number) {
+        double x = ((Number) value).doubleValue();
+        if (x > Float.MAX_VALUE || x < -Float.MAX_VALUE) {
+          throw new ClassCastException("Numeric value " + x + " to big to be converted to Float.");
+        }
+        return Float.valueOf((float) x);
+      }
+      return super.doConvert(value);
+    }
+  }
+
+  private static final class DoubleConverter extends GenericConverter {
+
+    DoubleConverter(final String typeName) {
+      super(Double.class, typeName);
+    }
+
+    @Override
+    Object doConvert(final Object value) {
+      if (value instanceof Double) {
+        return value;
+      } else if (value instanceof Number) {
+        return Double.valueOf(((Number) value).doubleValue());
+      }
+      return super.doConvert(value);
+    }
+  }
+
+  private static final class BooleanConverter extends GenericConverter {
+
+    BooleanConverter(final String typeName) {
+      super(Boolean.class, typeName);
+    }
+
+    @Override
+    Object doConvert(final Object value) {
+      if (value instanceof Boolean) {
+        return value;
+      } else if (value instanceof Number) {
+        double doubleVal = ((Number) value).doubleValue();
+        if (doubleVal == 1.0d) {
+          return Boolean.TRUE;
+        } else if (doubleVal == 0.0d) {
+          return Boolean.FALSE;
+        }
+        throw new ClassCastException("Cannot convert numeric value " + value + " to Boolean");
+      }
+      return super.doConvert(value);
+    }
+  }
+
+  /**
+   * Converts arrays element by element with the converter of the component type.
+   */
+  private static final class ArrayConverter extends GenericConverter {
+
+    private final ValueConverter elementConverter;
+
+    ArrayConverter(final Class<?> type, final String typeName) {
+      super(type, typeName);
+      this.elementConverter = TypeConverter.getConverter(type.getComponentType().getName());
+    }
+
+    @Override
+    Object doConvert(final Object value) {
+      if (getType().isInstance(value) || !value.getClass().isArray()) {
+        return super.doConvert(value);
+      }
+
+      int length = Array.getLength(value);
+      Object result = Array.newInstance(getType().getComponentType(), length);
+      for (int i = 0; i < length; i++) {
+        Array.set(result, i, elementConverter.convert(Array.get(value, i)));
+      }
+      return result;
+    }
+  }
+}
@@ -0,0 +1,117 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.shared.common.process;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import cern.c2mon.shared.common.datatag.SourceDataTag;
+
+import static org.junit.Assert.assertEquals;
+
+public class EquipmentConfigurationTest {
+
+  private EquipmentConfiguration configuration;
+
+  @Before
+  public void setUp() {
+    configuration = new EquipmentConfiguration();
+  }
+
+  @Test
+  public void testGetSourceDataTagIdByIndexedName() {
+    addTag(1L, "Tag.One");
+    addTag(2L, "Tag.Two");
+
+    assertEquals(Long.valueOf(1L), configuration.getSourceDataTagIdByName("Tag.One"));
+    assertEquals(Long.valueOf(2L), configuration.getSourceDataTagIdByName("TAG.two"));
+  }
+
+  @Test
+  public void testGetSourceDataTagIdByNameNotIndexed() {
+    // put directly into the live map, as done by the configuration factory
+    configuration.getDataTags().put(1L, new SourceDataTag(1L, "Tag.One", false));
+
+    assertEquals(Long.valueOf(1L), configuration.getSourceDataTagIdByName("tag.one"));
+    assertEquals(Long.valueOf(1L), configuration.getSourceDataTagIdByName("TAG.ONE"));
+  }
+
+  @Test
+  public void testRenamedTag() {
+    SourceDataTag tag = addTag(1L, "Tag.One");
+
+    configuration.removeSourceDataTagName(tag);
+    tag.setName("Tag.Renamed");
+    configuration.indexSourceDataTagName(tag);
+
+    assertEquals(Long.valueOf(1L), configuration.getSourceDataTagIdByName("Tag.Renamed"));
+    assertUnknown("Tag.One");
+  }
+
+  @Test
+  public void testRenamedTagWithoutIndexUpdate() {
+    SourceDataTag tag = addTag(1L, "Tag.One");
+    tag.setName("Tag.Renamed");
+
+    assertEquals(Long.valueOf(1L), configuration.getSourceDataTagIdByName("Tag.Renamed"));
+    assertUnknown("Tag.One");
+  }
+
+  @Test
+  public void testRemovedTag() {
+    SourceDataTag tag = addTag(1L, "Tag.One");
+
+    configuration.getDataTags().remove(1L);
+    configuration.removeSourceDataTagName(tag);
+
+    assertUnknown("Tag.One");
+  }
+
+  @Test
+  public void testRemovingOtherTagKeepsName() {
+    SourceDataTag oldTag = addTag(1L, "Tag.One");
+    configuration.getDataTags().remove(1L);
+    addTag(2L, "Tag.One");
+
+    // the name now belongs to tag 2
+    configuration.removeSourceDataTagName(oldTag);
+
+    assertEquals(Long.valueOf(2L), configuration.getSourceDataTagIdByName("Tag.One"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownName() {
+    addTag(1L, "Tag.One");
+    configuration.getSourceDataTagIdByName("Tag.Two");
+  }
+
+  private SourceDataTag addTag(long id, String name) {
+    SourceDataTag tag = new SourceDataTag(id, name, false);
+    configuration.getDataTags().put(id, tag);
+    configuration.indexSourceDataTagName(tag);
+    return tag;
+  }
+
+  private void assertUnknown(String name) {
+    try {
+      configuration.getSourceDataTagIdByName(name);
+      throw new AssertionError("No tag expected for name " + name);
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+}
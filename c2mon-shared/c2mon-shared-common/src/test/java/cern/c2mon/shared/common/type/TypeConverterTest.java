@@ -829,6 +829,32 @@ public class TypeConverterTest {
     castTest(new Exception("test"), Short.class);
   }
 
+  @Test
+  public void testGetConverter() {
+    ValueConverter converter = TypeConverter.getConverter("Integer");
+    assertSame(converter, TypeConverter.getConverter("Integer"));
+    assertEquals(Integer.class, converter.getType());
+    assertEquals(Integer.valueOf(3), converter.convert(new Double(2.7)));
+    assertEquals(Integer.valueOf(1), converter.convert("true"));
+    assertNull(converter.convert(new Long(Integer.MAX_VALUE + 1L)));
+    assertNull(converter.convert(null));
+
+    assertEquals(Double.class, TypeConverter.getConverter(Double.class.getName()).getType());
+    assertEquals(Boolean.TRUE, TypeConverter.getConverter("Boolean").convert(new Integer(1)));
+    assertNull(TypeConverter.getConverter("Boolean").convert(new Integer(2)));
+    assertArrayEquals(new Integer[] {1, 2}, (Object[]) TypeConverter.getConverter(Integer[].class.getName()).convert(new Double[] {1.0, 2.0}));
+  }
+
+  @Test
+  public void testGetConverterUnknownType() {
+    ValueConverter converter = TypeConverter.getConverter("my.random.own.MyObject");
+    assertSame(converter, TypeConverter.getConverter("my.random.own.MyObject"));
+    assertNull(converter.getType());
+    assertNull(converter.convert("value"));
+    assertFalse(TypeConverter.isKnownClass("my.random.own.MyObject"));
+    assertNull(TypeConverter.getConverter(null).getType());
+  }
+
   private static void castTest(final Object pValue, final Class<?> pTargetClass) {
     castTest(pValue, pTargetClass, null);
   }
@@ -0,0 +1,337 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.shared.daq.datatag;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import cern.c2mon.shared.common.datatag.DataTagValueUpdate;
+import cern.c2mon.shared.common.datatag.SourceDataTagQuality;
+import cern.c2mon.shared.common.datatag.SourceDataTagQualityCode;
+import cern.c2mon.shared.common.datatag.SourceDataTagValue;
+
+/**
+ * Compact binary encoding of {@link DataTagValueUpdate} messages, used as an
+ * alternative to JSON between the DAQ and the server.
+ *
+ * <p>The encoding starts with a magic number and a format version, followed
+ * by the process id and PIK and the tag values. Boolean, numeric and String
+ * values are written with their type, so they are decoded with exactly the
+ * same Java type. Any other value (e.g. arrays) is embedded as JSON and
+ * decoded as in the JSON format. Timestamps are sent with millisecond
+ * precision, as in the JSON format.
+ *
+ * <p>Instances are thread-safe.
+ */
+public final class DataTagValueUpdateBinaryCodec {
+
+  /**
+   * Magic number at the start of each binary message
+   */
+  static final short MAGIC = (short) 0xC2DA;
+
+  /**
+   * Current version of the format. Must be incremented on any change of the layout.
+   */
+  static final byte FORMAT_VERSION = 1;
+
+  // value types
+  private static final byte TYPE_NULL = 0;
+  private static final byte TYPE_BOOLEAN = 1;
+  private static final byte TYPE_BYTE = 2;
+  private static final byte TYPE_SHORT = 3;
+  private static final byte TYPE_INTEGER = 4;
+  private static final byte TYPE_LONG = 5;
+  private static final byte TYPE_FLOAT = 6;
+  private static final byte TYPE_DOUBLE = 7;
+  private static final byte TYPE_STRING = 8;
+  private static final byte TYPE_JSON = 9;
+
+  // tag value flags
+  private static final int FLAG_CONTROL_TAG = 1;
+  private static final int FLAG_GUARANTEED_DELIVERY = 1 << 1;
+  private static final int FLAG_SIMULATED = 1 << 2;
+  private static final int FLAG_QUALITY = 1 << 3;
+  private static final int FLAG_TIMESTAMP = 1 << 4;
+  private static final int FLAG_DAQ_TIMESTAMP = 1 << 5;
+
+  private static final SourceDataTagQualityCode[] QUALITY_CODES;
+
+  static {
+    int maxCode = 0;
+    for (SourceDataTagQualityCode code : SourceDataTagQualityCode.values()) {
+      maxCode = Math.max(maxCode, code.getQualityCode());
+    }
+    QUALITY_CODES = new SourceDataTagQualityCode[maxCode + 1];
+    for (SourceDataTagQualityCode code : SourceDataTagQualityCode.values()) {
+      QUALITY_CODES[code.getQualityCode()] = code;
+    }
+  }
+
+  /**
+   * Mapper used for the values without a binary encoding
+   */
+  private final ObjectMapper mapper;
+
+  /**
+   * @param mapper the JSON mapper used for values without a binary encoding
+   */
+  public DataTagValueUpdateBinaryCodec(final ObjectMapper mapper) {
+    this.mapper = mapper;
+  }
+
+  /**
+   * @param bytes the start of a message
+   * @return true if the bytes start with the magic number of the binary format
+   */
+  public static boolean isBinaryEncoded(final byte[] bytes) {
+    return bytes.length >= 2 && (short) (((bytes[0] & 0xFF) << 8) | (bytes[1] & 0xFF)) == MAGIC;
+  }
+
+  /**
+   * @param update the update to encode
+   * @return the binary representation of the update
+   * @throws IOException if a value can not be encoded
+   */
+  public byte[] encode(final DataTagValueUpdate update) throws IOException {
+    int size = update.getValues() == null ? 0 : update.getValues().size();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + size * 96);
+    DataOutputStream out = new DataOutputStream(bytes);
+
+    out.writeShort(MAGIC);
+    out.writeByte(FORMAT_VERSION);
+    writeNullableLong(out, update.getProcessId());
+    writeNullableLong(out, update.getProcessPIK());
+
+    if (update.getValues() == null) {
+      out.writeInt(-1);
+    } else {
+      out.writeInt(size);
+      for (SourceDataTagValue value : update.getValues()) {
+        writeTagValue(out, value);
+      }
+    }
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+  /**
+   * @param bytes the binary representation of an update
+   * @return the decoded update
+   * @throws IOException if the bytes are not a valid binary update, or of an unsupported format version
+   */
+  public DataTagValueUpdate decode(final byte[] bytes) throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+
+    if (in.readShort() != MAGIC) {
+      throw new IOException("Not a binary DataTagValueUpdate message");
+    }
+    byte version = in.readByte();
+    if (version != FORMAT_VERSION) {
+      throw new IOException("Unsupported binary DataTagValueUpdate format version " + version);
+    }
+    Long processId = readNullableLong(in);
+    Long processPIK = readNullableLong(in);
+
+    int size = in.readInt();
+    ArrayList<SourceDataTagValue> values = null;
+    if (size >= 0) {
+      values = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        values.add(readTagValue(in));
+      }
+    }
+    return new DataTagValueUpdate(processId, processPIK, values);
+  }
+
+  private void writeTagValue(final DataOutputStream out, final SourceDataTagValue value) throws IOException {
+    int flags = 0;
+    if (value.isControlTag()) {
+      flags |= FLAG_CONTROL_TAG;
+    }
+    if (value.isGuaranteedDelivery()) {
+      flags |= FLAG_GUARANTEED_DELIVERY;
+    }
+    if (value.isSimulated()) {
+      flags |= FLAG_SIMULATED;
+    }
+    // a missing quality is equivalent to a valid quality without description (the getter never returns null)
+    SourceDataTagQuality quality = value.getQuality();
+    if (quality.isValid() && (quality.getDescription() == null || quality.getDescription().isEmpty())) {
+      quality = null;
+    }
+    if (quality != null) {
+      flags |= FLAG_QUALITY;
+    }
+    if (value.getTimestamp() != null) {
+      flags |= FLAG_TIMESTAMP;
+    }
+    if (value.getDaqTimestamp() != null) {
+      flags |= FLAG_DAQ_TIMESTAMP;
+    }
+
+    writeNullableLong(out, value.getId());
+    out.writeByte(flags);
+    writeString(out, value.getName());
+    writeValue(out, value.getValue());
+    writeString(out, value.getValueDescription());
+    if (quality != null) {
+      out.writeShort(quality.getQualityCode().getQualityCode());
+      writeString(out, quality.getDescription());
+    }
+    if (value.getTimestamp() != null) {
+      out.writeLong(value.getTimestamp().getTime());
+    }
+    if (value.getDaqTimestamp() != null) {
+      out.writeLong(value.getDaqTimestamp().getTime());
+    }
+    out.writeInt(value.getPriority());
+    out.writeInt(value.getTimeToLive());
+  }
+
+  private SourceDataTagValue readTagValue(final DataInputStream in) throws IOException {
+    SourceDataTagValue value = new SourceDataTagValue();
+    value.setId(readNullableLong(in));
+    int flags = in.readUnsignedByte();
+    value.setControlTag((flags & FLAG_CONTROL_TAG) != 0);
+    value.setGuaranteedDelivery((flags & FLAG_GUARANTEED_DELIVERY) != 0);
+    value.setSimulated((flags & FLAG_SIMULATED) != 0);
+    value.setName(readString(in));
+    value.setValue(readValue(in));
+    value.setValueDescription(readString(in));
+    if ((flags & FLAG_QUALITY) != 0) {
+      SourceDataTagQualityCode code = qualityCode(in.readShort());
+      value.setQuality(new SourceDataTagQuality(code, readString(in)));
+    }
+    if ((flags & FLAG_TIMESTAMP) != 0) {
+      value.setTimestamp(new Timestamp(in.readLong()));
+    }
+    if ((flags & FLAG_DAQ_TIMESTAMP) != 0) {
+      value.setDaqTimestamp(new Timestamp(in.readLong()));
+    }
+    value.setPriority(in.readInt());
+    value.setTimeToLive(in.readInt());
+    return value;
+  }
+
+  private void writeValue(final DataOutputStream out, final Object value) throws IOException {
+    if (value == null) {
+      out.writeByte(TYPE_NULL);
+    } else if (value instanceof Boolean) {
+      out.writeByte(TYPE_BOOLEAN);
+      out.writeBoolean((Boolean) value);
+    } else if (value instanceof Byte) {
+      out.writeByte(TYPE_BYTE);
+      out.writeByte((Byte) value);
+    } else if (value instanceof Short) {
+      out.writeByte(TYPE_SHORT);
+      out.writeShort((Short) value);
+    } else if (value instanceof Integer) {
+      out.writeByte(TYPE_INTEGER);
+      out.writeInt((Integer) value);
+    } else if (value instanceof Long) {
+      out.writeByte(TYPE_LONG);
+      out.writeLong((Long) value);
+    } else if (value instanceof Float) {
+      out.writeByte(TYPE_FLOAT);
+      out.writeFloat((Float) value);
+    } else if (value instanceof Double) {
+      out.writeByte(TYPE_DOUBLE);
+      out.writeDouble((Double) value);
+    } else if (value instanceof String) {
+      out.writeByte(TYPE_STRING);
+      writeString(out, (String) value);
+    } else {
+      out.writeByte(TYPE_JSON);
+      writeString(out, mapper.writeValueAsString(value));
+    }
+  }
+
+  private Object readValue(final DataInputStream in) throws IOException {
+    byte type = in.readByte();
+    switch (type) {
+      case TYPE_NULL:
+        return null;
+      case TYPE_BOOLEAN:
+        return in.readBoolean();
+      case TYPE_BYTE:
+        return in.readByte();
+      case TYPE_SHORT:
+        return in.readShort();
+      case TYPE_INTEGER:
+        return in.readInt();
+      case TYPE_LONG:
+        return in.readLong();
+      case TYPE_FLOAT:
+        return in.readFloat();
+      case TYPE_DOUBLE:
+        return in.readDouble();
+      case TYPE_STRING:
+        return readString(in);
+      case TYPE_JSON:
+        return mapper.readValue(readString(in), Object.class);
+      default:
+        throw new IOException("Unknown value type " + type + " in binary DataTagValueUpdate message");
+    }
+  }
+
+  private static SourceDataTagQualityCode qualityCode(final short code) {
+    if (code >= 0 && code < QUALITY_CODES.length && QUALITY_CODES[code] != null) {
+      return QUALITY_CODES[code];
+    }
+    return SourceDataTagQualityCode.UNKNOWN;
+  }
+
+  private static void writeNullableLong(final DataOutputStream out, final Long value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeLong(value);
+    }
+  }
+
+  private static Long readNullableLong(final DataInputStream in) throws IOException {
+    return in.readBoolean() ? in.readLong() : null;
+  }
+
+  /**
+   * Strings are written as their UTF-8 length (-1 for null) followed by the
+   * UTF-8 bytes, as writeUTF is limited to 64KB.
+   */
+  private static void writeString(final DataOutputStream out, final String value) throws IOException {
+    if (value == null) {
+      out.writeInt(-1);
+    } else {
+      byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+      out.writeInt(utf8.length);
+      out.write(utf8);
+    }
+  }
+
+  private static String readString(final DataInputStream in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] utf8 = new byte[length];
+    in.readFully(utf8);
+    return new String(utf8, StandardCharsets.UTF_8);
+  }
+}
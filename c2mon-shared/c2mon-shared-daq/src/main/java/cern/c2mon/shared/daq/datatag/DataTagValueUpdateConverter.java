@@ -25,6 +25,7 @@ import org.springframework.jms.support.converter.MessageConversionException;
 import org.springframework.jms.support.converter.MessageConverter;
 
 import javax.annotation.PostConstruct;
+import javax.jms.BytesMessage;
 import javax.jms.JMSException;
 import javax.jms.Message;
 import javax.jms.Session;
@@ -35,6 +36,11 @@ import java.io.IOException;
  * Converter class used to convert between JSON messages and
  * {@link DataTagValueUpdate} instances.
  *
+ * <p>Updates can optionally be sent in the binary format of
+ * {@link DataTagValueUpdateBinaryCodec}, as a {@link BytesMessage}. Incoming
+ * messages are always accepted in both formats (JSON text messages and binary
+ * bytes messages), so each DAQ process can choose its format independently.
+ *
  * @author Mark Brightwell
  */
 @Slf4j
@@ -42,10 +48,30 @@ public class DataTagValueUpdateConverter implements MessageConverter {
 
   private ObjectMapper mapper;
 
+  private final DataTagValueUpdateBinaryCodec binaryCodec;
+
+  /**
+   * If true, outgoing updates are encoded in the binary format
+   */
+  private final boolean binaryEncoding;
+
+  /**
+   * Creates a converter sending the updates as JSON.
+   */
   public DataTagValueUpdateConverter() {
+    this(false);
+  }
+
+  /**
+   * @param binaryEncoding true to send the updates in the binary format
+   *                       (only supported by recent servers), false for JSON
+   */
+  public DataTagValueUpdateConverter(final boolean binaryEncoding) {
     this.mapper = new ObjectMapper();
     mapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
     mapper.enable(DeserializationFeature.USE_JAVA_ARRAY_FOR_JSON_ARRAY);
+    this.binaryCodec = new DataTagValueUpdateBinaryCodec(mapper);
+    this.binaryEncoding = binaryEncoding;
   }
 
   /**
@@ -62,8 +88,12 @@ public class DataTagValueUpdateConverter implements MessageConverter {
       throw new MessageConversionException("Message must not be null!");
     }
 
+    if (message instanceof BytesMessage) {
+      return fromBytesMessage((BytesMessage) message);
+    }
+
     if (!(message instanceof TextMessage)) {
-      throw new MessageConversionException("Message must be an instance of TextMessage!");
+      throw new MessageConversionException("Message must be an instance of TextMessage or BytesMessage!");
     }
 
     try {
@@ -77,8 +107,21 @@ public class DataTagValueUpdateConverter implements MessageConverter {
     }
   }
 
+  private DataTagValueUpdate fromBytesMessage(final BytesMessage message) throws JMSException {
+    byte[] bytes = new byte[(int) message.getBodyLength()];
+    message.readBytes(bytes);
+    try {
+      return binaryCodec.decode(bytes);
+    } catch (IOException | RuntimeException e) {
+      log.error("Exception caught while parsing incoming binary update", e);
+      throw new MessageConversionException("Exception caught while parsing incoming binary update of " + bytes.length + " bytes", e);
+    }
+  }
+
   /**
-   * Converts a {@link DataTagValueUpdate} to a JMS {@link Message}
+   * Converts a {@link DataTagValueUpdate} to a JMS {@link Message} (a
+   * {@link BytesMessage} if the binary encoding is enabled, a
+   * {@link TextMessage} with JSON otherwise)
    *
    * @param tag     the tag to convert
    * @param session the session in which the message must be created
@@ -88,6 +131,16 @@ public class DataTagValueUpdateConverter implements MessageConverter {
    */
   @Override
   public Message toMessage(final Object tag, final Session session) throws JMSException {
+    if (binaryEncoding && tag instanceof DataTagValueUpdate) {
+      try {
+        BytesMessage message = session.createBytesMessage();
+        message.writeBytes(binaryCodec.encode((DataTagValueUpdate) tag));
+        return message;
+      } catch (IOException e) {
+        log.error("Exception caught in binary encoding of update", e);
+        throw new MessageConversionException("Exception caught in converting dataTagValueUpdate to binary:" + e.getMessage(), e);
+      }
+    }
     try {
       String json = mapper.writeValueAsString(tag);
       return session.createTextMessage(json);
@@ -0,0 +1,128 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.shared.daq.datatag;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Test;
+
+import cern.c2mon.shared.common.datatag.DataTagValueUpdate;
+import cern.c2mon.shared.common.datatag.SourceDataTagQuality;
+import cern.c2mon.shared.common.datatag.SourceDataTagQualityCode;
+import cern.c2mon.shared.common.datatag.SourceDataTagValue;
+
+import static org.junit.Assert.*;
+
+public class DataTagValueUpdateBinaryCodecTest {
+
+  private ObjectMapper mapper;
+
+  private DataTagValueUpdateBinaryCodec codec;
+
+  @Before
+  public void setUp() {
+    mapper = new ObjectMapper();
+    mapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    mapper.enable(DeserializationFeature.USE_JAVA_ARRAY_FOR_JSON_ARRAY);
+    codec = new DataTagValueUpdateBinaryCodec(mapper);
+  }
+
+  @Test
+  public void testTypedValuesKeepTheirType() throws IOException {
+    Object[] values = {Boolean.TRUE, (byte) 7, (short) 10, 1, 100L, 1.111f, 1.1, "testText", "", null};
+    for (Object value : values) {
+      SourceDataTagValue decoded = roundTrip(createValue(value));
+      assertEquals(value, decoded.getValue());
+    }
+  }
+
+  @Test
+  public void testArrayValuesAreDecodedAsWithJson() throws IOException {
+    Integer[] intArray = new Integer[]{1, 2, 3, 4, 5};
+    SourceDataTagValue decoded = roundTrip(createValue(intArray));
+    assertArrayEquals(intArray, (Object[]) decoded.getValue());
+
+    String[] stringArray = new String[]{"1", "2", "3"};
+    decoded = roundTrip(createValue(stringArray));
+    assertArrayEquals(stringArray, (Object[]) decoded.getValue());
+  }
+
+  @Test
+  public void testAllFieldsAreEncoded() throws IOException {
+    SourceDataTagValue value = new SourceDataTagValue(11L, "name", true, 666, new SourceDataTagQuality(SourceDataTagQualityCode.OUT_OF_BOUNDS, "too high"),
+        new Timestamp(123456789L), 2, true, "description", 3600);
+    value.setSimulated(true);
+    value.setDaqTimestamp(new Timestamp(123456999L));
+
+    DataTagValueUpdate update = new DataTagValueUpdate(5L, 12345L);
+    update.addValue(value);
+    update.addValue(createValue(1));
+    DataTagValueUpdate decodedUpdate = codec.decode(codec.encode(update));
+
+    assertEquals(Long.valueOf(5L), decodedUpdate.getProcessId());
+    assertEquals(Long.valueOf(12345L), decodedUpdate.getProcessPIK());
+    assertEquals(2, decodedUpdate.getValues().size());
+    SourceDataTagValue decoded = decodedUpdate.getValues().iterator().next();
+    assertEquals(value, decoded);
+    assertEquals(SourceDataTagQualityCode.OUT_OF_BOUNDS, decoded.getQuality().getQualityCode());
+    assertEquals("too high", decoded.getQuality().getDescription());
+  }
+
+  @Test
+  public void testValidValueWithoutQuality() throws IOException {
+    SourceDataTagValue decoded = roundTrip(createValue(1));
+    assertTrue(decoded.isValid());
+    assertEquals(SourceDataTagQualityCode.OK, decoded.getQuality().getQualityCode());
+    assertNull(decoded.getTimestamp());
+  }
+
+  @Test
+  public void testBinaryIsSmallerThanJson() throws IOException {
+    DataTagValueUpdate update = new DataTagValueUpdate(5L, 12345L);
+    for (long i = 0; i < 100; i++) {
+      update.addValue(new SourceDataTagValue(i, "tag" + i, false, 1.5 * i, null, new Timestamp(System.currentTimeMillis()), 2, false, "", 3600));
+    }
+    assertTrue(codec.encode(update).length < mapper.writeValueAsBytes(update).length);
+  }
+
+  @Test
+  public void testIsBinaryEncoded() throws IOException {
+    assertTrue(DataTagValueUpdateBinaryCodec.isBinaryEncoded(codec.encode(new DataTagValueUpdate(5L))));
+    assertFalse(DataTagValueUpdateBinaryCodec.isBinaryEncoded(mapper.writeValueAsBytes(new DataTagValueUpdate(5L))));
+  }
+
+  @Test(expected = IOException.class)
+  public void testUnsupportedVersionIsRejected() throws IOException {
+    byte[] bytes = codec.encode(new DataTagValueUpdate(5L));
+    bytes[2] = (byte) (DataTagValueUpdateBinaryCodec.FORMAT_VERSION + 1);
+    codec.decode(bytes);
+  }
+
+  private SourceDataTagValue createValue(Object value) {
+    return new SourceDataTagValue(11L, "name", false, value, null, (Timestamp) null, 1, false, null, 666);
+  }
+
+  private SourceDataTagValue roundTrip(SourceDataTagValue value) throws IOException {
+    DataTagValueUpdate update = new DataTagValueUpdate(11L);
+    update.addValue(value);
+    return codec.decode(codec.encode(update)).getValues().iterator().next();
+  }
+}
@@ -16,26 +16,38 @@
  *****************************************************************************/
 package cern.c2mon.pmanager.fallback;
 
-import cern.c2mon.pmanager.IFallback;
-import cern.c2mon.pmanager.fallback.exception.DataFallbackException;
-
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
-
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
 
-import cern.c2mon.pmanager.fallback.manager.FallbackObjectContainer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import cern.c2mon.pmanager.IFallback;
+import cern.c2mon.pmanager.fallback.exception.DataFallbackException;
+import cern.c2mon.pmanager.fallback.manager.FallbackObjectContainer;
+
 /**
- * Abstract class that holds all the common functionality to the different
- * fallback files that may exists
+ * Holds all the common functionality to the different fallback files that may
+ * exist.
+ *
+ * <p>The fallback log is stored in append-only segments: the first segment is
+ * the fallback file itself and the following ones are named after it with the
+ * suffix <code>.1</code>, <code>.2</code>, etc. A new segment is started once
+ * the current one reaches the segment size of the {@link FallbackProperties}.
+ * The counter file holds the segment and byte offset of the first line not yet
+ * processed, so the read position is restored without reading the file again,
+ * and the segments are deleted as soon as they have been processed.
  *
  * @author mruizgar
  *
@@ -45,23 +57,53 @@ public class FallbackFileController {
     /** Log4j Logger for tags that cannot be logged to the database */
     public static final Logger LOG = LoggerFactory.getLogger("HistoryFallbackLogger");
 
-    /** The file storing the datatags */
+    /** Size of the buffer used for reading the segments */
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    /** The fallback files are written with the platform encoding */
+    private static final Charset CHARSET = Charset.defaultCharset();
+
+    /** The file storing the datatags, also the first segment of the log */
     private File dataFile;
 
-    /** The file storing the line counter */
-    private File counterFile;
+    /** The file storing the position of the first line not yet processed */
+    private final File counterFile;
+
+    /** Size after which a new segment is started */
+    private final long segmentSize;
 
     /** Stream file output for the fallback log */
     private BufferedWriter output;
 
-    /** Stream file output for the file storing the line counter */
-    private BufferedWriter dOutput;
+    /** The stream below the output, giving the size of the written segment */
+    private FileOutputStream outputStream;
+
+    /** Channel on the segment being read */
+    private FileChannel input;
+
+    /** The bytes read from the input and not yet returned as lines */
+    private ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
 
-    /** Stream file input for the file storing the line counter */
-    private BufferedReader dInput;
+    /** Number of the first segment on disk */
+    private long firstSegment;
 
-    /** Stream file input for the fallback log file */
-    private BufferedReader inputBuf;
+    /** Number of the segment written to */
+    private long lastSegment;
+
+    /** Size of the segment written to */
+    private long lastSegmentSize;
+
+    /** Total size of the segments on disk */
+    private long dataSize;
+
+    /** Position of the first line not yet processed, as stored in the counter file */
+    private SegmentPosition processedPosition;
+
+    /** Position of the next line to read */
+    private SegmentPosition readPosition;
+
+    /** Positions after each line read since the last update of the processed position */
+    private final List<SegmentPosition> readLineEnds = new ArrayList<>();
 
     /**
      * Counter for the file, that shows the number of lines that are still in
@@ -70,19 +112,11 @@ public class FallbackFileController {
     private int readBackLines;
 
     /**
-     * The numberOfLines that has the file are stored in the object attribute in
-     * order to avoid its recalculation all the time
+     * The number of lines written to the file since it has been cleared the
+     * last time
      */
     private int numberOfLines;
 
-    /**
-     * @param tFile
-     *            the tagsFile to set
-     */
-    protected final void setTagsFile(final File tFile) {
-        this.dataFile = tFile;
-    }
-
     /**
      * @return the tagsFile
      */
@@ -119,59 +153,6 @@ public class FallbackFileController {
         return output;
     }
 
-    /**
-     * @param out
-     *            the output to set
-     */
-    public final void setOutput(final BufferedWriter out) {
-        this.output = out;
-    }
-
-    /**
-     * @return the input
-     */
-    public final BufferedReader getInput() {
-        return inputBuf;
-    }
-
-    /**
-     * @param in
-     *            the input to set
-     */
-    public final void setInput(final BufferedReader in) {
-        this.inputBuf = in;
-    }
-
-    /**
-     * @return the dInput
-     */
-    public final BufferedReader getDInput() {
-        return dInput;
-    }
-
-    /**
-     * @param in
-     *            the dInput to set
-     */
-    public final void setDInput(final BufferedReader in) {
-        dInput = in;
-    }
-
-    /**
-     * @return the dOutput
-     */
-    public final BufferedWriter getDOutput() {
-        return dOutput;
-    }
-
-    /**
-     * @param out
-     *            the dOutput to set
-     */
-    public final void setDOutput(final BufferedWriter out) {
-        dOutput = out;
-    }
-
     /**
      * @return the readBackLines
      */
@@ -187,6 +168,13 @@ public class FallbackFileController {
         this.readBackLines = readLines;
     }
 
+    /**
+     * @return the total size in bytes of the fallback log segments on disk
+     */
+    public final long getDataSize() {
+        return dataSize;
+    }
+
     /**
      * Gets the absolute path of the counter file, given the absolute path of
      * its corresponding fallback file
@@ -209,12 +197,27 @@ public class FallbackFileController {
      *            path of the fallback file
      */
     public FallbackFileController(final String fallbackPath) {
+        this(fallbackPath, FallbackProperties.getInstance().getSegmentSize() * 1024L * 1024L);
+    }
+
+    /**
+     * Constructor for the class
+     *
+     * @param fallbackPath
+     *            path of the fallback file
+     * @param segmentSize
+     *            size in bytes after which a new segment is started
+     */
+    public FallbackFileController(final String fallbackPath, final long segmentSize) {
         // Set the paths for the fallback files
         this.dataFile = new File(fallbackPath);
         this.counterFile = new File(getCounterPath(fallbackPath));
+        this.segmentSize = segmentSize;
+
+        findSegments();
 
         // Initialize the fallback log file
-        if (!dataFile.exists()) {
+        if (!dataFile.exists() && firstSegment == 0) {
             try {
                 if (dataFile.createNewFile()) {
                     LOG.info("constructor() : The file " + dataFile.getName()
@@ -225,176 +228,164 @@ public class FallbackFileController {
             }
         }
 
-        // Initialize the counter holder file
-        if (!counterFile.exists()) {
-            try {
-                if (counterFile.createNewFile()) {
-                    LOG.info("constructor() : The file " + counterFile.getName()
-                            + " has been created");
-                }
-                initializeCounterFile();
-            } catch (IOException e) {
-                LOG.error("constructor() - Error while creating the counterfile", e);
-            }
-        }
-
-        // There is a counter in the file and must be read
+        // Read the position of the first line that has not been processed yet
         try {
-            // initialize the lines counter
-            setNumberOfLines(calcNumberOfLines());
-            // Initialize the counter for the number of lines already proccessed
-            // and prepared the
-            // file descriptor to point to the next line to read
-            setReadBackLines(readCounter());
-            LOG.info("FallbackFileController() - The number of lines of the "
-                    + dataFile.getName() + " file is " + getNumberOfLines());
-        } catch (Exception e) {
-            LOG
-                    .error("Error while trying to initialize the lines counter for the fallback file", e);
+            processedPosition = readCounter();
+        } catch (DataFallbackException e) {
+            LOG.error("Error while trying to read the counter for the fallback file, the file will be read from the beginning", e);
+            processedPosition = new SegmentPosition(firstSegment, 0);
         }
+        readPosition = processedPosition;
+        LOG.info("FallbackFileController() - The " + dataFile.getName() + " fallback log has "
+                + (lastSegment - firstSegment + 1) + " segment(s) of " + dataSize + " bytes, to be read from "
+                + processedPosition);
     }
 
     /**
-     * Reads the number that is stored in the counter file and which represents
-     * the already committed data
-     *
-     * @return The counter stored in the counter file
-     * @throws DataFallbackException
-     *             An exception is thrown when the counter cannot be read from
-     *             the file
+     * @param segment the number of the segment
+     * @return the file of the segment
      */
-    private int readCounter() throws DataFallbackException {
-        final int counter;
-        openCounterDataInputStream();
-        try {
-            String line;
-            line = dInput.readLine();
-            if (line != null) {
-                counter = new Integer(line).intValue();
-                // Put the reading descriptor in the first line that has not
-                // been yet processed
-                goToLine(counter);
-                if (LOG.isDebugEnabled())
-                    LOG.debug("The counter file " + counterFile.getName() + " has been read");
-            } else {
-                throw new DataFallbackException(
-                        "readCounter() - The counter could not be read, the counter file is empty");
-            }
-        } catch (IOException e) {
-            LOG.error("Exception is: " + e.getMessage());
-            throw new DataFallbackException("readCounter() - The counter could not be read "
-                    + e.getMessage());
-        } finally {
-            closeCounterDataInputStream();
-        }
-        return counter;
+    private File getSegmentFile(final long segment) {
+        return segment == 0 ? dataFile : new File(dataFile.getPath() + "." + segment);
     }
 
     /**
-     * It prepares the file descriptor to read from a certain number of lines
-     *
-     * @param lineNumber
-     *            The number of lines to be read to prepare the file descriptor
-     * @throws DataFallbackException
-     *             An exception is thrown if there was any problems while
-     *             reading the file
+     * Looks for the segments of the fallback log left by a previous run
      */
-    public final void goToLine(final int lineNumber) throws DataFallbackException {
-        boolean moreLines = true;
-        int readlines = 0;
+    private void findSegments() {
+        firstSegment = dataFile.exists() ? 0 : Long.MAX_VALUE;
+        lastSegment = 0;
+        dataSize = dataFile.length();
 
-        openFallbackInputStream();
-        if (lineNumber != 0) {
-            try {
-                while (moreLines && readlines < lineNumber) {
-                    if (getInput().readLine() == null)
-                        moreLines = false;
-                    else
-                        readlines++;
-                }
-            } catch (IOException e) {
-                throw new DataFallbackException(e.getMessage());
+        File directory = dataFile.getAbsoluteFile().getParentFile();
+        String prefix = dataFile.getName() + ".";
+        File[] files = directory == null ? null : directory.listFiles((dir, name) -> name.startsWith(prefix)
+                && name.length() > prefix.length() && name.substring(prefix.length()).chars().allMatch(Character::isDigit));
+        if (files != null) {
+            for (File file : files) {
+                long segment = Long.parseLong(file.getName().substring(prefix.length()));
+                firstSegment = Math.min(firstSegment, segment);
+                lastSegment = Math.max(lastSegment, segment);
+                dataSize += file.length();
             }
         }
+        if (firstSegment == Long.MAX_VALUE) {
+            firstSegment = 0;
+        }
+        lastSegmentSize = getSegmentFile(lastSegment).length();
     }
 
     /**
-     * Create a stream to read from the counter file
+     * Reads the position stored in the counter file. A counter file written by
+     * a previous version holds the number of processed lines instead, which is
+     * converted once into a position.
      *
+     * @return The position of the first line not yet processed
      * @throws DataFallbackException
-     *             An exception is thrown when the input stream cannot be opened
+     *             An exception is thrown when the counter cannot be read from
+     *             the file
      */
-    private void openCounterDataInputStream() throws DataFallbackException {
-        if (dInput == null) {
-            if (LOG.isDebugEnabled())
-                LOG.debug("openDataInputStream() ; Opening the reader for the "
-                        + counterFile.getName() + " file");
-            try {
-                dInput = new BufferedReader(new FileReader(counterFile));
-            } catch (IOException e) {
-                throw new DataFallbackException(e.getMessage());
+    private SegmentPosition readCounter() throws DataFallbackException {
+        if (!counterFile.exists()) {
+            SegmentPosition position = new SegmentPosition(firstSegment, 0);
+            writeCounter(position);
+            return position;
+        }
+
+        String counter;
+        try {
+            counter = new String(Files.readAllBytes(counterFile.toPath()), CHARSET).trim();
+        } catch (IOException e) {
+            throw new DataFallbackException("readCounter() - The counter could not be read " + e.getMessage());
+        }
+        if (counter.isEmpty()) {
+            throw new DataFallbackException("readCounter() - The counter could not be read, the counter file is empty");
+        }
+
+        SegmentPosition position;
+        try {
+            String[] fields = counter.split("\\s+");
+            if (fields.length == 1) {
+                position = skipLines(Integer.parseInt(fields[0]));
+                writeCounter(position);
+                LOG.info("readCounter() - Converted the line counter " + fields[0] + " of " + counterFile.getName()
+                        + " into the position " + position);
+            } else {
+                position = new SegmentPosition(Long.parseLong(fields[0]), Long.parseLong(fields[1]));
             }
+        } catch (NumberFormatException e) {
+            throw new DataFallbackException("readCounter() - The counter file contains an invalid counter: " + counter);
         }
+
+        if (position.segment < firstSegment) {
+            // the segment has been processed and deleted
+            position = new SegmentPosition(firstSegment, 0);
+        }
+        if (LOG.isDebugEnabled())
+            LOG.debug("The counter file " + counterFile.getName() + " has been read");
+        return position;
     }
 
     /**
-     * Close the input stream opened for the counter file
-     *
-     * @throws DataFallbackException
-     *             An exception is thrown if the stream could not be closed
+     * Finds the position after the given number of lines of the first segment
      */
-    private void closeCounterDataInputStream() throws DataFallbackException {
-        if (LOG.isDebugEnabled())
-            LOG.debug("Closing the counter file reader for the file " + counterFile.getName());
-        if (dInput != null) {
-            try {
-                dInput.close();
-            } catch (IOException e) {
-                throw new DataFallbackException(e.getMessage());
-            } finally {
-                dInput = null;
+    private SegmentPosition skipLines(final int lineNumber) throws DataFallbackException {
+        readPosition = new SegmentPosition(firstSegment, 0);
+        try {
+            for (int i = 0; i < lineNumber && readLine() != null; i++) {
+                // only move the read position
             }
+        } finally {
+            readLineEnds.clear();
+            closeFallbackInputStream();
         }
+        return readPosition;
     }
 
     /**
-     * It opens the counter binary file for writing
+     * Writes the given position into the counter file, replacing the previous
+     * one atomically
      *
      * @throws DataFallbackException
-     *             An exception is thrown if the file can not be opened for
-     *             wrtiting
+     *             An exception is thrown if the counter could not be written to
+     *             the file
      */
-    private void openCounterDataOutputStream() throws DataFallbackException {
-        if (dOutput == null) {
-            if (LOG.isDebugEnabled())
-                LOG.debug("openDataOutputStream() ; Opening the writer for the "
-                        + counterFile.getName() + " file");
+    private void writeCounter(final SegmentPosition position) throws DataFallbackException {
+        File tmpFile = new File(counterFile.getPath() + ".tmp");
+        try {
+            Files.write(tmpFile.toPath(), (position.segment + " " + position.offset + "\n").getBytes(CHARSET));
             try {
-                dOutput = new BufferedWriter(new FileWriter(counterFile));
+                Files.move(tmpFile.toPath(), counterFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
             } catch (IOException e) {
-                throw new DataFallbackException(e.getMessage());
+                Files.move(tmpFile.toPath(), counterFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
             }
+        } catch (IOException e) {
+            throw new DataFallbackException("The counter file " + counterFile.getName() + " could not be written: " + e.getMessage());
         }
+        if (LOG.isDebugEnabled())
+            LOG.debug("writeCounter() - The counter file has been updated with the position " + position);
     }
 
     /**
-     * The output stream for the counter file is closed
+     * Places the read position after the given number of lines read since the
+     * processed lines were last marked with {@link #markLinesProcessed(int)}.
+     * The lines read after them will be read again.
      *
+     * @param lineNumber
+     *            The number of lines read since the last processed line
      * @throws DataFallbackException
-     *             An exception is thrown if the descriptor cannot be closed
+     *             An exception is thrown if more lines are given than have
+     *             been read
      */
-    private void closeCounterDataOutputStream() throws DataFallbackException {
-        if (LOG.isDebugEnabled())
-            LOG.debug("Closing the counter file writer for the file " + counterFile.getName());
-        if (dOutput != null) {
-            try {
-                dOutput.close();
-            } catch (IOException e) {
-                throw new DataFallbackException(e.getMessage());
-            } finally {
-                dOutput = null;
-            }
+    public final void skipProcessedLines(final int lineNumber) throws DataFallbackException {
+        if (lineNumber > readLineEnds.size()) {
+            throw new DataFallbackException("skipProcessedLines() - Only " + readLineEnds.size()
+                    + " lines have been read, cannot skip " + lineNumber + " lines");
         }
+        SegmentPosition position = lineNumber == 0 ? processedPosition : readLineEnds.get(lineNumber - 1);
+        readLineEnds.subList(lineNumber, readLineEnds.size()).clear();
+        closeFallbackInputStream();
+        readPosition = position;
     }
 
     /**
@@ -405,11 +396,14 @@ public class FallbackFileController {
      */
     public final void openFallbackOutputStream() throws DataFallbackException {
         if (output == null) {
+            File segmentFile = getSegmentFile(lastSegment);
             if (LOG.isDebugEnabled())
                 LOG.debug("openOutputStream() : Opening the writer for the "
-                        + dataFile.getName() + " file");
+                        + segmentFile.getName() + " file");
             try {
-                output = new BufferedWriter(new FileWriter(dataFile, true));
+                outputStream = new FileOutputStream(segmentFile, true);
+                output = new BufferedWriter(new OutputStreamWriter(outputStream, CHARSET));
+                lastSegmentSize = outputStream.getChannel().position();
             } catch (IOException e) {
                 throw new DataFallbackException(e.getMessage());
             }
@@ -417,19 +411,24 @@ public class FallbackFileController {
     }
 
     /**
-     * It opens a file input stream
+     * It opens a channel on the segment to read from, placed at the read
+     * position
      *
      * @throws DataFallbackException
      *             An exception is thrown if the input stream cannot be opened
      */
     public final void openFallbackInputStream() throws DataFallbackException {
-        if (inputBuf == null) {
+        if (input == null) {
+            File segmentFile = getSegmentFile(readPosition.segment);
             if (LOG.isDebugEnabled())
                 LOG.debug("openFallbackInputStream() : Opening the reader for the "
-                        + dataFile.getName() + "file");
+                        + segmentFile.getName() + " file");
             try {
-                setInput(new BufferedReader(new FileReader(dataFile)));
+                input = FileChannel.open(segmentFile.toPath(), StandardOpenOption.READ);
+                input.position(readPosition.offset);
+                readBuffer.clear().flip();
             } catch (IOException e) {
+                input = null;
                 throw new DataFallbackException(e.getMessage());
             }
         }
@@ -442,16 +441,16 @@ public class FallbackFileController {
      *             An exception is thrown if the input stream cannot be closed
      */
     public final void closeFallbackInputStream() throws DataFallbackException {
-        if (getInput() != null) {
+        if (input != null) {
             try {
                 if (LOG.isDebugEnabled())
-                    LOG.debug("closeInputStream() : Closing the file reader for the file "
-                            + dataFile.getName());
-                getInput().close();
+                    LOG.debug("closeInputStream() : Closing the file reader for the segment "
+                            + readPosition.segment + " of " + dataFile.getName());
+                input.close();
             } catch (IOException e) {
                 throw new DataFallbackException(e.getMessage());
             } finally {
-                setInput(null);
+                input = null;
             }
         }
     }
@@ -466,39 +465,14 @@ public class FallbackFileController {
 
         if (output != null) {
             if (LOG.isDebugEnabled())
-                LOG.debug("Closing the file writer for the file " + dataFile.getName());
+                LOG.debug("Closing the file writer for the file " + getSegmentFile(lastSegment).getName());
             try {
                 output.close();
             } catch (IOException e) {
                 throw new DataFallbackException(e.getMessage());
             } finally {
                 output = null;
-            }
-        }
-    }
-
-    /**
-     * It sets the file counter to zero
-     */
-    private void initializeCounterFile() {
-        try {
-            openCounterDataOutputStream();
-            dOutput.write("0");
-            dOutput.newLine();
-            dOutput.flush();
-            if (LOG.isDebugEnabled())
-                LOG
-                        .debug("initializeCounterFile() - The counter file has been updated with zero");
-        } catch (IOException e) {
-            LOG
-                    .error("initializeCounterFile() - Error while trying to write in the counter file");
-        } catch (DataFallbackException e) {
-            LOG.error("initializeCounterFile() - The counter file could not be opened");
-        } finally {
-            try {
-                closeCounterDataOutputStream();
-            } catch (DataFallbackException ex) {
-                LOG.error("initializeCounterFile() - The counter file could not be closed");
+                outputStream = null;
             }
         }
     }
@@ -514,23 +488,41 @@ public class FallbackFileController {
      */
 
     public final void writeLine(final IFallback object) throws DataFallbackException {
+        if (lastSegmentSize >= segmentSize) {
+            startNewSegment();
+        }
+        openFallbackOutputStream();
 
         String str = object.toString();
         try {
             output.write(str);
             output.newLine();
             output.flush();
+            // the output may have been set without its stream
+            long size = outputStream != null ? outputStream.getChannel().position() : getSegmentFile(lastSegment).length();
+            dataSize += size - lastSegmentSize;
+            lastSegmentSize = size;
         } catch (IOException e) {
             throw new DataFallbackException(
                     "writeLine() : An error has ocurred while trying to write in the "
-                            + getDataFile().getName() + " file " + e.getMessage());
+                            + getSegmentFile(lastSegment).getName() + " file " + e.getMessage());
         }
         if (LOG.isDebugEnabled()) {
-            LOG.debug("writeLine() - The object with id " + object.getId() + " has been logged to the " + dataFile.getPath()
-                    + " file");
+            LOG.debug("writeLine() - The object with id " + object.getId() + " has been logged to the "
+                    + getSegmentFile(lastSegment).getPath() + " file");
         }
     }
 
+    /**
+     * Closes the segment written to and continues in a new one
+     */
+    private void startNewSegment() throws DataFallbackException {
+        closeFallbackOutputStream();
+        lastSegment++;
+        lastSegmentSize = 0;
+        LOG.info("writeLine() - Starting the fallback segment " + getSegmentFile(lastSegment).getName());
+    }
+
     /**
      * It reads a list of objects from a fallback file
      *
@@ -550,30 +542,18 @@ public class FallbackFileController {
         // line counter
         int readlines = 0;
         List<IFallback> objects = new ArrayList<>();
-        String line = null;
-        IFallback obj;
+        String line;
 
         // Process each line until we reach the specified number of lines or the
-        // end of file
-        boolean moreLines = true;
-        try {
-            while (moreLines && readlines < numOfLines) {
-                line = getInput().readLine();
-                if (line == null) {
-                    moreLines = false;
-                } else {
-                    try {
-                        // Parse the line to get the datatags values
-                        obj = fallbackObj.getObject(line);
-                        objects.add(obj);
-                    } catch (DataFallbackException e) {
-                         LOG.error("readLines() - " + e.getMessage() + "" + line);
-                    }
-                    readlines++;
-                }
+        // end of the log
+        while (readlines < numOfLines && (line = readLine()) != null) {
+            try {
+                // Parse the line to get the datatags values
+                objects.add(fallbackObj.getObject(line));
+            } catch (DataFallbackException e) {
+                LOG.error("readLines() - " + e.getMessage() + "" + line);
             }
-        } catch (IOException e) {
-            throw new DataFallbackException(e.getMessage());
+            readlines++;
         }
         if (LOG.isDebugEnabled()) {
             LOG.debug("readLines() - " + objects.size()
@@ -583,119 +563,167 @@ public class FallbackFileController {
     }
 
     /**
-     * Checks whether the fallback log file has any contents or not
+     * Reads the next line, continuing with the next segment at the end of a
+     * segment.
      *
-     * @return A boolean indicating whether the file is empty (true) or not
-     *         (false)
+     * @return the line or null at the end of the log
+     * @throws DataFallbackException
+     *             An exception is thrown if the segment cannot be read
      */
-    public final boolean isFallBackFileEmpty() {
-        boolean isEmpty = false;
+    private String readLine() throws DataFallbackException {
+        openFallbackInputStream();
         try {
-            openFallbackInputStream();
-            if (!getInput().ready()) {
-                isEmpty = true;
+            while (true) {
+                int start = readBuffer.position();
+                for (int i = start; i < readBuffer.limit(); i++) {
+                    if (readBuffer.get(i) == '\n') {
+                        readBuffer.position(i + 1);
+                        int end = i > start && readBuffer.get(i - 1) == '\r' ? i - 1 : i;
+                        return lineRead(start, end, i + 1 - start);
+                    }
+                }
+
+                // no complete line in the buffer
+                if (readBuffer.position() == 0 && readBuffer.limit() == readBuffer.capacity()) {
+                    ByteBuffer larger = ByteBuffer.allocate(readBuffer.capacity() * 2);
+                    larger.put(readBuffer).flip();
+                    readBuffer = larger;
+                }
+                readBuffer.compact();
+                int read = input.read(readBuffer);
+                readBuffer.flip();
+
+                if (read <= 0) {
+                    if (readBuffer.hasRemaining()) {
+                        // last line without line separator
+                        int remaining = readBuffer.remaining();
+                        readBuffer.position(readBuffer.limit());
+                        return lineRead(0, remaining, remaining);
+                    }
+                    if (readPosition.segment >= lastSegment) {
+                        return null;
+                    }
+                    closeFallbackInputStream();
+                    readPosition = new SegmentPosition(readPosition.segment + 1, 0);
+                    openFallbackInputStream();
+                }
             }
         } catch (IOException e) {
-            LOG
-                    .error(
-                            "isFallBackFileEmpty() : A problem has ocurred while trying to determine if the file was empty",
-                            e);
-        } catch (Exception ex) {
-            LOG.error("isFallBackFileEmpty() : " + ex.getMessage());
-        } finally {
-            try {
-                closeFallbackInputStream();
-            } catch (Exception ex) {
-                LOG.error("isFallBackFileEmpty() : " + ex.getMessage());
-            }
+            throw new DataFallbackException(e.getMessage());
         }
-        if (LOG.isDebugEnabled())
-            LOG
-                    .debug("isFallBackFileEmpty() : The result of checking whether the file is empty or not is "
-                            + isEmpty);
-        return isEmpty;
     }
 
     /**
-     * It checks the number of lines that the fallback log file has
+     * Moves the read position after the line found in the read buffer
+     */
+    private String lineRead(final int start, final int end, final int length) {
+        readPosition = new SegmentPosition(readPosition.segment, readPosition.offset + length);
+        readLineEnds.add(readPosition);
+        return new String(readBuffer.array(), readBuffer.arrayOffset() + start, end - start, CHARSET);
+    }
+
+    /**
+     * Checks whether the fallback log has any contents not yet processed
      *
-     * @return Number of lines of the file
-     * @throws DataFallbackException
-     *             An exception is thrown if something wrong happens while
-     *             trying to read the file
+     * @return A boolean indicating whether the file is empty (true) or not
+     *         (false)
      */
-    private int calcNumberOfLines() throws DataFallbackException {
-        int lines = 0;
-        openFallbackInputStream();
-        try {
-            while (getInput().readLine() != null) {
-                lines++;
-            }
-        } catch (IOException e) {
-            throw new DataFallbackException();
-        } finally {
-            closeFallbackInputStream();
-        }
-        return lines;
+    public final boolean isFallBackFileEmpty() {
+        boolean isEmpty = processedPosition.segment >= lastSegment && processedPosition.offset >= lastSegmentSize;
+        if (LOG.isDebugEnabled())
+            LOG.debug("isFallBackFileEmpty() : The result of checking whether the file is empty or not is "
+                    + isEmpty);
+        return isEmpty;
     }
 
     /**
-     * It stores the current file counter (indicating the number of lines
-     * already processed from the file), so they won't be treated next time
+     * Marks the given number of lines read since the last call as processed,
+     * so they won't be treated next time. The counter file is updated and the
+     * segments which have been processed completely are deleted.
      *
+     * @param lines
+     *            the number of lines processed
      * @throws DataFallbackException
      *             An exception is thrown if the counter could not be written to
      *             the file
      */
-    public final void updateNumberOfProcessedLines() throws DataFallbackException {
+    public final void markLinesProcessed(final int lines) throws DataFallbackException {
+        if (lines <= 0) {
+            return;
+        }
+        int processed = Math.min(lines, readLineEnds.size());
+        SegmentPosition position = readLineEnds.get(processed - 1);
+        readLineEnds.subList(0, processed).clear();
 
-        // Write the counter into the fallback counter file
-        openCounterDataOutputStream();
-        try {
-            this.getDOutput().write(new Integer(getReadBackLines()).toString());
-            getDOutput().newLine();
-            if (LOG.isDebugEnabled())
-                LOG.debug("removeLines() - The counter file has been updated with the value "
-                        + getReadBackLines());
-        } catch (IOException e) {
-            throw new DataFallbackException(e.getMessage());
+        writeCounter(position);
+        processedPosition = position;
+        readBackLines += processed;
+
+        deleteProcessedSegments();
+    }
+
+    /**
+     * Deletes the segments before the segment of the first line not yet
+     * processed
+     */
+    private void deleteProcessedSegments() {
+        while (firstSegment < processedPosition.segment) {
+            File segmentFile = getSegmentFile(firstSegment);
+            long length = segmentFile.length();
+            if (segmentFile.exists() && !segmentFile.delete()) {
+                LOG.error("deleteProcessedSegments() - The processed segment " + segmentFile.getAbsolutePath()
+                        + " could not be deleted");
+                return;
+            }
+            LOG.info("deleteProcessedSegments() - The processed segment " + segmentFile.getName() + " has been deleted");
+            dataSize -= length;
+            firstSegment++;
         }
-        closeCounterDataOutputStream();
     }
 
     /**
-     * Removes the contents of the fallback log file by deleting the file and
-     * creating it again and it also updates the counter stored in the
-     * counterfile
+     * Removes the contents of the fallback log by deleting all its segments
+     * and creating the fallback file again. It also resets the counter stored
+     * in the counterfile
      *
      * @throws DataFallbackException
      *             An exception is thrown if the fallback file cannot be deleted
      */
     public final void clearFileContents() throws DataFallbackException {
-
-        // Delete the original file
-        if (!dataFile.delete()) {
-            LOG.error("clearFileContents() - The original file could not be deleted");
-            throw new DataFallbackException("The file " + dataFile.getAbsolutePath()
-                    + " could not be deleted");
-        } else {
-            LOG.info("clearFileContents() - The " + dataFile.getAbsolutePath()
-                    + " has been deleted");
-            try {
-                // Create again the fallback log file
-                if (dataFile.createNewFile()) {
-                    if (LOG.isDebugEnabled())
-                        LOG.debug("clearFileContents() - The " + dataFile.getAbsolutePath()
-                                + " has been created");
-                }
-            } catch (IOException e) {
-                LOG.error("clearFileContents() : Error while creating the fallback file "
-                        + e.getMessage());
+        closeFallbackInputStream();
+        closeFallbackOutputStream();
+
+        for (long segment = firstSegment; segment <= lastSegment; segment++) {
+            File segmentFile = getSegmentFile(segment);
+            if (segmentFile.exists() && !segmentFile.delete()) {
+                LOG.error("clearFileContents() - The file " + segmentFile.getAbsolutePath() + " could not be deleted");
+                throw new DataFallbackException("The file " + segmentFile.getAbsolutePath()
+                        + " could not be deleted");
             }
-            // Reset the fallback counters
-            initializeCounterFile();
-
         }
+        LOG.info("clearFileContents() - The " + dataFile.getAbsolutePath()
+                + " has been deleted");
+        try {
+            // Create again the fallback log file
+            if (dataFile.createNewFile()) {
+                if (LOG.isDebugEnabled())
+                    LOG.debug("clearFileContents() - The " + dataFile.getAbsolutePath()
+                            + " has been created");
+            }
+        } catch (IOException e) {
+            LOG.error("clearFileContents() : Error while creating the fallback file "
+                    + e.getMessage());
+        }
+
+        // Reset the fallback counters
+        firstSegment = 0;
+        lastSegment = 0;
+        lastSegmentSize = 0;
+        dataSize = 0;
+        readLineEnds.clear();
+        processedPosition = new SegmentPosition(0, 0);
+        readPosition = processedPosition;
+        writeCounter(processedPosition);
     }
 
     /**
@@ -707,10 +735,30 @@ public class FallbackFileController {
         try {
             closeFallbackInputStream();
             closeFallbackOutputStream();
-            closeCounterDataInputStream();
-            closeCounterDataOutputStream();
         } catch (Exception e) {
             LOG.error("finalize() - The opened streams to the files could not be closed");
         }
     }
+
+    /**
+     * Position of a line in the fallback log
+     */
+    private static final class SegmentPosition {
+
+        /** Number of the segment */
+        private final long segment;
+
+        /** Byte offset in the segment */
+        private final long offset;
+
+        private SegmentPosition(final long segment, final long offset) {
+            this.segment = segment;
+            this.offset = offset;
+        }
+
+        @Override
+        public String toString() {
+            return "segment " + segment + ", offset " + offset;
+        }
+    }
 }
@@ -44,6 +44,12 @@ public final class FallbackProperties {
     /** It indicates the number of lines that can be read from the fallback file at each time*/
     public static final String NUMBER_LINES_FROM_FILE = "2000";
 
+    /** It indicates the size of each segment of the fallback file in megabytes*/
+    private static final String SEGMENT_SIZE = "64";
+
+    /** It indicates the maximum size of the fallback file in megabytes, 0 meaning no limit*/
+    private static final String MAXIMUM_SIZE = "10240";
+
     /** It indicates with which frequency (each number of lines) the check for the disc size should be done*/
     private int freeSpaceCheckFrequency = Integer.parseInt(FREE_SPACE_CHECK_FREQUENCY);
 
@@ -53,6 +59,12 @@ public final class FallbackProperties {
     /** Number of lines that will be read in each go from the fallback file */
     private int numberLinesToReadFromFile = Integer.parseInt(NUMBER_LINES_FROM_FILE);
 
+    /** Size in megabytes after which a new segment of the fallback file is started */
+    private int segmentSize = Integer.parseInt(SEGMENT_SIZE);
+
+    /** Maximum size in megabytes of all the segments of a fallback file */
+    private int maximumFallbackSize = Integer.parseInt(MAXIMUM_SIZE);
+
     /** It indicates that an error while getting the free space in the system's disc has occurred*/
     public static final int CMD_FREE_SPACE_ERROR = -1;
 
@@ -89,6 +101,8 @@ public final class FallbackProperties {
             this.minimunDiscFreeSpace = Integer.parseInt(fallbackProperties.getProperty("fallback.minimum.freespace", FREE_SPACE_CHECK_FREQUENCY));
             this.freeSpaceCheckFrequency = Integer.parseInt(fallbackProperties.getProperty("fallback.discsize.check", DISC_SIZE_CHECK));
             this.numberLinesToReadFromFile = Integer.parseInt(fallbackProperties.getProperty("fallback.read.lines.per.iteration", NUMBER_LINES_FROM_FILE));
+            this.segmentSize = Integer.parseInt(fallbackProperties.getProperty("fallback.segment.size", SEGMENT_SIZE));
+            this.maximumFallbackSize = Integer.parseInt(fallbackProperties.getProperty("fallback.max.size", MAXIMUM_SIZE));
           } else {
               LOG.warn(new StringBuffer("init() : Unable to find/read properties file ").append(PROPERTY_FILE_NAME).toString());
               LOG.info("init() : Using default values for the fallback parameters");
@@ -131,4 +145,25 @@ public final class FallbackProperties {
     public int getNumberLinesToReadFromFile() {
         return numberLinesToReadFromFile;
     }
+
+    /**
+     * @return the segmentSize
+     */
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    /**
+     * @return the maximumFallbackSize
+     */
+    public int getMaximumFallbackSize() {
+        return maximumFallbackSize;
+    }
+
+    /**
+     * @param maxFallbackSize the maximumFallbackSize to set
+     */
+    public void setMaximumFallbackSize(final int maxFallbackSize) {
+        this.maximumFallbackSize = maxFallbackSize;
+    }
 }
@@ -142,7 +142,8 @@ public class FallbackFileManager {
 
     /**
      * Checks the free disc space every time a determined number of lines are
-     * written to the file
+     * written to the file. The size of the fallback file itself is checked
+     * each time against the maximum size of the {@link FallbackProperties}
      *
      * @param minimumFreeSpace
      *            The minimum disk space that has to be free for continue
@@ -151,13 +152,20 @@ public class FallbackFileManager {
      *         done (true) or not (false)
      * @throws SystemDiskSpaceException
      *             An exception is thrown if the minimum free disc space has
-     *             been reached
+     *             been reached or the fallback file has reached its maximum
+     *             size
      */
     public final boolean isDiskSpaceCheckDone(final int minimumFreeSpace)
             throws SystemDiskSpaceException {
         final FallbackProperties fProperties = FallbackProperties.getInstance();
         boolean checkDone = false;
 
+        final long maximumSize = fProperties.getMaximumFallbackSize() * 1024L * 1024L;
+        if (maximumSize > 0 && fFileController.getDataSize() >= maximumSize) {
+            throw new SystemDiskSpaceException("Reached the maximum size of " + fProperties.getMaximumFallbackSize()
+                    + " MB for the fallback file, current size is " + fFileController.getDataSize() + " bytes");
+        }
+
         if (fFileController.getNumberOfLines() > nextCheckFallbackData) {
             checkDone = true;
             if (LOG.isDebugEnabled())
@@ -230,11 +238,9 @@ public class FallbackFileManager {
 
         boolean removed = true;
 
-        // Update the number of already committed datatags
-        fFileController.setReadBackLines(numberOfLines + fFileController.getReadBackLines());
-        // Virtually remove those datatags from the file
+        // Move the counter of the file after the committed datatags
         try {
-            fFileController.updateNumberOfProcessedLines();
+            fFileController.markLinesProcessed(numberOfLines);
         } catch (DataFallbackException e) {
             removed = false;
         }
@@ -248,7 +254,7 @@ public class FallbackFileManager {
                                 + " and the file's lines is "
                                 + fFileController.getNumberOfLines());
             }
-            if (fFileController.getReadBackLines() == fFileController.getNumberOfLines()) {
+            if (fFileController.isFallBackFileEmpty()) {
                 // Close the reading descriptor
                 fFileController.closeFallbackInputStream();
                 fFileController.clearFileContents();
@@ -275,16 +281,15 @@ public class FallbackFileManager {
      * Places the file descriptor in the line indicated as parameter
      *
      * @param lastCommited
-     *            Number of lines already processed
+     *            Number of lines already processed since the last call to
+     *            {@link #removeReadData(int)}
      * @throws DataFallbackException
-     *             An exception is thrown if something went wrong while reading
-     *             the lines from the file
+     *             An exception is thrown if something went wrong while placing
+     *             the file descriptor
      */
     public final void goToLastProcessedLine(final int lastCommited)
             throws DataFallbackException {
-        fFileController.closeFallbackInputStream();
-        int readLines = fFileController.getReadBackLines();
-        fFileController.goToLine(readLines + lastCommited);
+        fFileController.skipProcessedLines(lastCommited);
     }
 
     /**
@@ -293,7 +298,7 @@ public class FallbackFileManager {
      * @return The value indicating the status of the log
      */
     public final boolean isFallbackFileEmpty() {
-        return !((fFileController.getNumberOfLines()) > 0);
+        return fFileController.isFallBackFileEmpty();
     }
 
     /**
@@ -48,6 +48,17 @@ public interface IPersistenceManager<T extends IFallback> {
      */
     void storeData(T dataObject);
 
+    /**
+     * Writes a list of IFallback objects straight to the fallback file, from
+     * which they are committed to the DB by the recovery mechanism. Meant for
+     * data whose storage failed after it had been handed over to the DB
+     * handler, e.g. by an asynchronous handler
+     *
+     * @param data
+     *            Set of IFallback objects that could not be stored into the DB
+     */
+    void storeInFallback(List<T> data);
+
     /**
      * It releases the memory that may be used by this interface implementations
      */
@@ -203,6 +203,28 @@ public class PersistenceManager<T extends IFallback> implements IPersistenceMana
     }
   }
 
+  /**
+   * Writes the IFallback objects to the fallback file, or to the fallback log
+   * if the file cannot be written. They are committed to the DB by the
+   * recovery thread, which is started by the next successful storeData call.
+   *
+   * @param data List of IFallback objects that could not be stored into the DB
+   */
+  @Override
+  public final void storeInFallback(final List<T> data) {
+    if (data == null || data.isEmpty()) {
+      return;
+    }
+    LOG.warn(data.size() + " objects could not be stored into " + dbHandler.getDBInfo() + " and are written to the fallback file");
+    synchronized (fallbackManager.getFallbackFileController()) {
+      if (!writeToFallback(data)) {
+        for (T fallbackObj : data) {
+          FALLBACK_LOG.info(fallbackObj.toString());
+        }
+      }
+    }
+  }
+
   /**
    * Writes a list of IFallback objects to the shortermlog database table. If
    * the DB becomes unavailable during the logging process the IFallback
@@ -18,12 +18,15 @@
 package cern.c2mon.pmanager.fallback;
 
 import cern.c2mon.pmanager.fallback.exception.DataFallbackException;
+import cern.c2mon.pmanager.fallback.manager.FallbackObjectContainer;
 import cern.c2mon.pmanager.mock.FallbackImpl;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
 
 import static org.junit.Assert.*;
 
@@ -75,10 +78,10 @@ public class FallbackFileControllerTest {
     FallbackFileController fFileController = new FallbackFileController(fallbackFile.getAbsolutePath());
     try {
       fFileController.openFallbackInputStream();
+      assertNotNull(fFileController.readLines(1, new FallbackImpl()));
     } catch (DataFallbackException e) {
       fail("The InputStream could not be opened");
     }
-    assertNotNull(fFileController.getInput());
   }
 
   /**
@@ -108,11 +111,12 @@ public class FallbackFileControllerTest {
   public final void testCloseInputStream() {
     FallbackFileController fFileController = new FallbackFileController(fallbackFile.getAbsolutePath());
     try {
+      fFileController.openFallbackInputStream();
+      fFileController.closeFallbackInputStream();
       fFileController.closeFallbackInputStream();
     } catch (DataFallbackException e) {
       fail("The InputStream could not be closed");
     }
-    assertNull(fFileController.getInput());
   }
 
   /**
@@ -129,4 +133,118 @@ public class FallbackFileControllerTest {
     }
     assertNull(fFileController.getOutput());
   }
+
+  /**
+   * Tests that the lines are written to new segments once the segment size is
+   * reached and read back in order across the segments
+   */
+  @Test
+  public final void testSegmentsAreReadInOrder() throws Exception {
+    File file = createFallbackFile();
+    FallbackFileController fFileController = new FallbackFileController(file.getAbsolutePath(), 1);
+    writeLines(fFileController, "line1", "line2", "line3");
+
+    assertTrue(new File(file.getAbsolutePath() + ".1").exists());
+    assertTrue(new File(file.getAbsolutePath() + ".2").exists());
+
+    FallbackObjectContainer container = fFileController.readLines(10, new FallbackImpl());
+    assertEquals(3, container.getReadLines());
+    assertEquals("line3", container.getObjects().get(2).toString());
+  }
+
+  /**
+   * Tests that the processed segments are deleted and that the fallback file is
+   * empty once all lines have been processed
+   */
+  @Test
+  public final void testProcessedSegmentsAreDeleted() throws Exception {
+    File file = createFallbackFile();
+    FallbackFileController fFileController = new FallbackFileController(file.getAbsolutePath(), 1);
+    writeLines(fFileController, "line1", "line2", "line3");
+    fFileController.closeFallbackOutputStream();
+
+    fFileController.readLines(2, new FallbackImpl());
+    fFileController.markLinesProcessed(2);
+    assertFalse(file.exists());
+    assertTrue(new File(file.getAbsolutePath() + ".1").exists());
+    assertFalse(fFileController.isFallBackFileEmpty());
+
+    fFileController.readLines(2, new FallbackImpl());
+    fFileController.markLinesProcessed(1);
+    assertFalse(new File(file.getAbsolutePath() + ".1").exists());
+    assertTrue(fFileController.isFallBackFileEmpty());
+  }
+
+  /**
+   * Tests that a new controller continues reading after the last processed line
+   */
+  @Test
+  public final void testRestartFromCounter() throws Exception {
+    File file = createFallbackFile();
+    FallbackFileController fFileController = new FallbackFileController(file.getAbsolutePath(), 10);
+    writeLines(fFileController, "line1", "line2", "line3", "line4");
+    fFileController.readLines(3, new FallbackImpl());
+    fFileController.markLinesProcessed(2);
+    fFileController.finalize();
+
+    fFileController = new FallbackFileController(file.getAbsolutePath(), 10);
+    assertFalse(fFileController.isFallBackFileEmpty());
+    FallbackObjectContainer container = fFileController.readLines(10, new FallbackImpl());
+    assertEquals(2, container.getReadLines());
+    assertEquals("line3", container.getObjects().get(0).toString());
+  }
+
+  /**
+   * Tests that the lines read after the given line are read again
+   */
+  @Test
+  public final void testSkipProcessedLines() throws Exception {
+    File file = createFallbackFile();
+    FallbackFileController fFileController = new FallbackFileController(file.getAbsolutePath());
+    writeLines(fFileController, "line1", "line2", "line3");
+    fFileController.readLines(3, new FallbackImpl());
+
+    fFileController.skipProcessedLines(1);
+    FallbackObjectContainer container = fFileController.readLines(10, new FallbackImpl());
+    assertEquals(2, container.getReadLines());
+    assertEquals("line2", container.getObjects().get(0).toString());
+  }
+
+  /**
+   * Tests that a counter file holding the number of processed lines is still
+   * understood
+   */
+  @Test
+  public final void testLineCounterIsConverted() throws Exception {
+    File file = createFallbackFile();
+    Files.write(file.toPath(), Arrays.asList("line1", "line2", "line3"));
+    File counterFile = new File(file.getParentFile(), ".Counter" + file.getName());
+    Files.write(counterFile.toPath(), Arrays.asList("2"));
+
+    FallbackFileController fFileController = new FallbackFileController(file.getAbsolutePath());
+    FallbackObjectContainer container = fFileController.readLines(10, new FallbackImpl());
+    assertEquals(1, container.getReadLines());
+    assertEquals("line3", container.getObjects().get(0).toString());
+  }
+
+  /**
+   * Creates a fallback file in its own directory, so that no segments of
+   * other tests are found
+   */
+  private static File createFallbackFile() throws IOException {
+    File directory = Files.createTempDirectory("fallback").toFile();
+    directory.deleteOnExit();
+    File file = new File(directory, "DataTagFallback.log");
+    file.deleteOnExit();
+    return file;
+  }
+
+  private static void writeLines(final FallbackFileController fFileController, final String... lines)
+      throws DataFallbackException {
+    for (String line : lines) {
+      FallbackImpl fallbackImpl = new FallbackImpl();
+      fallbackImpl.setObjectData(line);
+      fFileController.writeLine(fallbackImpl);
+    }
+  }
 }
@@ -107,4 +107,18 @@ public class PersistenceManagerTest {
     persistenceManager.storeData(data);
     assertEquals(5, persistenceManager.getFallbackManager().getFallbackFileController().getNumberOfLines() - lines);
   }
+
+  /**
+   * Tests the storeInFallback([Collection]) method
+   */
+  @Test
+  public final void testStoreInFallback() {
+    List<IFallback> data = new ArrayList<>();
+    int lines = persistenceManager.getFallbackManager().getFallbackFileController().getNumberOfLines();
+    for (int i = 0; i < 3; i++) {
+      data.add(new FallbackImpl());
+    }
+    persistenceManager.storeInFallback(data);
+    assertEquals(3, persistenceManager.getFallbackManager().getFallbackFileController().getNumberOfLines() - lines);
+  }
 }
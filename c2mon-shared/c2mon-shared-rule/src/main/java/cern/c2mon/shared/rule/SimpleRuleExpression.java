@@ -23,6 +23,7 @@ import java.util.Map;
 import java.util.Set;
 
 import cern.c2mon.shared.common.rule.RuleInputValue;
+import cern.c2mon.shared.rule.parser.CompiledExpression;
 import cern.c2mon.shared.rule.parser.InvalidExpressionParser;
 import cern.c2mon.shared.rule.parser.Parser;
 import cern.c2mon.shared.rule.parser.RuleConstant;
@@ -31,11 +32,31 @@ public class SimpleRuleExpression extends RuleExpression implements Cloneable {
 
     private static final long serialVersionUID = 93178070585316435L;
 
+    /**
+     * Whether expressions are evaluated with a {@link CompiledExpression}
+     * (default) or with the token {@link Parser}. Can be switched off with
+     * the system property <code>c2mon.rule.compilation=false</code>.
+     */
+    private static volatile boolean compilationEnabled =
+        !"false".equalsIgnoreCase(System.getProperty("c2mon.rule.compilation"));
+
     /**
      * Tokenized representation of the rule expression.
      */
     private Object[] tokens = null;
 
+    /**
+     * Compiled form of the tokens, created on first evaluation. Not serialized;
+     * it is recompiled from the tokens when needed.
+     */
+    private transient CompiledExpression compiledExpression;
+
+    /**
+     * Set if the tokens cannot be compiled, in which case the {@link Parser}
+     * is always used.
+     */
+    private transient boolean compilationFailed;
+
     public SimpleRuleExpression(final String pExpression) throws RuleFormatException {
         super(pExpression, RuleType.Simple);
         this.tokens = tokenize(pExpression);
@@ -84,6 +105,44 @@ public class SimpleRuleExpression extends RuleExpression implements Cloneable {
       return str.toString();
     }
 
+    /**
+     * Switches between the compiled evaluation and the token {@link Parser}
+     * for all rule expressions.
+     *
+     * @param enabled false to evaluate all expressions with the {@link Parser}
+     */
+    public static void setCompilationEnabled(final boolean enabled) {
+        compilationEnabled = enabled;
+    }
+
+    /**
+     * @return true if rule expressions are evaluated in their compiled form
+     */
+    public static boolean isCompilationEnabled() {
+        return compilationEnabled;
+    }
+
+    /**
+     * @return the compiled expression, or null if compilation is disabled or
+     *         the tokens cannot be compiled
+     */
+    private CompiledExpression getCompiledExpression() {
+        if (!compilationEnabled || compilationFailed) {
+            return null;
+        }
+        CompiledExpression compiled = compiledExpression;
+        if (compiled == null) {
+            try {
+                compiled = CompiledExpression.compile(tokens);
+                compiledExpression = compiled;
+            } catch (RuleFormatException e) {
+                // the interpreter reports the error (if any) on evaluation
+                compilationFailed = true;
+            }
+        }
+        return compiled;
+    }
+
     /**
      * Extract all "tokens" (terminal symbols) from a rule expression.
      */
@@ -515,6 +574,10 @@ public class SimpleRuleExpression extends RuleExpression implements Cloneable {
     private Object handleRuleWithNoInvalidTags(final Map<Long, Object> pInputParams)
         throws RuleEvaluationException {
 
+      final CompiledExpression compiled = getCompiledExpression();
+      if (compiled != null) {
+        return compiled.evaluate(pInputParams);
+      }
       final Object[] valueTokens = splitToTokens(pInputParams);
       final Object result = Parser.getInstance().eval(valueTokens); // => evaluate the expression as normal
       return result;
@@ -0,0 +1,552 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.shared.rule.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import cern.c2mon.shared.common.rule.RuleInputValue;
+import cern.c2mon.shared.rule.RuleEvaluationException;
+import cern.c2mon.shared.rule.RuleFormatException;
+import cern.c2mon.shared.rule.RuleInputTagId;
+
+/**
+ * A rule expression compiled once into an expression tree.
+ *
+ * <p>The {@link Parser} re-splits the token array on every evaluation. The tree
+ * built here uses the same structure: the leftmost operand is bound to the rest
+ * of the expression, and a unary operator applies to everything after it. It
+ * produces the same results and error messages as the {@link Parser}.
+ * Arithmetic, comparison and logical nodes hand their results to each other as
+ * primitives, so intermediate values are never boxed. Only the final result
+ * gets boxed.
+ *
+ * <p>{@link #compile(Object[])} rejects any token sequence the interpreter
+ * would fail on, and any sequence that uses the INVALID keyword. Such
+ * expressions are left to the interpreter, which produces the original error.
+ *
+ * @see Parser
+ */
+public final class CompiledExpression {
+
+  /** Message used by the interpreter when wrapping evaluation errors */
+  private static final String UNEXPECTED_ERROR = "Unexpected error during rule evaluation.";
+
+  /** Root node of the expression tree */
+  private final Node root;
+
+  /** Input tag ids in token order, checked before each evaluation */
+  private final Long[] inputIds;
+
+  private CompiledExpression(final Node root, final Long[] inputIds) {
+    this.root = root;
+    this.inputIds = inputIds;
+  }
+
+  /**
+   * Compiles the given rule tokens into an expression tree.
+   *
+   * @param tokens rule in tokens format, as produced by the rule tokenizer
+   * @return the compiled expression
+   * @throws RuleFormatException if the tokens cannot be compiled with the
+   *                             semantics of the {@link Parser}
+   */
+  public static CompiledExpression compile(final Object[] tokens) throws RuleFormatException {
+    List<Long> inputIds = new ArrayList<>();
+    for (Object token : tokens) {
+      if (token instanceof RuleInputTagId) {
+        inputIds.add(((RuleInputTagId) token).getId());
+      } else if (token instanceof String && !isSymbol((String) token)) {
+        String literal = (String) token;
+        if (literal.equals(RuleConstant.INVALID_KEYWORD.toString())) {
+          throw new RuleFormatException("Expressions using the INVALID keyword are not compiled");
+        }
+        if (literal.isEmpty() || literal.charAt(0) == '(' || literal.charAt(0) == ')') {
+          throw new RuleFormatException("String literal \"" + literal + "\" is ambiguous with a parenthesis");
+        }
+      }
+    }
+    Node root = parse(tokens, 0, tokens.length);
+    return new CompiledExpression(root, inputIds.toArray(new Long[inputIds.size()]));
+  }
+
+  /**
+   * Evaluates the compiled expression for the given input values.
+   *
+   * @param inputs Map of value objects related to the input tag ids
+   * @return the result of the expression
+   * @throws RuleEvaluationException in case an input tag is missing or null
+   */
+  public Object evaluate(final Map<Long, Object> inputs) throws RuleEvaluationException {
+    // same checks, in the same order, as SimpleRuleExpression#splitToTokens
+    for (Long id : inputIds) {
+      resolve(id, inputs);
+    }
+    return root.eval(inputs);
+  }
+
+  /**
+   * Mirrors {@link AbstractParser#eval(Object[])} on the token range [from, to).
+   */
+  private static Node parse(final Object[] tokens, final int from, final int to) throws RuleFormatException {
+    final int length = to - from;
+    if (length == 0) {
+      throw new RuleFormatException("Empty sub-expression");
+    }
+    if (length == 1) {
+      return operand(tokens[from]);
+    }
+    if (!isParenthesisBalanced(tokens, from, to)) {
+      throw new RuleFormatException("Parenthesis not balanced!");
+    }
+
+    final Object first = tokens[from];
+    if ("!".equals(first) || "-".equals(first)) {
+      // the interpreter only accepts a unary operator followed by a parenthesis
+      // and then applies it to the whole remaining expression
+      if (!"(".equals(tokens[from + 1])) {
+        throw new RuleFormatException("Unary operator " + first + " must be followed by a parenthesis");
+      }
+      Node operand = parse(tokens, from + 1, to);
+      return "!".equals(first) ? new NotNode(operand) : new NegateNode(operand);
+    }
+
+    final Node left;
+    final int operatorIndex;
+    if ("(".equals(first)) {
+      int close = findClosingParenthesis(tokens, from, to);
+      if (close == to - 1) {
+        return parse(tokens, from + 1, close);
+      }
+      left = parse(tokens, from + 1, close);
+      operatorIndex = close + 1;
+    } else {
+      left = operand(first);
+      operatorIndex = from + 1;
+    }
+
+    final Object symbol = tokens[operatorIndex];
+    final Operator op = symbol instanceof String ? Operator.fromString((String) symbol) : null;
+    if (op == null) {
+      throw new RuleFormatException("Expected an operator instead of " + symbol);
+    }
+    final Node right = parse(tokens, operatorIndex + 1, to);
+
+    switch (op) {
+      case ADDITION:
+      case SUBTRACTION:
+      case MULTIPLICATION:
+      case DIVISION:
+      case RAISE_TO_POWER:
+      case BITWISE_AND:
+      case BITWISE_OR:
+        return new ArithmeticNode(op, left, right);
+      case LOGICAL_AND:
+      case LOGICAL_OR:
+        return new LogicalNode(op, left, right);
+      case EQUALS_COMPARISON:
+      case NOT_EQUALS_COMPARISON:
+        return new EqualityNode(op, left, right);
+      default:
+        return new ComparisonNode(op, left, right);
+    }
+  }
+
+  private static Node operand(final Object token) throws RuleFormatException {
+    if (token instanceof RuleInputTagId) {
+      return new InputNode(((RuleInputTagId) token).getId());
+    }
+    if (token instanceof String && isSymbol((String) token)) {
+      throw new RuleFormatException("Expected an operand instead of " + token);
+    }
+    if (token instanceof Double) {
+      return new NumericConstantNode((Double) token);
+    }
+    if (token instanceof Boolean) {
+      return new BooleanConstantNode((Boolean) token);
+    }
+    return new ConstantNode(token);
+  }
+
+  private static boolean isSymbol(final String token) {
+    return "(".equals(token) || ")".equals(token) || "!".equals(token) || Operator.fromString(token) != null;
+  }
+
+  /**
+   * Same counting as {@link AbstractParser#isParenthesisBalanced(Object[])}.
+   */
+  private static boolean isParenthesisBalanced(final Object[] tokens, final int from, final int to) {
+    int nesting = 0;
+    for (int i = from; i < to; i++) {
+      if ("(".equals(tokens[i])) {
+        nesting++;
+      } else if (")".equals(tokens[i])) {
+        nesting--;
+        if (nesting < 0) {
+          return false;
+        }
+      }
+    }
+    return nesting == 0;
+  }
+
+  private static int findClosingParenthesis(final Object[] tokens, final int open, final int to) throws RuleFormatException {
+    int nesting = 0;
+    for (int i = open; i < to; i++) {
+      if ("(".equals(tokens[i])) {
+        nesting++;
+      } else if (")".equals(tokens[i])) {
+        nesting--;
+        if (nesting == 0) {
+          return i;
+        }
+      }
+    }
+    throw new RuleFormatException("Parenthesis not balanced!");
+  }
+
+  /**
+   * Same resolution rules as SimpleRuleExpression#splitToTokens.
+   */
+  private static Object resolve(final Long id, final Map<Long, Object> inputs) throws RuleEvaluationException {
+    Object val = inputs.get(id);
+    if (val instanceof RuleInputValue) {
+      Object value = ((RuleInputValue) val).getValue();
+      if (value == null) {
+        throw new RuleEvaluationException("Cannot evaluate rule: tag " + ((RuleInputValue) val).getId() + " is null.");
+      }
+      return value;
+    } else if (val != null) {
+      return val;
+    }
+    throw new RuleEvaluationException("Cannot evaluate rule: input tag missing " + id);
+  }
+
+  /**
+   * Builds the same (wrapped) exception the interpreter throws for operands
+   * of the wrong type.
+   */
+  private static RuntimeException cannotEvaluate(final Object x, final Operator op, final Object y) {
+    return new RuntimeException(UNEXPECTED_ERROR, new RuleEvaluationException(new StringBuffer(
+        "Error in rule definition: cannot evaluate \"").append(x).append(" ").append(op).append(" ")
+        .append(y).append("\".").toString()));
+  }
+
+  /**
+   * Node of the expression tree.
+   */
+  private abstract static class Node {
+
+    abstract Object eval(Map<Long, Object> inputs) throws RuleEvaluationException;
+  }
+
+  /**
+   * Node always evaluating to a number, which other nodes can read without
+   * boxing through {@link #evalDouble(Map)}.
+   */
+  private abstract static class NumericNode extends Node {
+
+    @Override
+    Object eval(final Map<Long, Object> inputs) throws RuleEvaluationException {
+      return Double.valueOf(evalDouble(inputs));
+    }
+
+    abstract double evalDouble(Map<Long, Object> inputs) throws RuleEvaluationException;
+  }
+
+  /**
+   * Node always evaluating to a boolean, which other nodes can read without
+   * boxing through {@link #evalBoolean(Map)}.
+   */
+  private abstract static class BooleanNode extends Node {
+
+    @Override
+    Object eval(final Map<Long, Object> inputs) throws RuleEvaluationException {
+      return evalBoolean(inputs) ? Boolean.TRUE : Boolean.FALSE;
+    }
+
+    abstract boolean evalBoolean(Map<Long, Object> inputs) throws RuleEvaluationException;
+  }
+
+  /**
+   * Constant which is neither a number nor a boolean, e.g. a string literal.
+   */
+  private static final class ConstantNode extends Node {
+    private final Object value;
+
+    ConstantNode(final Object value) {
+      this.value = value;
+    }
+
+    @Override
+    Object eval(final Map<Long, Object> inputs) {
+      return value;
+    }
+  }
+
+  private static final class NumericConstantNode extends NumericNode {
+    private final Double value;
+
+    NumericConstantNode(final Double value) {
+      this.value = value;
+    }
+
+    @Override
+    Object eval(final Map<Long, Object> inputs) {
+      return value;
+    }
+
+    @Override
+    double evalDouble(final Map<Long, Object> inputs) {
+      return value.doubleValue();
+    }
+  }
+
+  private static final class BooleanConstantNode extends BooleanNode {
+    private final Boolean value;
+
+    BooleanConstantNode(final Boolean value) {
+      this.value = value;
+    }
+
+    @Override
+    Object eval(final Map<Long, Object> inputs) {
+      return value;
+    }
+
+    @Override
+    boolean evalBoolean(final Map<Long, Object> inputs) {
+      return value.booleanValue();
+    }
+  }
+
+  private static final class InputNode extends Node {
+    private final Long id;
+
+    InputNode(final Long id) {
+      this.id = id;
+    }
+
+    @Override
+    Object eval(final Map<Long, Object> inputs) throws RuleEvaluationException {
+      return resolve(id, inputs);
+    }
+  }
+
+  private static final class NotNode extends BooleanNode {
+    private final Node operand;
+
+    NotNode(final Node operand) {
+      this.operand = operand;
+    }
+
+    @Override
+    boolean evalBoolean(final Map<Long, Object> inputs) throws RuleEvaluationException {
+      if (operand instanceof BooleanNode) {
+        return !((BooleanNode) operand).evalBoolean(inputs);
+      }
+      // anything but TRUE is negated to TRUE
+      return !operand.eval(inputs).equals(Boolean.TRUE);
+    }
+  }
+
+  private static final class NegateNode extends NumericNode {
+    private final Node operand;
+
+    NegateNode(final Node operand) {
+      this.operand = operand;
+    }
+
+    @Override
+    double evalDouble(final Map<Long, Object> inputs) throws RuleEvaluationException {
+      if (operand instanceof NumericNode) {
+        return -((NumericNode) operand).evalDouble(inputs);
+      }
+      // a ClassCastException is propagated as is, like in the interpreter
+      return -((Number) operand.eval(inputs)).doubleValue();
+    }
+  }
+
+  private static final class ArithmeticNode extends NumericNode {
+    private final Operator op;
+    private final Node left;
+    private final Node right;
+
+    ArithmeticNode(final Operator op, final Node left, final Node right) {
+      this.op = op;
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    double evalDouble(final Map<Long, Object> inputs) throws RuleEvaluationException {
+      if (left instanceof NumericNode && right instanceof NumericNode) {
+        return apply(((NumericNode) left).evalDouble(inputs), ((NumericNode) right).evalDouble(inputs));
+      }
+      Object x = left.eval(inputs);
+      Object y = right.eval(inputs);
+      if (x instanceof Number && y instanceof Number) {
+        if (op == Operator.BITWISE_AND) {
+          return ((Number) x).longValue() & ((Number) y).longValue();
+        } else if (op == Operator.BITWISE_OR) {
+          return ((Number) x).longValue() | ((Number) y).longValue();
+        }
+        return apply(((Number) x).doubleValue(), ((Number) y).doubleValue());
+      }
+      throw cannotEvaluate(x, op, y);
+    }
+
+    private double apply(final double x, final double y) {
+      switch (op) {
+        case ADDITION:
+          return x + y;
+        case SUBTRACTION:
+          return x - y;
+        case MULTIPLICATION:
+          return x * y;
+        case DIVISION:
+          return x / y;
+        case RAISE_TO_POWER:
+          return Math.pow(x, y);
+        case BITWISE_AND:
+          return (long) x & (long) y;
+        case BITWISE_OR:
+          return (long) x | (long) y;
+        default:
+          throw new IllegalStateException("Not an arithmetic operator: " + op);
+      }
+    }
+  }
+
+  /**
+   * Binary operator with a boolean result.
+   */
+  private abstract static class BinaryBooleanNode extends BooleanNode {
+    final Operator op;
+    final Node left;
+    final Node right;
+
+    BinaryBooleanNode(final Operator op, final Node left, final Node right) {
+      this.op = op;
+      this.left = left;
+      this.right = right;
+    }
+
+    boolean isNumeric() {
+      return left instanceof NumericNode && right instanceof NumericNode;
+    }
+
+    double evalLeft(final Map<Long, Object> inputs) throws RuleEvaluationException {
+      return ((NumericNode) left).evalDouble(inputs);
+    }
+
+    double evalRight(final Map<Long, Object> inputs) throws RuleEvaluationException {
+      return ((NumericNode) right).evalDouble(inputs);
+    }
+  }
+
+  private static final class LogicalNode extends BinaryBooleanNode {
+
+    LogicalNode(final Operator op, final Node left, final Node right) {
+      super(op, left, right);
+    }
+
+    @Override
+    boolean evalBoolean(final Map<Long, Object> inputs) throws RuleEvaluationException {
+      final boolean x;
+      final boolean y;
+      // both sides are always evaluated, as in the interpreter
+      if (left instanceof BooleanNode && right instanceof BooleanNode) {
+        x = ((BooleanNode) left).evalBoolean(inputs);
+        y = ((BooleanNode) right).evalBoolean(inputs);
+      } else {
+        Object xResult = left.eval(inputs);
+        Object yResult = right.eval(inputs);
+        if (!(xResult instanceof Boolean && yResult instanceof Boolean)) {
+          throw cannotEvaluate(xResult, op, yResult);
+        }
+        x = ((Boolean) xResult).booleanValue();
+        y = ((Boolean) yResult).booleanValue();
+      }
+      return op == Operator.LOGICAL_AND ? x && y : x || y;
+    }
+  }
+
+  private static final class EqualityNode extends BinaryBooleanNode {
+
+    EqualityNode(final Operator op, final Node left, final Node right) {
+      super(op, left, right);
+    }
+
+    @Override
+    boolean evalBoolean(final Map<Long, Object> inputs) throws RuleEvaluationException {
+      final boolean equal;
+      if (isNumeric()) {
+        equal = evalLeft(inputs) == evalRight(inputs);
+      } else {
+        Object x = left.eval(inputs);
+        Object y = right.eval(inputs);
+        if (x instanceof Number && y instanceof Number) {
+          equal = ((Number) x).doubleValue() == ((Number) y).doubleValue();
+        } else {
+          equal = x.equals(y);
+        }
+      }
+      return op == Operator.EQUALS_COMPARISON ? equal : !equal;
+    }
+  }
+
+  private static final class ComparisonNode extends BinaryBooleanNode {
+
+    ComparisonNode(final Operator op, final Node left, final Node right) {
+      super(op, left, right);
+    }
+
+    @Override
+    boolean evalBoolean(final Map<Long, Object> inputs) throws RuleEvaluationException {
+      if (isNumeric()) {
+        return compare(evalLeft(inputs), evalRight(inputs));
+      }
+      Object x = left.eval(inputs);
+      Object y = right.eval(inputs);
+      if (x instanceof Number && y instanceof Number) {
+        return compare(((Number) x).doubleValue(), ((Number) y).doubleValue());
+      }
+      if (x instanceof String && y instanceof String) {
+        // the interpreter uses this test for all four operators
+        return ((String) x).compareTo((String) y) >= 0;
+      }
+      throw cannotEvaluate(x, op, y);
+    }
+
+    private boolean compare(final double x, final double y) {
+      switch (op) {
+        case GREATER_THAN_COMPARISON:
+          return x > y;
+        case LESS_THAN_COMPARISON:
+          return x < y;
+        case GREATER_THAN_OR_EQUALS_COMPARISON:
+          return x >= y;
+        case LESS_THAN_OR_EQUALS_COMPARISON:
+          return x <= y;
+        default:
+          throw new IllegalStateException("Not a comparison operator: " + op);
+      }
+    }
+  }
+}
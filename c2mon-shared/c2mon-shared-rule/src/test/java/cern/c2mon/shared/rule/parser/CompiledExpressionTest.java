@@ -0,0 +1,133 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.shared.rule.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import cern.c2mon.shared.rule.RuleExpression;
+import cern.c2mon.shared.rule.RuleFormatException;
+import cern.c2mon.shared.rule.SimpleRuleExpression;
+
+/**
+ * Makes sure compiled expressions give the same results as the {@link Parser}.
+ */
+public class CompiledExpressionTest {
+
+  /** XML with rules, extracted from the database */
+  private static final String XML_PATH = "rules.xml";
+
+  /** Input values fed into the rules */
+  private static final Object[] VALUES = {
+      Double.valueOf(0), Double.valueOf(1), Double.valueOf(2), Double.valueOf(3), Double.valueOf(4),
+      Integer.valueOf(1), Long.valueOf(3), Float.valueOf(2.5f), Boolean.TRUE, Boolean.FALSE, "ON"
+  };
+
+  @After
+  public void cleanUp() {
+    SimpleRuleExpression.setCompilationEnabled(true);
+  }
+
+  @Test
+  public void testSameAssociativityAsParser() throws Exception {
+    assertEquals(7.0, evaluate("10 - 5 - 2", true));
+    assertEquals(7.0, evaluate("10 - 5 - 2", false));
+    assertEquals(16.0, evaluate("2 * 3 + 5", true));
+    assertEquals(evaluate("2 * 3 + 5", false), evaluate("2 * 3 + 5", true));
+    assertEquals(-1.0, evaluate("-(3 - 2)", true));
+    assertEquals(Boolean.FALSE, evaluate("!(1 < 2) & true", true));
+    assertEquals(evaluate("!(1 < 2) & true", false), evaluate("!(1 < 2) & true", true));
+    assertEquals(3.0, evaluate("(1 || 2) && 7", true));
+  }
+
+  @Test
+  public void testInputs() throws Exception {
+    Map<Long, Object> inputs = new HashMap<>();
+    inputs.put(1L, Long.valueOf(Long.MAX_VALUE));
+    inputs.put(2L, Integer.valueOf(10));
+    inputs.put(3L, "ON");
+
+    assertEquals(evaluate("#1 && 1", inputs, false), evaluate("#1 && 1", inputs, true));
+    assertEquals(Boolean.TRUE, evaluate("((#2 * 2) > 15) & (#3 = \"ON\")", inputs, true));
+    assertEquals(Integer.valueOf(10), evaluate("#2", inputs, true));
+  }
+
+  @Test(expected = RuleFormatException.class)
+  public void testInvalidKeywordNotCompiled() throws Exception {
+    CompiledExpression.compile(new Object[] {1.0, "=", RuleConstant.INVALID_KEYWORD.toString()});
+  }
+
+  @Test(expected = RuleFormatException.class)
+  public void testUnsupportedUnaryNotCompiled() throws Exception {
+    CompiledExpression.compile(new Object[] {"-", 1.0});
+  }
+
+  /**
+   * Evaluates every rule of the XML corpus with random inputs, compiled and
+   * interpreted, and compares results and error messages.
+   */
+  @Test
+  public void testRuleCorpus() throws Exception {
+    Collection<RuleExpression> rules = RuleExpression
+        .createExpressionFromDatabaseXML(new ClassPathResource(XML_PATH).getFile().getAbsolutePath());
+    Random random = new Random(42);
+    int compared = 0;
+
+    for (RuleExpression rule : rules) {
+      for (int run = 0; run < 20; run++) {
+        Map<Long, Object> inputs = new HashMap<>();
+        for (Long id : rule.getInputTagIds()) {
+          inputs.put(id, VALUES[random.nextInt(VALUES.length)]);
+        }
+        assertEquals(rule.toString(), outcome(rule, inputs, false), outcome(rule, inputs, true));
+        compared++;
+      }
+    }
+    assertTrue(compared > 0);
+  }
+
+  private static Object evaluate(final String expression, final boolean compiled) throws Exception {
+    return evaluate(expression, new HashMap<Long, Object>(), compiled);
+  }
+
+  private static Object evaluate(final String expression, final Map<Long, Object> inputs, final boolean compiled)
+      throws Exception {
+    SimpleRuleExpression.setCompilationEnabled(compiled);
+    return new SimpleRuleExpression(expression).evaluate(inputs);
+  }
+
+  /**
+   * @return the rule result, or the type and message of the exception thrown
+   */
+  private static Object outcome(final RuleExpression rule, final Map<Long, Object> inputs, final boolean compiled) {
+    SimpleRuleExpression.setCompilationEnabled(compiled);
+    try {
+      return rule.evaluate(inputs);
+    } catch (Exception e) {
+      return e.getClass().getName() + ": " + e.getMessage();
+    }
+  }
+}
@@ -0,0 +1,334 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.shared.util.buffer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Buffer with the same adaptive firing window as {@link SynchroBuffer}, for
+ * buffers into which many threads push concurrently.
+ *
+ * <p>Pushed objects are appended to a lock-free queue, so producers never wait
+ * for each other or for the firing thread. Each firing drains the objects
+ * present at its start and passes them to the listener; the window until the
+ * next firing grows with the number of buffered objects, as in
+ * {@link SynchroBuffer}: <code>minWindowSize + objects/sec x windowGrowthFactor</code>,
+ * bounded by <code>maxWindowSize</code>.
+ *
+ * <p>Optionally, objects with the same coalescing key replace each other until
+ * the next firing (last value wins), keeping the position of the first one.
+ */
+public class ConcurrentSynchroBuffer {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ConcurrentSynchroBuffer.class);
+
+  /**
+   * constant indicating infinite capacity of the buffer
+   * (can lead to out of memory crashes).
+   */
+  public static final int INFINITE_CAPACITY = 0;
+
+  /**
+   * If the maximum capacity is reached, we only log a warning every
+   * WARNING_FREQUENCY removals from the buffer.
+   */
+  private static final int WARNING_FREQUENCY = 500;
+
+  private final long minWindowSize;
+
+  private final long maxWindowSize;
+
+  private final int windowGrowthFactor;
+
+  /**
+   * The maximum number of objects that the buffer will accept, once reached
+   * the oldest objects are removed. Not applied when coalescing.
+   */
+  private final int capacity;
+
+  /** Extracts the coalescing key of the pushed objects, null if not coalescing */
+  private final Function<Object, Object> coalescingKey;
+
+  /** Pushed objects if not coalescing, coalescing keys otherwise, in push order */
+  private final Queue<Object> queue = new ConcurrentLinkedQueue<>();
+
+  /** Latest object by coalescing key */
+  private final ConcurrentHashMap<Object, Object> latestValues = new ConcurrentHashMap<>();
+
+  /** Number of elements in the queue */
+  private final AtomicInteger size = new AtomicInteger();
+
+  private final AtomicInteger warningCounter = new AtomicInteger();
+
+  private final Thread checkingThread;
+
+  private volatile boolean closed = false;
+  private volatile boolean firing = false;
+  private volatile boolean enabled = false;
+
+  private volatile SynchroBufferListener listener = null;
+
+  /**
+   * Constructor of a buffer without coalescing.
+   *
+   * @param name the name of the firing thread
+   * @param minWindowSize the buffer window min size (msec)
+   * @param maxWindowSize the buffer window max size (msec)
+   * @param windowGrowthFactor the buffer window growth factor (size = minWindowSize + msg/sec x windowGrowthFactor)
+   * @param capacity the maximum size of the buffer (FIFO once this size is reached), or {@link #INFINITE_CAPACITY}
+   */
+  public ConcurrentSynchroBuffer(String name, long minWindowSize, long maxWindowSize, int windowGrowthFactor, int capacity) {
+    this(name, minWindowSize, maxWindowSize, windowGrowthFactor, capacity, null, false);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param name the name of the firing thread
+   * @param minWindowSize the buffer window min size (msec)
+   * @param maxWindowSize the buffer window max size (msec)
+   * @param windowGrowthFactor the buffer window growth factor (size = minWindowSize + msg/sec x windowGrowthFactor)
+   * @param capacity the maximum size of the buffer (FIFO once this size is reached), or {@link #INFINITE_CAPACITY};
+   *          ignored when coalescing
+   * @param coalescingKey returns the key of a pushed object, objects with equal keys replace each other until
+   *          the next firing; null to keep all objects
+   * @param daemon set as true if the firing thread should be a daemon thread
+   */
+  public ConcurrentSynchroBuffer(String name, long minWindowSize, long maxWindowSize, int windowGrowthFactor, int capacity,
+                                 Function<Object, Object> coalescingKey, boolean daemon) {
+    if ((minWindowSize <= 0) || (maxWindowSize <= 0) || (windowGrowthFactor <= 0)) {
+      throw new IllegalArgumentException("arguments must be greater than zero");
+    } else if (maxWindowSize <= minWindowSize) {
+      throw new IllegalArgumentException("maximum window size must be greater than minimum window size");
+    }
+    LOGGER.debug("ConcurrentSynchroBuffer[name=" + name + ",minWindowSize=" + minWindowSize + ",maxWindowSize=" + maxWindowSize
+        + ",windowGrowthFactor=" + windowGrowthFactor + ",capacity=" + (capacity == INFINITE_CAPACITY ? "INFINITE_CAPACITY" : Integer.toString(capacity))
+        + ",coalescing=" + (coalescingKey != null) + ",daemon thread=" + daemon + "]");
+
+    this.minWindowSize = minWindowSize;
+    this.maxWindowSize = maxWindowSize;
+    this.windowGrowthFactor = windowGrowthFactor;
+    this.capacity = capacity;
+    this.coalescingKey = coalescingKey;
+
+    checkingThread = new Thread(this::checkBuffer, name);
+    checkingThread.setDaemon(daemon);
+    checkingThread.start();
+  }
+
+  /**
+   * Push an object into the buffer. If coalescing, the object replaces any
+   * buffered object with the same key.
+   *
+   * @param object the object to push
+   * @throws IllegalArgumentException if the buffer is closed
+   */
+  public void push(Object object) {
+    if (closed) {
+      throw new IllegalArgumentException("buffer closed");
+    }
+
+    if (coalescingKey != null) {
+      Object key = coalescingKey.apply(object);
+      if (latestValues.put(key, object) == null) {
+        queue.add(key);
+        size.incrementAndGet();
+      }
+    } else {
+      queue.add(object);
+      if (size.incrementAndGet() > capacity && capacity != INFINITE_CAPACITY) {
+        // remove the oldest object
+        if (queue.poll() != null) {
+          size.decrementAndGet();
+          capacityWarn();
+        }
+      }
+    }
+  }
+
+  /**
+   * Push a collection of objects into the buffer.
+   *
+   * @param collection the collection of objects to push
+   * @throws IllegalArgumentException if the buffer is closed
+   */
+  public void push(Collection<?> collection) {
+    if (collection != null) {
+      for (Object object : collection) {
+        push(object);
+      }
+    }
+  }
+
+  /**
+   * Log a warning every WARNING_FREQUENCY times the capacity is reached,
+   * so as not to overload the logger.
+   */
+  private void capacityWarn() {
+    if (warningCounter.getAndIncrement() % WARNING_FREQUENCY == 0) {
+      LOGGER.warn("The maximum capacity of the ConcurrentSynchroBuffer was reached (capacity is " + capacity + ") - FIFO was applied to the buffer.");
+    }
+  }
+
+  /** Set the buffer consumer listener.
+   * @param listener the listener
+   */
+  public void setSynchroBufferListener(SynchroBufferListener listener) {
+    this.listener = listener;
+  }
+
+  /** Enable the listener. The listener is disabled by default.
+   */
+  public void enable() {
+    enabled = true;
+    LockSupport.unpark(checkingThread);
+  }
+
+  /** Disable the listener. Pushed object are kept in the buffer and delivered when the listener is enabled.
+   */
+  public void disable() {
+    enabled = false;
+  }
+
+  /**
+   * Return the number of objects in the buffer.
+   * @return the current size of the buffer
+   */
+  public final int getSize() {
+    return size.get();
+  }
+
+  /**
+   * Empties the buffer of all its current content.
+   */
+  public final void empty() {
+    drain(size.get());
+  }
+
+  /**
+   * Close the buffer. Waits for the buffer to empty in all cases. Empty the
+   * buffer first if the listener may not be able to treat requests.
+   *
+   * If the thread is a daemon thread, this method does not wait for the firing
+   * thread to finish, as it may be frozen and we wish to release this thread.
+   */
+  public void close() {
+    closed = true;
+    LockSupport.unpark(checkingThread);
+    while (size.get() > 0 || firing && !checkingThread.isDaemon()) {
+      try {
+        Thread.sleep(minWindowSize);
+      } catch (InterruptedException e) {
+        LOGGER.debug("InterruptedException", e);
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+  /**
+   * Removes at most the given number of objects from the buffer. Objects
+   * pushed concurrently are left for the next firing.
+   */
+  private List<Object> drain(int maxObjects) {
+    List<Object> pulled = new ArrayList<>(maxObjects);
+    for (int i = 0; i < maxObjects; i++) {
+      Object element = queue.poll();
+      if (element == null) {
+        break;
+      }
+      size.decrementAndGet();
+
+      if (coalescingKey != null) {
+        // a value pushed after this removal queues its key again
+        Object value = latestValues.remove(element);
+        if (value != null) {
+          pulled.add(value);
+        }
+      } else {
+        pulled.add(element);
+      }
+    }
+    return pulled;
+  }
+
+  /**
+   * @return the time spent by the listener (msec)
+   */
+  private long fire() {
+    firing = true;
+    try {
+      List<Object> pulled = drain(size.get());
+      long timeBefore = System.currentTimeMillis();
+      SynchroBufferListener currentListener = listener;
+      if (currentListener != null && !pulled.isEmpty()) {
+        try {
+          currentListener.pull(new PullEvent(this, pulled));
+        } catch (Exception ex) {
+          LOGGER.error("Exception caught when calling registered ConcurrentSynchroBuffer listener", ex);
+        }
+      }
+      return System.currentTimeMillis() - timeBefore;
+    } finally {
+      firing = false;
+    }
+  }
+
+  private void checkBuffer() {
+    long firingTime = 0;
+    long waitTime = minWindowSize;
+    while (!closed || (size.get() > 0 && enabled)) {
+      if (enabled) {
+        float objectsPerSec = (1000 * size.get()) / (waitTime + firingTime);
+        long calculatedWindowSize = minWindowSize + ((long) (windowGrowthFactor * objectsPerSec));
+        waitTime = Math.min(calculatedWindowSize, maxWindowSize);
+        firingTime = fire();
+        park(waitTime, false);
+      } else {
+        park(maxWindowSize, true);
+      }
+    }
+  }
+
+  /**
+   * Waits for the given time, or until the buffer is closed.
+   *
+   * @param untilEnabled true to stop waiting as well when the listener gets enabled
+   */
+  private void park(long millis, boolean untilEnabled) {
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+    long remaining;
+    while (!closed && !(untilEnabled && enabled) && (remaining = deadline - System.nanoTime()) > 0) {
+      LockSupport.parkNanos(this, remaining);
+      if (Thread.interrupted()) {
+        LOGGER.debug("Interrupted while waiting for the next firing");
+      }
+    }
+  }
+}
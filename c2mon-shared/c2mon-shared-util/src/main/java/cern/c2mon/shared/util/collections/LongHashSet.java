@@ -0,0 +1,221 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.shared.util.collections;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Set of primitive long values (typically cache ids), using open addressing
+ * with linear probing in a single long array.
+ *
+ * <p>Unlike a {@code HashSet<Long>}, adding a value allocates neither a
+ * {@code Long} nor a map entry, which matters when tracking hundreds of
+ * thousands of ids at regular intervals.
+ *
+ * <p>This class is not thread-safe.
+ */
+public final class LongHashSet {
+
+  /**
+   * Value marking a free slot; the value 0 itself is tracked separately.
+   */
+  private static final long FREE = 0L;
+
+  private static final int MIN_CAPACITY = 16;
+
+  private static final int MAX_CAPACITY = 1 << 30;
+
+  private long[] table;
+
+  private int mask;
+
+  /**
+   * Number of non-zero values in the table.
+   */
+  private int tableSize;
+
+  private boolean containsZero;
+
+  public LongHashSet() {
+    this(MIN_CAPACITY / 2);
+  }
+
+  /**
+   * @param expectedSize the number of values the set should hold without
+   *        resizing
+   */
+  public LongHashSet(final int expectedSize) {
+    allocate(capacityFor(expectedSize));
+  }
+
+  /**
+   * @param value the value to add
+   * @return true if the value was not already in the set
+   */
+  public boolean add(final long value) {
+    if (value == FREE) {
+      boolean added = !containsZero;
+      containsZero = true;
+      return added;
+    }
+    int index = indexOf(value);
+    while (table[index] != FREE) {
+      if (table[index] == value) {
+        return false;
+      }
+      index = (index + 1) & mask;
+    }
+    table[index] = value;
+    tableSize++;
+    if (tableSize > (mask + 1) / 2) {
+      rehash((mask + 1) << 1);
+    }
+    return true;
+  }
+
+  /**
+   * Adds all the values of the other set.
+   * @param other the set to add
+   */
+  public void addAll(final LongHashSet other) {
+    if (other.containsZero) {
+      containsZero = true;
+    }
+    for (long value : other.table) {
+      if (value != FREE) {
+        add(value);
+      }
+    }
+  }
+
+  /**
+   * Adds all the values of the array.
+   * @param values the values to add
+   */
+  public void addAll(final long[] values) {
+    for (long value : values) {
+      add(value);
+    }
+  }
+
+  /**
+   * @param value the value to look for
+   * @return true if the value is in the set
+   */
+  public boolean contains(final long value) {
+    if (value == FREE) {
+      return containsZero;
+    }
+    int index = indexOf(value);
+    while (table[index] != FREE) {
+      if (table[index] == value) {
+        return true;
+      }
+      index = (index + 1) & mask;
+    }
+    return false;
+  }
+
+  public int size() {
+    return containsZero ? tableSize + 1 : tableSize;
+  }
+
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  /**
+   * Removes all values, keeping the current capacity.
+   */
+  public void clear() {
+    if (tableSize > 0) {
+      Arrays.fill(table, FREE);
+      tableSize = 0;
+    }
+    containsZero = false;
+  }
+
+  /**
+   * @param action called for each value of the set (in no particular order)
+   */
+  public void forEach(final LongConsumer action) {
+    if (containsZero) {
+      action.accept(FREE);
+    }
+    for (long value : table) {
+      if (value != FREE) {
+        action.accept(value);
+      }
+    }
+  }
+
+  /**
+   * @return a new array with the values of the set (in no particular order)
+   */
+  public long[] toArray() {
+    long[] values = new long[size()];
+    int i = 0;
+    if (containsZero) {
+      values[i++] = FREE;
+    }
+    for (long value : table) {
+      if (value != FREE) {
+        values[i++] = value;
+      }
+    }
+    return values;
+  }
+
+  private int indexOf(final long value) {
+    long hash = value * 0x9E3779B97F4A7C15L;
+    return (int) (hash ^ (hash >>> 32)) & mask;
+  }
+
+  private void allocate(final int capacity) {
+    table = new long[capacity];
+    mask = capacity - 1;
+  }
+
+  private void rehash(final int capacity) {
+    if (capacity > MAX_CAPACITY) {
+      throw new IllegalStateException("LongHashSet cannot grow beyond " + MAX_CAPACITY / 2 + " values");
+    }
+    long[] oldTable = table;
+    allocate(capacity);
+    for (long value : oldTable) {
+      if (value != FREE) {
+        int index = indexOf(value);
+        while (table[index] != FREE) {
+          index = (index + 1) & mask;
+        }
+        table[index] = value;
+      }
+    }
+  }
+
+  /**
+   * @return the power of 2 table size keeping the load factor below 1/2
+   */
+  private static int capacityFor(final int expectedSize) {
+    long capacity = MIN_CAPACITY;
+    while (capacity < 2L * expectedSize + 1 && capacity < MAX_CAPACITY) {
+      capacity <<= 1;
+    }
+    return (int) capacity;
+  }
+}
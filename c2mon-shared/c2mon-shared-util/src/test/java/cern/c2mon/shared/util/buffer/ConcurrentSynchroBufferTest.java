@@ -0,0 +1,128 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ * 
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ * 
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.shared.util.buffer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ConcurrentSynchroBufferTest {
+
+  private final List<Object> pulled = Collections.synchronizedList(new ArrayList<>());
+
+  private ConcurrentSynchroBuffer buffer;
+
+  @After
+  public void tearDown() {
+    buffer.empty();
+    buffer.close();
+  }
+
+  @Test
+  public void testConcurrentPush() throws InterruptedException {
+    buffer = new ConcurrentSynchroBuffer("test", 10, 50, 1, ConcurrentSynchroBuffer.INFINITE_CAPACITY);
+    final int threads = 4;
+    final int objectsPerThread = 10000;
+    final CountDownLatch allPulled = new CountDownLatch(threads * objectsPerThread);
+    buffer.setSynchroBufferListener(event -> {
+      pulled.addAll(event.getPulled());
+      for (int i = 0; i < event.getPulled().size(); i++) {
+        allPulled.countDown();
+      }
+    });
+    buffer.enable();
+
+    List<Thread> producers = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      final int thread = t;
+      producers.add(new Thread(() -> {
+        for (int i = 0; i < objectsPerThread; i++) {
+          buffer.push(new int[] {thread, i});
+        }
+      }));
+    }
+    producers.forEach(Thread::start);
+
+    assertTrue(allPulled.await(10, TimeUnit.SECONDS));
+    assertEquals(threads * objectsPerThread, pulled.size());
+    assertEquals(0, buffer.getSize());
+
+    // the objects of each producer are pulled in push order
+    int[] next = new int[threads];
+    for (Object object : pulled) {
+      int[] value = (int[]) object;
+      assertEquals(next[value[0]]++, value[1]);
+    }
+  }
+
+  @Test
+  public void testCoalescing() throws InterruptedException {
+    buffer = new ConcurrentSynchroBuffer("test", 10, 50, 1, ConcurrentSynchroBuffer.INFINITE_CAPACITY,
+        object -> ((String) object).split(":")[0], true);
+    CountDownLatch pull = new CountDownLatch(1);
+    buffer.setSynchroBufferListener(event -> {
+      pulled.addAll(event.getPulled());
+      pull.countDown();
+    });
+
+    buffer.push(Arrays.asList("a:1", "b:1", "a:2", "c:1", "a:3"));
+    assertEquals(3, buffer.getSize());
+    buffer.enable();
+
+    assertTrue(pull.await(5, TimeUnit.SECONDS));
+    assertEquals(Arrays.asList("a:3", "b:1", "c:1"), pulled);
+  }
+
+  @Test
+  public void testCapacity() throws InterruptedException {
+    buffer = new ConcurrentSynchroBuffer("test", 10, 50, 1, 3);
+    CountDownLatch pull = new CountDownLatch(1);
+    buffer.setSynchroBufferListener(event -> {
+      pulled.addAll(event.getPulled());
+      pull.countDown();
+    });
+
+    buffer.push(Arrays.asList(1, 2, 3, 4, 5));
+    assertEquals(3, buffer.getSize());
+    buffer.enable();
+
+    assertTrue(pull.await(5, TimeUnit.SECONDS));
+    assertEquals(Arrays.asList(3, 4, 5), pulled);
+  }
+
+  @Test
+  public void testPushAfterClose() {
+    buffer = new ConcurrentSynchroBuffer("test", 10, 50, 1, ConcurrentSynchroBuffer.INFINITE_CAPACITY);
+    buffer.close();
+    try {
+      buffer.push("value");
+      fail("IllegalArgumentException expected");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+}
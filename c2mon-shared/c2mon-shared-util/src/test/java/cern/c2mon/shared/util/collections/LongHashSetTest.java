@@ -0,0 +1,90 @@
+/******************************************************************************
+ * Copyright (C) 2010-2016 CERN. All rights not expressly granted are reserved.
+ *
+ * This file is part of the CERN Control and Monitoring Platform 'C2MON'.
+ * C2MON is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, either version 3 of the license.
+ *
+ * C2MON is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with C2MON. If not, see <http://www.gnu.org/licenses/>.
+ *****************************************************************************/
+package cern.c2mon.shared.util.collections;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LongHashSetTest {
+
+  @Test
+  public void testAddAndContains() {
+    LongHashSet set = new LongHashSet();
+    assertTrue(set.isEmpty());
+    assertTrue(set.add(5L));
+    assertFalse(set.add(5L));
+    assertTrue(set.add(0L));
+    assertFalse(set.add(0L));
+    assertTrue(set.add(-1L));
+    assertEquals(3, set.size());
+    assertTrue(set.contains(0L));
+    assertTrue(set.contains(-1L));
+    assertFalse(set.contains(6L));
+  }
+
+  @Test
+  public void testGrowthAgainstHashSet() {
+    LongHashSet set = new LongHashSet();
+    Set<Long> expected = new HashSet<>();
+    Random random = new Random(1);
+    for (int i = 0; i < 100000; i++) {
+      long value = random.nextInt(50000);
+      assertEquals(expected.add(value), set.add(value));
+    }
+    assertEquals(expected.size(), set.size());
+    for (long value : set.toArray()) {
+      assertTrue(expected.contains(value));
+    }
+  }
+
+  @Test
+  public void testAddAllAndClear() {
+    LongHashSet set = new LongHashSet(2);
+    set.addAll(new long[] {1L, 2L, 3L});
+    LongHashSet other = new LongHashSet();
+    other.addAll(new long[] {0L, 3L, 4L});
+    set.addAll(other);
+
+    long[] values = set.toArray();
+    Arrays.sort(values);
+    assertArrayEquals(new long[] {0L, 1L, 2L, 3L, 4L}, values);
+
+    set.clear();
+    assertTrue(set.isEmpty());
+    assertFalse(set.contains(0L));
+    assertFalse(set.contains(3L));
+    assertEquals(0, set.toArray().length);
+  }
+
+  @Test
+  public void testForEach() {
+    LongHashSet set = new LongHashSet();
+    set.addAll(new long[] {0L, 10L, 20L});
+    long[] sum = new long[1];
+    set.forEach(value -> sum[0] += value);
+    assertEquals(30L, sum[0]);
+  }
+}